@@ -0,0 +1,132 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.tom_roush.pdfbox.android.PDFBoxResourceLoader;
+import com.tom_roush.pdfbox.pdmodel.PDDocument;
+import com.tom_roush.pdfbox.pdmodel.PDPage;
+import com.tom_roush.pdfbox.pdmodel.common.PDRectangle;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * androidx.benchmark harnesses for the hot paths that need Android classes; the pure model
+ * code is measured with JMH in :benchmark on the same {@link SyntheticInk} documents.
+ * BenchmarkRule reports time and allocations per iteration and writes them as JSON to the
+ * test's additional output directory, which Gradle pulls into
+ * {@code app/build/outputs/connected_android_test_additional_output}. Run with
+ * {@code ./gradlew :app:connectedAndroidTest
+ * -Pandroid.testInstrumentationRunnerArguments.class=com.example.myapplication.InkHotPathBenchmark}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class InkHotPathBenchmark {
+
+    private static final int PAGES = 50, STROKES_PER_PAGE = 40, POINTS = 64;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Before
+    public void setUp() {
+        Context ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        PDFBoxResourceLoader.init(ctx);
+    }
+
+    @Test
+    public void geometryFromPageSizes() {
+        float[][] sizes = SyntheticInk.pageSizes(1000, 1);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            new PdfGeometry(sizes[0], sizes[1], 20f);
+        }
+    }
+
+    @Test
+    public void geometryPageAtY() {
+        float[][] sizes = SyntheticInk.pageSizes(1000, 1);
+        PdfGeometry g = new PdfGeometry(sizes[0], sizes[1], 20f);
+        BenchmarkState state = benchmarkRule.getState();
+        float y = 0f;
+        while (state.keepRunning()) {
+            g.pageAtY(y);
+            y = (y + 7919f) % g.contentHeight;
+        }
+    }
+
+    @Test
+    public void drawVisibleZoomedIn() {
+        InkManager ink = SyntheticInk.document(1, 5000, POINTS, 3);
+        for (InkStroke s : ink.getStrokesForPage(0)) InkPaths.path(s);
+        Bitmap target = Bitmap.createBitmap(1080, 1920, Bitmap.Config.ARGB_8888);
+        Canvas c = new Canvas(target);
+        c.scale(4f, 4f);
+        try {
+            BenchmarkState state = benchmarkRule.getState();
+            while (state.keepRunning()) {
+                InkPaths.drawVisible(c, ink, 0);
+            }
+        } finally {
+            target.recycle();
+        }
+    }
+
+    @Test
+    public void buildPathsVariableWidth() {
+        List<InkStroke> strokes = SyntheticInk.strokes(200, 1, POINTS, 7, true);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            for (InkStroke s : strokes) s.renderCache = null;
+            state.resumeTiming();
+            for (int i = 0, n = strokes.size(); i < n; i++) InkPaths.path(strokes.get(i));
+        }
+    }
+
+    /** The vector-append commit: append every page's ink, then save, as commitInkByVectorAppend does. */
+    @Test
+    public void appendInkAndSave() throws IOException {
+        byte[] pdf = blankPdf(PAGES);
+        List<InkStroke> strokes = new ArrayList<>(
+                SyntheticInk.strokes(PAGES * STROKES_PER_PAGE, PAGES, POINTS, 42));
+        float[][] sizes = SyntheticInk.pageSizes(PAGES, 0);
+        PdfGeometry geom = new PdfGeometry(sizes[0], sizes[1], 0f);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(pdf.length * 4);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            PDDocument doc = PDDocument.load(pdf);
+            out.reset();
+            state.resumeTiming();
+            try {
+                PdfInkFlattener.appendInk(doc, geom, strokes, null, null);
+                doc.save(out);
+            } finally {
+                doc.close();
+            }
+        }
+    }
+
+    private static byte[] blankPdf(int pages) throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            for (int i = 0; i < pages; i++) doc.addPage(new PDPage(PDRectangle.A4));
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            doc.save(bos);
+            return bos.toByteArray();
+        }
+    }
+}
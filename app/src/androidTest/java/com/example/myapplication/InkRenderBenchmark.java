@@ -0,0 +1,93 @@
+package com.example.myapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Zoomed-in rendering of a densely inked page: every stroke vs. strokes culled by the spatial
+ * index. Results are logged under the "InkRenderBench" tag; run with
+ * {@code ./gradlew connectedAndroidTest}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class InkRenderBenchmark {
+    private static final String TAG = "InkRenderBench";
+    private static final int VIEW_W = 1080, VIEW_H = 1920;
+    private static final int FRAMES = 30;
+
+    @Test
+    public void zoomedInDrawTimeCulledVsAll() {
+        Bitmap target = Bitmap.createBitmap(VIEW_W, VIEW_H, Bitmap.Config.ARGB_8888);
+        Canvas c = new Canvas(target);
+        try {
+            for (int strokes : new int[]{1000, 5000, 20000}) {
+                InkManager ink = new InkManager();
+                for (InkStroke s : SyntheticInk.strokes(strokes, 1, 64, 3)) ink.add(s);
+                List<InkStroke> all = ink.getStrokesForPage(0);
+                for (InkStroke s : all) InkPaths.path(s); // exclude path building from timing
+
+                for (float zoom : new float[]{1f, 4f, 10f}) {
+                    long allNs = 0, culledNs = 0;
+                    for (int f = 0; f < FRAMES; f++) {
+                        allNs += timeFrame(c, zoom, f, () -> {
+                            for (int i = 0, n = all.size(); i < n; i++) {
+                                InkStroke s = all.get(i);
+                                c.drawPath(InkPaths.path(s), InkPaths.paint(s.style));
+                            }
+                        });
+                        culledNs += timeFrame(c, zoom, f, () -> InkPaths.drawVisible(c, ink, 0));
+                    }
+                    Log.i(TAG, String.format("strokes=%d zoom=%.0f all=%.2fms culled=%.2fms visible=%d",
+                            strokes, zoom, allNs / 1e6 / FRAMES, culledNs / 1e6 / FRAMES,
+                            visibleCount(ink, zoom)));
+                }
+            }
+        } finally {
+            target.recycle();
+        }
+    }
+
+    @Test
+    public void cullingKeepsOnlyStrokesInViewport() {
+        InkManager ink = new InkManager();
+        for (InkStroke s : SyntheticInk.strokes(5000, 1, 64, 5)) ink.add(s);
+        int visible = visibleCount(ink, 10f);
+        assertTrue(visible > 0);
+        assertTrue("culling kept " + visible, visible < 500);
+    }
+
+    /** Draws with the viewport panned across the page, as when scrolling zoomed in. */
+    private static long timeFrame(Canvas c, float zoom, int frame, Runnable draw) {
+        c.save();
+        c.scale(zoom, zoom);
+        c.translate(-panX(zoom, frame), -panY(zoom, frame));
+        long t0 = System.nanoTime();
+        draw.run();
+        long t = System.nanoTime() - t0;
+        c.restore();
+        return t;
+    }
+
+    private static float panX(float zoom, int frame) {
+        return Math.max(0f, 1080f - VIEW_W / zoom) * (frame % 10) / 10f;
+    }
+
+    private static float panY(float zoom, int frame) {
+        return Math.max(0f, 1527f - VIEW_H / zoom) * (frame % 7) / 7f;
+    }
+
+    private static int visibleCount(InkManager ink, float zoom) {
+        List<InkStroke> out = new ArrayList<>();
+        return ink.queryPage(0, 0f, 0f, VIEW_W / zoom, VIEW_H / zoom, out);
+    }
+}
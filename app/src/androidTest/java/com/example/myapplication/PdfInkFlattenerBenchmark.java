@@ -0,0 +1,91 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.tom_roush.pdfbox.android.PDFBoxResourceLoader;
+import com.tom_roush.pdfbox.pdmodel.PDDocument;
+import com.tom_roush.pdfbox.pdmodel.PDPage;
+import com.tom_roush.pdfbox.pdmodel.common.PDRectangle;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Flatten time against page count and stroke count. Results are logged under the
+ * "FlattenBench" tag; run with {@code ./gradlew connectedAndroidTest}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PdfInkFlattenerBenchmark {
+    private static final String TAG = "FlattenBench";
+    private static final float PAGE_W = SyntheticInk.PAGE_W, PAGE_H = SyntheticInk.PAGE_H;
+
+    @Before
+    public void setUp() {
+        Context ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        PDFBoxResourceLoader.init(ctx);
+    }
+
+    @Test
+    public void flattenTimeByPagesAndStrokes() throws IOException {
+        int[] pageCounts = {10, 100, 500};
+        int[] strokeCounts = {0, 100, 1000};
+        for (int pages : pageCounts) {
+            byte[] pdf = blankPdf(pages);
+            for (int strokes : strokeCounts) {
+                List<InkStroke> ink = SyntheticInk.strokes(strokes, pages, 64, 42);
+                long t0 = System.nanoTime();
+                byte[] out = flatten(pdf, pages, ink);
+                long ms = (System.nanoTime() - t0) / 1_000_000;
+                Log.i(TAG, String.format("pages=%d strokes=%d time=%dms in=%dB out=%dB",
+                        pages, strokes, ms, pdf.length, out.length));
+
+                try (PDDocument check = PDDocument.load(out)) {
+                    assertEquals(pages, check.getNumberOfPages());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void untouchedPagesAddNoBytes() throws IOException {
+        byte[] pdf = blankPdf(200);
+        byte[] none = flatten(pdf, 200, new ArrayList<>());
+        byte[] one = flatten(pdf, 200, SyntheticInk.strokes(1, 1, 16, 1));
+        // One inked page should cost one content stream, not one per page
+        assertTrue(one.length - none.length < 4096);
+    }
+
+    private static byte[] flatten(byte[] pdf, int pages, List<InkStroke> ink) throws IOException {
+        float[] w = new float[pages], h = new float[pages];
+        Arrays.fill(w, PAGE_W);
+        Arrays.fill(h, PAGE_H);
+        try (PDDocument doc = PDDocument.load(pdf)) {
+            PdfInkFlattener.appendInk(doc, new PdfGeometry(w, h, 0f), ink, null, null);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            doc.save(bos);
+            return bos.toByteArray();
+        }
+    }
+
+    private static byte[] blankPdf(int pages) throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            for (int i = 0; i < pages; i++) doc.addPage(new PDPage(PDRectangle.A4));
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            doc.save(bos);
+            return bos.toByteArray();
+        }
+    }
+}
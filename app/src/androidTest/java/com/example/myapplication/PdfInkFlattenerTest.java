@@ -0,0 +1,228 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.tom_roush.pdfbox.android.PDFBoxResourceLoader;
+import com.tom_roush.pdfbox.pdmodel.PDDocument;
+import com.tom_roush.pdfbox.pdmodel.PDPage;
+import com.tom_roush.pdfbox.pdmodel.PDPageContentStream;
+import com.tom_roush.pdfbox.pdmodel.common.PDRectangle;
+import com.tom_roush.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class PdfInkFlattenerTest {
+    private static final int PAGES = 40;
+
+    @Before
+    public void setUp() {
+        PDFBoxResourceLoader.init(InstrumentationRegistry.getInstrumentation().getTargetContext());
+    }
+
+    @Test
+    public void parallelOutputMatchesSerial() throws IOException {
+        byte[] pdf = pdfWithSomeContent();
+        List<InkStroke> ink = SyntheticInk.strokes(800, PAGES, 48, 9);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            assertArrayEquals(flatten(pdf, ink, null), flatten(pdf, ink, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void wrapsExistingContentAndKeepsEmptyPagesUntouched() throws IOException {
+        byte[] pdf = pdfWithSomeContent();
+        try (PDDocument doc = PDDocument.load(flatten(pdf, SyntheticInk.strokes(1, 1, 8, 3), null))) {
+            String inked = new String(readAll(doc.getPage(0)), "US-ASCII");
+            assertTrue(inked.startsWith("q\n"));
+            assertTrue(inked.contains("Q\n1 J\n1 j\n"));
+            assertTrue(inked.trim().endsWith("S"));
+            assertFalse(new String(readAll(doc.getPage(2)), "US-ASCII").contains(" RG"));
+        }
+    }
+
+    @Test
+    public void reportsProgressAndStopsWhenCancelled() throws IOException {
+        byte[] pdf = pdfWithSomeContent();
+        List<InkStroke> ink = SyntheticInk.strokes(200, PAGES, 16, 5);
+        float[] w = new float[PAGES], h = new float[PAGES];
+        Arrays.fill(w, 1080f);
+        Arrays.fill(h, 1527f);
+        try (PDDocument doc = PDDocument.load(pdf)) {
+            int[] last = new int[2];
+            FlattenJob job = new FlattenJob((done, total) -> {
+                last[0] = done;
+                last[1] = total;
+            });
+            PdfInkFlattener.appendInk(doc, new PdfGeometry(w, h, 0f), ink, null, job);
+            assertEquals(PAGES, last[1]);
+            assertEquals(PAGES, last[0]);
+        }
+        try (PDDocument doc = PDDocument.load(pdf)) {
+            FlattenJob job = new FlattenJob((done, total) -> {
+                if (done == 3) throw new AssertionError("encoding continued after cancel");
+            });
+            job.cancel();
+            try {
+                PdfInkFlattener.appendInk(doc, new PdfGeometry(w, h, 0f), ink, null, job);
+                fail("expected CancellationException");
+            } catch (CancellationException expected) {
+                // no page was modified
+                assertFalse(new String(readAll(doc.getPage(0)), "US-ASCII").contains(" RG"));
+            }
+        }
+    }
+
+    @Test
+    public void cancelAfterTheWriteStillReportsSuccess() throws Exception {
+        Context ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File file = CommitCache.newFile(ctx.getCacheDir());
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(pdfWithSomeContent());
+        }
+        final long originalLength = file.length();
+        float[] w = new float[PAGES], h = new float[PAGES];
+        Arrays.fill(w, 1080f);
+        Arrays.fill(h, 1527f);
+        InkManager ink = SyntheticInk.document(4, 10, 16, 13);
+
+        PdfInkFlattener flattener = new PdfInkFlattener();
+        CountDownLatch release = new CountDownLatch(1), done = new CountDownLatch(1);
+        String[] outcome = new String[1];
+        FlattenJob[] job = new FlattenJob[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            job[0] = flattener.flattenAsync(ctx, Uri.fromFile(file), new PdfGeometry(w, h, 0f), ink,
+                    new PdfInkFlattener.Callback() {
+                        @Override public void onSuccess(File outFile) { outcome[0] = "success"; done.countDown(); }
+                        @Override public void onError(Throwable t) { outcome[0] = "error " + t; done.countDown(); }
+                        @Override public void onCancelled() { outcome[0] = "cancelled"; done.countDown(); }
+                    });
+            // Hold the main thread so the result is posted but not yet delivered
+            new Handler(Looper.getMainLooper()).post(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        });
+        try {
+            long deadline = SystemClock.elapsedRealtime() + 30_000;
+            while (!job[0].isComplete()) {
+                assertTrue("commit did not finish", SystemClock.elapsedRealtime() < deadline);
+                Thread.sleep(5);
+            }
+            job[0].cancel();
+        } finally {
+            release.countDown();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals("success", outcome[0]);
+        assertFalse(job[0].isCancelled());
+        assertTrue(file.length() > originalLength);
+        try (PDDocument doc = PDDocument.load(file)) {
+            assertTrue(new String(readAll(doc.getPage(0)), "US-ASCII").contains(" RG"));
+        }
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void annotationsRoundTripAndFlattenIntoContent() throws IOException {
+        byte[] pdf = pdfWithSomeContent();
+        List<InkStroke> ink = SyntheticInk.strokes(60, PAGES, 16, 11);
+        float[] w = new float[PAGES], h = new float[PAGES];
+        Arrays.fill(w, 1080f);
+        Arrays.fill(h, 1527f);
+        byte[] annotated;
+        try (PDDocument doc = PDDocument.load(pdf)) {
+            PdfInkFlattener.appendInkAnnotations(doc, new PdfGeometry(w, h, 0f), ink, null, null);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            doc.save(bos);
+            annotated = bos.toByteArray();
+        }
+        try (PDDocument doc = PDDocument.load(annotated)) {
+            List<PDAnnotation> annots = doc.getPage(0).getAnnotations();
+            assertFalse(annots.isEmpty());
+            PDAnnotation a = annots.get(0);
+            assertEquals("Ink", a.getSubtype());
+            assertTrue(a.getAnnotationName().startsWith(InkAnnotations.NAME_PREFIX));
+            assertNotNull(a.getNormalAppearanceStream());
+            // page content is untouched
+            assertFalse(new String(readAll(doc.getPage(0)), "US-ASCII").contains(" RG"));
+
+            assertFalse(InkAnnotations.flatten(doc, new FlattenJob(null)).isEmpty());
+            assertTrue(doc.getPage(0).getAnnotations().isEmpty());
+            String content = new String(readAll(doc.getPage(0)), "US-ASCII");
+            assertTrue(content.startsWith("q\n"));
+            assertTrue(content.contains(" Do Q"));
+        }
+    }
+
+    private static byte[] flatten(byte[] pdf, List<InkStroke> ink, ExecutorService pool) throws IOException {
+        float[] w = new float[PAGES], h = new float[PAGES];
+        Arrays.fill(w, 1080f);
+        Arrays.fill(h, 1527f);
+        try (PDDocument doc = PDDocument.load(pdf)) {
+            PdfInkFlattener.appendInk(doc, new PdfGeometry(w, h, 0f), ink, pool, null);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            doc.save(bos);
+            return bos.toByteArray();
+        }
+    }
+
+    /** Even pages carry a filled rectangle, odd pages have no content stream. */
+    private static byte[] pdfWithSomeContent() throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            for (int i = 0; i < PAGES; i++) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                doc.addPage(page);
+                if (i % 2 == 0) {
+                    try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+                        cs.addRect(10, 10, 100, 100);
+                        cs.fill();
+                    }
+                }
+            }
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            doc.save(bos);
+            return bos.toByteArray();
+        }
+    }
+
+    private static byte[] readAll(PDPage page) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (InputStream is = page.getContents()) {
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = is.read(buf)) > 0) bos.write(buf, 0, n);
+        }
+        return bos.toByteArray();
+    }
+}
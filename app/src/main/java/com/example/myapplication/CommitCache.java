@@ -0,0 +1,176 @@
+package com.example.myapplication;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Lifecycle of the committed cache files ({@code merged-<ts>.pdf}) in the cache dir. Only the
+ * latest committed generation and the one before it (for rollback) are kept; anything else
+ * with the prefix is an orphan of a finished export, a crash or an earlier session and is
+ * deleted at startup ({@link #orphans()}). Beyond {@link #maxBytes} the rollback generation goes
+ * first; the latest one is never deleted. An incremental commit appends to the latest
+ * generation instead; its rollback point is the length the file had before the append.
+ *
+ * <p>Pure file bookkeeping; thread-safe.
+ */
+public final class CommitCache {
+
+    static final String PREFIX = "merged-";
+    static final String SUFFIX = ".pdf";
+
+    /** Share of the free space in the cache dir that {@link #forDevice} allows. */
+    private static final int FREE_SPACE_DIVISOR = 4;
+    private static final long MAX_BYTES_CEILING = 512L * 1024 * 1024;
+
+    private final File dir;
+    public final long maxBytes;
+
+    private File latest;
+    private File rollback;
+    private long latestLength;          // length of latest as of the last promote
+    private long appendedFrom = -1;     // length before the last incremental commit, or -1
+
+    public CommitCache(File dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    /** A quarter of the free space in {@code dir}, at most 512 MB. */
+    public static CommitCache forDevice(File dir) {
+        return new CommitCache(dir, Math.min(MAX_BYTES_CEILING, dir.getUsableSpace() / FREE_SPACE_DIVISOR));
+    }
+
+    /** A fresh, not yet existing file name for a commit or export in {@code dir}. */
+    static File newFile(File dir) {
+        long ts = System.currentTimeMillis();
+        File f;
+        while ((f = new File(dir, PREFIX + ts + SUFFIX)).exists()) ts++;
+        return f;
+    }
+
+    static boolean isManaged(File f) {
+        String name = f.getName();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    /** Adopts the generations known from saved state, e.g. after process death. */
+    public synchronized void restore(File latest, File rollback) {
+        this.latest = latest;
+        this.rollback = Objects.equals(rollback, latest) ? null : rollback;
+        latestLength = latest != null ? latest.length() : 0;
+        appendedFrom = -1;
+    }
+
+    public synchronized File latest() { return latest; }
+    public synchronized File rollback() { return rollback; }
+
+    /**
+     * Makes {@code f} the latest generation. The previous latest becomes the rollback
+     * generation and the one before it is deleted. Committing into the same file again (an
+     * incremental update) keeps the generations as they are and remembers the length before
+     * the append for {@link #rollBack()}. Then enforces the byte cap.
+     */
+    public synchronized void promote(File f) {
+        if (!f.equals(latest)) {
+            if (rollback != null && !rollback.equals(f)) delete(rollback);
+            rollback = latest;
+            latest = f;
+            appendedFrom = -1;
+        } else {
+            appendedFrom = latestLength;
+        }
+        latestLength = f.length();
+        enforceCap();
+    }
+
+    /**
+     * Undoes the last commit, e.g. when its output cannot be opened. After an incremental
+     * commit the latest generation is truncated back to its length before the append;
+     * otherwise the latest generation is deleted and the rollback generation, if any, becomes
+     * the latest again.
+     *
+     * @return the restored generation, or null if the commit started from a document that is
+     *         not managed here (or the append could not be undone)
+     */
+    public synchronized File rollBack() {
+        if (appendedFrom >= 0) {
+            try (RandomAccessFile raf = new RandomAccessFile(latest, "rw")) {
+                raf.setLength(appendedFrom);
+            } catch (IOException e) {
+                return null;
+            }
+            latestLength = appendedFrom;
+            appendedFrom = -1;
+            return latest;
+        }
+        delete(latest);
+        latest = rollback;
+        rollback = null;
+        latestLength = latest != null ? latest.length() : 0;
+        return latest;
+    }
+
+    /** Deletes both generations, e.g. when another document is opened. */
+    public synchronized void clear() {
+        delete(rollback);
+        delete(latest);
+        latest = rollback = null;
+        latestLength = 0;
+        appendedFrom = -1;
+    }
+
+    /** Deletes the rollback generation once managed files together exceed {@link #maxBytes}. */
+    public synchronized void enforceCap() {
+        if (rollback != null && managedBytes() > maxBytes) {
+            delete(rollback);
+            rollback = null;
+        }
+    }
+
+    /**
+     * Every managed file in the cache dir that is neither generation. Call once at startup,
+     * before any commit or export creates new files; the deletion itself
+     * ({@link #delete(List)}) can then run in the background.
+     */
+    public synchronized List<File> orphans() {
+        List<File> out = new ArrayList<>();
+        File[] files = dir.listFiles();
+        if (files == null) return out;
+        for (File f : files) {
+            if (isManaged(f) && !f.equals(latest) && !f.equals(rollback)) out.add(f);
+        }
+        return out;
+    }
+
+    /** @return bytes freed */
+    public static long delete(List<File> files) {
+        long freed = 0;
+        for (File f : files) {
+            long len = f.length();
+            if (f.delete()) freed += len;
+        }
+        return freed;
+    }
+
+    /** Total size of the managed files in the cache dir. */
+    public synchronized long managedBytes() {
+        File[] files = dir.listFiles();
+        if (files == null) return 0;
+        long total = 0;
+        for (File f : files) {
+            if (isManaged(f)) total += f.length();
+        }
+        return total;
+    }
+
+    private static void delete(File f) {
+        if (f == null) return;
+        // A viewer that still has the file open keeps reading it through its descriptor
+        //noinspection ResultOfMethodCallIgnored
+        f.delete();
+    }
+}
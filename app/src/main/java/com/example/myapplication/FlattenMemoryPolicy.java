@@ -0,0 +1,55 @@
+package com.example.myapplication;
+
+import android.app.ActivityManager;
+import android.content.Context;
+
+import com.tom_roush.pdfbox.io.MemoryUsageSetting;
+
+import java.io.File;
+
+/**
+ * How much heap PDFBox may use for a document while flattening. Beyond the cap, parsed
+ * streams and scratch buffers spill to temp files under the cache dir.
+ */
+public final class FlattenMemoryPolicy {
+    /** Fraction of the app's heap class handed to PDFBox by {@link #forDevice}. */
+    private static final int HEAP_CLASS_DIVISOR = 4;
+
+    public final long maxMainMemoryBytes;   // -1 = unlimited
+    public final boolean spillToTempFile;
+
+    public FlattenMemoryPolicy(long maxMainMemoryBytes, boolean spillToTempFile) {
+        this.maxMainMemoryBytes = maxMainMemoryBytes;
+        this.spillToTempFile = spillToTempFile;
+    }
+
+    /** Whole document in heap; the old behavior. */
+    public static FlattenMemoryPolicy unlimited() {
+        return new FlattenMemoryPolicy(-1, false);
+    }
+
+    /** A quarter of the device's per-app heap class in memory, the rest on disk. */
+    public static FlattenMemoryPolicy forDevice(Context ctx) {
+        ActivityManager am = (ActivityManager) ctx.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryClassMb = am != null ? am.getMemoryClass() : 64;
+        return new FlattenMemoryPolicy(memoryClassMb * 1024L * 1024L / HEAP_CLASS_DIVISOR, true);
+    }
+
+    MemoryUsageSetting toSetting(File tempDir) {
+        MemoryUsageSetting s;
+        if (!spillToTempFile) {
+            s = MemoryUsageSetting.setupMainMemoryOnly(maxMainMemoryBytes);
+        } else if (maxMainMemoryBytes == 0) {
+            s = MemoryUsageSetting.setupTempFileOnly();
+        } else {
+            s = MemoryUsageSetting.setupMixed(maxMainMemoryBytes);
+        }
+        return s.setTempDir(tempDir);
+    }
+
+    @Override
+    public String toString() {
+        return (maxMainMemoryBytes < 0 ? "unlimited" : (maxMainMemoryBytes >> 20) + "MB")
+                + (spillToTempFile ? "+tempfile" : "");
+    }
+}
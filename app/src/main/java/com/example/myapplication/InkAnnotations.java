@@ -0,0 +1,253 @@
+package com.example.myapplication;
+
+import com.tom_roush.pdfbox.cos.COSArray;
+import com.tom_roush.pdfbox.cos.COSBase;
+import com.tom_roush.pdfbox.cos.COSDictionary;
+import com.tom_roush.pdfbox.cos.COSFloat;
+import com.tom_roush.pdfbox.cos.COSName;
+import com.tom_roush.pdfbox.cos.COSStream;
+import com.tom_roush.pdfbox.pdmodel.PDDocument;
+import com.tom_roush.pdfbox.pdmodel.PDPage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Ink as PDF Ink annotations (ISO 32000-1, 12.5.6.13) instead of page content: one annotation
+ * per page and run of consecutive same-style strokes, carrying an /InkList for editors and a
+ * prebuilt appearance stream for renderers. Annotations written here are tagged through /NM
+ * so {@link #flatten} can later burn exactly these into the page content and leave other
+ * annotations alone.
+ *
+ * <p>pdfbox-android has no PDAnnotationInk, so the dictionaries are built at the COS level.
+ */
+final class InkAnnotations {
+
+    /** /NM prefix identifying annotations written by this app. */
+    static final String NAME_PREFIX = "inkapp-";
+
+    private static final COSName INK_LIST = COSName.getPDFName("InkList");
+    private static final COSName INK = COSName.getPDFName("Ink");
+    private static final int FLAG_HIDDEN = 1 << 1;
+    private static final int FLAG_PRINT = 1 << 2;
+
+    private InkAnnotations() {}
+
+    /** One annotation's worth of prepared data; built off the document thread. */
+    static final class Appearance {
+        final InkStyle style;
+        final float lineWidth;   // PDF units
+        final float[] rect;      // llx, lly, urx, ury in PDF user space
+        final float[][] inkList; // per stroke: x0 y0 x1 y1 ...
+        final byte[] deflated;   // appearance stream operators, FlateDecode
+
+        Appearance(InkStyle style, float lineWidth, float[] rect, float[][] inkList, byte[] deflated) {
+            this.style = style;
+            this.lineWidth = lineWidth;
+            this.rect = rect;
+            this.inkList = inkList;
+            this.deflated = deflated;
+        }
+    }
+
+    /**
+     * Encodes one style's strokes of a page. Pure, so pages can be prepared on worker threads.
+     * The appearance is drawn in page space with an identity /Matrix and /BBox equal to /Rect,
+     * so it renders exactly where flattened content would.
+     */
+    static Appearance prepare(InkStyle style, List<InkStroke> strokes, float sx, float sy, float pdfH) {
+        float lineWidth = style.width * sx;
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        float[][] inkList = new float[strokes.size()][];
+        float inkPad = 0f;
+        for (int k = 0; k < inkList.length; k++) {
+            InkStroke s = strokes.get(k);
+            inkPad = Math.max(inkPad, s.inkPadding() * sx);
+            float[] pts = new float[2 * s.pointCount()];
+            for (int i = 0; i < s.pointCount(); i++) {
+                float x = s.x(i) * sx, y = pdfH - s.y(i) * sy;
+                pts[2 * i] = x;
+                pts[2 * i + 1] = y;
+                minX = Math.min(minX, x); maxX = Math.max(maxX, x);
+                minY = Math.min(minY, y); maxY = Math.max(maxY, y);
+            }
+            inkList[k] = pts;
+            // Bezier control points bound the curve (convex hull property)
+            if (s.hasCurves()) {
+                for (int c = 0, n = 2 + 6 * s.curveSegmentCount(); c < n; c += 2) {
+                    float x = s.curveCoord(c) * sx, y = pdfH - s.curveCoord(c + 1) * sy;
+                    minX = Math.min(minX, x); maxX = Math.max(maxX, x);
+                    minY = Math.min(minY, y); maxY = Math.max(maxY, y);
+                }
+            }
+        }
+        float pad = Math.max(lineWidth / 2f, inkPad) + 1f;
+        float[] rect = {minX - pad, minY - pad, maxX + pad, maxY + pad};
+        byte[] ops = PageInkEncoder.encode(Collections.singletonList(strokes), sx, sy, pdfH, false);
+        return new Appearance(style, lineWidth, rect, inkList, PageInkEncoder.deflate(ops));
+    }
+
+    /** Adds the annotations to the page through a new direct /Annots array. */
+    static void attach(PDDocument doc, PDPage page, List<Appearance> appearances) throws IOException {
+        COSDictionary pageDict = page.getCOSObject();
+        COSArray annots = new COSArray();
+        COSBase existing = pageDict.getDictionaryObject(COSName.ANNOTS);
+        if (existing instanceof COSArray) annots.addAll((COSArray) existing);
+
+        for (Appearance a : appearances) {
+            COSArray rect = floats(a.rect);
+
+            COSStream ap = doc.getDocument().createCOSStream();
+            try (OutputStream os = ap.createRawOutputStream()) {
+                os.write(a.deflated);
+            }
+            ap.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+            ap.setItem(COSName.TYPE, COSName.XOBJECT);
+            ap.setItem(COSName.SUBTYPE, COSName.FORM);
+            ap.setItem(COSName.BBOX, floats(a.rect));
+            COSDictionary apDict = new COSDictionary();
+            apDict.setDirect(true);
+            apDict.setItem(COSName.N, ap);
+
+            COSArray inkList = new COSArray();
+            for (float[] pts : a.inkList) inkList.add(floats(pts));
+
+            COSDictionary bs = new COSDictionary();
+            bs.setDirect(true);
+            bs.setFloat(COSName.W, a.lineWidth);
+
+            COSDictionary annot = new COSDictionary();
+            annot.setItem(COSName.TYPE, COSName.ANNOT);
+            annot.setItem(COSName.SUBTYPE, INK);
+            annot.setItem(COSName.RECT, rect);
+            annot.setInt(COSName.F, FLAG_PRINT);
+            annot.setString(COSName.NM, NAME_PREFIX + UUID.randomUUID());
+            annot.setItem(COSName.C, floats(new float[]{
+                    a.style.red() / 255f, a.style.green() / 255f, a.style.blue() / 255f}));
+            annot.setItem(COSName.BS, bs);
+            annot.setItem(INK_LIST, inkList);
+            annot.setItem(COSName.AP, apDict);
+            annot.setItem(COSName.P, pageDict);
+            annots.add(annot);
+        }
+        pageDict.setItem(COSName.ANNOTS, annots);
+    }
+
+    /**
+     * Burns this app's visible Ink annotations into page content and removes them. Each
+     * appearance becomes a form XObject painted by one content stream appended per page, so
+     * the result matches what the viewer showed. Other annotations are kept.
+     *
+     * @return the page dictionaries that were modified
+     */
+    static Set<COSDictionary> flatten(PDDocument doc, FlattenJob job) throws IOException {
+        Set<COSDictionary> touched = new HashSet<>();
+        int pageCount = doc.getNumberOfPages();
+        job.beginPages(pageCount);
+        for (int i = 0; i < pageCount; i++) {
+            job.throwIfCancelled();
+            PDPage page = doc.getPage(i);
+            if (flattenPage(doc, page)) {
+                page.getCOSObject().setNeedToBeUpdated(true);
+                touched.add(page.getCOSObject());
+            }
+            job.pageDone();
+        }
+        return touched;
+    }
+
+    private static boolean flattenPage(PDDocument doc, PDPage page) throws IOException {
+        COSDictionary pageDict = page.getCOSObject();
+        COSBase base = pageDict.getDictionaryObject(COSName.ANNOTS);
+        if (!(base instanceof COSArray)) return false;
+        COSArray annots = (COSArray) base;
+
+        COSArray kept = new COSArray();
+        List<COSDictionary> ours = new ArrayList<>();
+        for (int k = 0; k < annots.size(); k++) {
+            COSBase a = annots.getObject(k);
+            if (a instanceof COSDictionary && isOwnInk((COSDictionary) a)) {
+                ours.add((COSDictionary) a);
+            } else {
+                kept.add(annots.get(k));
+            }
+        }
+        if (ours.isEmpty()) return false;
+
+        // Copy resources so inherited or shared dictionaries are never modified in place
+        COSDictionary resources = new COSDictionary();
+        if (page.getResources() != null) resources.addAll(page.getResources().getCOSObject());
+        COSDictionary xobjects = new COSDictionary();
+        COSBase oldXObjects = resources.getDictionaryObject(COSName.XOBJECT);
+        if (oldXObjects instanceof COSDictionary) xobjects.addAll((COSDictionary) oldXObjects);
+
+        boolean hasContent = pageDict.getItem(COSName.CONTENTS) != null;
+        PageInkEncoder.Sink ops = new PageInkEncoder.Sink(256);
+        if (hasContent) ops.ascii("Q\n");
+        int serial = 0;
+        for (COSDictionary annot : ours) {
+            if ((annot.getInt(COSName.F, 0) & FLAG_HIDDEN) != 0) continue;
+            COSStream ap = normalAppearance(annot);
+            float[] rect = floatsOf(annot.getDictionaryObject(COSName.RECT));
+            float[] bbox = ap != null ? floatsOf(ap.getDictionaryObject(COSName.BBOX)) : null;
+            if (rect == null || bbox == null) continue;
+            float bw = bbox[2] - bbox[0], bh = bbox[3] - bbox[1];
+            if (bw == 0f || bh == 0f) continue;
+
+            COSName name;
+            do {
+                name = COSName.getPDFName("InkAp" + serial++);
+            } while (xobjects.containsKey(name));
+            xobjects.setItem(name, ap);
+
+            // Map /BBox onto /Rect, as a viewer does for an identity /Matrix
+            float a = (rect[2] - rect[0]) / bw, d = (rect[3] - rect[1]) / bh;
+            ops.ascii("q ").num(a).ascii(" 0 0 ").num(d).sp()
+                    .num(rect[0] - bbox[0] * a).sp().num(rect[1] - bbox[1] * d)
+                    .ascii(" cm /").ascii(name.getName()).ascii(" Do Q\n");
+        }
+        resources.setItem(COSName.XOBJECT, xobjects);
+        pageDict.setItem(COSName.RESOURCES, resources);
+        PdfInkFlattener.attach(doc, page, PageInkEncoder.deflate(ops.toArray()));
+
+        if (kept.size() == 0) {
+            pageDict.removeItem(COSName.ANNOTS);
+        } else {
+            pageDict.setItem(COSName.ANNOTS, kept);
+        }
+        return true;
+    }
+
+    private static boolean isOwnInk(COSDictionary annot) {
+        if (!INK.equals(annot.getCOSName(COSName.SUBTYPE))) return false;
+        String nm = annot.getString(COSName.NM);
+        return nm != null && nm.startsWith(NAME_PREFIX);
+    }
+
+    private static COSStream normalAppearance(COSDictionary annot) {
+        COSBase ap = annot.getDictionaryObject(COSName.AP);
+        if (!(ap instanceof COSDictionary)) return null;
+        COSBase n = ((COSDictionary) ap).getDictionaryObject(COSName.N);
+        return n instanceof COSStream ? (COSStream) n : null;
+    }
+
+    /** Rounded to 1/100 pt; InkList is stored uncompressed in the annotation dictionary. */
+    private static COSArray floats(float[] values) {
+        COSArray array = new COSArray();
+        for (float v : values) array.add(new COSFloat(Math.round(v * 100f) / 100f));
+        return array;
+    }
+
+    private static float[] floatsOf(COSBase base) {
+        if (!(base instanceof COSArray) || ((COSArray) base).size() < 4) return null;
+        float[] f = ((COSArray) base).toFloatArray();
+        return new float[]{Math.min(f[0], f[2]), Math.min(f[1], f[3]), Math.max(f[0], f[2]), Math.max(f[1], f[3])};
+    }
+}
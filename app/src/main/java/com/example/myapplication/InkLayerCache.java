@@ -0,0 +1,179 @@
+package com.example.myapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.PorterDuff;
+import android.os.SystemClock;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offscreen raster of the committed ink of each page, sized to the page at the current zoom.
+ * A layer is redrawn fully only when the page's strokes are removed (undo/clear) or the zoom
+ * has settled at a new value; new strokes are drawn on top of the existing raster, and
+ * erasing repaints only the erased region. While the zoom is changing (a pinch or fling
+ * zoom), existing layers are blitted scaled and pages without one are drawn as vectors, so
+ * no bitmap is allocated per frame; see {@link #isZooming}. Layers are evicted LRU once the
+ * byte budget is exceeded. UI thread only.
+ */
+final class InkLayerCache {
+
+    /** Larger layers are not cached; the page is drawn as vectors instead. */
+    private static final int MAX_LAYER_DIM = 4096;
+    /** A zoom unchanged for this long has settled; layers are then rebuilt at it. */
+    static final long ZOOM_SETTLE_MS = 150;
+
+    private final long budgetBytes;
+    private final LinkedHashMap<Integer, Layer> layers = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private float zoom = Float.NaN;
+    private long zoomChangedAt = Long.MIN_VALUE / 2;
+
+    private static final class Layer {
+        final Bitmap bitmap;
+        final Canvas canvas;
+        final float scale;
+        long epoch;
+        int drawn;
+
+        Layer(Bitmap bitmap, float scale) {
+            this.bitmap = bitmap;
+            this.canvas = new Canvas(bitmap);
+            this.scale = scale;
+            canvas.scale(scale, scale);
+        }
+    }
+
+    InkLayerCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Draws the committed strokes of a page. The canvas must already be transformed to the
+     * page origin and scaled by {@code zoom} (page-local units → screen pixels).
+     *
+     * @return the number of strokes on screen: all of the page's strokes when its layer is
+     *         blitted (however many were rasterized into it now), else the visible ones
+     */
+    int drawPage(Canvas c, InkManager ink, int page, float pageW, float pageH, float zoom) {
+        List<InkStroke> strokes = ink.getStrokesForPage(page);
+        if (strokes.isEmpty()) return 0;
+
+        long now = SystemClock.uptimeMillis();
+        if (zoom != this.zoom) {
+            if (!Float.isNaN(this.zoom)) zoomChangedAt = now;
+            this.zoom = zoom;
+        }
+        Layer layer = layerFor(page, pageW, pageH, zoom, now - zoomChangedAt < ZOOM_SETTLE_MS);
+        if (layer == null) {
+            // Zoomed in too far for a page-sized raster, or zooming with no layer to scale;
+            // only the visible strokes are drawn
+            return InkPaths.drawVisible(c, ink, page);
+        }
+
+        long epoch = ink.getPageEpoch(page);
+        if (layer.epoch != epoch || layer.drawn > strokes.size()) {
+            layer.bitmap.eraseColor(0);
+            layer.drawn = 0;
+            layer.epoch = epoch;
+        }
+        if (layer.drawn < strokes.size()) {
+            drawStrokes(layer.canvas, strokes, layer.drawn);
+            layer.drawn = strokes.size();
+        }
+
+        c.save();
+        c.scale(1f / layer.scale, 1f / layer.scale);
+        c.drawBitmap(layer.bitmap, 0, 0, null);
+        c.restore();
+        return strokes.size();
+    }
+
+    /**
+     * Repaints the region l, t, r, b (page-local) of a page's layer after an edit that changed
+     * only strokes inside it, such as an erase. The layer must have been current for
+     * {@code epochBefore} and {@code countBefore} strokes; otherwise nothing is done and the
+     * next {@link #drawPage} redraws it fully.
+     */
+    void repairRegion(InkManager ink, int page, long epochBefore, int countBefore,
+                      float l, float t, float r, float b) {
+        Layer layer = layers.get(page);
+        if (layer == null || layer.epoch != epochBefore || layer.drawn != countBefore) return;
+        float slop = 1f / layer.scale; // one pixel of antialiasing
+        Canvas c = layer.canvas;
+        c.save();
+        c.clipRect(l - slop, t - slop, r + slop, b + slop);
+        c.drawColor(0, PorterDuff.Mode.CLEAR);
+        InkPaths.drawVisible(c, ink, page);
+        c.restore();
+        layer.epoch = ink.getPageEpoch(page);
+        layer.drawn = ink.getStrokesForPage(page).size();
+    }
+
+    /**
+     * Whether the zoom of the last {@link #drawPage} changed within {@link #ZOOM_SETTLE_MS};
+     * the caller then redraws once it has settled, so layers are rebuilt at full resolution.
+     */
+    boolean isZooming() {
+        return SystemClock.uptimeMillis() - zoomChangedAt < ZOOM_SETTLE_MS;
+    }
+
+    void invalidatePage(int page) {
+        Layer l = layers.remove(page);
+        if (l != null) release(l);
+    }
+
+    void clear() {
+        for (Layer l : layers.values()) release(l);
+        layers.clear();
+    }
+
+    private Layer layerFor(int page, float pageW, float pageH, float zoom, boolean zooming) {
+        int w = (int) Math.ceil(pageW * zoom);
+        int h = (int) Math.ceil(pageH * zoom);
+        long size = (long) w * h * 4;
+        if (w <= 0 || h <= 0 || w > MAX_LAYER_DIM || h > MAX_LAYER_DIM || size > budgetBytes) {
+            invalidatePage(page);
+            return null;
+        }
+
+        Layer l = layers.get(page);
+        if (l != null && l.scale == zoom && l.bitmap.getWidth() == w && l.bitmap.getHeight() == h) {
+            return l;
+        }
+        // Mid-zoom a stale layer is scaled by drawPage, and a missing one is not worth a bitmap
+        if (zooming) return l;
+        if (l != null) invalidatePage(page);
+
+        trimTo(budgetBytes - size);
+        l = new Layer(Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888), zoom);
+        l.epoch = -1;
+        layers.put(page, l);
+        bytes += size;
+        return l;
+    }
+
+    private void trimTo(long maxBytes) {
+        Iterator<Map.Entry<Integer, Layer>> it = layers.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Layer l = it.next().getValue();
+            it.remove();
+            release(l);
+        }
+    }
+
+    private void release(Layer l) {
+        bytes -= l.bitmap.getByteCount();
+        l.bitmap.recycle();
+    }
+
+    private static void drawStrokes(Canvas c, List<InkStroke> strokes, int from) {
+        for (int i = from, n = strokes.size(); i < n; i++) {
+            InkStroke s = strokes.get(i);
+            c.drawPath(InkPaths.path(s), InkPaths.paintFor(s));
+        }
+    }
+}
@@ -4,11 +4,18 @@ import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.Path;
+import android.graphics.RectF;
+import android.os.Build;
+import android.os.Trace;
 import android.util.AttributeSet;
+import android.util.Log;
 import android.view.MotionEvent;
+import android.view.SurfaceView;
 import android.view.View;
 
 import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import androidx.input.motionprediction.MotionEventPredictor;
 
 import com.github.barteksc.pdfviewer.PDFView;
 
@@ -18,31 +25,152 @@ public class InkOverlayView extends View {
     private PdfGeometry geom;
 
     private final Path currentPath = new Path();
-    private Paint currentPaint = defaultPaint();
-    private int currentPage = 0;
+    private final InkStroke.Builder currentPoints = new InkStroke.Builder();
+    private InkStyle currentStyle = InkStyle.of(0xFFFF0000, 8f, InkStyle.CAP_ROUND);
+    private Paint currentPaint = InkPaths.paint(currentStyle);
+    // Per-sample width from pressure and speed for stylus strokes (null: constant width); the
+    // live stroke is drawn segment by segment with livePaint so it matches the committed outline
+    private StrokeWidthModel widthModel = new StrokeWidthModel();
+    private boolean pressureInput;
+    private final Paint livePaint = new Paint();
+    // Page of the live segment or eraser, resolved per sample from its position; -1 between pages
+    private int currentPage = -1;
+
+    // Previous sample of the gesture in content coordinates, for splitting at page edges
+    private boolean hasLastSample;
+    private float lastX, lastY, lastPressure;
+    private long lastTime;
+    private int gestureSegments;
 
     private final InkManager inkManager = new InkManager();
 
-    public InkOverlayView(Context context) { super(context); }
-    public InkOverlayView(Context context, @Nullable AttributeSet attrs) { super(context, attrs); }
-    public InkOverlayView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) { super(context, attrs, defStyleAttr); }
+    // Committed ink is composited from per-page rasters into the PDFView's frame (see
+    // drawCommittedPage); the overlay itself draws only the live stroke.
+    private static final long LAYER_BUDGET_BYTES = 48L * 1024 * 1024;
+    private final InkLayerCache layers = new InkLayerCache(LAYER_BUDGET_BYTES);
+    // Redraw once a zoom settles, so stale layers are rebuilt at the new resolution
+    private boolean settlePosted;
+    private final Runnable redrawSettled = () -> {
+        settlePosted = false;
+        if (pdfView != null) pdfView.invalidate();
+    };
+
+    // Page-local bounds of live segments not yet invalidated
+    private static final float DIRTY_SLOP_PX = 2f;
+    private final RectF dirty = new RectF();
+    private boolean hasDirty;
+
+    // Eraser mode: a disc of constant screen size that removes or splits strokes it touches
+    private static final float ERASER_RADIUS_PX = 16f;
+    private boolean eraser;
+    private final float[] damage = new float[4];
+    private final Paint eraserPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private float eraserX, eraserY;
+    private boolean erasing;
+
+    private Runnable onInkChanged;
+
+    // Predicted next pen position (page-local), drawn as a short tail to hide input latency
+    private MotionEventPredictor predictor;
+    private boolean hasPrediction;
+    private float predX, predY;
+
+    // Front-buffered live stroke (API 29+); null when the live stroke is drawn in onDraw
+    private LowLatencyInkRenderer lowLatency;
+    private int liveSent; // points of the live segment already handed to lowLatency
+
+    private static final String TAG = "InkOverlayView";
+    // Event time of the newest sample not yet drawn, for the onDraw path's touch-to-draw latency
+    private long undrawnEventTimeMs = -1;
+
+    // Process-wide metrics, reported by MainActivity; recording does not allocate. Strokes on
+    // screen are summed over all pages the PDFView draws in one frame, whether blitted from a
+    // cached layer or drawn as vectors, and recorded on the next animation tick.
+    private final Metrics.Histogram drawFrameUs = Metrics.global().histogram("draw.frame_us", 250, 200);
+    private final Metrics.Histogram drawPageUs = Metrics.global().histogram("draw.page_us", 250, 200);
+    private final Metrics.Histogram strokesPerFrame = Metrics.global().histogram("draw.strokes_per_frame", 10, 200);
+    private final Metrics.Histogram viewLatencyMs = Metrics.global().histogram("input.view_latency_ms", 1, 200);
+    private int strokesInFrame;
+    private boolean strokesPending;
+    private final Runnable recordStrokesPerFrame = () -> {
+        strokesPerFrame.record(strokesInFrame);
+        strokesInFrame = 0;
+        strokesPending = false;
+    };
+
+    // Applied to each stroke on commit; tolerance is in page-local units
+    private static final float DEFAULT_SIMPLIFY_TOLERANCE = 0.5f;
+    private static final int SIMPLIFY_LOG_INTERVAL = 50;
+    private StrokeSimplifier simplifier = new StrokeSimplifier(DEFAULT_SIMPLIFY_TOLERANCE, true);
+
+    public InkOverlayView(Context context) { super(context); init(); }
+    public InkOverlayView(Context context, @Nullable AttributeSet attrs) { super(context, attrs); init(); }
+    public InkOverlayView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) { super(context, attrs, defStyleAttr); init(); }
+
+    private void init() {
+        eraserPaint.setStyle(Paint.Style.STROKE);
+        eraserPaint.setStrokeWidth(2f);
+        eraserPaint.setColor(0x99000000);
+        livePaint.set(currentPaint);
+        predictor = MotionEventPredictor.newInstance(this);
+    }
+
+    /**
+     * Draws the live stroke into a front-buffered layer on {@code surface} instead of in
+     * onDraw. The surface must cover this view exactly and sit above it.
+     */
+    @RequiresApi(Build.VERSION_CODES.Q)
+    public void setLowLatencySurface(SurfaceView surface) {
+        if (lowLatency != null) lowLatency.release();
+        lowLatency = new LowLatencyInkRenderer(surface);
+    }
+
+    public boolean isLowLatency() { return lowLatency != null; }
 
     public void setPdfView(PDFView v) { this.pdfView = v; }
-    public void setGeometry(PdfGeometry g) { this.geom = g; }
+    public void setGeometry(PdfGeometry g) {
+        if (g == geom) return; // unchanged (cached) geometry keeps the page layers
+        this.geom = g;
+        layers.clear();
+    }
+
+    public PdfGeometry getGeometry() { return geom; }
     public InkManager getInkManager() { return inkManager; }
 
-    public void setStrokeColor(int color) { currentPaint.setColor(color); }
-    public void setStrokeWidth(float w) { currentPaint.setStrokeWidth(w); }
+    /** Replaces the commit-time simplification stage; tolerance 0 stores raw samples. */
+    public void setSimplifier(StrokeSimplifier s) { this.simplifier = s; }
+    public StrokeSimplifier getSimplifier() { return simplifier; }
+
+    /** Switches touches between drawing and erasing. Ends any gesture in progress. */
+    public void setEraser(boolean on) {
+        finishStroke();
+        eraser = on;
+    }
+
+    public boolean isEraser() { return eraser; }
+
+    /**
+     * Width varying with stylus pressure and speed (default), or constant. Finger strokes always
+     * keep a constant width, so they are stored as fitted curves. Applies from the next stroke.
+     */
+    public void setVariableWidth(boolean on) {
+        if (on == (widthModel != null)) return;
+        finishStroke();
+        widthModel = on ? new StrokeWidthModel() : null;
+    }
+
+    public boolean isVariableWidth() { return widthModel != null; }
+
+    /** Called on the UI thread after a stroke is committed or an erase gesture ends. */
+    public void setOnInkChangedListener(Runnable r) { this.onInkChanged = r; }
+
+    public void setStrokeColor(int color) { setStyle(currentStyle.withColor(color)); }
+    public void setStrokeWidth(float w) { setStyle(currentStyle.withWidth(w)); }
 
-    private Paint defaultPaint() {
-        Paint p = new Paint();
-        p.setAntiAlias(true);
-        p.setStyle(Paint.Style.STROKE);
-        p.setStrokeCap(Paint.Cap.ROUND);
-        p.setStrokeJoin(Paint.Join.ROUND);
-        p.setStrokeWidth(8f);
-        p.setColor(0xFFFF0000);
-        return p;
+    private void setStyle(InkStyle style) {
+        currentStyle = style;
+        currentPaint = InkPaths.paint(style);
+        livePaint.set(currentPaint);
     }
 
     private float contentX(float x) { return (x - pdfView.getCurrentXOffset()) / pdfView.getZoom(); }
@@ -54,69 +182,390 @@ public class InkOverlayView extends View {
 
         // Eat touches so the PDFView doesn't pan/zoom
         getParent().requestDisallowInterceptTouchEvent(true);
+        if (eraser) return onEraserEvent(e);
 
-        if (e.getActionMasked() == MotionEvent.ACTION_DOWN) {
-            currentPage = pdfView.getCurrentPage();
-        }
-
-        float cx = contentX(e.getX());
-        float cy = contentY(e.getY());
-        // Convert content → page-local coordinates
-        float px = cx - geom.pageLeft[currentPage];
-        float py = cy - geom.pageTop[currentPage];
-
+        predictor.record(e);
         switch (e.getActionMasked()) {
             case MotionEvent.ACTION_DOWN:
+                currentPage = -1;
                 currentPath.reset();
-                currentPath.moveTo(px, py);
-                invalidate();
+                currentPoints.reset();
+                liveSent = 0;
+                hasDirty = false;
+                hasLastSample = false;
+                hasPrediction = false;
+                gestureSegments = 0;
+                // Finger pressure is mostly contact area, so only a stylus varies the width
+                int tool = e.getToolType(0);
+                pressureInput = tool == MotionEvent.TOOL_TYPE_STYLUS || tool == MotionEvent.TOOL_TYPE_ERASER;
+                if (widthModel != null) widthModel.reset();
+                addSample(e.getX(), e.getY(), e.getPressure(), e.getEventTime());
+                showLive(e.getEventTime());
                 return true;
             case MotionEvent.ACTION_MOVE:
-                currentPath.lineTo(px, py);
-                invalidate();
+                // Batched samples since the last frame; without them fast strokes are undersampled.
+                for (int h = 0, n = e.getHistorySize(); h < n; h++) {
+                    addSample(e.getHistoricalX(h), e.getHistoricalY(h),
+                            e.getHistoricalPressure(h), e.getHistoricalEventTime(h));
+                }
+                addSample(e.getX(), e.getY(), e.getPressure(), e.getEventTime());
+                updatePrediction();
+                showLive(e.getEventTime());
                 return true;
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL:
-                Path done = new Path(currentPath);
-                Paint p = new Paint(currentPaint);
-                inkManager.add(new InkStroke(done, p, currentPage));
-                currentPath.reset();
+                hasPrediction = false;
+                commitCurrent();
+                return true;
+        }
+        return false;
+    }
+
+    private boolean onEraserEvent(MotionEvent e) {
+        switch (e.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                currentPage = -1;
+                erasing = true;
+                // fall through
+            case MotionEvent.ACTION_MOVE:
+                if (!erasing) return true;
+                for (int h = 0, n = e.getHistorySize(); h < n; h++) {
+                    eraseAt(e.getHistoricalX(h), e.getHistoricalY(h));
+                }
+                eraseAt(e.getX(), e.getY());
                 invalidate();
                 return true;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                endErase();
+                return true;
         }
         return false;
     }
 
-    /** Finish in-progress stroke when toggling pen off. */
+    /**
+     * Erases up to one sample (view coordinates) and repairs the cached layer in place. Each
+     * page the eraser passes over gets its own erase edit.
+     */
+    private void eraseAt(float x, float y) {
+        eraserX = x;
+        eraserY = y;
+        int page = pageAt(contentY(y));
+        if (page != currentPage) {
+            inkManager.endErase();
+            currentPage = page;
+            if (page >= 0) inkManager.beginErase(page, ERASER_RADIUS_PX / pdfView.getZoom());
+        }
+        if (page < 0) return;
+        long epoch = inkManager.getPageEpoch(currentPage);
+        int count = inkManager.getStrokesForPage(currentPage).size();
+        float px = contentX(x) - geom.pageLeft[currentPage];
+        float py = contentY(y) - geom.pageTop[currentPage];
+        if (inkManager.eraseTo(px, py, damage)) {
+            layers.repairRegion(inkManager, currentPage, epoch, count, damage[0], damage[1], damage[2], damage[3]);
+            pdfView.invalidate();
+        }
+    }
+
+    private void endErase() {
+        if (!erasing) return;
+        erasing = false;
+        inkManager.endErase();
+        currentPage = -1;
+        invalidate();
+        if (onInkChanged != null) onInkChanged.run();
+    }
+
+    /** Page whose area contains a content-space y, or -1 in the gap between pages. */
+    private int pageAt(float contentY) {
+        int page = geom.pageAtY(contentY);
+        if (page < 0 || contentY < geom.pageTop[page] || contentY > geom.pageTop[page] + geom.pageHeight[page]) {
+            return -1;
+        }
+        return page;
+    }
+
+    /**
+     * Adds one sample (view coordinates) to the live stroke. The page is resolved from the
+     * sample's position; when it changes, the stroke is split at the page edges.
+     */
+    private void addSample(float x, float y, float pressure, long eventTime) {
+        float cx = contentX(x), cy = contentY(y);
+        int page = pageAt(cy);
+        if (page != currentPage) {
+            if (hasLastSample) {
+                crossPages(page, cx, cy, pressure, eventTime);
+            } else {
+                currentPage = page;
+            }
+        }
+        if (currentPage >= 0) {
+            appendPoint(cx - geom.pageLeft[currentPage], cy - geom.pageTop[currentPage], pressure, eventTime);
+        }
+        hasLastSample = true;
+        lastX = cx;
+        lastY = cy;
+        lastPressure = pressure;
+        lastTime = eventTime;
+    }
+
+    /**
+     * The pen moved from {@link #currentPage} to {@code page} (-1: a gap). Ends the live
+     * segment where it leaves its page and starts the next where it enters the new one.
+     */
+    private void crossPages(int page, float cx, float cy, float pressure, long eventTime) {
+        boolean down = cy > lastY;
+        if (currentPage >= 0) {
+            float edge = geom.pageTop[currentPage] + (down ? geom.pageHeight[currentPage] : 0f);
+            appendEdgePoint(edge, cx, cy, pressure, eventTime);
+            commitSegment();
+        }
+        currentPage = page;
+        if (page >= 0) {
+            float edge = geom.pageTop[page] + (down ? 0f : geom.pageHeight[page]);
+            appendEdgePoint(edge, cx, cy, pressure, eventTime);
+        }
+    }
+
+    /** Appends the point where the move from the last sample to (cx, cy) crosses {@code edgeY}. */
+    private void appendEdgePoint(float edgeY, float cx, float cy, float pressure, long eventTime) {
+        float f = cy == lastY ? 0f : Math.max(0f, Math.min(1f, (edgeY - lastY) / (cy - lastY)));
+        appendPoint(lastX + f * (cx - lastX) - geom.pageLeft[currentPage],
+                edgeY - geom.pageTop[currentPage],
+                lastPressure + f * (pressure - lastPressure),
+                lastTime + Math.round(f * (eventTime - lastTime)));
+    }
+
+    /** Appends a page-local point to the live segment and grows the dirty bounds. */
+    private void appendPoint(float px, float py, float pressure, long eventTime) {
+        if (currentPoints.isEmpty()) {
+            currentPath.moveTo(px, py);
+        } else {
+            currentPath.lineTo(px, py);
+            markDirty(currentPoints.lastX(), currentPoints.lastY());
+        }
+        markDirty(px, py);
+        if (widthModel != null && pressureInput) {
+            currentPoints.add(px, py, pressure, eventTime, widthModel.next(px, py, pressure, eventTime));
+        } else {
+            currentPoints.add(px, py, pressure, eventTime);
+        }
+    }
+
+    private void markDirty(float px, float py) {
+        if (hasDirty) {
+            dirty.union(px, py);
+        } else {
+            dirty.set(px, py, px, py);
+            hasDirty = true;
+        }
+    }
+
+    /**
+     * Replaces the predicted tail with the predictor's guess for the next frame, when it lies
+     * on the live segment's page. The old and new tails are both marked dirty.
+     */
+    private void updatePrediction() {
+        if (hasPrediction) markDirty(predX, predY);
+        hasPrediction = false;
+        if (currentPage < 0 || currentPoints.isEmpty()) return;
+        MotionEvent p = predictor.predict();
+        if (p == null) return;
+        float cx = contentX(p.getX()), cy = contentY(p.getY());
+        p.recycle();
+        if (pageAt(cy) != currentPage) return;
+        predX = cx - geom.pageLeft[currentPage];
+        predY = cy - geom.pageTop[currentPage];
+        hasPrediction = true;
+        markDirty(predX, predY);
+    }
+
+    /** Puts the live segment on screen, front-buffered when available. */
+    private void showLive(long eventTimeMs) {
+        if (lowLatency == null) {
+            undrawnEventTimeMs = eventTimeMs;
+            invalidateDirty();
+            return;
+        }
+        hasDirty = false;
+        if (currentPage < 0 || currentPoints.isEmpty()) return;
+        // Only the points added since the last render; the renderer keeps the rest on screen
+        int from = Math.min(liveSent, currentPoints.size()), n = currentPoints.size() - from;
+        float[] xy = new float[2 * n];
+        float[] widths = currentPoints.hasWidths() ? new float[n] : null;
+        for (int i = 0; i < n; i++) {
+            xy[2 * i] = currentPoints.x(from + i);
+            xy[2 * i + 1] = currentPoints.y(from + i);
+            if (widths != null) widths[i] = currentPoints.widthScale(from + i);
+        }
+        liveSent = from + n;
+        float zoom = pdfView.getZoom();
+        lowLatency.render(new LowLatencyInkRenderer.Frame(xy, widths, from,
+                hasPrediction ? predX : Float.NaN, hasPrediction ? predY : Float.NaN, currentPaint,
+                pdfView.getCurrentXOffset() + geom.pageLeft[currentPage] * zoom,
+                pdfView.getCurrentYOffset() + geom.pageTop[currentPage] * zoom,
+                zoom, eventTimeMs));
+    }
+
+    /** Invalidates only the view region covered by segments added since the last frame. */
+    private void invalidateDirty() {
+        if (!hasDirty || currentPage < 0) return;
+        float zoom = pdfView.getZoom();
+        float pad = currentStyle.width / 2f * zoom + DIRTY_SLOP_PX;
+        float ox = pdfView.getCurrentXOffset() + geom.pageLeft[currentPage] * zoom;
+        float oy = pdfView.getCurrentYOffset() + geom.pageTop[currentPage] * zoom;
+        invalidate(
+                (int) Math.floor(ox + dirty.left * zoom - pad),
+                (int) Math.floor(oy + dirty.top * zoom - pad),
+                (int) Math.ceil(ox + dirty.right * zoom + pad),
+                (int) Math.ceil(oy + dirty.bottom * zoom + pad));
+        hasDirty = false;
+    }
+
+    /** Finish in-progress stroke or erase gesture when toggling pen off. */
     public void finishStroke() {
-        if (!currentPath.isEmpty()) {
-            Path done = new Path(currentPath);
-            Paint p = new Paint(currentPaint);
-            inkManager.add(new InkStroke(done, p, currentPage));
-            currentPath.reset();
-            invalidate();
+        if (hasLastSample) commitCurrent();
+        endErase();
+    }
+
+    /** Ends the gesture; its per-page segments were added as one undo step. */
+    private void commitCurrent() {
+        commitSegment();
+        hasLastSample = false;
+        gestureSegments = 0;
+        currentPage = -1;
+        if (onInkChanged != null) onInkChanged.run();
+    }
+
+    /** Adds the live segment to its page; later segments of the gesture join its undo step. */
+    private void commitSegment() {
+        if (!currentPoints.isEmpty()) {
+            InkStroke s = simplifier.process(currentPoints.build(currentStyle, currentPage));
+            if (gestureSegments++ == 0) inkManager.add(s); else inkManager.add(s, true);
+            StrokeSimplifier.Stats st = simplifier.stats();
+            if (st.strokes % SIMPLIFY_LOG_INTERVAL == 0) Log.d(TAG, "simplify " + st.summary());
+            // Committed ink is drawn by the PDFView (see drawCommittedPage)
+            pdfView.invalidate();
+            if (lowLatency != null) {
+                // Keep the front-buffered copy until the PDFView has drawn the stroke
+                LowLatencyInkRenderer.Frame kept = lowLatency.handOff(
+                        currentPoints.copyPoints(), currentPoints.copyWidths());
+                LowLatencyInkRenderer renderer = lowLatency;
+                postOnAnimation(() -> postOnAnimation(() -> renderer.release(kept)));
+            }
+        }
+        currentPoints.reset();
+        currentPath.reset();
+        liveSent = 0;
+        hasDirty = false;
+        invalidate();
+    }
+
+    /**
+     * Draws a page's committed ink; called from the PDFView's onDrawAll, which runs only for
+     * the pages on screen. There the canvas is at the page's top edge and content x = 0, at
+     * the current zoom but unscaled.
+     */
+    public void drawCommittedPage(Canvas c, int page) {
+        if (pdfView == null || geom == null || page < 0 || page >= geom.pageCount) return;
+        Trace.beginSection("InkOverlay.drawCommittedPage");
+        long t0 = System.nanoTime();
+        try {
+            float zoom = pdfView.getZoom();
+            c.save();
+            c.scale(zoom, zoom);
+            c.translate(geom.pageLeft[page], 0f);
+            int shown = layers.drawPage(c, inkManager, page, geom.pageWidth[page], geom.pageHeight[page], zoom);
+            c.restore();
+            if (!settlePosted && layers.isZooming()) {
+                settlePosted = true;
+                postDelayed(redrawSettled, InkLayerCache.ZOOM_SETTLE_MS);
+            }
+
+            // Animation callbacks run before the next frame's draws, so this closes the frame
+            strokesInFrame += shown;
+            if (!strokesPending) {
+                strokesPending = true;
+                postOnAnimation(recordStrokesPerFrame);
+            }
+        } finally {
+            Trace.endSection();
         }
+        drawPageUs.record((System.nanoTime() - t0) / 1000);
     }
 
     @Override
     protected void onDraw(Canvas c) {
         super.onDraw(c);
         if (pdfView == null || geom == null) return;
+        Trace.beginSection("InkOverlay.onDraw");
+        try {
+            drawLive(c);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    /** The live segment and the eraser cursor, timed into the frame stats. */
+    private void drawLive(Canvas c) {
+        long t0 = System.nanoTime();
+
+        // Only the live segment is drawn here; committed ink is part of the PDFView's frame
+        if (lowLatency == null && currentPage >= 0 && !currentPath.isEmpty()) {
+            c.save();
+            // mirror the PDFView transform
+            c.translate(pdfView.getCurrentXOffset(), pdfView.getCurrentYOffset());
+            c.scale(pdfView.getZoom(), pdfView.getZoom());
+            // translate to the live segment's page origin
+            c.translate(geom.pageLeft[currentPage], geom.pageTop[currentPage]);
+            if (currentPoints.hasWidths()) {
+                drawVariableLive(c);
+            } else {
+                c.drawPath(currentPath, currentPaint);
+                if (hasPrediction) {
+                    c.drawLine(currentPoints.lastX(), currentPoints.lastY(), predX, predY, currentPaint);
+                }
+            }
+            c.restore();
+        }
+
+        if (erasing) c.drawCircle(eraserX, eraserY, ERASER_RADIUS_PX, eraserPaint);
 
-        c.save();
-        // mirror the PDFView transform
-        c.translate(pdfView.getCurrentXOffset(), pdfView.getCurrentYOffset());
-        c.scale(pdfView.getZoom(), pdfView.getZoom());
-        // translate to current page origin
-        c.translate(geom.pageLeft[currentPage], geom.pageTop[currentPage]);
+        drawFrameUs.record((System.nanoTime() - t0) / 1000);
+        if (undrawnEventTimeMs >= 0) {
+            viewLatencyMs.record(System.nanoTime() / 1_000_000L - undrawnEventTimeMs);
+            undrawnEventTimeMs = -1;
+        }
+    }
 
-        // draw saved strokes for the current page
-        for (InkStroke s : inkManager.getStrokesForPage(currentPage)) {
-            c.drawPath(s.path, s.paint);
+    /** The live segment as round-capped lines, each as wide as the mean of its end widths. */
+    private void drawVariableLive(Canvas c) {
+        InkStroke.Builder b = currentPoints;
+        int n = b.size();
+        float w = currentStyle.width;
+        if (n == 1) {
+            livePaint.setStrokeWidth(w * b.widthScale(0));
+            c.drawPoint(b.x(0), b.y(0), livePaint);
+        }
+        for (int i = 1; i < n; i++) {
+            livePaint.setStrokeWidth(w * (b.widthScale(i - 1) + b.widthScale(i)) / 2f);
+            c.drawLine(b.x(i - 1), b.y(i - 1), b.x(i), b.y(i), livePaint);
+        }
+        if (hasPrediction) {
+            livePaint.setStrokeWidth(w * b.widthScale(n - 1));
+            c.drawLine(b.lastX(), b.lastY(), predX, predY, livePaint);
         }
-        // draw the in-progress stroke
-        c.drawPath(currentPath, currentPaint);
+    }
 
-        c.restore();
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        removeCallbacks(redrawSettled);
+        settlePosted = false;
+        layers.clear();
+        if (lowLatency != null) {
+            lowLatency.release();
+            lowLatency = null;
+        }
     }
 }
@@ -0,0 +1,117 @@
+package com.example.myapplication;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Lazily builds and caches the android.graphics objects used to render ink. UI thread only. */
+final class InkPaths {
+
+    private static final Map<InkStyle, Paint> PAINTS = new HashMap<>();
+    private static final Map<InkStyle, Paint> FILLS = new HashMap<>();
+
+    // Scratch for drawVisible; UI thread only
+    private static final Rect CLIP = new Rect();
+    private static final ArrayList<InkStroke> VISIBLE = new ArrayList<>();
+
+    private InkPaths() {}
+
+    /**
+     * Path for a committed stroke, built on first use and kept on the stroke. For a
+     * variable-width stroke it is the closed outline, to be filled with {@link #paintFor}.
+     */
+    static Path path(InkStroke s) {
+        Object cached = s.renderCache;
+        if (cached instanceof Path) return (Path) cached;
+        Path p = new Path();
+        int n = s.pointCount();
+        float[] outline = s.outline();
+        if (outline != null) {
+            if (outline.length >= 6) {
+                p.moveTo(outline[0], outline[1]);
+                for (int k = 2; k < outline.length; k += 2) p.lineTo(outline[k], outline[k + 1]);
+                p.close();
+            }
+        } else if (s.hasCurves()) {
+            p.moveTo(s.curveCoord(0), s.curveCoord(1));
+            for (int k = 0, segs = s.curveSegmentCount(); k < segs; k++) {
+                int o = 2 + 6 * k;
+                p.cubicTo(s.curveCoord(o), s.curveCoord(o + 1), s.curveCoord(o + 2),
+                        s.curveCoord(o + 3), s.curveCoord(o + 4), s.curveCoord(o + 5));
+            }
+        } else if (n > 0) {
+            p.moveTo(s.x(0), s.y(0));
+            for (int i = 1; i < n; i++) p.lineTo(s.x(i), s.y(i));
+        }
+        s.renderCache = p;
+        return p;
+    }
+
+    /**
+     * Draws the committed strokes of a page that intersect the canvas clip. The canvas must
+     * be in page-local units; strokes outside the clip are skipped via the page's spatial
+     * index instead of being handed to the renderer.
+     *
+     * @return the number of strokes drawn
+     */
+    static int drawVisible(Canvas c, InkManager ink, int page) {
+        if (ink.getStrokesForPage(page).isEmpty() || !c.getClipBounds(CLIP)) return 0;
+        List<InkStroke> visible = VISIBLE;
+        ink.queryPage(page, CLIP.left, CLIP.top, CLIP.right, CLIP.bottom, visible);
+        for (int i = 0, n = visible.size(); i < n; i++) {
+            InkStroke s = visible.get(i);
+            c.drawPath(path(s), paintFor(s));
+        }
+        int drawn = visible.size();
+        visible.clear();
+        return drawn;
+    }
+
+    /** Shared Paint for an interned style. Callers must not mutate it. */
+    static Paint paint(InkStyle style) {
+        Paint p = PAINTS.get(style);
+        if (p == null) {
+            p = new Paint();
+            p.setAntiAlias(true);
+            p.setStyle(Paint.Style.STROKE);
+            p.setStrokeJoin(Paint.Join.ROUND);
+            p.setStrokeCap(toPaintCap(style.cap));
+            p.setStrokeWidth(style.width);
+            p.setColor(style.color);
+            PAINTS.put(style, p);
+        }
+        return p;
+    }
+
+    /** Stroking paint for constant-width strokes, filling paint for variable-width ones. */
+    static Paint paintFor(InkStroke s) {
+        return s.hasVariableWidth() ? fillPaint(s.style) : paint(s.style);
+    }
+
+    /** Shared filling Paint for an interned style. Callers must not mutate it. */
+    static Paint fillPaint(InkStyle style) {
+        Paint p = FILLS.get(style);
+        if (p == null) {
+            p = new Paint();
+            p.setAntiAlias(true);
+            p.setStyle(Paint.Style.FILL);
+            p.setColor(style.color);
+            FILLS.put(style, p);
+        }
+        return p;
+    }
+
+    static Paint.Cap toPaintCap(int cap) {
+        switch (cap) {
+            case InkStyle.CAP_BUTT: return Paint.Cap.BUTT;
+            case InkStyle.CAP_SQUARE: return Paint.Cap.SQUARE;
+            default: return Paint.Cap.ROUND;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.myapplication;
+
+import android.util.Log;
+
+/** Writes each metrics report to logcat, one line per metric; idle histograms are skipped. */
+final class LogcatMetricsSink implements Metrics.Sink {
+
+    private static final String TAG = "InkMetrics";
+
+    @Override
+    public void publish(Metrics.Report report) {
+        for (Metrics.Sample s : report.samples) {
+            if (!s.histogram || s.count > 0) Log.i(TAG, s.toString());
+        }
+    }
+}
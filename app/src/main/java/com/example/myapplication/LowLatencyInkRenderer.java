@@ -0,0 +1,271 @@
+package com.example.myapplication;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PixelFormat;
+import android.graphics.PorterDuff;
+import android.graphics.RectF;
+import android.os.Build;
+import android.view.SurfaceView;
+
+import androidx.annotation.RequiresApi;
+import androidx.graphics.lowlatency.CanvasFrontBufferedRenderer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Draws the live stroke into a front-buffered layer (androidx.graphics) on a transparent
+ * SurfaceView above the overlay. Front-buffered draws reach the display without waiting for
+ * the next View frame, which removes one to two vsyncs of pen latency.
+ *
+ * <p>The front buffer keeps its pixels between renders, so each {@link #render} carries only
+ * the points added since the previous one and draws only the new segments. The predicted tail
+ * is the one part that is replaced every time: its bounds are cleared and the last few
+ * segments redrawn under a clip to that rectangle before the new tail goes on. Translucent
+ * ink cannot be overdrawn without darkening, so it is still redrawn in full, from the
+ * renderer's own copy of the points. When a segment is committed, a full snapshot of it moves
+ * to the multi-buffered layer until the PDFView has drawn the committed stroke, so there is
+ * no gap. Calls are UI thread only; drawing happens on the renderer's thread.
+ */
+@RequiresApi(Build.VERSION_CODES.Q)
+final class LowLatencyInkRenderer implements CanvasFrontBufferedRenderer.Callback<LowLatencyInkRenderer.Frame> {
+
+    /** Segments redrawn under a cleared tail; older ones it may cross reappear at hand-off. */
+    private static final int TAIL_REDRAW_SEGMENTS = 8;
+    private static final float TAIL_SLOP_PX = 2f;
+
+    /**
+     * Points of the live segment from index {@link #first} on, in page-local units: those added
+     * since the previous render, or all of them for a snapshot on the multi-buffered layer.
+     */
+    static final class Frame {
+        final float[] xy;
+        final float[] widths;          // fraction of the paint's width per point, or null
+        final int first;               // index of xy[0] in the segment; 0 starts a new one
+        final float predX, predY;      // NaN when there is no prediction
+        final Paint paint;
+        final float dx, dy, zoom;      // page-local → view transform
+        final long eventTimeMs;        // uptime of the newest sample drawn
+
+        Frame(float[] xy, float[] widths, int first, float predX, float predY, Paint paint,
+              float dx, float dy, float zoom, long eventTimeMs) {
+            this.xy = xy;
+            this.widths = widths;
+            this.first = first;
+            this.predX = predX;
+            this.predY = predY;
+            this.paint = paint;
+            this.dx = dx;
+            this.dy = dy;
+            this.zoom = zoom;
+            this.eventTimeMs = eventTimeMs;
+        }
+    }
+
+    private final CanvasFrontBufferedRenderer<Frame> renderer;
+    private Frame last;                                        // UI thread
+    private final List<Frame> committed = new ArrayList<>();   // UI thread
+
+    // Render thread only
+    private final Path path = new Path();
+    private final Paint linePaint = new Paint();
+    private final Metrics.Histogram latencyMs = Metrics.global().histogram("input.front_buffered_latency_ms", 1, 200);
+    // The live segment as drawn so far, and the page-local bounds of its predicted tail
+    private float[] liveXy = new float[256];
+    private float[] liveWidths = new float[128];
+    private int liveCount;
+    private boolean hasLiveWidths;
+    private final RectF tail = new RectF();
+    private float liveDx, liveDy, liveZoom;
+    private Paint livePaint;
+
+    LowLatencyInkRenderer(SurfaceView surface) {
+        surface.setZOrderOnTop(true);
+        surface.getHolder().setFormat(PixelFormat.TRANSLUCENT);
+        renderer = new CanvasFrontBufferedRenderer<>(surface, this);
+    }
+
+    /** Draws the points in {@code frame} after those already on screen, and its new tail. */
+    void render(Frame frame) {
+        last = frame;
+        renderer.renderFrontBufferedLayer(frame);
+    }
+
+    /**
+     * The live segment was committed: keeps a snapshot of it (without prediction) on screen
+     * until {@link #release(Frame)} and clears the front buffer for the next one.
+     *
+     * @param xy     all points of the segment
+     * @param widths their width fractions, or null
+     * @return the snapshot to release once the committed stroke is drawn elsewhere, or null
+     */
+    Frame handOff(float[] xy, float[] widths) {
+        Frame f = last;
+        last = null;
+        renderer.cancel();
+        if (f == null) return null;
+        Frame kept = new Frame(xy, widths, 0, Float.NaN, Float.NaN, f.paint, f.dx, f.dy, f.zoom, f.eventTimeMs);
+        committed.add(kept);
+        renderer.renderMultiBufferedLayer(new ArrayList<>(committed));
+        return kept;
+    }
+
+    /** Stops showing a handed-off snapshot. */
+    void release(Frame kept) {
+        if (kept == null || !committed.remove(kept)) return;
+        renderer.renderMultiBufferedLayer(new ArrayList<>(committed));
+    }
+
+    void release() {
+        committed.clear();
+        renderer.release(true);
+    }
+
+    // ---- Renderer thread ----
+
+    @Override
+    public void onDrawFrontBufferedLayer(Canvas canvas, int bufferWidth, int bufferHeight, Frame frame) {
+        int from = liveCount;
+        boolean redraw = frame.first == 0 || frame.first != liveCount || frame.paint != livePaint
+                || frame.dx != liveDx || frame.dy != liveDy || frame.zoom != liveZoom
+                || frame.paint.getAlpha() != 255;
+        append(frame);
+        canvas.save();
+        canvas.translate(frame.dx, frame.dy);
+        canvas.scale(frame.zoom, frame.zoom);
+        if (redraw) {
+            canvas.drawColor(0, PorterDuff.Mode.CLEAR);
+            from = 0;
+        } else if (!tail.isEmpty()) {
+            // Take the old tail off and put back the ink it covered
+            canvas.save();
+            canvas.clipRect(tail);
+            canvas.drawColor(0, PorterDuff.Mode.CLEAR);
+            drawSegments(canvas, frame.paint, Math.max(0, from - TAIL_REDRAW_SEGMENTS), from, Float.NaN, 0f);
+            canvas.restore();
+        }
+        drawSegments(canvas, frame.paint, from, liveCount, frame.predX, frame.predY);
+        setTail(frame);
+        canvas.restore();
+
+        latencyMs.record(System.nanoTime() / 1_000_000L - frame.eventTimeMs); // touch to draw
+    }
+
+    /** Adds the frame's points to the render thread's copy of the live segment. */
+    private void append(Frame f) {
+        if (f.first == 0 || f.first != liveCount) liveCount = 0;
+        int n = f.xy.length / 2;
+        if (2 * (liveCount + n) > liveXy.length) {
+            liveXy = Arrays.copyOf(liveXy, Math.max(2 * (liveCount + n), liveXy.length * 2));
+        }
+        System.arraycopy(f.xy, 0, liveXy, 2 * liveCount, 2 * n);
+        if (f.widths != null) {
+            if (liveCount + n > liveWidths.length) {
+                liveWidths = Arrays.copyOf(liveWidths, Math.max(liveCount + n, liveWidths.length * 2));
+            }
+            System.arraycopy(f.widths, 0, liveWidths, liveCount, n);
+        }
+        liveCount += n;
+        livePaint = f.paint;
+        liveDx = f.dx;
+        liveDy = f.dy;
+        liveZoom = f.zoom;
+        hasLiveWidths = f.widths != null;
+    }
+
+    /**
+     * Draws the live segment's points {@code from} to {@code to}, each with the segment that
+     * leads into it so joins come out as in a single path (opaque overdraw is invisible), and
+     * the predicted tail towards {@code predX, predY} unless that is NaN.
+     */
+    private void drawSegments(Canvas canvas, Paint paint, int from, int to, float predX, float predY) {
+        if (to == 0) return;
+        float[] xy = liveXy;
+        if (hasLiveWidths) {
+            float w = paint.getStrokeWidth();
+            linePaint.set(paint);
+            if (from == 0) {
+                linePaint.setStrokeWidth(w * liveWidths[0]);
+                canvas.drawPoint(xy[0], xy[1], linePaint);
+            }
+            for (int i = Math.max(1, from); i < to; i++) {
+                linePaint.setStrokeWidth(w * (liveWidths[i - 1] + liveWidths[i]) / 2f);
+                canvas.drawLine(xy[2 * i - 2], xy[2 * i - 1], xy[2 * i], xy[2 * i + 1], linePaint);
+            }
+            if (!Float.isNaN(predX)) {
+                linePaint.setStrokeWidth(w * liveWidths[to - 1]);
+                canvas.drawLine(xy[2 * to - 2], xy[2 * to - 1], predX, predY, linePaint);
+            }
+            return;
+        }
+        int start = Math.max(0, from - 2);
+        path.rewind();
+        path.moveTo(xy[2 * start], xy[2 * start + 1]);
+        // A lone point still needs a segment to get round caps drawn
+        if (to == 1) path.lineTo(xy[0], xy[1]);
+        for (int i = start + 1; i < to; i++) path.lineTo(xy[2 * i], xy[2 * i + 1]);
+        if (!Float.isNaN(predX)) path.lineTo(predX, predY);
+        canvas.drawPath(path, paint);
+    }
+
+    /** Records the bounds of the tail just drawn, so the next render can clear it. */
+    private void setTail(Frame f) {
+        tail.setEmpty();
+        if (Float.isNaN(f.predX) || liveCount == 0) return;
+        float x = liveXy[2 * liveCount - 2], y = liveXy[2 * liveCount - 1];
+        float w = f.paint.getStrokeWidth() * (hasLiveWidths ? liveWidths[liveCount - 1] : 1f);
+        float pad = w / 2f + TAIL_SLOP_PX / f.zoom;
+        tail.set(Math.min(x, f.predX) - pad, Math.min(y, f.predY) - pad,
+                Math.max(x, f.predX) + pad, Math.max(y, f.predY) + pad);
+    }
+
+    @Override
+    public void onDrawMultiBufferedLayer(Canvas canvas, int bufferWidth, int bufferHeight,
+                                         Collection<? extends Frame> frames) {
+        canvas.drawColor(0, PorterDuff.Mode.CLEAR);
+        for (Frame f : frames) draw(canvas, f);
+    }
+
+    /** Draws a full snapshot, as handed off. */
+    private void draw(Canvas canvas, Frame f) {
+        int n = f.xy.length / 2;
+        if (n == 0) return;
+        if (f.widths != null) {
+            drawVariable(canvas, f, n);
+            return;
+        }
+        path.rewind();
+        path.moveTo(f.xy[0], f.xy[1]);
+        // A lone point still needs a segment to get round caps drawn
+        for (int i = 1; i < n; i++) path.lineTo(f.xy[2 * i], f.xy[2 * i + 1]);
+        if (n == 1) path.lineTo(f.xy[0], f.xy[1]);
+        canvas.save();
+        canvas.translate(f.dx, f.dy);
+        canvas.scale(f.zoom, f.zoom);
+        canvas.drawPath(path, f.paint);
+        canvas.restore();
+    }
+
+    /** Segment by segment, like the overlay's onDraw does for variable-width ink. */
+    private void drawVariable(Canvas canvas, Frame f, int n) {
+        float w = f.paint.getStrokeWidth();
+        float[] xy = f.xy;
+        linePaint.set(f.paint);
+        canvas.save();
+        canvas.translate(f.dx, f.dy);
+        canvas.scale(f.zoom, f.zoom);
+        if (n == 1) {
+            linePaint.setStrokeWidth(w * f.widths[0]);
+            canvas.drawPoint(xy[0], xy[1], linePaint);
+        }
+        for (int i = 1; i < n; i++) {
+            linePaint.setStrokeWidth(w * (f.widths[i - 1] + f.widths[i]) / 2f);
+            canvas.drawLine(xy[2 * i - 2], xy[2 * i - 1], xy[2 * i], xy[2 * i + 1], linePaint);
+        }
+        canvas.restore();
+    }
+}
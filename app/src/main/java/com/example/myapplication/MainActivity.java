@@ -2,8 +2,14 @@ package com.example.myapplication;
 
 import android.content.Intent;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
 import android.util.DisplayMetrics;
+import android.view.SurfaceView;
+import android.view.View;
 import android.widget.Button;
 import android.widget.SeekBar;
 import android.widget.ToggleButton;
@@ -17,21 +23,24 @@ import androidx.core.content.FileProvider;
 
 import com.github.barteksc.pdfviewer.PDFView;
 import com.github.barteksc.pdfviewer.listener.OnLoadCompleteListener;
+import com.github.barteksc.pdfviewer.listener.OnRenderListener;
 import com.github.barteksc.pdfviewer.util.FitPolicy;
 import com.google.android.material.progressindicator.LinearProgressIndicator;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.util.List;
 
 public class MainActivity extends AppCompatActivity {
 
     private PDFView pdfView;
+    // Off-screen viewer a commit is loaded into; swapped with pdfView once it has rendered
+    private PDFView pdfViewNext;
+    private boolean swapPending;
     private InkOverlayView overlay;
 
     private Button btnOpen, btnUndo, btnRedo, btnRed, btnBlue, btnSaveAs;
-    private ToggleButton tbPen;
+    private ToggleButton tbPen, tbEraser;
     private SeekBar seekSize;
     private LinearProgressIndicator progress;
 
@@ -42,8 +51,36 @@ public class MainActivity extends AppCompatActivity {
     private Uri currentPdfUri = null;
     @Nullable
     private File lastCommittedCacheFile = null;
+    // Committed generations in the cache dir: the latest plus one to roll back to
+    private CommitCache commitCache;
+    // Uri the document was opened from; stays the same across commits (which reload a cache copy)
+    @Nullable
+    private String documentKey = null;
+    private final PdfGeometry.Cache geometryCache = new PdfGeometry.Cache(4);
 
     private final PdfInkFlattener flattener = new PdfInkFlattener();
+    private FlattenJob flattenJob; // running commit or export, if any
+
+    // Uncommitted strokes of the loaded document, persisted across app kills
+    private static final long JOURNAL_SYNC_MS = 1000;
+    @Nullable
+    private StrokeJournal journal;
+
+    private static final String STATE_PDF_URI = "pdfUri";
+    private static final String STATE_CACHE_FILE = "cacheFile";
+    private static final String STATE_ROLLBACK_FILE = "rollbackFile";
+    private static final String STATE_PAGE = "page";
+    private static final String STATE_DOCUMENT_KEY = "documentKey";
+
+    private static final String TAG = "MainActivity";
+
+    // Metrics are reported to logcat and to a capped file when the activity pauses
+    private static final String METRICS_FILE = "metrics.txt";
+    private static final long METRICS_FILE_BYTES = 256 * 1024;
+    private static final Metrics.Histogram LOAD_MS = Metrics.global().histogram("load.document_ms", 20, 200);
+    private static final Metrics.Histogram FIRST_RENDER_MS = Metrics.global().histogram("load.first_render_ms", 20, 200);
+    private int loads;              // cookie of the latest async load trace section
+    private boolean loadTraceOpen;  // whether that section has not ended yet
 
     private final ActivityResultLauncher<String[]> openDocLauncher =
             registerForActivityResult(new ActivityResultContracts.OpenDocument(),
@@ -56,6 +93,15 @@ public class MainActivity extends AppCompatActivity {
                         } catch (Exception ignored) {
                         }
                         currentPdfUri = uri;
+                        documentKey = uri.toString();
+                        // The previous document's commits were never exported and cannot be reopened,
+                        // so its unsaved ink goes with them
+                        commitCache.clear();
+                        lastCommittedCacheFile = null;
+                        if (journal != null) {
+                            journal.delete();
+                            journal = null;
+                        }
                         loadPdf(uri, 0);
                     });
 
@@ -67,12 +113,7 @@ public class MainActivity extends AppCompatActivity {
                             Toast.makeText(this, "Nothing to save yet", Toast.LENGTH_SHORT).show();
                             return;
                         }
-                        try {
-                            copyFileToUri(lastCommittedCacheFile, outUri);
-                            Toast.makeText(this, "Saved", Toast.LENGTH_SHORT).show();
-                        } catch (Exception e) {
-                            Toast.makeText(this, "Save failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                        }
+                        exportTo(outUri);
                     });
 
     @Override
@@ -82,6 +123,7 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
 
         pdfView = findViewById(R.id.pdfView);
+        pdfViewNext = findViewById(R.id.pdfViewNext);
         overlay = findViewById(R.id.inkOverlay);
         progress = findViewById(R.id.mergeProgress);
 
@@ -92,9 +134,18 @@ public class MainActivity extends AppCompatActivity {
         btnBlue = findViewById(R.id.btnBlue);
         btnSaveAs = findViewById(R.id.btnSaveAs);
         tbPen = findViewById(R.id.tbPen);
+        tbEraser = findViewById(R.id.tbEraser);
         seekSize = findViewById(R.id.seekSize);
 
         overlay.setEnabled(false);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            // Front-buffered live stroke; older devices draw it in the overlay's onDraw
+            SurfaceView lowLatencyInk = findViewById(R.id.lowLatencyInk);
+            lowLatencyInk.setVisibility(View.VISIBLE);
+            overlay.setLowLatencySurface(lowLatencyInk);
+        }
+        // Commits write ink into page content. Annotation mode stays off until the app can load
+        // its committed Ink annotations back for undo, erase and restyle.
 
         btnOpen.setOnClickListener(v -> openDocLauncher.launch(new String[]{"application/pdf"}));
         btnRed.setOnClickListener(v -> overlay.setStrokeColor(0xFFFF0000));
@@ -117,6 +168,12 @@ public class MainActivity extends AppCompatActivity {
             }
         });
 
+        tbEraser.setOnCheckedChangeListener((btn, checked) -> overlay.setEraser(checked));
+        overlay.setOnInkChangedListener(() -> {
+            pdfView.invalidate();
+            updateUndoRedoEnabled();
+        });
+
         btnUndo.setOnClickListener(v -> {
             if (!overlay.getInkManager().canUndo()) return;
             overlay.getInkManager().undo();
@@ -138,6 +195,16 @@ public class MainActivity extends AppCompatActivity {
 
         tbPen.setOnCheckedChangeListener((btn, checked) -> {
             if (checked) {
+                // Pen back on while committing or exporting: cancel, the ink is still in the overlay
+                if (flattenJob != null) {
+                    flattenJob.cancel();
+                    // Too late, the commit is written: drawing resumes once it is swapped in
+                    if (!flattenJob.isCancelled()) return;
+                    flattenJob = null;
+                    setUiEnabled(true);
+                }
+                // Commit written but not yet on screen: show it now rather than draw over stale ink
+                if (swapPending) swapViewers();
                 overlay.finishStroke();
                 overlay.setEnabled(true);
                 updateUndoRedoEnabled();
@@ -155,41 +222,228 @@ public class MainActivity extends AppCompatActivity {
 
                 // show progress & disable controls
                 setUiEnabled(false);
+                progress.setIndeterminate(true);
 
                 // Flatten in background (reusable helper)
-                flattener.flattenAsync(
+                flattenJob = flattener.flattenAsync(
                         this,
                         currentPdfUri,
-                        pdfView,
+                        overlay.getGeometry(),
                         overlay.getInkManager(),
-                        spacingPx,
-                        1.5f, // scale: 1.25~2.0; lower is faster/less RAM
                         new PdfInkFlattener.Callback() {
                             @Override
                             public void onSuccess(File outFile) {
-                                overlay.getInkManager().clear();
-                                overlay.invalidate();
-
+                                flattenJob = null;
+                                Uri previousUri = currentPdfUri;
+                                commitCache.promote(outFile);
                                 lastCommittedCacheFile = outFile;
                                 Uri newUri = FileProvider.getUriForFile(
                                         MainActivity.this, getPackageName() + ".fileprovider", outFile);
                                 currentPdfUri = newUri;
 
-                                loadPdf(currentPdfUri, restorePage);
-                                setUiEnabled(true);
+                                // The old document and the overlay ink stay on screen until the
+                                // new one has rendered; swapViewers() then clears the ink
+                                loadNext(currentPdfUri, restorePage, previousUri);
                             }
 
                             @Override
                             public void onError(Throwable t) {
+                                flattenJob = null;
                                 Toast.makeText(MainActivity.this, "Commit failed: " + t.getMessage(), Toast.LENGTH_LONG).show();
                                 tbPen.setChecked(true); // keep drawing, no loss
                                 setUiEnabled(true);
                             }
+
+                            @Override
+                            public void onProgress(int pagesDone, int pageCount) {
+                                showProgress(pagesDone, pageCount);
+                            }
+
+                            @Override
+                            public void onCancelled() {
+                                flattenJob = null;
+                                setUiEnabled(true);
+                            }
                         });
             }
         });
 
         updateUndoRedoEnabled();
+
+        // Process death: reload the document; its journal brings back uncommitted strokes
+        commitCache = CommitCache.forDevice(getCacheDir());
+        if (savedInstanceState != null) {
+            String cache = savedInstanceState.getString(STATE_CACHE_FILE);
+            if (cache != null) lastCommittedCacheFile = new File(cache);
+            String rollback = savedInstanceState.getString(STATE_ROLLBACK_FILE);
+            commitCache.restore(lastCommittedCacheFile, rollback != null ? new File(rollback) : null);
+            Uri uri = savedInstanceState.getParcelable(STATE_PDF_URI);
+            if (uri != null) {
+                currentPdfUri = uri;
+                documentKey = savedInstanceState.getString(STATE_DOCUMENT_KEY, uri.toString());
+                loadPdf(uri, savedInstanceState.getInt(STATE_PAGE, 0));
+            }
+        }
+        Metrics.global().setSinks(new LogcatMetricsSink(),
+                new Metrics.FileSink(new File(getFilesDir(), METRICS_FILE), METRICS_FILE_BYTES));
+
+        // Journals without unsaved ink; queued ahead of the restored document's replay
+        StrokeJournal.deleteEmpty(journalDir(),
+                documentKey != null ? StrokeJournal.fileFor(journalDir(), documentKey) : null);
+        // Earlier sessions' commits and exports; before any new file is created
+        List<File> orphans = commitCache.orphans();
+        if (!orphans.isEmpty()) new Thread(() -> {
+            long freed = CommitCache.delete(orphans);
+            if (freed > 0) Log.i(TAG, "Deleted " + (freed >> 10) + " KB of orphaned cache files");
+        }, "cache-cleanup").start();
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle out) {
+        super.onSaveInstanceState(out);
+        if (currentPdfUri != null) {
+            out.putParcelable(STATE_PDF_URI, currentPdfUri);
+            out.putInt(STATE_PAGE, pdfView.getCurrentPage());
+            out.putString(STATE_DOCUMENT_KEY, documentKey);
+        }
+        if (lastCommittedCacheFile != null) out.putString(STATE_CACHE_FILE, lastCommittedCacheFile.getPath());
+        File rollback = commitCache.rollback();
+        if (rollback != null) out.putString(STATE_ROLLBACK_FILE, rollback.getPath());
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        if (journal != null) journal.sync();
+        new Thread(() -> {
+            try {
+                Metrics.global().report();
+            } catch (IOException e) {
+                Log.w(TAG, "Could not write metrics", e);
+            }
+        }, "metrics-report").start();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        endLoadTrace();
+        if (journal != null) journal.close();
+    }
+
+    /**
+     * Switches the stroke journal to the document's and replays it into the (cleared) overlay.
+     * Drawing stays disabled until the replay is done so edits are journaled in order. The
+     * journal is keyed by the document, not the file on screen, so commits keep using it.
+     */
+    private void openJournal(String key) {
+        File file = StrokeJournal.fileFor(journalDir(), key);
+        if (journal != null) {
+            if (journal.getFile().equals(file)) return;
+            journal.close();
+        }
+        overlay.getInkManager().clear();
+        journal = new StrokeJournal(file, JOURNAL_SYNC_MS);
+        setUiEnabled(false);
+        tbPen.setEnabled(false);
+        journal.restore(overlay.getInkManager(), this::runOnUiThread, replayed -> {
+            setUiEnabled(true);
+            updateUndoRedoEnabled();
+            if (replayed > 0) {
+                pdfView.invalidate();
+                overlay.invalidate();
+                Toast.makeText(this, "Restored unsaved ink", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    private File journalDir() { return new File(getFilesDir(), "journals"); }
+
+    /**
+     * Copies the committed document to {@code outUri} without passing the bytes through the
+     * Java heap. In annotation mode the committed ink annotations are first flattened into a
+     * temp copy, which is exported instead.
+     */
+    private void exportTo(Uri outUri) {
+        setUiEnabled(false);
+        progress.setIndeterminate(true);
+        if (!flattener.isAnnotationMode()) {
+            flattenJob = flattener.exportAsync(this, lastCommittedCacheFile, outUri, exportCallback(null));
+            return;
+        }
+        flattenJob = flattener.flattenAnnotationsAsync(this, Uri.fromFile(lastCommittedCacheFile),
+                new PdfInkFlattener.Callback() {
+                    @Override
+                    public void onSuccess(File flat) {
+                        progress.setIndeterminate(true);
+                        flattenJob = flattener.exportAsync(MainActivity.this, flat, outUri, exportCallback(flat));
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        flattenJob = null;
+                        Toast.makeText(MainActivity.this, "Save failed: " + t.getMessage(), Toast.LENGTH_LONG).show();
+                        setUiEnabled(true);
+                    }
+
+                    @Override
+                    public void onProgress(int pagesDone, int pageCount) {
+                        showProgress(pagesDone, pageCount);
+                    }
+
+                    @Override
+                    public void onCancelled() {
+                        flattenJob = null;
+                        setUiEnabled(true);
+                    }
+                });
+    }
+
+    /**
+     * Reports the copy to the destination and deletes the temp copy {@code flat}, if any,
+     * however that ends.
+     */
+    private PdfInkFlattener.Callback exportCallback(File flat) {
+        return new PdfInkFlattener.Callback() {
+            @Override
+            public void onSuccess(File src) {
+                flattenJob = null;
+                deleteExportCopy(flat);
+                Toast.makeText(MainActivity.this, "Saved", Toast.LENGTH_SHORT).show();
+                setUiEnabled(true);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                flattenJob = null;
+                deleteExportCopy(flat);
+                Toast.makeText(MainActivity.this, "Save failed: " + t.getMessage(), Toast.LENGTH_LONG).show();
+                setUiEnabled(true);
+            }
+
+            @Override
+            public void onProgress(int mbDone, int mbTotal) {
+                showProgress(mbDone, mbTotal);
+            }
+
+            @Override
+            public void onCancelled() {
+                flattenJob = null;
+                deleteExportCopy(flat);
+                setUiEnabled(true);
+            }
+        };
+    }
+
+    private static void deleteExportCopy(File flat) {
+        if (flat != null && !flat.delete()) Log.w(TAG, "Could not delete " + flat);
+    }
+
+    private void showProgress(int done, int total) {
+        if (total <= 0) return;
+        progress.setIndeterminate(false);
+        progress.setMax(total);
+        progress.setProgressCompat(done, true);
     }
 
     private void setUiEnabled(boolean enabled) {
@@ -204,37 +458,133 @@ public class MainActivity extends AppCompatActivity {
         progress.setVisibility(enabled ? android.view.View.GONE : android.view.View.VISIBLE);
     }
 
+    /** Opens {@code uri} in the visible viewer; open and first render times go to {@link Metrics}. */
     private void loadPdf(Uri uri, int restorePage) {
         pdfView.recycle();
-        pdfView.fromUri(uri)
-                .pageFitPolicy(FitPolicy.WIDTH)
-                .spacing(SPACING_DP)
-                .enableAnnotationRendering(true)
-                .defaultPage(Math.max(restorePage, 0))
+        endLoadTrace(); // a load still in flight was just abandoned
+        final long t0 = SystemClock.elapsedRealtime();
+        final int cookie = ++loads;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) Trace.beginAsyncSection("loadPdf", cookie);
+        loadTraceOpen = true;
+        configure(pdfView, uri, restorePage)
                 .onLoad(new OnLoadCompleteListener() {
                     @Override
                     public void loadComplete(int nbPages) {
+                        LOAD_MS.record(SystemClock.elapsedRealtime() - t0);
                         overlay.setPdfView(pdfView);
-                        overlay.setGeometry(new PdfGeometry(pdfView, spacingPx));
+                        overlay.setGeometry(geometryCache.get(
+                                documentKey != null ? documentKey : uri.toString(), pdfView, spacingPx));
                         pdfView.jumpTo(Math.min(restorePage, nbPages - 1), false);
+                        openJournal(documentKey != null ? documentKey : uri.toString());
                     }
                 })
-                .onDrawAll((canvas, pageW, pageH, pageIndex) -> {
-                    for (InkStroke s : overlay.getInkManager().getStrokesForPage(pageIndex)) {
-                        canvas.drawPath(s.path, s.paint);
+                .onRender(new OnRenderListener() {
+                    @Override
+                    public void onInitiallyRendered(int nbPages) {
+                        FIRST_RENDER_MS.record(SystemClock.elapsedRealtime() - t0);
+                        if (cookie == loads) endLoadTrace();
                     }
                 })
+                .onError(t -> {
+                    if (cookie == loads) endLoadTrace();
+                    Log.e(TAG, "Cannot load " + uri, t);
+                })
                 .load();
     }
 
-    private void copyFileToUri(File src, Uri dest) throws IOException {
-        try (FileInputStream fis = new FileInputStream(src);
-             OutputStream os = getContentResolver().openOutputStream(dest, "w")) {
-            byte[] buf = new byte[8192];
-            int n;
-            while ((n = fis.read(buf)) > 0) os.write(buf, 0, n);
-            os.flush();
+    /** Ends the latest load's trace section, once: on first render, error, or when abandoned. */
+    private void endLoadTrace() {
+        if (!loadTraceOpen) return;
+        loadTraceOpen = false;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) Trace.endAsyncSection("loadPdf", loads);
+    }
+
+    /**
+     * Loads a freshly committed {@code uri} into the off-screen viewer at the current viewport.
+     * Once its first tiles are rendered it replaces the visible viewer in one frame, so a commit
+     * shows neither a blank view nor a cold render. If it cannot be opened, the commit is rolled
+     * back (see {@link CommitCache#rollBack}) and the ink stays uncommitted on the document
+     * still on screen; {@code previousUri} is that document when it is not a managed one.
+     */
+    private void loadNext(Uri uri, int restorePage, Uri previousUri) {
+        PDFView next = pdfViewNext;
+        next.recycle();
+        swapPending = true;
+        configure(next, uri, restorePage)
+                .onLoad(nbPages -> {
+                    if (!swapPending || next != pdfViewNext) return;
+                    // Same pages, only annotations changed: the cached geometry still applies
+                    overlay.setGeometry(geometryCache.get(
+                            documentKey != null ? documentKey : uri.toString(), next, spacingPx));
+                    matchViewport(next, pdfView);
+                })
+                .onRender(new OnRenderListener() {
+                    @Override
+                    public void onInitiallyRendered(int nbPages) {
+                        if (swapPending && next == pdfViewNext) swapViewers();
+                    }
+                })
+                .onError(t -> {
+                    if (!swapPending || next != pdfViewNext) return;
+                    swapPending = false;
+                    next.recycle();
+                    // Back to what is still on screen; the ink stays uncommitted
+                    File previous = commitCache.rollBack();
+                    lastCommittedCacheFile = previous;
+                    currentPdfUri = previous != null
+                            ? FileProvider.getUriForFile(MainActivity.this, getPackageName() + ".fileprovider", previous)
+                            : previousUri;
+                    Log.e(TAG, "Cannot load commit " + uri, t);
+                    Toast.makeText(this, "Commit failed: " + t.getMessage(), Toast.LENGTH_LONG).show();
+                    overlay.setEnabled(tbPen.isChecked());
+                    setUiEnabled(true);
+                })
+                .load();
+    }
+
+    /**
+     * Shows the off-screen viewer in place of the current one and recycles the old one. The
+     * committed ink now lives in the shown document, so the overlay is cleared, which also
+     * empties the document's journal.
+     */
+    private void swapViewers() {
+        swapPending = false;
+        PDFView old = pdfView;
+        pdfView = pdfViewNext;
+        pdfViewNext = old;
+        matchViewport(pdfView, old); // the user may have scrolled since the load
+        overlay.getInkManager().clear();
+        updateUndoRedoEnabled();
+        overlay.setPdfView(pdfView);
+        overlay.setEnabled(tbPen.isChecked());
+        pdfView.setVisibility(View.VISIBLE);
+        old.setVisibility(View.INVISIBLE);
+        old.recycle();
+        endLoadTrace(); // in case the old viewer had not rendered yet
+        overlay.invalidate();
+        openJournal(documentKey != null ? documentKey : currentPdfUri.toString());
+        setUiEnabled(true);
+    }
+
+    private void matchViewport(PDFView target, PDFView source) {
+        if (target.getZoom() != source.getZoom()) target.zoomTo(source.getZoom());
+        if (target.getCurrentXOffset() != source.getCurrentXOffset()
+                || target.getCurrentYOffset() != source.getCurrentYOffset()) {
+            target.moveTo(source.getCurrentXOffset(), source.getCurrentYOffset());
         }
+        target.loadPages();
+    }
+
+    /** Shared viewer setup; committed ink is drawn only by whichever viewer is on screen. */
+    private PDFView.Configurator configure(PDFView view, Uri uri, int restorePage) {
+        return view.fromUri(uri)
+                .pageFitPolicy(FitPolicy.WIDTH)
+                .spacing(SPACING_DP)
+                .enableAnnotationRendering(true)
+                .defaultPage(Math.max(restorePage, 0))
+                .onDrawAll((canvas, pageW, pageH, pageIndex) -> {
+                    if (view == pdfView) overlay.drawCommittedPage(canvas, pageIndex);
+                });
     }
 
     private float dpToPx(int dp) {
@@ -244,6 +594,7 @@ public class MainActivity extends AppCompatActivity {
 
     private void updateUndoRedoEnabled() {
         boolean penOn = tbPen != null && tbPen.isChecked();
+        tbEraser.setEnabled(penOn);
         btnUndo.setEnabled(penOn && overlay.getInkManager().canUndo());
         btnRedo.setEnabled(penOn && overlay.getInkManager().canRedo());
         btnSaveAs.setEnabled(lastCommittedCacheFile != null);
@@ -1,8 +1,17 @@
 package com.example.myapplication;
 
 import com.github.barteksc.pdfviewer.PDFView;
+import com.shockwave.pdfium.util.SizeF;
 
-/** Computes page sizes/positions in viewer-content space (zoom=1). */
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Computes page sizes/positions in viewer-content space (zoom=1).
+ *
+ * <p>{@link #pageTop} is the prefix sum of page heights plus spacing, so the page at a content
+ * position is found by binary search ({@link #pageAtY}). Instances are immutable by contract.
+ */
 public final class PdfGeometry {
     public final int pageCount;
     public final float spacingPx;
@@ -10,31 +19,109 @@ public final class PdfGeometry {
     public final float contentWidth, contentHeight;
 
     public PdfGeometry(PDFView pdfView, float spacingPx) {
-        this.pageCount = pdfView.getPageCount();
+        this(readSizes(pdfView), spacingPx);
+    }
+
+    private PdfGeometry(float[][] sizes, float spacingPx) {
+        this(sizes[0], sizes[1], spacingPx);
+    }
+
+    /** Geometry from explicit page sizes (zoom=1 content units). */
+    public PdfGeometry(float[] pageWidth, float[] pageHeight, float spacingPx) {
+        this.pageCount = pageWidth.length;
         this.spacingPx = spacingPx;
 
         pageLeft  = new float[pageCount];
         pageTop   = new float[pageCount];
-        pageWidth = new float[pageCount];
-        pageHeight= new float[pageCount];
+        this.pageWidth  = pageWidth;
+        this.pageHeight = pageHeight;
 
-        float maxW = 0f;
+        float maxW = maxOf(pageWidth);
         for (int i = 0; i < pageCount; i++) {
-            float w = pdfView.getPageSize(i).getWidth();
-            float h = pdfView.getPageSize(i).getHeight();
-            pageWidth[i]  = w;
-            pageHeight[i] = h;
-            if (w > maxW) maxW = w;
+            pageLeft[i] = (maxW - pageWidth[i]) / 2f; // horizontally centered
         }
+        contentWidth  = maxW;
+        contentHeight = layoutTops(pageTop, pageHeight, spacingPx);
+    }
 
+    /** Fills tops as running sums; @return the content height */
+    private static float layoutTops(float[] tops, float[] heights, float spacing) {
+        int n = heights.length;
+        if (n == 0) return 0f;
         float y = 0f;
-        for (int i = 0; i < pageCount; i++) {
-            pageLeft[i] = (maxW - pageWidth[i]) / 2f; // horizontally centered
-            pageTop[i]  = y;
-            y += pageHeight[i] + spacingPx;
+        for (int i = 0; i < n; i++) {
+            tops[i] = y;
+            y += heights[i] + spacing;
         }
+        return y - spacing;
+    }
 
-        contentWidth  = maxW;
-        contentHeight = y - spacingPx;
+    private static float maxOf(float[] values) {
+        float max = 0f;
+        for (float v : values) {
+            if (v > max) max = v;
+        }
+        return max;
+    }
+
+    /**
+     * The page at a content-space y: the last page whose top is at or above it, so the gap
+     * after a page belongs to that page. Clamped to the first and last page; -1 if there are
+     * no pages. O(log n).
+     */
+    public int pageAtY(float contentY) {
+        int lo = 0, hi = pageCount - 1;
+        if (hi < 0) return -1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (pageTop[mid] <= contentY) lo = mid; else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /** Page sizes of the viewer's document, one size lookup per page: {widths, heights}. */
+    private static float[][] readSizes(PDFView pdfView) {
+        int n = pdfView.getPageCount();
+        float[] w = new float[n], h = new float[n];
+        for (int i = 0; i < n; i++) {
+            SizeF size = pdfView.getPageSize(i);
+            w[i] = size.getWidth();
+            h[i] = size.getHeight();
+        }
+        return new float[][]{w, h};
+    }
+
+    /**
+     * Geometry per document, page count and spacing, so reloading a document (e.g. after a
+     * commit) reuses it. Page sizes follow the viewer's width, which is fixed for the activity
+     * that owns the cache (a resize recreates it), so a hit is returned without measuring any
+     * page. UI thread only.
+     */
+    public static final class Cache {
+        private final int maxEntries;
+        private final LinkedHashMap<String, PdfGeometry> entries;
+
+        public Cache(int maxEntries) {
+            this.maxEntries = maxEntries;
+            this.entries = new LinkedHashMap<String, PdfGeometry>(8, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PdfGeometry> eldest) {
+                    return size() > Cache.this.maxEntries;
+                }
+            };
+        }
+
+        /** @param documentKey stable identity of the document, e.g. the Uri it was opened from */
+        public PdfGeometry get(String documentKey, PDFView pdfView, float spacingPx) {
+            String key = documentKey + '#' + pdfView.getPageCount() + '@' + spacingPx;
+            PdfGeometry g = entries.get(key);
+            if (g == null) {
+                g = new PdfGeometry(pdfView, spacingPx);
+                entries.put(key, g);
+            }
+            return g;
+        }
+
+        public void clear() { entries.clear(); }
     }
 }
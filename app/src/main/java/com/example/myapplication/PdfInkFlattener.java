@@ -1,163 +1,596 @@
 package com.example.myapplication;
 
 import android.content.Context;
-import android.graphics.Color;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+import android.util.Log;
 
-import androidx.graphics.path.PathIterator;
-import androidx.graphics.path.PathSegment;
-
-import com.github.barteksc.pdfviewer.PDFView;
+import com.tom_roush.pdfbox.cos.COSArray;
+import com.tom_roush.pdfbox.cos.COSBase;
+import com.tom_roush.pdfbox.cos.COSDictionary;
+import com.tom_roush.pdfbox.cos.COSName;
+import com.tom_roush.pdfbox.cos.COSStream;
+import com.tom_roush.pdfbox.io.MemoryUsageSetting;
 import com.tom_roush.pdfbox.pdmodel.PDDocument;
 import com.tom_roush.pdfbox.pdmodel.PDPage;
-import com.tom_roush.pdfbox.pdmodel.PDPageContentStream;
-import com.tom_roush.pdfbox.pdmodel.PDPageContentStream.AppendMode;
-import com.tom_roush.pdfbox.pdmodel.common.PDRectangle;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
-/** Reusable background flattener (VECTOR): append strokes to PDF content. */
+/** Reusable background flattener (VECTOR): append strokes to PDF content or as Ink annotations. */
 public final class PdfInkFlattener {
 
     public interface Callback {
         void onSuccess(File outFile);
         void onError(Throwable t);
+        /**
+         * Pages with ink encoded so far ({@link #exportAsync}: MiB copied); called on the
+         * main thread.
+         */
+        default void onProgress(int pagesDone, int pageCount) {}
+        /** The job was cancelled via {@link FlattenJob#cancel()}; nothing was written. */
+        default void onCancelled() {}
     }
 
+    private static final byte[] SAVE_STATE = {'q', '\n'};
+
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // Per-page operator encoding; attaching to the PDDocument stays on `executor`
+    private final ExecutorService encodePool = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), r -> {
+                Thread t = new Thread(r, "ink-encode");
+                t.setDaemon(true);
+                return t;
+            });
     private final Handler main = new Handler(Looper.getMainLooper());
 
+    private static final String TAG = "PdfInkFlattener";
+    private static final long HEAP_SAMPLE_MS = 20;
+    private static final long EXPORT_CHUNK_BYTES = 1024 * 1024;
+
+    // Phase times in ms, peak heap per commit and bytes written, reported by Metrics
+    private static final Metrics METRICS = Metrics.global();
+    private static final Metrics.Histogram COMMIT_MS = METRICS.histogram("flatten.commit_ms", 50, 200);
+    private static final Metrics.Histogram LOAD_MS = METRICS.histogram("flatten.load_ms", 20, 200);
+    private static final Metrics.Histogram APPEND_MS = METRICS.histogram("flatten.append_ms", 20, 200);
+    private static final Metrics.Histogram SAVE_MS = METRICS.histogram("flatten.save_ms", 20, 200);
+    private static final Metrics.Histogram WRITE_MS = METRICS.histogram("flatten.write_ms", 5, 200);
+    private static final Metrics.Histogram PEAK_HEAP_MB = METRICS.histogram("flatten.peak_heap_mb", 4, 128);
+    private static final Metrics.Counter BYTES_WRITTEN = METRICS.counter("flatten.bytes_written");
+    private static final Metrics.Histogram EXPORT_FLATTEN_MS = METRICS.histogram("export.flatten_ms", 50, 200);
+    private static final Metrics.Histogram EXPORT_COPY_MS = METRICS.histogram("export.copy_ms", 20, 200);
+    private static final Metrics.Counter EXPORT_BYTES = METRICS.counter("export.bytes_written");
+
+    private volatile boolean incrementalSave = true;
+    private volatile boolean annotationMode;
+    private volatile FlattenMemoryPolicy memoryPolicy;
+    private volatile long lastPeakHeapBytes;
+
+    // Latest submitted job; older pending/running jobs are superseded by a new commit
+    private FlattenJob latest;
+    private Uri latestInput;
+    private List<InkStroke> latestSnapshot;
+
     /**
-     * Vector flatten. Text stays selectable in the output PDF.
-     * NOTE: We snapshot geometry + strokes on the caller (UI) thread.
+     * When enabled (default), commits append an incremental update (new content streams and
+     * the touched page objects) to the committed cache file instead of rewriting the whole
+     * document. The first commit of a document the app does not own still copies it once.
+     * Disable to fall back to a full rewrite into a new cache file per commit.
      */
-    public void flattenAsync(
-            Context ctx,
-            Uri inputUri,
-            PDFView pdfView,
-            InkManager ink,
-            float spacingPx,
-            float unusedScale,   // kept for API compatibility; ignored for vector
-            Callback cb) {
-
-        // Build geometry and snapshot strokes before jumping to background
-        final PdfGeometry geom = new PdfGeometry(pdfView, spacingPx);
+    public void setIncrementalSave(boolean enabled) { this.incrementalSave = enabled; }
+    public boolean isIncrementalSave() { return incrementalSave; }
+
+    /**
+     * When enabled, commits write Ink annotations (see {@link InkAnnotations}) instead of page
+     * content, so ink stays separate from the document until {@link #flattenAnnotationsAsync}
+     * burns it in, typically at export. Off by default.
+     */
+    public void setAnnotationMode(boolean enabled) { this.annotationMode = enabled; }
+    public boolean isAnnotationMode() { return annotationMode; }
+
+    /** Heap cap and temp-file spillover for PDFBox; defaults to {@link FlattenMemoryPolicy#forDevice}. */
+    public void setMemoryPolicy(FlattenMemoryPolicy policy) { this.memoryPolicy = policy; }
+
+    /** Peak used Java heap observed during the last finished commit, in bytes. */
+    public long getLastPeakHeapBytes() { return lastPeakHeapBytes; }
+
+    /**
+     * Vector flatten. Text stays selectable in the output PDF. Strokes are snapshotted on the
+     * caller's thread; the viewer geometry is supplied by the caller, e.g. from a
+     * {@link PdfGeometry.Cache}, so nothing is measured on the UI thread.
+     *
+     * <p>Commits coalesce: a job that is still queued or running when a new one is submitted
+     * is dropped without a callback, since the new snapshot already contains its strokes. A
+     * job whose output is already final still reports success, and the new job leaves out
+     * the strokes it appended. Call on the main thread.
+     *
+     * @return handle to cancel the job
+     */
+    public FlattenJob flattenAsync(Context ctx, Uri inputUri, PdfGeometry geom, InkManager ink, Callback cb) {
+        // Snapshot strokes before jumping to background
         final List<InkStroke> snapshot = new ArrayList<>(ink.getAll());
 
+        final boolean incremental = incrementalSave;
+        final boolean annotations = annotationMode;
+        if (memoryPolicy == null) memoryPolicy = FlattenMemoryPolicy.forDevice(ctx);
+        final FlattenMemoryPolicy policy = memoryPolicy;
+
+        // Strokes a previous job has already appended to the file this one appends to
+        final Set<InkStroke> written = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (latest != null && !latest.supersede() && inputUri.equals(latestInput)) {
+            written.addAll(latestSnapshot);
+        }
+        final FlattenJob[] holder = new FlattenJob[1];
+        final FlattenJob job = new FlattenJob((done, total) -> main.post(() -> {
+            if (!holder[0].isCancelled()) cb.onProgress(done, total);
+        }));
+        holder[0] = job;
+        latest = job;
+        latestInput = inputUri;
+        latestSnapshot = snapshot;
+
         executor.execute(() -> {
-            File out = new File(ctx.getCacheDir(), "merged-" + System.currentTimeMillis() + ".pdf");
+            File out = null;
+            boolean created = false;   // out is ours to delete if the job does not finish
+            PeakHeapMonitor heap = new PeakHeapMonitor(HEAP_SAMPLE_MS);
             try {
-                commitInkByVectorAppend(ctx, inputUri, out, geom, snapshot);
-                main.post(() -> cb.onSuccess(out));
+                job.throwIfCancelled();
+                MemoryUsageSetting mem = policy.toSetting(ctx.getCacheDir());
+                long t0 = SystemClock.elapsedRealtime();
+                if (incremental) {
+                    out = ownedCacheFile(ctx, inputUri);
+                    List<InkStroke> strokes = snapshot;
+                    if (out == null) {
+                        out = newCacheFile(ctx);
+                        created = true;
+                        copyUriToFile(ctx, inputUri, out);
+                    } else if (!written.isEmpty()) {
+                        strokes = new ArrayList<>(snapshot);
+                        strokes.removeAll(written);
+                    }
+                    commitInkIncrementally(out, geom, strokes, mem, encodePool, job, annotations);
+                } else {
+                    out = newCacheFile(ctx);
+                    created = true;
+                    commitInkByVectorAppend(ctx, inputUri, out, geom, snapshot, mem, encodePool, job, annotations);
+                }
+                // From here on the commit stands, even if cancel() comes before the post
+                if (!job.complete()) throw new CancellationException("Flatten cancelled");
+                heap.close();
+                lastPeakHeapBytes = heap.peakBytes();
+                long elapsed = SystemClock.elapsedRealtime() - t0;
+                COMMIT_MS.record(elapsed);
+                PEAK_HEAP_MB.record(heap.peakBytes() >> 20);
+                Log.i(TAG, "commit strokes=" + snapshot.size()
+                        + " time=" + elapsed + "ms"
+                        + " heap peak=" + (heap.peakBytes() >> 20) + "MB"
+                        + " baseline=" + (heap.baselineBytes() >> 20) + "MB"
+                        + " policy=" + policy);
+                final File result = out;
+                main.post(() -> finish(job, () -> cb.onSuccess(result), cb));
+            } catch (CancellationException c) {
+                if (created && out != null && !out.delete()) Log.w(TAG, "Could not delete " + out);
+                main.post(() -> finish(job, null, cb));
             } catch (Throwable t) {
-                main.post(() -> cb.onError(t));
+                if (created && out != null && !out.delete()) Log.w(TAG, "Could not delete " + out);
+                main.post(() -> finish(job, () -> cb.onError(t), cb));
+            } finally {
+                heap.close(); // already closed on success, where the peak is read
             }
         });
+        return job;
+    }
+
+    /**
+     * The explicit flatten step for {@link #setAnnotationMode annotation mode}: burns this
+     * app's Ink annotations in {@code inputUri} into page content and writes a full copy to a
+     * new cache file, leaving the input untouched. Progress is reported per page scanned.
+     * Independent of commits: it neither supersedes nor is superseded by them.
+     */
+    public FlattenJob flattenAnnotationsAsync(Context ctx, Uri inputUri, Callback cb) {
+        if (memoryPolicy == null) memoryPolicy = FlattenMemoryPolicy.forDevice(ctx);
+        final FlattenMemoryPolicy policy = memoryPolicy;
+        final FlattenJob[] holder = new FlattenJob[1];
+        final FlattenJob job = new FlattenJob((done, total) -> main.post(() -> {
+            if (!holder[0].isCancelled()) cb.onProgress(done, total);
+        }));
+        holder[0] = job;
+
+        executor.execute(() -> {
+            File out = newCacheFile(ctx);
+            try (TracedPhase phase = TracedPhase.begin("flatten.annotations", EXPORT_FLATTEN_MS);
+                 PDDocument doc = load(ctx, inputUri, policy.toSetting(ctx.getCacheDir()))) {
+                long t0 = SystemClock.elapsedRealtime();
+                Set<COSDictionary> pages = InkAnnotations.flatten(doc, job);
+                job.throwIfCancelled();
+                doc.save(out);
+                if (!job.complete()) throw new CancellationException("Flatten cancelled");
+                Log.i(TAG, "flatten annotations pages=" + pages.size()
+                        + " time=" + (SystemClock.elapsedRealtime() - t0) + "ms");
+                main.post(() -> finish(job, () -> cb.onSuccess(out), cb));
+            } catch (CancellationException c) {
+                if (out.exists() && !out.delete()) Log.w(TAG, "Could not delete " + out);
+                main.post(() -> finish(job, null, cb));
+            } catch (Throwable t) {
+                if (out.exists() && !out.delete()) Log.w(TAG, "Could not delete " + out);
+                main.post(() -> finish(job, () -> cb.onError(t), cb));
+            }
+        });
+        return job;
+    }
+
+    /**
+     * Copies {@code src} to {@code dest} in the kernel: {@link FileChannel#transferTo} into the
+     * destination's file descriptor, one {@link #EXPORT_CHUNK_BYTES} chunk at a time so progress
+     * (in chunks) and cancellation are reported between them. Runs after any queued commit.
+     * {@code onSuccess} receives {@code src}; a cancelled or failed export may leave
+     * {@code dest} partially written.
+     */
+    public FlattenJob exportAsync(Context ctx, File src, Uri dest, Callback cb) {
+        final FlattenJob[] holder = new FlattenJob[1];
+        final FlattenJob job = new FlattenJob((done, total) -> main.post(() -> {
+            if (!holder[0].isCancelled()) cb.onProgress(done, total);
+        }));
+        holder[0] = job;
+
+        executor.execute(() -> {
+            try {
+                long t0 = SystemClock.elapsedRealtime();
+                long bytes;
+                try (TracedPhase phase = TracedPhase.begin("export.copy", EXPORT_COPY_MS)) {
+                    bytes = transfer(ctx, src, dest, job);
+                }
+                if (!job.complete()) throw new CancellationException("Export cancelled");
+                EXPORT_BYTES.add(bytes);
+                Log.i(TAG, "export bytes=" + bytes
+                        + " time=" + (SystemClock.elapsedRealtime() - t0) + "ms");
+                main.post(() -> finish(job, () -> cb.onSuccess(src), cb));
+            } catch (CancellationException c) {
+                main.post(() -> finish(job, null, cb));
+            } catch (Throwable t) {
+                main.post(() -> finish(job, () -> cb.onError(t), cb));
+            }
+        });
+        return job;
+    }
+
+    private static long transfer(Context ctx, File src, Uri dest, FlattenJob job) throws IOException {
+        // "wt": providers that ignore truncation on "w" would otherwise keep a longer old tail
+        try (ParcelFileDescriptor pfd = ctx.getContentResolver().openFileDescriptor(dest, "wt");
+             FileInputStream fis = new FileInputStream(src);
+             FileChannel in = fis.getChannel()) {
+            if (pfd == null) throw new IOException("Cannot open " + dest);
+            try (FileOutputStream fos = new FileOutputStream(pfd.getFileDescriptor());
+                 FileChannel out = fos.getChannel()) {
+                final long size = in.size();
+                job.beginPages((int) ((size + EXPORT_CHUNK_BYTES - 1) / EXPORT_CHUNK_BYTES));
+                long pos = 0;
+                while (pos < size) {
+                    job.throwIfCancelled();
+                    long end = Math.min(size, pos + EXPORT_CHUNK_BYTES);
+                    while (pos < end) {
+                        long n = in.transferTo(pos, end - pos, out);
+                        if (n <= 0) throw new IOException("Short write to " + dest + " at " + pos);
+                        pos += n;
+                    }
+                    job.pageDone();
+                }
+                // Regular files only; pipes and sockets from remote providers cannot be synced
+                if (pfd.getStatSize() >= 0) out.force(false);
+                return size;
+            }
+        }
+    }
+
+    /** Delivers the outcome on the main thread unless the job was superseded or cancelled. */
+    private void finish(FlattenJob job, Runnable outcome, Callback cb) {
+        if (latest == job) {
+            latest = null;
+            latestInput = null;
+            latestSnapshot = null;
+        }
+        if (job.isSuperseded()) return;
+        if (job.isCancelled()) {
+            cb.onCancelled();
+        } else if (outcome != null) {
+            outcome.run();
+        }
     }
 
     /** Writes each stroke as vector path operators; keeps original text layer intact. */
     private static void commitInkByVectorAppend(
             Context ctx, Uri inputUri, File outFile,
-            PdfGeometry geom, List<InkStroke> strokes) throws IOException {
+            PdfGeometry geom, List<InkStroke> strokes, MemoryUsageSetting mem,
+            ExecutorService pool, FlattenJob job, boolean annotations) throws IOException {
+
+        PDDocument loaded;
+        try (TracedPhase phase = TracedPhase.begin("flatten.load", LOAD_MS)) {
+            loaded = load(ctx, inputUri, mem);
+        }
+        try (PDDocument doc = loaded) {
+            try (TracedPhase phase = TracedPhase.begin("flatten.append", APPEND_MS)) {
+                writeInk(doc, geom, strokes, pool, job, annotations);
+            }
+            job.throwIfCancelled();
+            try (TracedPhase phase = TracedPhase.begin("flatten.save", SAVE_MS)) {
+                doc.save(outFile);
+            }
+        }
+        BYTES_WRITTEN.add(outFile.length());
+    }
+
+    /**
+     * Local files are opened random-access (RandomAccessFile), so PDFBox reads objects on
+     * demand instead of buffering the whole document; other Uris are streamed into PDFBox's
+     * scratch buffer, which honors the memory setting and spills to the temp dir.
+     */
+    private static PDDocument load(Context ctx, Uri uri, MemoryUsageSetting mem) throws IOException {
+        File local = localFile(ctx, uri);
+        if (local != null) return PDDocument.load(local, mem);
+        try (InputStream is = ctx.getContentResolver().openInputStream(uri)) {
+            if (is == null) throw new IOException("Cannot open " + uri);
+            return PDDocument.load(is, mem);
+        }
+    }
 
-        try (InputStream is = ctx.getContentResolver().openInputStream(inputUri);
-             PDDocument doc = PDDocument.load(is)) {
+    /**
+     * Appends the strokes to {@code file} as a PDF incremental update. Only the touched page
+     * dictionaries and the new content streams are written, so the bytes appended scale with
+     * the ink, not the document. The update is assembled in memory and appended with a single
+     * write; on failure, or when the job was cancelled during the write, the file is truncated
+     * back to its previous length. Otherwise the job is {@link FlattenJob#complete complete}.
+     */
+    private static void commitInkIncrementally(
+            File file, PdfGeometry geom, List<InkStroke> strokes, MemoryUsageSetting mem,
+            ExecutorService pool, FlattenJob job, boolean annotations) throws IOException {
 
-            final int pageCount = doc.getNumberOfPages();
+        final long originalLength = file.length();
+        final TailBuffer update = new TailBuffer(originalLength);
+        PDDocument loaded;
+        try (TracedPhase phase = TracedPhase.begin("flatten.load", LOAD_MS)) {
+            loaded = PDDocument.load(file, mem);
+        }
+        try (PDDocument doc = loaded) {
+            Set<COSDictionary> touched;
+            try (TracedPhase phase = TracedPhase.begin("flatten.append", APPEND_MS)) {
+                touched = writeInk(doc, geom, strokes, pool, job, annotations);
+            }
+            if (touched.isEmpty()) return;
+            // PDFBox streams the original bytes first; TailBuffer discards them.
+            try (TracedPhase phase = TracedPhase.begin("flatten.save", SAVE_MS)) {
+                doc.saveIncremental(update, touched);
+            }
+        }
+        // Last point where cancelling leaves the file untouched; later ones undo the append
+        job.throwIfCancelled();
 
-            // Group strokes by page
-            @SuppressWarnings("unchecked")
-            List<InkStroke>[] byPage = new List[pageCount];
-            for (int i = 0; i < pageCount; i++) byPage[i] = new ArrayList<>();
-            for (InkStroke s : strokes) {
-                if (s.pageIndex >= 0 && s.pageIndex < pageCount) byPage[s.pageIndex].add(s);
+        try (TracedPhase phase = TracedPhase.begin("flatten.write", WRITE_MS);
+             FileOutputStream fos = new FileOutputStream(file, true);
+             FileChannel ch = fos.getChannel()) {
+            try {
+                ByteBuffer buf = ByteBuffer.wrap(update.bytes(), 0, update.size());
+                while (buf.hasRemaining()) ch.write(buf);
+                ch.force(false);
+            } catch (IOException e) {
+                ch.truncate(originalLength);
+                throw e;
             }
+            if (!job.complete()) {
+                ch.truncate(originalLength);
+                throw new CancellationException("Flatten cancelled");
+            }
+            BYTES_WRITTEN.add(update.size());
+        }
+    }
 
-            for (int i = 0; i < pageCount; i++) {
-                PDPage page = doc.getPage(i);
-                PDRectangle box = page.getCropBox(); // PDF points
-                float pdfW = box.getWidth();
-                float pdfH = box.getHeight();
-
-                // Map page-local coords (top-left origin) → PDF user space (bottom-left origin)
-                float baseW = geom.pageWidth[i];
-                float baseH = geom.pageHeight[i];
-                final float sx = pdfW / baseW;
-                final float sy = pdfH / baseH;
-
-                try (PDPageContentStream cs =
-                             new PDPageContentStream(doc, page, AppendMode.APPEND, true, true)) {
-
-                    cs.setLineCapStyle(1);   // round
-                    cs.setLineJoinStyle(1);  // round
-
-                    for (InkStroke s : byPage[i]) {
-                        int color = s.paint.getColor();
-                        cs.setStrokingColor(Color.red(color), Color.green(color), Color.blue(color));
-                        cs.setLineWidth(s.paint.getStrokeWidth() * sx);
-
-                        // Transform Android Path to PDF coordinates: scale, flip Y, translate up
-                        android.graphics.Matrix m = new android.graphics.Matrix();
-                        m.postScale(sx, -sy);
-                        m.postTranslate(0, pdfH);
-
-                        android.graphics.Path pdfPath = new android.graphics.Path();
-                        s.path.transform(m, pdfPath);
-
-                        // Iterate segments; approximate conics as quadratics for portability
-                        PathIterator it = new PathIterator(
-                                pdfPath,
-                                PathIterator.ConicEvaluation.AsQuadratics,
-                                0.25f /* tolerance */
-                        );
-
-                        float[] c = new float[8];
-                        float lastX = 0f, lastY = 0f;
-                        boolean haveLast = false;
-
-                        while (it.hasNext()) {
-                            PathSegment.Type t = it.next(c);
-                            switch (t) {
-                                case Move:
-                                    cs.moveTo(c[0], c[1]);
-                                    lastX = c[0]; lastY = c[1]; haveLast = true;
-                                    break;
-                                case Line:
-                                    cs.lineTo(c[0], c[1]);
-                                    lastX = c[0]; lastY = c[1];
-                                    break;
-                                case Quadratic:
-                                    // Convert quadratic -> cubic
-                                    if (!haveLast) { cs.moveTo(c[2], c[3]); lastX = c[2]; lastY = c[3]; break; }
-                                    float c1x = lastX + (2f/3f) * (c[0] - lastX);
-                                    float c1y = lastY + (2f/3f) * (c[1] - lastY);
-                                    float c2x = c[2] + (2f/3f) * (c[0] - c[2]);
-                                    float c2y = c[3] + (2f/3f) * (c[1] - c[3]);
-                                    cs.curveTo(c1x, c1y, c2x, c2y, c[2], c[3]);
-                                    lastX = c[2]; lastY = c[3];
-                                    break;
-                                case Cubic:
-                                    cs.curveTo(c[0], c[1], c[2], c[3], c[4], c[5]);
-                                    lastX = c[4]; lastY = c[5];
-                                    break;
-                                case Close:
-                                    cs.closePath();
-                                    break;
-                            }
-                        }
-                        cs.stroke();
-                    }
+    /** The cache file behind a Uri we handed out ourselves (file:// or our FileProvider), else null. */
+    private static File ownedCacheFile(Context ctx, Uri uri) {
+        File f = localFile(ctx, uri);
+        if (f == null) return null;
+        File parent = f.getParentFile();
+        return parent != null && parent.equals(ctx.getCacheDir()) ? f : null;
+    }
+
+    /** A readable local file for file:// Uris and our own FileProvider Uris, else null. */
+    private static File localFile(Context ctx, Uri uri) {
+        File f = null;
+        if ("file".equals(uri.getScheme()) && uri.getPath() != null) {
+            f = new File(uri.getPath());
+        } else if ("content".equals(uri.getScheme())
+                && (ctx.getPackageName() + ".fileprovider").equals(uri.getAuthority())
+                && uri.getLastPathSegment() != null) {
+            f = new File(ctx.getCacheDir(), uri.getLastPathSegment());
+        }
+        return f != null && f.isFile() && f.canRead() ? f : null;
+    }
+
+    private static File newCacheFile(Context ctx) {
+        return CommitCache.newFile(ctx.getCacheDir());
+    }
+
+    private static void copyUriToFile(Context ctx, Uri src, File dest) throws IOException {
+        try (InputStream is = ctx.getContentResolver().openInputStream(src);
+             OutputStream os = new FileOutputStream(dest)) {
+            if (is == null) throw new IOException("Cannot open " + src);
+            byte[] buf = new byte[64 * 1024];
+            int n;
+            while ((n = is.read(buf)) > 0) os.write(buf, 0, n);
+        }
+    }
+
+    /** OutputStream that drops the first {@code skip} bytes and buffers the rest. */
+    private static final class TailBuffer extends OutputStream {
+        private long skip;
+        private byte[] buf = new byte[32 * 1024];
+        private int size;
+
+        TailBuffer(long skip) { this.skip = skip; }
+
+        @Override
+        public void write(int b) {
+            if (skip > 0) { skip--; return; }
+            ensure(1);
+            buf[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (skip > 0) {
+                int dropped = (int) Math.min(skip, len);
+                skip -= dropped;
+                off += dropped;
+                len -= dropped;
+            }
+            if (len == 0) return;
+            ensure(len);
+            System.arraycopy(b, off, buf, size, len);
+            size += len;
+        }
+
+        byte[] bytes() { return buf; }
+        int size() { return size; }
+
+        private void ensure(int extra) {
+            if (size + extra > buf.length) buf = Arrays.copyOf(buf, Math.max(size + extra, buf.length * 2));
+        }
+    }
+
+    private static Set<COSDictionary> writeInk(PDDocument doc, PdfGeometry geom, List<InkStroke> strokes,
+                                               ExecutorService pool, FlattenJob job,
+                                               boolean annotations) throws IOException {
+        return annotations
+                ? appendInkAnnotations(doc, geom, strokes, pool, job)
+                : appendInk(doc, geom, strokes, pool, job);
+    }
+
+    /**
+     * Appends the strokes to the pages they belong to. Pages without ink are not touched.
+     * Each inked page gets one content stream with a single graphics-state setup, and runs of
+     * consecutive strokes sharing a style are painted as one path (one color/width change and
+     * one S per run), so ink keeps its drawing order across styles.
+     *
+     * <p>Work is split in three stages: page boxes are read from the document, then each page's
+     * operators are encoded and compressed by {@link InkFlattenEngine} — on {@code pool} when
+     * given, inline otherwise — and finally the streams are attached to the document in page
+     * order on the calling thread. The output does not depend on {@code pool}.
+     *
+     * @param job  progress and cancellation; null when untracked
+     * @return the page dictionaries that were modified, flagged for an incremental save
+     * @throws java.util.concurrent.CancellationException if the job is cancelled before attach
+     */
+    static Set<COSDictionary> appendInk(PDDocument doc, PdfGeometry geom, List<InkStroke> strokes,
+                                        ExecutorService pool, FlattenJob job) throws IOException {
+        List<InkFlattenEngine.PageInk> pages = readPages(doc, geom, strokes);
+        List<byte[]> encoded = InkFlattenEngine.encode(pages, pool, job);
+
+        // Attach to the document, single-threaded, in page order
+        Set<COSDictionary> touched = new HashSet<>();
+        for (int k = 0; k < pages.size(); k++) {
+            PDPage page = doc.getPage(pages.get(k).index);
+            attach(doc, page, encoded.get(k));
+            touched.add(markUpdated(page));
+        }
+        return touched;
+    }
+
+    /**
+     * Like {@link #appendInk}, but adds one Ink annotation per page and style run instead of
+     * content. Existing page content is not touched.
+     */
+    static Set<COSDictionary> appendInkAnnotations(PDDocument doc, PdfGeometry geom, List<InkStroke> strokes,
+                                                   ExecutorService pool, FlattenJob job) throws IOException {
+        List<InkFlattenEngine.PageInk> pages = readPages(doc, geom, strokes);
+        List<Callable<List<InkAnnotations.Appearance>>> jobs = new ArrayList<>(pages.size());
+        for (InkFlattenEngine.PageInk p : pages) {
+            jobs.add(() -> {
+                List<InkAnnotations.Appearance> out = new ArrayList<>(p.runs.size());
+                for (List<InkStroke> run : p.runs) {
+                    out.add(InkAnnotations.prepare(run.get(0).style, run, p.sx, p.sy, p.pdfH));
                 }
+                return out;
+            });
+        }
+        List<List<InkAnnotations.Appearance>> prepared = InkFlattenEngine.runAll(jobs, pool, job);
+
+        Set<COSDictionary> touched = new HashSet<>();
+        for (int k = 0; k < pages.size(); k++) {
+            PDPage page = doc.getPage(pages.get(k).index);
+            InkAnnotations.attach(doc, page, prepared.get(k));
+            touched.add(markUpdated(page));
+        }
+        return touched;
+    }
+
+    private static List<InkFlattenEngine.PageInk> readPages(PDDocument doc, PdfGeometry geom,
+                                                            List<InkStroke> strokes) {
+        return InkFlattenEngine.plan(new InkFlattenEngine.PageBoxes() {
+            @Override public int pageCount() { return doc.getNumberOfPages(); }
+            @Override public float width(int page) { return doc.getPage(page).getCropBox().getWidth(); }
+            @Override public float height(int page) { return doc.getPage(page).getCropBox().getHeight(); }
+            @Override public boolean hasContent(int page) {
+                return doc.getPage(page).getCOSObject().getItem(COSName.CONTENTS) != null;
             }
-            doc.save(outFile);
+        }, geom.pageWidth, geom.pageHeight, strokes);
+    }
+
+    private static COSDictionary markUpdated(PDPage page) {
+        COSDictionary pageDict = page.getCOSObject();
+        pageDict.setNeedToBeUpdated(true);
+        return pageDict;
+    }
+
+    /**
+     * Appends a compressed content stream to the page. Existing content is wrapped in q ... Q
+     * (the encoder emitted the Q) so ink is drawn in the page's default coordinate system,
+     * as PDPageContentStream does in APPEND mode with resetContext.
+     */
+    static void attach(PDDocument doc, PDPage page, byte[] deflated) throws IOException {
+        COSDictionary dict = page.getCOSObject();
+        COSBase existing = dict.getDictionaryObject(COSName.CONTENTS);
+
+        COSStream ink = doc.getDocument().createCOSStream();
+        try (OutputStream os = ink.createRawOutputStream()) {
+            os.write(deflated);
+        }
+        ink.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+
+        if (existing == null) {
+            dict.setItem(COSName.CONTENTS, ink);
+            return;
+        }
+        COSStream save = doc.getDocument().createCOSStream();
+        try (OutputStream os = save.createOutputStream()) {
+            os.write(SAVE_STATE);
+        }
+        // A new direct array, so an indirect /Contents array is never modified in place
+        COSArray contents = new COSArray();
+        contents.add(save);
+        if (existing instanceof COSArray) {
+            contents.addAll((COSArray) existing);
+        } else {
+            contents.add(dict.getItem(COSName.CONTENTS));
         }
+        contents.add(ink);
+        dict.setItem(COSName.CONTENTS, contents);
     }
 }
@@ -0,0 +1,30 @@
+package com.example.myapplication;
+
+import android.os.SystemClock;
+import android.os.Trace;
+
+/**
+ * A {@link Trace} section around one background phase (load, append, save) that records its
+ * wall time in ms into a histogram when closed. Allocates, so not for the draw path.
+ */
+final class TracedPhase implements AutoCloseable {
+
+    private final Metrics.Histogram ms;
+    private final long t0;
+
+    private TracedPhase(Metrics.Histogram ms, long t0) {
+        this.ms = ms;
+        this.t0 = t0;
+    }
+
+    static TracedPhase begin(String section, Metrics.Histogram ms) {
+        Trace.beginSection(section);
+        return new TracedPhase(ms, SystemClock.elapsedRealtime());
+    }
+
+    @Override
+    public void close() {
+        Trace.endSection();
+        ms.record(SystemClock.elapsedRealtime() - t0);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.myapplication;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CommitCacheTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static File write(File f, int bytes) throws IOException {
+        try (FileOutputStream os = new FileOutputStream(f)) {
+            os.write(new byte[bytes]);
+        }
+        return f;
+    }
+
+    private File generation(int bytes) throws IOException {
+        return write(CommitCache.newFile(tmp.getRoot()), bytes);
+    }
+
+    @Test
+    public void keepsLatestAndOneRollback() throws IOException {
+        CommitCache cache = new CommitCache(tmp.getRoot(), Long.MAX_VALUE);
+        File a = generation(10), b = generation(10), c = generation(10);
+        cache.promote(a);
+        cache.promote(b);
+        assertTrue(a.exists());
+        cache.promote(c);
+        assertFalse(a.exists());
+        assertEquals(c, cache.latest());
+        assertEquals(b, cache.rollback());
+        assertTrue(b.exists() && c.exists());
+    }
+
+    @Test
+    public void incrementalCommitKeepsGenerations() throws IOException {
+        CommitCache cache = new CommitCache(tmp.getRoot(), Long.MAX_VALUE);
+        File a = generation(10), b = generation(10);
+        cache.promote(a);
+        cache.promote(b);
+        cache.promote(b);
+        assertEquals(b, cache.latest());
+        assertEquals(a, cache.rollback());
+        assertTrue(a.exists());
+    }
+
+    @Test
+    public void rollBackRestoresPreviousGeneration() throws IOException {
+        CommitCache cache = new CommitCache(tmp.getRoot(), Long.MAX_VALUE);
+        File a = generation(10), b = generation(10);
+        cache.promote(a);
+        cache.promote(b);
+        assertEquals(a, cache.rollBack());
+        assertFalse(b.exists());
+        assertEquals(a, cache.latest());
+        assertNull(cache.rollback());
+
+        // The first commit of a document from elsewhere has nothing to go back to
+        assertNull(cache.rollBack());
+        assertFalse(a.exists());
+        assertNull(cache.latest());
+    }
+
+    @Test
+    public void rollBackTruncatesAnIncrementalCommit() throws IOException {
+        CommitCache cache = new CommitCache(tmp.getRoot(), Long.MAX_VALUE);
+        File a = generation(10), b = generation(100);
+        cache.promote(a);
+        cache.promote(b);
+        try (FileOutputStream os = new FileOutputStream(b, true)) {
+            os.write(new byte[25]);
+        }
+        cache.promote(b);
+        try (FileOutputStream os = new FileOutputStream(b, true)) {
+            os.write(new byte[40]);
+        }
+        cache.promote(b);
+
+        assertEquals(b, cache.rollBack());
+        assertEquals(125, b.length());
+        assertEquals(a, cache.rollback());
+        // Only the last append is undone; rolling back again drops the generation
+        assertEquals(a, cache.rollBack());
+        assertFalse(b.exists());
+    }
+
+    @Test
+    public void capDropsRollbackButNeverLatest() throws IOException {
+        CommitCache cache = new CommitCache(tmp.getRoot(), 150);
+        File a = generation(100), b = generation(100);
+        cache.promote(a);
+        cache.promote(b);
+        assertFalse(a.exists());
+        assertNull(cache.rollback());
+        File c = generation(1000);
+        cache.promote(c);
+        assertTrue(c.exists());
+        assertEquals(c, cache.latest());
+    }
+
+    @Test
+    public void orphansExcludeGenerationsAndForeignFiles() throws IOException {
+        File a = generation(10), b = generation(10), stale = generation(20), export = generation(30);
+        File foreign = write(new File(tmp.getRoot(), "PDFBox123.tmp"), 5);
+        CommitCache cache = new CommitCache(tmp.getRoot(), Long.MAX_VALUE);
+        cache.restore(b, a);
+        List<File> orphans = cache.orphans();
+        assertEquals(2, orphans.size());
+        assertTrue(orphans.contains(stale) && orphans.contains(export));
+        assertEquals(50, CommitCache.delete(orphans));
+        assertTrue(a.exists() && b.exists() && foreign.exists());
+        assertFalse(stale.exists() || export.exists());
+    }
+
+    @Test
+    public void newFileNamesAreUnique() throws IOException {
+        File a = generation(1), b = generation(1);
+        assertNotEquals(a, b);
+        assertTrue(CommitCache.isManaged(a));
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PdfGeometryTest {
+
+    @Test
+    public void pageAtYFindsPageByPrefixSum() {
+        PdfGeometry g = new PdfGeometry(new float[]{100f, 80f, 100f}, new float[]{200f, 100f, 300f}, 10f);
+        assertArrayEquals(new float[]{0f, 210f, 320f}, g.pageTop, 0f);
+        assertEquals(620f, g.contentHeight, 0f);
+        assertEquals(10f, g.pageLeft[1], 0f);
+
+        assertEquals(0, g.pageAtY(-50f));
+        assertEquals(0, g.pageAtY(0f));
+        assertEquals(0, g.pageAtY(205f));   // gap after page 0
+        assertEquals(1, g.pageAtY(210f));
+        assertEquals(2, g.pageAtY(619f));
+        assertEquals(2, g.pageAtY(10_000f));
+        assertEquals(-1, new PdfGeometry(new float[0], new float[0], 10f).pageAtY(0f));
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.myapplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Export and import of a whole ink layer, and a single-page read, in the binary layer format. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class InkLayerBenchmark {
+
+    @Param({"100"})
+    public int pages;
+
+    @Param({"500"})
+    public int strokesPerPage;
+
+    @Param({"16", "64"})
+    public int points;
+
+    private InkManager ink;
+    private byte[] layer;
+    private int page;
+
+    @Setup
+    public void setUp() throws IOException {
+        ink = SyntheticInk.document(pages, strokesPerPage, points, 42);
+        layer = export();
+    }
+
+    @Benchmark
+    public byte[] export() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(layer != null ? layer.length : 1 << 20);
+        InkLayerWriter.write(ink, out);
+        return out.toByteArray();
+    }
+
+    /** Decode every page into a fresh manager as one undo step. */
+    @Benchmark
+    public int importAll() throws IOException {
+        try (InkLayerReader r = InkLayerReader.open(layer)) {
+            return r.readInto(new InkManager());
+        }
+    }
+
+    @Benchmark
+    public List<InkStroke> readOnePage() throws IOException {
+        page = page + 1 == pages ? 0 : page + 1;
+        try (InkLayerReader r = InkLayerReader.open(layer)) {
+            return r.readPage(page);
+        }
+    }
+}
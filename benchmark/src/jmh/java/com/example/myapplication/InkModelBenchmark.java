@@ -0,0 +1,79 @@
+package com.example.myapplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Page lookups, viewport queries, hit tests and add/undo on a synthetic document. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class InkModelBenchmark {
+
+    @Param({"10", "100"})
+    public int pages;
+
+    @Param({"20", "200"})
+    public int strokesPerPage;
+
+    @Param({"64"})
+    public int points;
+
+    private InkManager ink;
+    private InkStroke extra;
+    private final List<InkStroke> out = new ArrayList<>();
+    private int page;
+    private float probe;
+
+    @Setup
+    public void setUp() {
+        ink = SyntheticInk.document(pages, strokesPerPage, points, 42);
+        extra = SyntheticInk.strokes(1, 1, points, 7).get(0);
+    }
+
+    private int nextPage() {
+        page = page + 1 == pages ? 0 : page + 1;
+        return page;
+    }
+
+    private float nextProbe() {
+        probe = (probe + 97.3f) % SyntheticInk.PAGE_W;
+        return probe;
+    }
+
+    @Benchmark
+    public int strokesForPage() {
+        return ink.getStrokesForPage(nextPage()).size();
+    }
+
+    /** The strokes under a quarter-page viewport (a 2x zoom), as drawn per frame. */
+    @Benchmark
+    public int queryViewport() {
+        out.clear();
+        float x = nextProbe() * 0.5f, y = nextProbe();
+        return ink.queryPage(nextPage(), x, y, x + SyntheticInk.PAGE_W / 2, y + SyntheticInk.PAGE_H / 2, out);
+    }
+
+    @Benchmark
+    public InkStroke hitTest() {
+        return ink.hitTest(nextPage(), nextProbe(), nextProbe(), 12f);
+    }
+
+    /** Commit and undo of one stroke: history, index and redo bookkeeping. */
+    @Benchmark
+    public void addAndUndo(Blackhole bh) {
+        ink.add(extra);
+        ink.undo();
+        bh.consume(ink.strokeCount());
+    }
+}
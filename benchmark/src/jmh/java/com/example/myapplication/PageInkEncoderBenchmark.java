@@ -0,0 +1,51 @@
+package com.example.myapplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Encoding and compressing one page's ink, the per-page work of appendInk. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PageInkEncoderBenchmark {
+
+    @Param({"100", "1000"})
+    public int strokes;
+
+    @Param({"false", "true"})
+    public boolean variableWidth;
+
+    private List<List<InkStroke>> runs;
+    private byte[] ops;
+
+    @Setup
+    public void setUp() {
+        runs = new ArrayList<>();
+        List<InkStroke> run = null;
+        for (InkStroke s : SyntheticInk.strokes(strokes, 1, 64, 42, variableWidth)) {
+            if (run == null || run.get(0).style != s.style) runs.add(run = new ArrayList<>());
+            run.add(s);
+        }
+        ops = PageInkEncoder.encode(runs, 0.55f, 0.55f, 842f, true);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return PageInkEncoder.encode(runs, 0.55f, 0.55f, 842f, true);
+    }
+
+    @Benchmark
+    public byte[] deflate() {
+        return PageInkEncoder.deflate(ops);
+    }
+}
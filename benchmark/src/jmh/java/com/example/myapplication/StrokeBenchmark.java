@@ -0,0 +1,58 @@
+package com.example.myapplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Per-stroke commit work: simplification, outline tessellation and eraser splits. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class StrokeBenchmark {
+
+    @Param({"64", "512"})
+    public int points;
+
+    private InkStroke raw;
+    private float[] xy, widths;
+    private final StrokeSimplifier simplifier = new StrokeSimplifier(0.5f, true);
+    private final List<InkStroke> pieces = new ArrayList<>();
+    private float cutX;
+
+    @Setup
+    public void setUp() {
+        raw = SyntheticInk.rawGesture(points, 11);
+        xy = raw.copyPoints();
+        widths = new float[points];
+        StrokeWidthModel model = new StrokeWidthModel();
+        for (int i = 0; i < points; i++) widths[i] = model.next(raw.x(i), raw.y(i), raw.pressure(i), raw.timeMs(i));
+        cutX = (raw.left() + raw.right()) / 2;
+    }
+
+    @Benchmark
+    public InkStroke simplify() {
+        return simplifier.process(raw);
+    }
+
+    /** Constructing a variable-width stroke, which tessellates its outline. */
+    @Benchmark
+    public InkStroke tessellate() {
+        return new InkStroke(xy, null, null, widths, null, raw.style, 0);
+    }
+
+    @Benchmark
+    public int eraseSplit() {
+        pieces.clear();
+        StrokeEraser.split(raw, cutX, raw.top(), cutX, raw.bottom(), 8f, pieces);
+        return pieces.size();
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.myapplication.bench;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result file with a recorded baseline, or records a new baseline.
+ * Each benchmark is keyed by its method and parameters, e.g.
+ * {@code InkModelBenchmark.queryViewport(pages=10,points=64,strokesPerPage=200)}, and
+ * carries ops/s and allocated bytes per op.
+ *
+ * <p>A benchmark regresses when its throughput drops by more than
+ * {@link #THROUGHPUT_TOLERANCE} or its allocation grows by more than
+ * {@link #ALLOCATION_TOLERANCE} (plus {@link #ALLOCATION_SLACK_BYTES}, so near-zero
+ * allocation is not flaky). Throughput is only comparable on the machine that recorded the
+ * baseline; bytes/op is comparable anywhere.
+ *
+ * <pre>BenchmarkBaseline check|update &lt;results.json&gt; &lt;baseline.json&gt;</pre>
+ */
+public final class BenchmarkBaseline {
+
+    static final double THROUGHPUT_TOLERANCE = 0.20;
+    static final double ALLOCATION_TOLERANCE = 0.10;
+    static final double ALLOCATION_SLACK_BYTES = 64;
+
+    /** One benchmark's numbers; NaN when not measured. */
+    static final class Entry {
+        double opsPerSec = Double.NaN;
+        double allocBytesPerOp = Double.NaN;
+    }
+
+    private BenchmarkBaseline() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 || !(args[0].equals("check") || args[0].equals("update"))) {
+            System.err.println("usage: BenchmarkBaseline check|update <results.json> <baseline.json>");
+            System.exit(2);
+        }
+        Map<String, Entry> results = readResults(Paths.get(args[1]));
+        Path baselinePath = Paths.get(args[2]);
+        if (args[0].equals("update")) {
+            writeBaseline(baselinePath, results);
+            System.out.println("Recorded " + results.size() + " benchmarks in " + baselinePath);
+            return;
+        }
+        int regressions = compare(readBaseline(baselinePath), results, System.out);
+        if (regressions > 0) {
+            System.err.println(regressions + " benchmark(s) regressed against " + baselinePath);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Prints one line per benchmark and returns how many regressed. Benchmarks missing from
+     * the baseline are reported as new, not as regressions.
+     */
+    static int compare(Map<String, Entry> baseline, Map<String, Entry> results, Appendable out)
+            throws IOException {
+        int regressions = 0;
+        StringBuilder line = new StringBuilder();
+        for (Map.Entry<String, Entry> e : results.entrySet()) {
+            Entry now = e.getValue(), base = baseline.get(e.getKey());
+            line.setLength(0);
+            line.append(String.format(Locale.US, "%-90s %14.1f ops/s %12.1f B/op", e.getKey(),
+                    now.opsPerSec, now.allocBytesPerOp));
+            if (base == null) {
+                line.append("  new");
+            } else {
+                boolean slower = now.opsPerSec < base.opsPerSec * (1 - THROUGHPUT_TOLERANCE);
+                boolean heavier = now.allocBytesPerOp
+                        > base.allocBytesPerOp * (1 + ALLOCATION_TOLERANCE) + ALLOCATION_SLACK_BYTES;
+                line.append(String.format(Locale.US, "  (%+.0f%% ops/s, %+.0f B/op)",
+                        100 * (now.opsPerSec / base.opsPerSec - 1), now.allocBytesPerOp - base.allocBytesPerOp));
+                if (slower) line.append("  SLOWER");
+                if (heavier) line.append("  ALLOCATES MORE");
+                if (slower || heavier) regressions++;
+            }
+            out.append(line).append('\n');
+        }
+        return regressions;
+    }
+
+    /** Reads a JMH result file (resultFormat JSON, throughput mode, gc profiler). */
+    static Map<String, Entry> readResults(Path file) throws IOException {
+        Map<String, Entry> out = new TreeMap<>();
+        try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            JsonArray runs = JsonParser.parseReader(r).getAsJsonArray();
+            for (JsonElement el : runs) {
+                JsonObject run = el.getAsJsonObject();
+                Entry entry = new Entry();
+                JsonObject primary = run.getAsJsonObject("primaryMetric");
+                entry.opsPerSec = primary.get("score").getAsDouble()
+                        * perSecond(primary.get("scoreUnit").getAsString());
+                JsonObject secondary = run.getAsJsonObject("secondaryMetrics");
+                if (secondary != null) {
+                    for (Map.Entry<String, JsonElement> m : secondary.entrySet()) {
+                        // "gc.alloc.rate.norm"; older JMH versions prefix it with a middle dot
+                        if (m.getKey().endsWith("gc.alloc.rate.norm")) {
+                            entry.allocBytesPerOp = m.getValue().getAsJsonObject().get("score").getAsDouble();
+                        }
+                    }
+                }
+                out.put(key(run), entry);
+            }
+        }
+        return out;
+    }
+
+    /** "Class.method(param=value,...)", with the package dropped and parameters sorted. */
+    static String key(JsonObject run) {
+        String name = run.get("benchmark").getAsString();
+        int dot = name.lastIndexOf('.', name.lastIndexOf('.') - 1);
+        StringBuilder key = new StringBuilder(name.substring(dot + 1));
+        JsonObject params = run.getAsJsonObject("params");
+        if (params != null && params.size() > 0) {
+            key.append('(');
+            boolean first = true;
+            for (Map.Entry<String, JsonElement> p : new TreeMap<>(params.asMap()).entrySet()) {
+                if (!first) key.append(',');
+                key.append(p.getKey()).append('=').append(p.getValue().getAsString());
+                first = false;
+            }
+            key.append(')');
+        }
+        return key.toString();
+    }
+
+    /** Factor from a JMH throughput unit ("ops/s", "ops/ms", ...) to ops per second. */
+    private static double perSecond(String unit) {
+        switch (unit) {
+            case "ops/s": return 1;
+            case "ops/ms": return 1e3;
+            case "ops/us": return 1e6;
+            case "ops/ns": return 1e9;
+            case "ops/min": return 1 / 60.0;
+            default: throw new IllegalArgumentException("not a throughput unit: " + unit);
+        }
+    }
+
+    static Map<String, Entry> readBaseline(Path file) throws IOException {
+        Map<String, Entry> out = new TreeMap<>();
+        try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            JsonObject benchmarks = JsonParser.parseReader(r).getAsJsonObject().getAsJsonObject("benchmarks");
+            for (Map.Entry<String, JsonElement> e : benchmarks.entrySet()) {
+                JsonObject o = e.getValue().getAsJsonObject();
+                Entry entry = new Entry();
+                entry.opsPerSec = o.get("opsPerSec").getAsDouble();
+                entry.allocBytesPerOp = o.has("allocBytesPerOp") ? o.get("allocBytesPerOp").getAsDouble() : Double.NaN;
+                out.put(e.getKey(), entry);
+            }
+        }
+        return out;
+    }
+
+    static void writeBaseline(Path file, Map<String, Entry> results) throws IOException {
+        JsonObject root = new JsonObject();
+        root.addProperty("recordedWith", System.getProperty("java.vm.name") + " "
+                + System.getProperty("java.version") + ", " + System.getProperty("os.name") + " "
+                + System.getProperty("os.arch") + ", " + Runtime.getRuntime().availableProcessors() + " cpu");
+        JsonObject benchmarks = new JsonObject();
+        for (Map.Entry<String, Entry> e : results.entrySet()) {
+            JsonObject o = new JsonObject();
+            o.addProperty("opsPerSec", round(e.getValue().opsPerSec));
+            if (!Double.isNaN(e.getValue().allocBytesPerOp)) {
+                o.addProperty("allocBytesPerOp", round(e.getValue().allocBytesPerOp));
+            }
+            benchmarks.add(e.getKey(), o);
+        }
+        root.add("benchmarks", benchmarks);
+        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            gson.toJson(root, w);
+            w.write('\n');
+        }
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 10) / 10.0;
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.myapplication.cli;
+
+import com.example.myapplication.InkDocument;
+import com.example.myapplication.InkJson;
+import com.example.myapplication.PeakHeapMonitor;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Batch driver for server-side ink merging: flattens many PDFs with their {@link InkJson}
+ * ink, {@code --jobs} documents at a time, and reports throughput and peak heap.
+ *
+ * <pre>
+ * inkcli [options] &lt;file.pdf&gt;...       ink is read from &lt;file&gt;.ink.json next to each PDF
+ * inkcli [options] --manifest &lt;list&gt;   one "in.pdf TAB ink.json [TAB out.pdf]" per line
+ *   --out &lt;dir&gt;            output directory for PDFs without an explicit output (default: inked)
+ *   --jobs &lt;n&gt;             documents flattened at once (default: available processors)
+ *   --encode-threads &lt;n&gt;   pool shared by all documents for page encoding; 0 = inline (default)
+ *   --heap-per-doc &lt;MB&gt;    PDFBox heap per document before it spills to temp files (default 64)
+ * </pre>
+ * Exits with 1 if any document failed, 2 on bad arguments.
+ */
+public final class BatchFlatten {
+
+    private static final long HEAP_SAMPLE_MS = 20;
+    private static final String INK_SUFFIX = ".ink.json";
+
+    static final class Task {
+        final File pdf, ink, out;
+
+        Task(File pdf, File ink, File out) {
+            this.pdf = pdf;
+            this.ink = ink;
+            this.out = out;
+        }
+    }
+
+    static final class Options {
+        final List<Task> tasks = new ArrayList<>();
+        int jobs = Runtime.getRuntime().availableProcessors();
+        int encodeThreads;
+        long heapPerDocBytes = 64L * 1024 * 1024;
+    }
+
+    /** Totals of one batch. */
+    static final class Summary {
+        int docs, failed, pages, inkedPages, strokes;
+        long wallNanos, peakHeapBytes;
+
+        double docsPerSec() { return docs / (wallNanos / 1e9); }
+        double pagesPerSec() { return pages / (wallNanos / 1e9); }
+    }
+
+    private BatchFlatten() {}
+
+    public static void main(String[] args) {
+        Options options;
+        try {
+            options = parse(args);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            System.err.println("usage: inkcli [--out dir] [--jobs n] [--encode-threads n] [--heap-per-doc MB]"
+                    + " (file.pdf... | --manifest list)");
+            System.exit(2);
+            return;
+        }
+        Summary s = run(options, System.out);
+        System.out.printf(Locale.US, "%d docs (%d failed), %d pages (%d inked), %d strokes in %.2f s:"
+                        + " %.2f docs/s, %.1f pages/s, peak heap %d MB%n",
+                s.docs, s.failed, s.pages, s.inkedPages, s.strokes, s.wallNanos / 1e9,
+                s.docsPerSec(), s.pagesPerSec(), s.peakHeapBytes >> 20);
+        System.exit(s.failed > 0 ? 1 : 0);
+    }
+
+    static Options parse(String[] args) throws IOException {
+        Options o = new Options();
+        File outDir = new File("inked");
+        List<File> pdfs = new ArrayList<>();
+        File manifest = null;
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            switch (a) {
+                case "--out": outDir = new File(value(args, ++i, a)); break;
+                case "--jobs": o.jobs = positive(value(args, ++i, a), a); break;
+                case "--encode-threads": o.encodeThreads = Integer.parseInt(value(args, ++i, a)); break;
+                case "--heap-per-doc": o.heapPerDocBytes = positive(value(args, ++i, a), a) * 1024L * 1024L; break;
+                case "--manifest": manifest = new File(value(args, ++i, a)); break;
+                default:
+                    if (a.startsWith("--")) throw new IllegalArgumentException("Unknown option " + a);
+                    pdfs.add(new File(a));
+            }
+        }
+        for (File pdf : pdfs) {
+            String name = pdf.getName();
+            String base = name.toLowerCase(Locale.ROOT).endsWith(".pdf") ? name.substring(0, name.length() - 4) : name;
+            o.tasks.add(new Task(pdf, new File(pdf.getParentFile(), base + INK_SUFFIX), new File(outDir, name)));
+        }
+        if (manifest != null) {
+            int line = 0;
+            for (String l : Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8)) {
+                line++;
+                if (l.trim().isEmpty() || l.startsWith("#")) continue;
+                String[] f = l.split("\t");
+                if (f.length < 2 || f.length > 3) {
+                    throw new IllegalArgumentException(manifest + ":" + line + ": expected in.pdf, ink.json [, out.pdf]");
+                }
+                File pdf = new File(f[0]);
+                o.tasks.add(new Task(pdf, new File(f[1]), f.length == 3 ? new File(f[2]) : new File(outDir, pdf.getName())));
+            }
+        }
+        if (o.tasks.isEmpty()) throw new IllegalArgumentException("No documents given");
+        for (Task t : o.tasks) {
+            if (t.out.getAbsoluteFile().equals(t.pdf.getAbsoluteFile())) {
+                throw new IllegalArgumentException("Output would overwrite its input: " + t.pdf);
+            }
+        }
+        return o;
+    }
+
+    /**
+     * Flattens every task on a pool of {@code options.jobs} threads, printing one line per
+     * document as it finishes. A failed document is reported and does not stop the batch.
+     */
+    static Summary run(Options options, PrintStream log) {
+        Summary s = new Summary();
+        ExecutorService workers = Executors.newFixedThreadPool(options.jobs);
+        ExecutorService encoders = options.encodeThreads > 0 ? Executors.newFixedThreadPool(options.encodeThreads) : null;
+        long t0 = System.nanoTime();
+        PeakHeapMonitor heap = new PeakHeapMonitor(HEAP_SAMPLE_MS);
+        try {
+            CompletionService<String> done = new ExecutorCompletionService<>(workers);
+            for (Task t : options.tasks) {
+                done.submit(() -> {
+                    long start = System.nanoTime();
+                    DesktopInkFlattener.Result r = flatten(t, options.heapPerDocBytes, encoders);
+                    synchronized (s) {
+                        s.pages += r.pages;
+                        s.inkedPages += r.inkedPages;
+                        s.strokes += r.strokes;
+                    }
+                    return String.format(Locale.US, "ok   %s -> %s  pages=%d inked=%d strokes=%d %dms",
+                            t.pdf, t.out, r.pages, r.inkedPages, r.strokes, (System.nanoTime() - start) / 1_000_000);
+                });
+            }
+            for (int i = 0; i < options.tasks.size(); i++) {
+                s.docs++;
+                try {
+                    log.println(done.take().get());
+                } catch (ExecutionException e) {
+                    s.failed++;
+                    Throwable c = e.getCause();
+                    log.println("FAIL " + c.getClass().getSimpleName() + ": " + c.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            heap.close();
+            s.peakHeapBytes = heap.peakBytes();
+            s.wallNanos = System.nanoTime() - t0;
+            workers.shutdownNow();
+            if (encoders != null) encoders.shutdownNow();
+        }
+        return s;
+    }
+
+    private static DesktopInkFlattener.Result flatten(Task t, long heapBytes, ExecutorService encoders)
+            throws IOException {
+        InkDocument ink;
+        try (Reader r = Files.newBufferedReader(t.ink.toPath(), StandardCharsets.UTF_8)) {
+            ink = InkJson.read(r);
+        } catch (IOException e) {
+            throw new IOException(t.ink + ": " + e.getMessage(), e);
+        }
+        File parent = t.out.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        try {
+            return DesktopInkFlattener.flatten(t.pdf, ink, t.out, MemoryUsageSetting.setupMixed(heapBytes), encoders);
+        } catch (IOException e) {
+            throw new IOException(t.pdf + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) throw new IllegalArgumentException(option + " needs a value");
+        return args[i];
+    }
+
+    private static int positive(String v, String option) {
+        int n;
+        try {
+            n = Integer.parseInt(v);
+        } catch (NumberFormatException e) {
+            n = 0;
+        }
+        if (n <= 0) throw new IllegalArgumentException(option + " must be a positive number: " + v);
+        return n;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.myapplication.cli;
+
+import com.example.myapplication.InkDocument;
+import com.example.myapplication.InkFlattenEngine;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Desktop PDFBox adapter of {@link InkFlattenEngine}: burns an {@link InkDocument} into page
+ * content exactly as the app's vector commit does (one appended content stream per inked
+ * page, existing content wrapped in q ... Q), so server-side merges match the device's.
+ */
+public final class DesktopInkFlattener {
+
+    private static final byte[] SAVE_STATE = {'q', '\n'};
+
+    /** What one flatten did. */
+    public static final class Result {
+        public final int pages;
+        public final int inkedPages;
+        public final int strokes;
+
+        Result(int pages, int inkedPages, int strokes) {
+            this.pages = pages;
+            this.inkedPages = inkedPages;
+            this.strokes = strokes;
+        }
+    }
+
+    private DesktopInkFlattener() {}
+
+    /**
+     * Loads {@code in} random-access under {@code mem}, appends the ink and writes a full copy
+     * to {@code out}.
+     *
+     * @param pool encodes pages in parallel when given
+     */
+    public static Result flatten(File in, InkDocument ink, File out, MemoryUsageSetting mem,
+                                 ExecutorService pool) throws IOException {
+        try (PDDocument doc = PDDocument.load(in, mem)) {
+            if (ink.hasPageSizes() && ink.pageCount() != doc.getNumberOfPages()) {
+                throw new IOException("Ink is for " + ink.pageCount() + " pages, "
+                        + in.getName() + " has " + doc.getNumberOfPages());
+            }
+            int inked = appendInk(doc, ink, pool);
+            doc.save(out);
+            return new Result(doc.getNumberOfPages(), inked, ink.strokes.size());
+        }
+    }
+
+    /** @return the number of pages that received ink */
+    public static int appendInk(PDDocument doc, InkDocument ink, ExecutorService pool) throws IOException {
+        List<InkFlattenEngine.PageInk> pages = InkFlattenEngine.plan(new InkFlattenEngine.PageBoxes() {
+            @Override public int pageCount() { return doc.getNumberOfPages(); }
+            @Override public float width(int page) { return doc.getPage(page).getCropBox().getWidth(); }
+            @Override public float height(int page) { return doc.getPage(page).getCropBox().getHeight(); }
+            @Override public boolean hasContent(int page) {
+                return doc.getPage(page).getCOSObject().getItem(COSName.CONTENTS) != null;
+            }
+        }, ink.pageWidth, ink.pageHeight, ink.strokes);
+        List<byte[]> encoded = InkFlattenEngine.encode(pages, pool, null);
+        for (int k = 0; k < pages.size(); k++) {
+            attach(doc, doc.getPage(pages.get(k).index), encoded.get(k));
+        }
+        return pages.size();
+    }
+
+    /** Same as the app's PdfInkFlattener.attach, against desktop PDFBox. */
+    static void attach(PDDocument doc, PDPage page, byte[] deflated) throws IOException {
+        COSDictionary dict = page.getCOSObject();
+        COSBase existing = dict.getDictionaryObject(COSName.CONTENTS);
+
+        COSStream ink = doc.getDocument().createCOSStream();
+        try (OutputStream os = ink.createRawOutputStream()) {
+            os.write(deflated);
+        }
+        ink.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+
+        if (existing == null) {
+            dict.setItem(COSName.CONTENTS, ink);
+            return;
+        }
+        COSStream save = doc.getDocument().createCOSStream();
+        try (OutputStream os = save.createOutputStream()) {
+            os.write(SAVE_STATE);
+        }
+        // A new direct array, so an indirect /Contents array is never modified in place
+        COSArray contents = new COSArray();
+        contents.add(save);
+        if (existing instanceof COSArray) {
+            contents.addAll((COSArray) existing);
+        } else {
+            contents.add(dict.getItem(COSName.CONTENTS));
+        }
+        contents.add(ink);
+        dict.setItem(COSName.CONTENTS, contents);
+    }
+}
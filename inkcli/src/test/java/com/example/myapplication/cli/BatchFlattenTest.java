@@ -0,0 +1,126 @@
+package com.example.myapplication.cli;
+
+import com.example.myapplication.InkDocument;
+import com.example.myapplication.InkJson;
+import com.example.myapplication.SyntheticInk;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class BatchFlattenTest {
+
+    private static final int PAGES = 6;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File pdf(String name) throws IOException {
+        File f = new File(tmp.getRoot(), name);
+        try (PDDocument doc = new PDDocument()) {
+            for (int i = 0; i < PAGES; i++) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                doc.addPage(page);
+                if (i % 2 == 0) {
+                    try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+                        cs.addRect(10, 10, 50, 50);
+                        cs.fill();
+                    }
+                }
+            }
+            doc.save(f);
+        }
+        return f;
+    }
+
+    private File ink(File pdf, long seed) throws IOException {
+        float[] w = new float[PAGES], h = new float[PAGES];
+        Arrays.fill(w, SyntheticInk.PAGE_W);
+        Arrays.fill(h, SyntheticInk.PAGE_H);
+        InkDocument doc = new InkDocument(w, h, SyntheticInk.strokes(60, PAGES - 1, 24, seed, seed % 2 == 0));
+        File f = new File(tmp.getRoot(), pdf.getName().replace(".pdf", ".ink.json"));
+        try (Writer out = Files.newBufferedWriter(f.toPath(), StandardCharsets.UTF_8)) {
+            InkJson.write(doc, out);
+        }
+        return f;
+    }
+
+    private static String content(PDPage page) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = page.getContents()) {
+            byte[] buf = new byte[4096];
+            for (int n; (n = in.read(buf)) > 0; ) out.write(buf, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void flattensEveryDocumentAndCountsPages() throws IOException {
+        File outDir = new File(tmp.getRoot(), "out");
+        File a = pdf("a.pdf");
+        ink(a, 2); // even seed: variable-width strokes
+        BatchFlatten.Options o = BatchFlatten.parse(new String[]{
+                "--jobs", "2", "--out", outDir.getPath(), a.getPath()});
+        File b = pdf("b.pdf");
+        o.tasks.add(new BatchFlatten.Task(b, ink(b, 3), new File(outDir, "b.pdf")));
+
+        BatchFlatten.Summary s = BatchFlatten.run(o, new PrintStream(new ByteArrayOutputStream()));
+        assertEquals(2, s.docs);
+        assertEquals(0, s.failed);
+        assertEquals(2 * PAGES, s.pages);
+        assertEquals(120, s.strokes);
+        assertTrue(s.docsPerSec() > 0 && s.pagesPerSec() > 0 && s.peakHeapBytes > 0);
+
+        try (PDDocument doc = PDDocument.load(new File(outDir, "a.pdf"))) {
+            assertEquals(PAGES, doc.getNumberOfPages());
+            String withContent = content(doc.getPage(0)), blank = content(doc.getPage(1));
+            assertTrue(withContent.startsWith("q\n"));
+            assertTrue(withContent.contains("Q\n1 J\n1 j\n"));
+            assertTrue(blank.startsWith("1 J\n1 j\n"));
+            assertTrue(withContent.contains(" rg\n")); // filled outlines
+            assertNull(doc.getPage(PAGES - 1).getCOSObject().getItem(COSName.CONTENTS));
+        }
+    }
+
+    @Test
+    public void badInkFailsOnlyItsDocument() throws IOException {
+        File good = pdf("good.pdf"), bad = pdf("bad.pdf");
+        ink(good, 4);
+        Files.write(new File(tmp.getRoot(), "bad.ink.json").toPath(),
+                "{\"strokes\":[{\"page\":0}]}".getBytes(StandardCharsets.UTF_8));
+        File outDir = new File(tmp.getRoot(), "out");
+        BatchFlatten.Options o = BatchFlatten.parse(new String[]{
+                "--out", outDir.getPath(), good.getPath(), bad.getPath()});
+
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        BatchFlatten.Summary s = BatchFlatten.run(o, new PrintStream(log, true, "UTF-8"));
+        assertEquals(2, s.docs);
+        assertEquals(1, s.failed);
+        assertTrue(new File(outDir, "good.pdf").isFile());
+        assertFalse(new File(outDir, "bad.pdf").exists());
+        assertTrue(log.toString("UTF-8").contains("bad.ink.json: Stroke 0"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesToOverwriteInput() throws IOException {
+        File a = pdf("a.pdf");
+        BatchFlatten.parse(new String[]{"--out", tmp.getRoot().getPath(), a.getPath()});
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.myapplication;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Handle to one queued or running commit. {@link #cancel()} is honored at page granularity
+ * up to the point where output is written; a cancelled job deletes any partial output file.
+ * Once the output is final ({@link #complete()}) the job can no longer be cancelled, so a
+ * cancel that comes too late still ends in success, never in ink that was written but
+ * reported as not.
+ */
+public final class FlattenJob {
+
+    interface ProgressSink {
+        void onProgress(int pagesDone, int pageCount);
+    }
+
+    private final ProgressSink sink;
+    private final AtomicInteger pagesDone = new AtomicInteger();
+    private volatile int pageCount;
+    private volatile boolean cancelled;
+    private volatile boolean superseded;
+    private boolean complete; // guarded by this
+
+    FlattenJob(ProgressSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Requests cancellation; the callback then receives onCancelled instead of onSuccess.
+     * Ignored once the output is final.
+     */
+    public synchronized void cancel() {
+        if (!complete) cancelled = true;
+    }
+
+    public boolean isCancelled() { return cancelled; }
+
+    /** Whether the output is final; a commit that is complete can no longer be cancelled. */
+    synchronized boolean isComplete() { return complete; }
+
+    /** Cancelled because a newer commit replaced it; such jobs end without any callback. */
+    boolean isSuperseded() { return superseded; }
+
+    /** @return false if the output is already final, so the job will still succeed */
+    synchronized boolean supersede() {
+        if (complete) return false;
+        superseded = true;
+        cancelled = true;
+        return true;
+    }
+
+    /**
+     * Makes the written output final, unless the job was cancelled first; the caller then
+     * undoes its output and reports the cancellation.
+     */
+    synchronized boolean complete() {
+        if (cancelled) return false;
+        complete = true;
+        return true;
+    }
+
+    void throwIfCancelled() {
+        if (cancelled) throw new CancellationException("Flatten cancelled");
+    }
+
+    void beginPages(int count) {
+        pageCount = count;
+        pagesDone.set(0);
+        if (sink != null) sink.onProgress(0, count);
+    }
+
+    /** Called from encoder threads as each page finishes. */
+    void pageDone() {
+        int done = pagesDone.incrementAndGet();
+        if (sink != null) sink.onProgress(done, pageCount);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.myapplication;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ink for one PDF as exchanged with headless flattening: the strokes plus the size of each
+ * page in the page-local units they were drawn in. Without page sizes the strokes are taken
+ * to be in PDF points, measured from the top-left corner of each page's crop box.
+ */
+public final class InkDocument {
+
+    public final float[] pageWidth;   // per page, or null
+    public final float[] pageHeight;  // per page, or null
+    public final List<InkStroke> strokes;
+
+    public InkDocument(float[] pageWidth, float[] pageHeight, List<InkStroke> strokes) {
+        if ((pageWidth == null) != (pageHeight == null)
+                || (pageWidth != null && pageWidth.length != pageHeight.length)) {
+            throw new IllegalArgumentException("page widths and heights must match");
+        }
+        if (pageWidth != null) {
+            for (InkStroke s : strokes) {
+                if (s.pageIndex >= pageWidth.length) {
+                    throw new IllegalArgumentException("stroke on page " + s.pageIndex
+                            + " of a " + pageWidth.length + "-page document");
+                }
+            }
+        }
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.strokes = Collections.unmodifiableList(strokes);
+    }
+
+    public boolean hasPageSizes() { return pageWidth != null; }
+
+    public int pageCount() { return pageWidth != null ? pageWidth.length : -1; }
+}
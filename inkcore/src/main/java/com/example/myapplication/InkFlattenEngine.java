@@ -0,0 +1,192 @@
+package com.example.myapplication;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * The PDF-library-neutral part of flattening ink: grouping strokes by page and style run, the
+ * page-local → PDF transform, and encoding plus compressing each page's content stream,
+ * optionally in parallel. An adapter for a concrete PDF library (pdfbox-android in the app,
+ * desktop PDFBox in :inkcli) reads the page boxes through {@link PageBoxes} and attaches
+ * the returned streams to its document.
+ */
+public final class InkFlattenEngine {
+
+    /**
+     * Crop boxes of the target document, in PDF points. Only called on the thread that calls
+     * {@link #plan}, so implementations may wrap a document that is not thread-safe.
+     */
+    public interface PageBoxes {
+        int pageCount();
+        float width(int page);
+        float height(int page);
+        /** Whether the page already has content, which the ink is then appended to. */
+        boolean hasContent(int page);
+    }
+
+    /** Page parameters of one inked page, read up front because PDF documents are not thread-safe. */
+    public static final class PageInk {
+        public final int index;
+        public final float sx, sy, pdfH;
+        public final boolean hasContent;
+        /** Runs of consecutive strokes sharing one style, in drawing order. */
+        public final List<List<InkStroke>> runs;
+
+        PageInk(int index, float sx, float sy, float pdfH, boolean hasContent,
+                List<List<InkStroke>> runs) {
+            this.index = index;
+            this.sx = sx;
+            this.sy = sy;
+            this.pdfH = pdfH;
+            this.hasContent = hasContent;
+            this.runs = runs;
+        }
+    }
+
+    // Encode plus deflate of one page, in microseconds (0.5 ms buckets, up to 100 ms)
+    private static final Metrics.Histogram PAGE_ENCODE_US =
+            Metrics.global().histogram("flatten.page_encode_us", 500, 200);
+
+    private InkFlattenEngine() {}
+
+    /**
+     * The inked pages in page order. Strokes on pages the document does not have are dropped.
+     *
+     * @param pageWidth  width of each page in the strokes' page-local units, as laid out when
+     *                   they were drawn; null when the strokes are already in PDF points
+     * @param pageHeight as {@code pageWidth}, for heights
+     */
+    public static List<PageInk> plan(PageBoxes boxes, float[] pageWidth, float[] pageHeight,
+                                     List<InkStroke> strokes) {
+        TreeMap<Integer, List<List<InkStroke>>> byPage = groupByPageAndRun(strokes, boxes.pageCount());
+        List<PageInk> pages = new ArrayList<>(byPage.size());
+        for (Map.Entry<Integer, List<List<InkStroke>>> pageInk : byPage.entrySet()) {
+            int i = pageInk.getKey();
+            float pdfW = boxes.width(i), pdfH = boxes.height(i);
+            float w = pageWidth != null ? pageWidth[i] : pdfW;
+            float h = pageHeight != null ? pageHeight[i] : pdfH;
+
+            // Map page-local coords (top-left origin) → PDF user space (bottom-left origin)
+            pages.add(new PageInk(i, pdfW / w, pdfH / h, pdfH, boxes.hasContent(i), pageInk.getValue()));
+        }
+        return pages;
+    }
+
+    /**
+     * Each page's compressed content stream, in the order of {@code pages}. With existing
+     * content the stream starts with Q, balancing a q the adapter puts in front of it.
+     *
+     * @param pool encodes pages in parallel when given, inline otherwise; the output does
+     *             not depend on it
+     * @param job  progress and cancellation; null when untracked
+     */
+    public static List<byte[]> encode(List<PageInk> pages, ExecutorService pool, FlattenJob job)
+            throws IOException {
+        List<Callable<byte[]>> jobs = new ArrayList<>(pages.size());
+        for (PageInk p : pages) {
+            jobs.add(() -> {
+                long t0 = System.nanoTime();
+                byte[] deflated = PageInkEncoder.deflate(
+                        PageInkEncoder.encode(p.runs, p.sx, p.sy, p.pdfH, p.hasContent));
+                PAGE_ENCODE_US.record((System.nanoTime() - t0) / 1000);
+                return deflated;
+            });
+        }
+        return runAll(jobs, pool, job);
+    }
+
+    /**
+     * Runs one job per page, in parallel when a pool is given, and returns the results in
+     * job order. Progress is reported per finished page; cancellation is checked before each
+     * page and once more after all of them.
+     *
+     * @throws java.util.concurrent.CancellationException if the job is cancelled
+     */
+    public static <T> List<T> runAll(List<Callable<T>> jobs, ExecutorService pool, FlattenJob job)
+            throws IOException {
+        final FlattenJob tracker = job != null ? job : new FlattenJob(null);
+        final int n = jobs.size();
+        List<Callable<T>> tracked = new ArrayList<>(n);
+        for (Callable<T> c : jobs) {
+            tracked.add(() -> {
+                tracker.throwIfCancelled();
+                T result = c.call();
+                tracker.pageDone();
+                return result;
+            });
+        }
+
+        tracker.beginPages(n);
+        List<T> results = new ArrayList<>(n);
+        if (pool != null && n > 1) {
+            List<Future<T>> futures = new ArrayList<>(n);
+            for (Callable<T> c : tracked) futures.add(pool.submit(c));
+            try {
+                for (Future<T> f : futures) results.add(await(f));
+            } finally {
+                for (Future<T> f : futures) f.cancel(false);
+            }
+        } else {
+            for (Callable<T> c : tracked) results.add(call(c));
+        }
+        tracker.throwIfCancelled();
+        return results;
+    }
+
+    private static <T> T await(Future<T> f) throws IOException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while encoding ink");
+        } catch (ExecutionException e) {
+            Throwable c = e.getCause();
+            if (c instanceof IOException) throw (IOException) c;
+            if (c instanceof RuntimeException) throw (RuntimeException) c;
+            throw new IOException(c);
+        }
+    }
+
+    private static <T> T call(Callable<T> job) throws IOException {
+        try {
+            return job.call();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Buckets strokes by page (pages without ink are absent) and, within a page, into runs of
+     * consecutive strokes of one style. Only neighbours in drawing order share a run, so a
+     * stroke is never painted below one drawn before it (a highlighter over red ink).
+     */
+    private static TreeMap<Integer, List<List<InkStroke>>> groupByPageAndRun(
+            List<InkStroke> strokes, int pageCount) {
+        TreeMap<Integer, List<List<InkStroke>>> byPage = new TreeMap<>();
+        for (InkStroke s : strokes) {
+            if (s.pageIndex < 0 || s.pageIndex >= pageCount || s.pointCount() == 0) continue;
+            List<List<InkStroke>> runs = byPage.get(s.pageIndex);
+            if (runs == null) {
+                runs = new ArrayList<>();
+                byPage.put(s.pageIndex, runs);
+            }
+            List<InkStroke> last = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+            if (last == null || last.get(0).style != s.style) {
+                last = new ArrayList<>();
+                runs.add(last);
+            }
+            last.add(s);
+        }
+        return byPage;
+    }
+}
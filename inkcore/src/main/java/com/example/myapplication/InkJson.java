@@ -0,0 +1,209 @@
+package com.example.myapplication;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * JSON form of an {@link InkDocument}, the stroke input of headless flattening:
+ * <pre>
+ * {"version": 1,
+ *  "pages": [{"width": 1080, "height": 1527}, ...],              optional
+ *  "strokes": [{"page": 0, "color": "#FFFF0000", "width": 8, "cap": "round",
+ *               "points": [x0, y0, x1, y1, ...],
+ *               "pressure": [...], "widthScale": [...],            optional, one per point
+ *               "curves": [x0, y0, c1x, c1y, c2x, c2y, x, y, ...]  optional
+ *              }, ...]}
+ * </pre>
+ * Colors are {@code #RRGGBB} or {@code #AARRGGBB}; caps are butt, round or square. Points
+ * are page-local, y down. Read and written with a streaming parser, so large inputs are not
+ * held twice.
+ */
+public final class InkJson {
+
+    static final int VERSION = 1;
+    private static final String[] CAPS = {"butt", "round", "square"}; // by InkStyle.CAP_*
+
+    private InkJson() {}
+
+    /** @throws IOException on malformed JSON or invalid strokes, naming the offending stroke */
+    public static InkDocument read(Reader in) throws IOException {
+        try {
+            return readDocument(new JsonReader(in));
+        } catch (IllegalStateException | NumberFormatException e) {
+            // JsonReader reports unexpected tokens and unparseable numbers unchecked
+            throw new IOException("Malformed ink JSON: " + e.getMessage(), e);
+        }
+    }
+
+    private static InkDocument readDocument(JsonReader r) throws IOException {
+        float[] w = null, h = null;
+        List<InkStroke> strokes = new ArrayList<>();
+        r.beginObject();
+        while (r.hasNext()) {
+            String name = r.nextName();
+            switch (name) {
+                case "version":
+                    int v = r.nextInt();
+                    if (v != VERSION) throw new IOException("Unsupported ink JSON version " + v);
+                    break;
+                case "pages": {
+                    FloatList ws = new FloatList(), hs = new FloatList();
+                    r.beginArray();
+                    while (r.hasNext()) {
+                        float pw = Float.NaN, ph = Float.NaN;
+                        r.beginObject();
+                        while (r.hasNext()) {
+                            String key = r.nextName();
+                            if (key.equals("width")) pw = (float) r.nextDouble();
+                            else if (key.equals("height")) ph = (float) r.nextDouble();
+                            else r.skipValue();
+                        }
+                        r.endObject();
+                        if (!(pw > 0 && ph > 0)) throw new IOException("Page " + ws.size + " needs a positive width and height");
+                        ws.add(pw);
+                        hs.add(ph);
+                    }
+                    r.endArray();
+                    w = ws.toArray();
+                    h = hs.toArray();
+                    break;
+                }
+                case "strokes":
+                    r.beginArray();
+                    while (r.hasNext()) strokes.add(readStroke(r, strokes.size()));
+                    r.endArray();
+                    break;
+                default:
+                    r.skipValue();
+            }
+        }
+        r.endObject();
+        try {
+            return new InkDocument(w, h, strokes);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static InkStroke readStroke(JsonReader r, int index) throws IOException {
+        int page = -1, color = 0xFF000000, cap = InkStyle.CAP_ROUND;
+        float width = 1f;
+        float[] xy = null, pressure = null, widthScale = null, curves = null;
+        r.beginObject();
+        while (r.hasNext()) {
+            String key = r.nextName();
+            switch (key) {
+                case "page": page = r.nextInt(); break;
+                case "color": color = parseColor(r.nextString()); break;
+                case "width": width = (float) r.nextDouble(); break;
+                case "cap": cap = parseCap(r.nextString()); break;
+                case "points": xy = readFloats(r); break;
+                case "pressure": pressure = readFloats(r); break;
+                case "widthScale": widthScale = readFloats(r); break;
+                case "curves": curves = readFloats(r); break;
+                default: r.skipValue();
+            }
+        }
+        r.endObject();
+        if (page < 0 || xy == null || !(width > 0)) {
+            throw new IOException("Stroke " + index + " needs a page, points and a positive width");
+        }
+        try {
+            return new InkStroke(xy, pressure, null, widthScale, curves, InkStyle.of(color, width, cap), page);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Stroke " + index + ": " + e.getMessage(), e);
+        }
+    }
+
+    public static void write(InkDocument doc, Writer out) throws IOException {
+        JsonWriter w = new JsonWriter(out);
+        w.beginObject();
+        w.name("version").value(VERSION);
+        if (doc.hasPageSizes()) {
+            w.name("pages").beginArray();
+            for (int i = 0; i < doc.pageWidth.length; i++) {
+                w.beginObject().name("width").value(doc.pageWidth[i]).name("height").value(doc.pageHeight[i]).endObject();
+            }
+            w.endArray();
+        }
+        w.name("strokes").beginArray();
+        for (InkStroke s : doc.strokes) {
+            w.beginObject();
+            w.name("page").value(s.pageIndex);
+            w.name("color").value(String.format(Locale.US, "#%08X", s.style.color));
+            w.name("width").value(s.style.width);
+            w.name("cap").value(CAPS[s.style.cap]);
+            int n = s.pointCount();
+            w.name("points").beginArray();
+            for (int i = 0; i < n; i++) w.value(s.x(i)).value(s.y(i));
+            w.endArray();
+            if (s.hasPressure()) {
+                w.name("pressure").beginArray();
+                for (int i = 0; i < n; i++) w.value(s.pressure(i));
+                w.endArray();
+            }
+            if (s.hasVariableWidth()) {
+                w.name("widthScale").beginArray();
+                for (int i = 0; i < n; i++) w.value(s.widthScale(i));
+                w.endArray();
+            }
+            if (s.hasCurves()) {
+                w.name("curves").beginArray();
+                for (int i = 0, len = 2 + 6 * s.curveSegmentCount(); i < len; i++) w.value(s.curveCoord(i));
+                w.endArray();
+            }
+            w.endObject();
+        }
+        w.endArray();
+        w.endObject();
+        w.flush();
+    }
+
+    private static float[] readFloats(JsonReader r) throws IOException {
+        FloatList out = new FloatList();
+        r.beginArray();
+        while (r.hasNext()) out.add((float) r.nextDouble());
+        r.endArray();
+        return out.toArray();
+    }
+
+    static int parseColor(String s) throws IOException {
+        if (s.startsWith("#") && (s.length() == 7 || s.length() == 9)) {
+            try {
+                long v = Long.parseLong(s.substring(1), 16);
+                return s.length() == 7 ? (int) (0xFF000000L | v) : (int) v;
+            } catch (NumberFormatException ignored) {
+                // fall through
+            }
+        }
+        throw new IOException("Not a #RRGGBB or #AARRGGBB color: " + s);
+    }
+
+    private static int parseCap(String s) throws IOException {
+        for (int i = 0; i < CAPS.length; i++) {
+            if (CAPS[i].equals(s)) return i;
+        }
+        throw new IOException("Unknown cap: " + s);
+    }
+
+    /** Growable float[] so long point arrays are not boxed. */
+    private static final class FloatList {
+        float[] a = new float[64];
+        int size;
+
+        void add(float v) {
+            if (size == a.length) a = Arrays.copyOf(a, size * 2);
+            a[size++] = v;
+        }
+
+        float[] toArray() { return Arrays.copyOf(a, size); }
+    }
+}
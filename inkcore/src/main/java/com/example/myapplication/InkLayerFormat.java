@@ -0,0 +1,168 @@
+package com.example.myapplication;
+
+import java.io.IOException;
+
+/**
+ * Constants and primitives shared by {@link InkLayerWriter} and {@link InkLayerReader}.
+ *
+ * <p>File layout: a fixed header ({@code int magic "INKL", byte version, int scale}), one
+ * section per inked page, a footer, and a fixed trailer
+ * ({@code long footerOffset, int crc32(footer), int magic}). Fixed-width fields are big
+ * endian. The footer holds the style dictionary ({@code varint count}, at most
+ * {@link #MAX_STYLES}, then {@code int argb, float width, byte cap} each) and the page
+ * index ({@code varint count}, then
+ * {@code varint page, varint strokes, varlong offset, varint length, int crc32} per
+ * section), so a reader seeks to the trailer, loads the footer and decodes only the sections
+ * it is asked for.
+ *
+ * <p>A section is {@code varint strokeCount} followed by the strokes in drawing order:
+ * {@code varint style, byte flags, varint points}, the points as zig-zag varint deltas of
+ * fixed-point coordinates (units of 1/scale page-local units, the cursor running on from the
+ * previous stroke), then per flag the pressure, time and width deltas and the curve
+ * coordinates (a varint segment count, then deltas on the same cursor as the points).
+ * Pressure and width are quantized to 1/{@link #UNIT_SCALE}; time is whole milliseconds.
+ */
+final class InkLayerFormat {
+
+    static final int MAGIC = 0x494E4B4C; // "INKL"
+    static final byte VERSION = 1;
+    static final int HEADER_BYTES = 9;
+    static final int TRAILER_BYTES = 16;
+
+    /** Default coordinate resolution: 1/32 of a page-local unit. */
+    static final int DEFAULT_SCALE = 32;
+    /** Resolution of pressure and width scale. */
+    static final int UNIT_SCALE = 1024;
+    /** Bound on fixed-point coordinates, so every delta between two of them fits an int. */
+    static final int MAX_FIXED = 1 << 29;
+    /** Bound on the style dictionary, far above what a drawing app's palette produces. */
+    static final int MAX_STYLES = 4096;
+
+    static final int FLAG_PRESSURE = 1;
+    static final int FLAG_TIME = 2;
+    static final int FLAG_CURVES = 4;
+    static final int FLAG_WIDTH = 8;
+    static final int KNOWN_FLAGS = FLAG_PRESSURE | FLAG_TIME | FLAG_CURVES | FLAG_WIDTH;
+
+    private InkLayerFormat() {}
+
+    static int zigZag(int v) { return (v << 1) ^ (v >> 31); }
+    static int unZigZag(int v) { return (v >>> 1) ^ -(v & 1); }
+
+    /** Growable output buffer with varint writers. */
+    static final class Sink {
+        byte[] buf;
+        int size;
+
+        Sink(int capacity) { buf = new byte[capacity]; }
+
+        void reset() { size = 0; }
+
+        void ensure(int extra) {
+            if (size + extra > buf.length) {
+                buf = java.util.Arrays.copyOf(buf, Math.max(size + extra, buf.length * 2));
+            }
+        }
+
+        void byte1(int v) {
+            ensure(1);
+            buf[size++] = (byte) v;
+        }
+
+        void int4(int v) {
+            ensure(4);
+            buf[size++] = (byte) (v >>> 24);
+            buf[size++] = (byte) (v >>> 16);
+            buf[size++] = (byte) (v >>> 8);
+            buf[size++] = (byte) v;
+        }
+
+        void varint(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                buf[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[size++] = (byte) v;
+        }
+
+        void varlong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[size++] = (byte) v;
+        }
+
+        void zigZag(int v) { varint(InkLayerFormat.zigZag(v)); }
+    }
+
+    /** Bounds-checked reader over a byte range; every overrun is an IOException. */
+    static final class Cursor {
+        byte[] buf;
+        int pos, end;
+
+        void reset(byte[] buf, int pos, int end) {
+            this.buf = buf;
+            this.pos = pos;
+            this.end = end;
+        }
+
+        int remaining() { return end - pos; }
+
+        int byte1() throws IOException {
+            if (pos >= end) throw corrupt("truncated");
+            return buf[pos++] & 0xFF;
+        }
+
+        int int4() throws IOException {
+            if (end - pos < 4) throw corrupt("truncated");
+            int v = (buf[pos] & 0xFF) << 24 | (buf[pos + 1] & 0xFF) << 16
+                    | (buf[pos + 2] & 0xFF) << 8 | (buf[pos + 3] & 0xFF);
+            pos += 4;
+            return v;
+        }
+
+        int varint() throws IOException {
+            int v = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                if (pos >= end) throw corrupt("truncated varint");
+                int b = buf[pos++];
+                v |= (b & 0x7F) << shift;
+                if (b >= 0) return v;
+            }
+            throw corrupt("varint too long");
+        }
+
+        long varlong() throws IOException {
+            long v = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                if (pos >= end) throw corrupt("truncated varint");
+                int b = buf[pos++];
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return v;
+            }
+            throw corrupt("varint too long");
+        }
+
+        /** A count that is not negative and that at least {@code minBytes} per item can still hold. */
+        int count(int minBytes) throws IOException {
+            int n = varint();
+            if (n < 0 || (long) n * minBytes > remaining()) throw corrupt("count " + n + " exceeds data");
+            return n;
+        }
+
+        /** {@code n}, after checking that n more values, a byte or more each, can follow. */
+        int require(int n) throws IOException {
+            if (n > remaining()) throw corrupt(n + " values exceed data");
+            return n;
+        }
+
+        int zigZag() throws IOException { return unZigZag(varint()); }
+    }
+
+    static IOException corrupt(String what) {
+        return new IOException("Corrupt ink layer: " + what);
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.myapplication;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static com.example.myapplication.InkLayerFormat.*;
+
+/**
+ * Random-access reader of the format written by {@link InkLayerWriter}. Opening reads only the
+ * header and footer; {@link #readPage} then reads and decodes one page's section. Every
+ * section and the footer are CRC-checked, and every count is bounded by the bytes that hold
+ * it, so corrupt or truncated input fails with an IOException rather than a runtime exception
+ * or an oversized allocation.
+ *
+ * <p>Decoding reuses one section buffer and allocates only the arrays each stroke keeps.
+ * Styles are shared through {@link InkStyle#of}, which keeps them for the life of the process,
+ * so only styles that a decoded stroke uses are looked up there, and the dictionary is
+ * capped at {@link InkLayerFormat#MAX_STYLES}. A reader is not thread-safe.
+ */
+public final class InkLayerReader implements Closeable {
+
+    /** Where the bytes come from: a file channel or an in-memory copy. */
+    private interface Source extends Closeable {
+        long size() throws IOException;
+        void read(long position, byte[] dst, int length) throws IOException;
+    }
+
+    private final Source source;
+    private final float inverseScale;
+    private final int[] styleColor, styleCap;
+    private final float[] styleWidth;
+    private final InkStyle[] styles; // interned on first use
+    private final float[] pageWidth, pageHeight; // or null
+    private final int[] pages, strokes, lengths, crcs; // page index, ascending by page
+    private final long[] offsets;
+    private final Cursor cursor = new Cursor();
+    private final CRC32 crc = new CRC32();
+    private byte[] buf = new byte[16 * 1024];
+
+    /** Opens a layer file; the reader owns the channel and closes it. */
+    public static InkLayerReader open(SeekableByteChannel channel) throws IOException {
+        Source s = new Source() {
+            @Override public long size() throws IOException { return channel.size(); }
+            @Override public void read(long position, byte[] dst, int length) throws IOException {
+                ByteBuffer b = ByteBuffer.wrap(dst, 0, length);
+                channel.position(position);
+                while (b.hasRemaining()) {
+                    if (channel.read(b) < 0) throw new EOFException("Corrupt ink layer: truncated");
+                }
+            }
+            @Override public void close() throws IOException { channel.close(); }
+        };
+        try {
+            return new InkLayerReader(s);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static InkLayerReader open(byte[] data) throws IOException {
+        return new InkLayerReader(new Source() {
+            @Override public long size() { return data.length; }
+            @Override public void read(long position, byte[] dst, int length) throws IOException {
+                if (position < 0 || position + length > data.length) throw corrupt("truncated");
+                System.arraycopy(data, (int) position, dst, 0, length);
+            }
+            @Override public void close() {}
+        });
+    }
+
+    private InkLayerReader(Source source) throws IOException {
+        this.source = source;
+        long size = source.size();
+        if (size < HEADER_BYTES + TRAILER_BYTES) throw corrupt("too short");
+        Cursor c = cursor;
+
+        source.read(0, buf, HEADER_BYTES);
+        c.reset(buf, 0, HEADER_BYTES);
+        if (c.int4() != MAGIC) throw new IOException("Not an ink layer");
+        int version = c.byte1();
+        if (version != VERSION) throw new IOException("Unsupported ink layer version " + version);
+        int scale = c.int4();
+        if (scale < 1 || scale > 1 << 16) throw corrupt("scale " + scale);
+        inverseScale = 1f / scale;
+
+        source.read(size - TRAILER_BYTES, buf, TRAILER_BYTES);
+        c.reset(buf, 0, TRAILER_BYTES);
+        long footerOffset = (long) c.int4() << 32 | (c.int4() & 0xFFFFFFFFL);
+        int footerCrc = c.int4();
+        if (c.int4() != MAGIC) throw corrupt("bad trailer");
+        long footerLength = size - TRAILER_BYTES - footerOffset;
+        if (footerOffset < HEADER_BYTES || footerLength < 0 || footerLength > Integer.MAX_VALUE - 8) {
+            throw corrupt("footer offset " + footerOffset);
+        }
+        byte[] footer = ensure((int) footerLength);
+        source.read(footerOffset, footer, (int) footerLength);
+        crc.reset();
+        crc.update(footer, 0, (int) footerLength);
+        if ((int) crc.getValue() != footerCrc) throw corrupt("footer checksum mismatch");
+        c.reset(footer, 0, (int) footerLength);
+
+        int styleCount = c.count(9);
+        if (styleCount > MAX_STYLES) throw corrupt(styleCount + " styles");
+        styles = new InkStyle[styleCount];
+        styleColor = new int[styleCount];
+        styleWidth = new float[styleCount];
+        styleCap = new int[styleCount];
+        for (int i = 0; i < styleCount; i++) {
+            styleColor[i] = c.int4();
+            styleWidth[i] = Float.intBitsToFloat(c.int4());
+            styleCap[i] = c.byte1();
+            if (!(styleWidth[i] >= 0f) || Float.isInfinite(styleWidth[i]) || styleCap[i] > InkStyle.CAP_SQUARE) {
+                throw corrupt("style " + i);
+            }
+        }
+
+        int pageCount = c.count(8);
+        pageWidth = pageCount > 0 ? new float[pageCount] : null;
+        pageHeight = pageCount > 0 ? new float[pageCount] : null;
+        for (int i = 0; i < pageCount; i++) {
+            pageWidth[i] = Float.intBitsToFloat(c.int4());
+            pageHeight[i] = Float.intBitsToFloat(c.int4());
+        }
+
+        int sections = c.count(8);
+        pages = new int[sections];
+        strokes = new int[sections];
+        lengths = new int[sections];
+        crcs = new int[sections];
+        offsets = new long[sections];
+        long end = HEADER_BYTES;
+        for (int k = 0; k < sections; k++) {
+            pages[k] = c.varint();
+            strokes[k] = c.varint();
+            offsets[k] = c.varlong();
+            lengths[k] = c.varint();
+            crcs[k] = c.int4();
+            // Sections are contiguous in page order; each stroke needs at least three bytes
+            if (pages[k] < 0 || (k > 0 && pages[k] <= pages[k - 1])
+                    || (pageWidth != null && pages[k] >= pageCount)
+                    || offsets[k] != end || lengths[k] < 1 || lengths[k] > footerOffset - end
+                    || strokes[k] < 1 || strokes[k] > lengths[k] / 3) {
+                throw corrupt("page index entry " + k);
+            }
+            end += lengths[k];
+        }
+        if (end != footerOffset || c.remaining() != 0) throw corrupt("page index does not cover the file");
+    }
+
+    /** Pages that have ink, ascending. */
+    public int[] pages() { return pages.clone(); }
+
+    public int strokeCount(int page) {
+        int k = Arrays.binarySearch(pages, page);
+        return k >= 0 ? strokes[k] : 0;
+    }
+
+    public int totalStrokes() {
+        int n = 0;
+        for (int s : strokes) n += s;
+        return n;
+    }
+
+    public boolean hasPageSizes() { return pageWidth != null; }
+
+    /** Reads and decodes the strokes of one page, without touching any other section. */
+    public List<InkStroke> readPage(int page) throws IOException {
+        int k = Arrays.binarySearch(pages, page);
+        if (k < 0) return new ArrayList<>(0);
+        List<InkStroke> out = new ArrayList<>(strokes[k]);
+        readSection(k, out);
+        return out;
+    }
+
+    /** Every stroke of the layer, page by page, with the page sizes if it has them. */
+    public InkDocument readDocument() throws IOException {
+        return new InkDocument(pageWidth != null ? pageWidth.clone() : null,
+                pageHeight != null ? pageHeight.clone() : null, readAll());
+    }
+
+    /**
+     * Adds every stroke of the layer to {@code ink} as one undo step. The whole layer is decoded
+     * first, so a corrupt section leaves {@code ink} untouched.
+     *
+     * @return the number of strokes added
+     */
+    public int readInto(InkManager ink) throws IOException {
+        List<InkStroke> all = readAll();
+        for (int i = 0; i < all.size(); i++) ink.add(all.get(i), i > 0);
+        return all.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    private List<InkStroke> readAll() throws IOException {
+        List<InkStroke> all = new ArrayList<>(totalStrokes());
+        for (int k = 0; k < pages.length; k++) readSection(k, all);
+        return all;
+    }
+
+    private void readSection(int k, List<InkStroke> out) throws IOException {
+        byte[] b = ensure(lengths[k]);
+        source.read(offsets[k], b, lengths[k]);
+        crc.reset();
+        crc.update(b, 0, lengths[k]);
+        if ((int) crc.getValue() != crcs[k]) throw corrupt("checksum mismatch on page " + pages[k]);
+        int before = out.size();
+        decodeSection(pages[k], b, lengths[k], out);
+        if (out.size() - before != strokes[k]) throw corrupt("stroke count of page " + pages[k]);
+    }
+
+    /** Decodes one section's bytes; package-private so tests can feed it arbitrary input. */
+    void decodeSection(int page, byte[] b, int length, List<InkStroke> out) throws IOException {
+        Cursor c = cursor;
+        c.reset(b, 0, length);
+        float inv = inverseScale;
+        int count = c.count(3);
+        int cx = 0, cy = 0;
+        for (int s = 0; s < count; s++) {
+            int style = c.varint();
+            if (style < 0 || style >= styles.length) throw corrupt("style " + style + " on page " + page);
+            int flags = c.byte1();
+            if ((flags & ~KNOWN_FLAGS) != 0) throw corrupt("flags " + flags + " on page " + page);
+            int n = c.count(2);
+
+            float[] xy = new float[2 * n];
+            for (int i = 0; i < 2 * n; i += 2) {
+                cx += c.zigZag();
+                cy += c.zigZag();
+                xy[i] = cx * inv;
+                xy[i + 1] = cy * inv;
+            }
+            float[] pressure = null, widthScale = null, curves = null;
+            int[] timeMs = null;
+            if ((flags & FLAG_PRESSURE) != 0) {
+                pressure = new float[c.require(n)];
+                for (int i = 0, q = 0; i < n; i++) {
+                    q += c.zigZag();
+                    pressure[i] = q / (float) UNIT_SCALE;
+                }
+            }
+            if ((flags & FLAG_TIME) != 0) {
+                timeMs = new int[c.require(n)];
+                for (int i = 0, t = 0; i < n; i++) {
+                    t += c.zigZag();
+                    timeMs[i] = t;
+                }
+            }
+            if ((flags & FLAG_WIDTH) != 0) {
+                widthScale = new float[c.require(n)];
+                for (int i = 0, q = 0; i < n; i++) {
+                    q += c.zigZag();
+                    widthScale[i] = Math.max(1, Math.min(UNIT_SCALE, q)) / (float) UNIT_SCALE;
+                }
+            }
+            if ((flags & FLAG_CURVES) != 0) {
+                int segments = c.count(6);
+                curves = new float[2 + 6 * segments];
+                for (int i = 0; i < curves.length; i += 2) {
+                    cx += c.zigZag();
+                    cy += c.zigZag();
+                    curves[i] = cx * inv;
+                    curves[i + 1] = cy * inv;
+                }
+            }
+            out.add(new InkStroke(xy, pressure, timeMs, widthScale, curves, style(style), page));
+        }
+        if (c.remaining() != 0) throw corrupt("trailing bytes on page " + page);
+    }
+
+    private InkStyle style(int i) {
+        InkStyle s = styles[i];
+        if (s == null) styles[i] = s = InkStyle.of(styleColor[i], styleWidth[i], styleCap[i]);
+        return s;
+    }
+
+    private byte[] ensure(int length) {
+        if (buf.length < length) buf = new byte[Math.max(length, buf.length * 2)];
+        return buf;
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.myapplication;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static com.example.myapplication.InkLayerFormat.*;
+
+/**
+ * Streams an ink layer to the compact binary format described in {@link InkLayerFormat}: one
+ * section per page, written as soon as it is given, then the style dictionary and page index
+ * on {@link #close()}. Only the current section is buffered, so a layer of any size is written
+ * in memory proportional to its largest page.
+ *
+ * <p>If {@link #writePage} fails, the layer is incomplete: {@link #close()} then only closes
+ * the stream, and without a footer the partial output cannot be opened as a layer.
+ *
+ * <p>Coordinates are stored in fixed point at {@code 1/scale} page-local units, so a round
+ * trip moves a point by at most {@code 0.5/scale}; pressure and width scale are kept to
+ * 1/1024, time to the millisecond.
+ */
+public final class InkLayerWriter implements Closeable {
+
+    private final OutputStream out;
+    private final int scale;
+    private final Sink section = new Sink(16 * 1024);
+    private final Sink index = new Sink(1024); // page index entries, copied into the footer
+    private final Map<InkStyle, Integer> styleIds = new IdentityHashMap<>();
+    private final List<InkStyle> styles = new ArrayList<>();
+    private final CRC32 crc = new CRC32();
+    private float[] pageWidth, pageHeight;
+    private long offset;
+    private int sections;
+    private int lastPage = -1;
+    private boolean closed;
+    private boolean failed;
+
+    public InkLayerWriter(OutputStream out) throws IOException {
+        this(out, DEFAULT_SCALE);
+    }
+
+    /** @param scale fixed-point steps per page-local unit, 1 to 65536 */
+    public InkLayerWriter(OutputStream out, int scale) throws IOException {
+        if (scale < 1 || scale > 1 << 16) throw new IllegalArgumentException("scale " + scale);
+        this.out = out;
+        this.scale = scale;
+        section.int4(MAGIC);
+        section.byte1(VERSION);
+        section.int4(scale);
+        emit(section);
+    }
+
+    /** Records the size of each page in page-local units, as {@link InkDocument} carries them. */
+    public void setPageSizes(float[] width, float[] height) {
+        if (width.length != height.length) throw new IllegalArgumentException("page widths and heights must match");
+        if (lastPage >= width.length) {
+            throw new IllegalArgumentException("page " + lastPage + " already written for a "
+                    + width.length + "-page document");
+        }
+        pageWidth = width.clone();
+        pageHeight = height.clone();
+    }
+
+    /**
+     * Writes the strokes of one page in drawing order. Pages must come in ascending order, each
+     * at most once; an empty list writes nothing.
+     */
+    public void writePage(int page, List<InkStroke> strokes) throws IOException {
+        if (closed) throw new IllegalStateException("closed");
+        try {
+            writeSection(page, strokes);
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    private void writeSection(int page, List<InkStroke> strokes) throws IOException {
+        if (page <= lastPage) throw new IllegalArgumentException("page " + page + " after page " + lastPage);
+        if (pageWidth != null && page >= pageWidth.length) {
+            throw new IllegalArgumentException("page " + page + " of a " + pageWidth.length + "-page document");
+        }
+        if (strokes.isEmpty()) return;
+        lastPage = page;
+
+        section.reset();
+        section.varint(strokes.size());
+        int cx = 0, cy = 0; // the coordinate cursor runs on across the strokes of a section
+        for (InkStroke s : strokes) {
+            if (s.pageIndex != page) {
+                throw new IllegalArgumentException("stroke of page " + s.pageIndex + " in page " + page);
+            }
+            int n = s.pointCount();
+            int flags = (s.hasPressure() ? FLAG_PRESSURE : 0) | (s.hasTime() ? FLAG_TIME : 0)
+                    | (s.hasCurves() ? FLAG_CURVES : 0) | (s.hasVariableWidth() ? FLAG_WIDTH : 0);
+            section.varint(styleId(s.style));
+            section.byte1(flags);
+            section.varint(n);
+            for (int i = 0; i < n; i++) {
+                int qx = fixed(s.x(i), scale), qy = fixed(s.y(i), scale);
+                section.zigZag(qx - cx);
+                section.zigZag(qy - cy);
+                cx = qx;
+                cy = qy;
+            }
+            if (s.hasPressure()) {
+                int q = 0;
+                for (int i = 0; i < n; i++) {
+                    int v = fixed(s.pressure(i), UNIT_SCALE);
+                    section.zigZag(v - q);
+                    q = v;
+                }
+            }
+            if (s.hasTime()) {
+                int t = 0;
+                for (int i = 0; i < n; i++) {
+                    section.zigZag(s.timeMs(i) - t);
+                    t = s.timeMs(i);
+                }
+            }
+            if (s.hasVariableWidth()) {
+                int q = 0;
+                for (int i = 0; i < n; i++) {
+                    int v = fixed(s.widthScale(i), UNIT_SCALE);
+                    section.zigZag(v - q);
+                    q = v;
+                }
+            }
+            if (s.hasCurves()) {
+                int segments = s.curveSegmentCount();
+                section.varint(segments);
+                for (int i = 0, end = 2 + 6 * segments; i < end; i += 2) {
+                    int qx = fixed(s.curveCoord(i), scale), qy = fixed(s.curveCoord(i + 1), scale);
+                    section.zigZag(qx - cx);
+                    section.zigZag(qy - cy);
+                    cx = qx;
+                    cy = qy;
+                }
+            }
+        }
+
+        crc.reset();
+        crc.update(section.buf, 0, section.size);
+        index.varint(page);
+        index.varint(strokes.size());
+        index.varlong(offset);
+        index.varint(section.size);
+        index.int4((int) crc.getValue());
+        sections++;
+        emit(section);
+    }
+
+    /**
+     * Writes the style dictionary, page index and trailer, then closes the stream. After a
+     * failed {@link #writePage} only the stream is closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            if (!failed) writeFooter();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeFooter() throws IOException {
+        Sink f = new Sink(32 + index.size + styles.size() * 9
+                + (pageWidth != null ? pageWidth.length * 8 : 0));
+        f.varint(styles.size());
+        for (InkStyle s : styles) {
+            f.int4(s.color);
+            f.int4(Float.floatToIntBits(s.width));
+            f.byte1(s.cap);
+        }
+        int pages = pageWidth != null ? pageWidth.length : 0;
+        f.varint(pages);
+        for (int i = 0; i < pages; i++) {
+            f.int4(Float.floatToIntBits(pageWidth[i]));
+            f.int4(Float.floatToIntBits(pageHeight[i]));
+        }
+        f.varint(sections);
+        f.ensure(index.size);
+        System.arraycopy(index.buf, 0, f.buf, f.size, index.size);
+        f.size += index.size;
+
+        crc.reset();
+        crc.update(f.buf, 0, f.size);
+        long footerOffset = offset;
+        f.int4((int) (footerOffset >>> 32));
+        f.int4((int) footerOffset);
+        f.int4((int) crc.getValue());
+        f.int4(MAGIC);
+        emit(f);
+        out.flush();
+    }
+
+    /** Writes every page of {@code ink}; the stream is closed. */
+    public static void write(InkManager ink, OutputStream out) throws IOException {
+        try (InkLayerWriter w = new InkLayerWriter(out)) {
+            for (int p = 0, end = ink.pageLimit(); p < end; p++) {
+                w.writePage(p, ink.getStrokesForPage(p));
+            }
+        }
+    }
+
+    /** Writes {@code doc} with its page sizes; the stream is closed. */
+    public static void write(InkDocument doc, OutputStream out) throws IOException {
+        try (InkLayerWriter w = new InkLayerWriter(out)) {
+            if (doc.hasPageSizes()) w.setPageSizes(doc.pageWidth, doc.pageHeight);
+            List<List<InkStroke>> byPage = new ArrayList<>();
+            for (InkStroke s : doc.strokes) {
+                while (byPage.size() <= s.pageIndex) byPage.add(new ArrayList<>());
+                byPage.get(s.pageIndex).add(s);
+            }
+            for (int p = 0; p < byPage.size(); p++) w.writePage(p, byPage.get(p));
+        }
+    }
+
+    private void emit(Sink s) throws IOException {
+        out.write(s.buf, 0, s.size);
+        offset += s.size;
+    }
+
+    private int styleId(InkStyle style) {
+        Integer id = styleIds.get(style);
+        if (id == null) {
+            if (styles.size() == MAX_STYLES) {
+                throw new IllegalArgumentException("more than " + MAX_STYLES + " styles");
+            }
+            id = styles.size();
+            styleIds.put(style, id);
+            styles.add(style);
+        }
+        return id;
+    }
+
+    private static int fixed(float v, int scale) {
+        float f = v * scale;
+        if (!(Math.abs(f) <= MAX_FIXED)) throw new IllegalArgumentException("value out of range: " + v);
+        return Math.round(f);
+    }
+}
@@ -0,0 +1,642 @@
+package com.example.myapplication;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+public class InkManager {
+
+    /** Observer of edits (e.g. {@link StrokeJournal}); called on the editing thread after each change. */
+    public interface Listener {
+        /** @param coalesced the stroke joined the previous add into one undo step */
+        void onAdded(InkStroke s, boolean coalesced);
+        void onUndo();
+        void onRedo();
+        void onCleared();
+        void onPageCleared(int pageIndex);
+        /** A finished erase gesture; replaying it with the same path reproduces it exactly. */
+        void onErased(int pageIndex, float radius, float[] path);
+        /** Strokes at {@code indices} of the page (ascending) were given {@code style}. */
+        void onRestyled(int pageIndex, int[] indices, InkStyle style);
+    }
+
+    /**
+     * One undoable command. Edits only move strokes in and out of pages, each at a fixed
+     * drawing position, so applying and reverting in stack order is exact.
+     */
+    abstract static class Edit {
+        abstract void apply(InkManager m);
+        abstract void revert(InkManager m);
+        /** Approximate memory the history keeps alive for this edit. */
+        abstract long bytes();
+    }
+
+    // Per-edit and per-stroke-reference overhead used by the history's memory accounting
+    static final int EDIT_BYTES = 48;
+    static final int REF_BYTES = 16;
+
+    /**
+     * One stroke, or strokes undone as one step: a run of coalesced small strokes, or the
+     * per-page pieces of a stroke drawn across pages.
+     */
+    static final class AddEdit extends Edit {
+        final ArrayList<InkStroke> strokes = new ArrayList<>(1);
+        private long[] seqs = new long[1];
+
+        AddEdit(InkStroke s, long seq) {
+            strokes.add(s);
+            seqs[0] = seq;
+        }
+
+        void join(InkStroke s, long seq) {
+            if (strokes.size() == seqs.length) seqs = Arrays.copyOf(seqs, 2 * seqs.length);
+            seqs[strokes.size()] = seq;
+            strokes.add(s);
+        }
+
+        @Override
+        void apply(InkManager m) {
+            // Redo puts the strokes back at their original drawing positions
+            for (int i = 0; i < strokes.size(); i++) {
+                InkStroke s = strokes.get(i);
+                m.page(s.pageIndex).insert(s, seqs[i]);
+            }
+        }
+
+        @Override
+        void revert(InkManager m) {
+            for (int i = strokes.size() - 1; i >= 0; i--) {
+                InkStroke s = strokes.get(i);
+                m.page(s.pageIndex).remove(s);
+            }
+        }
+
+        // Added strokes are live (or on the redo stack, which any new edit drops)
+        @Override long bytes() { return EDIT_BYTES + (long) REF_BYTES * strokes.size(); }
+    }
+
+    /**
+     * Swaps a set of strokes on a page for another, each with its drawing position, so
+     * undo puts the originals back exactly where they were.
+     */
+    abstract static class ReplaceEdit extends Edit {
+        final int page;
+        final List<InkStroke> removed;
+        final long[] removedSeq;
+        final List<InkStroke> added;
+        final long[] addedSeq;
+
+        ReplaceEdit(int page, List<InkStroke> removed, long[] removedSeq, List<InkStroke> added, long[] addedSeq) {
+            this.page = page;
+            this.removed = removed;
+            this.removedSeq = removedSeq;
+            this.added = added;
+            this.addedSeq = addedSeq;
+        }
+
+        @Override
+        void apply(InkManager m) {
+            PageStrokes p = m.page(page);
+            for (InkStroke s : removed) p.remove(s);
+            for (int i = 0; i < added.size(); i++) p.insert(added.get(i), addedSeq[i]);
+        }
+
+        @Override
+        void revert(InkManager m) {
+            PageStrokes p = m.page(page);
+            for (InkStroke s : added) p.remove(s);
+            for (int i = 0; i < removed.size(); i++) p.insert(removed.get(i), removedSeq[i]);
+        }
+
+        // Removed strokes are kept alive only by the history
+        @Override
+        long bytes() {
+            long b = EDIT_BYTES + (long) REF_BYTES * (removed.size() + added.size());
+            for (InkStroke s : removed) b += s.sizeInBytes();
+            return b;
+        }
+    }
+
+    /** An erase gesture; see {@link #beginErase}. */
+    static final class EraseEdit extends ReplaceEdit {
+        final float radius;
+        final float[] path;                // eraser centerline, x,y pairs
+
+        EraseEdit(int page, float radius, float[] path, List<InkStroke> removed, long[] removedSeq,
+                  List<InkStroke> added, long[] addedSeq) {
+            super(page, removed, removedSeq, added, addedSeq);
+            this.radius = radius;
+            this.path = path;
+        }
+
+        @Override long bytes() { return super.bytes() + 4L * path.length; }
+    }
+
+    static final class ClearPageEdit extends ReplaceEdit {
+        ClearPageEdit(int page, List<InkStroke> removed, long[] removedSeq) {
+            super(page, removed, removedSeq, Collections.emptyList(), new long[0]);
+        }
+    }
+
+    /** New style for some strokes of a page; {@code indices} are their positions in the page. */
+    static final class RestyleEdit extends ReplaceEdit {
+        final InkStyle style;
+        final int[] indices;
+
+        RestyleEdit(int page, InkStyle style, int[] indices, List<InkStroke> removed, long[] seqs,
+                    List<InkStroke> added) {
+            super(page, removed, seqs, added, seqs);
+            this.style = style;
+            this.indices = indices;
+        }
+
+        // Restyled copies share their point arrays with the originals
+        @Override long bytes() { return EDIT_BYTES + 2L * REF_BYTES * removed.size(); }
+    }
+
+    /** Default memory budget of the undo history. */
+    public static final long DEFAULT_HISTORY_BYTES = 16L * 1024 * 1024;
+    /** Default size below which consecutive nearby strokes coalesce into one undo step. */
+    public static final float DEFAULT_COALESCE_EXTENT = 6f;
+    // Each stroke of a coalesced run lies within this many extents of the previous one
+    private static final float COALESCE_GAP = 4f;
+    private static final int MAX_COALESCED = 64;
+
+    private final Deque<Edit> done = new ArrayDeque<>();
+    private final Deque<Edit> undone = new ArrayDeque<>();
+    private long historyBytes;
+    private long historyBudget = DEFAULT_HISTORY_BYTES;
+    private float coalesceExtent = DEFAULT_COALESCE_EXTENT;
+
+    // Live strokes per page, in drawing order (ascending sequence number, see StrokeIndex).
+    // Indexed by page number (pages are dense) to avoid boxing on lookup.
+    private PageStrokes[] byPage = new PageStrokes[0];
+    private long epochs = 0;
+    private long nextSeq;      // drawing order across all pages
+    private int strokeCount;
+    private Listener listener;
+
+    // Erase gesture in progress, or null
+    private Eraser eraser;
+    // Stroke the last add() appended; a join continues only the edit that still ends with it
+    private InkStroke lastAdded;
+
+    public void setListener(Listener l) { this.listener = l; }
+
+    /**
+     * Caps the memory the undo history may keep alive; the oldest undoable edits are
+     * dropped (their effect stays) once it is exceeded.
+     */
+    public void setHistoryBudget(long bytes) {
+        historyBudget = bytes;
+        trimHistory();
+    }
+
+    /** Strokes no larger than this (page-local units) coalesce with the previous small stroke; 0 disables. */
+    public void setCoalesceExtent(float extent) { this.coalesceExtent = extent; }
+
+    /** Memory currently accounted to the undo and redo history. */
+    public long historyBytes() { return historyBytes; }
+
+    public void add(InkStroke s) {
+        add(s, coalescesWithLast(s));
+    }
+
+    /**
+     * Adds a stroke, joining the last add edit into one undo step when {@code join} (pieces of
+     * a stroke drawn across pages; journal replay). Only the edit of the previous
+     * {@code add} is joined: after an undo, erase or other edit the stroke starts its own step.
+     */
+    void add(InkStroke s, boolean join) {
+        if (eraser != null) endErase();
+        Edit top = done.peekLast();
+        PageStrokes p = page(s.pageIndex);
+        long seq = p.append(s);
+        boolean joined = join && top instanceof AddEdit && lastAdded != null
+                && lastStroke((AddEdit) top) == lastAdded;
+        if (joined) {
+            ((AddEdit) top).join(s, seq);
+            historyBytes += REF_BYTES;
+            dropRedo();
+        } else {
+            push(new AddEdit(s, seq));
+        }
+        lastAdded = s;
+        if (listener != null) listener.onAdded(s, joined);
+    }
+
+    private static InkStroke lastStroke(AddEdit e) { return e.strokes.get(e.strokes.size() - 1); }
+
+    /** Small strokes drawn next to each other (dots, accents, taps) form one undo step. */
+    private boolean coalescesWithLast(InkStroke s) {
+        if (coalesceExtent <= 0f || !undone.isEmpty() || !isSmall(s)) return false;
+        Edit top = done.peekLast();
+        if (!(top instanceof AddEdit)) return false;
+        List<InkStroke> run = ((AddEdit) top).strokes;
+        InkStroke last = run.get(run.size() - 1);
+        if (run.size() >= MAX_COALESCED || last.pageIndex != s.pageIndex || last.style != s.style
+                || !isSmall(last)) {
+            return false;
+        }
+        float gap = COALESCE_GAP * coalesceExtent;
+        return s.left() <= last.right() + gap && s.right() >= last.left() - gap
+                && s.top() <= last.bottom() + gap && s.bottom() >= last.top() - gap;
+    }
+
+    private boolean isSmall(InkStroke s) {
+        return s.right() - s.left() <= coalesceExtent && s.bottom() - s.top() <= coalesceExtent;
+    }
+
+    public boolean canUndo() { return !done.isEmpty(); }
+    public boolean canRedo() { return !undone.isEmpty(); }
+
+    public void undo() {
+        if (eraser != null) endErase();
+        if (done.isEmpty()) return;
+        Edit e = done.removeLast();
+        e.revert(this);
+        undone.addLast(e);
+        if (listener != null) listener.onUndo();
+    }
+
+    public void redo() {
+        if (eraser != null) endErase();
+        if (undone.isEmpty()) return;
+        Edit e = undone.removeLast();
+        e.apply(this);
+        done.addLast(e);
+        if (listener != null) listener.onRedo();
+    }
+
+    /** Drops all strokes and history; not undoable. */
+    public void clear() {
+        done.clear();
+        undone.clear();
+        historyBytes = 0;
+        Arrays.fill(byPage, null);
+        strokeCount = 0;
+        eraser = null;
+        if (listener != null) listener.onCleared();
+    }
+
+    /** Removes every stroke of a page as one undoable edit. */
+    public void clearPage(int pageIndex) {
+        if (eraser != null) endErase();
+        PageStrokes p = existing(pageIndex);
+        if (p == null || p.list.isEmpty()) return;
+        List<InkStroke> removed = new ArrayList<>(p.list);
+        long[] seqs = new long[removed.size()];
+        for (int i = 0; i < seqs.length; i++) seqs[i] = p.index.seqOf(removed.get(i));
+        ClearPageEdit e = new ClearPageEdit(pageIndex, removed, seqs);
+        e.apply(this);
+        push(e);
+        if (listener != null) listener.onPageCleared(pageIndex);
+    }
+
+    /**
+     * Gives strokes of a page a new style as one undoable edit; they keep their drawing
+     * position. Strokes not on the page, or already in {@code style}, are ignored.
+     */
+    public void restyle(int pageIndex, List<InkStroke> strokes, InkStyle style) {
+        PageStrokes p = existing(pageIndex);
+        if (p == null) return;
+        int[] indices = new int[strokes.size()];
+        int n = 0;
+        for (InkStroke s : strokes) {
+            if (s.style == style) continue;
+            int i = p.indexOf(s);
+            if (i >= 0) indices[n++] = i;
+        }
+        restyleAt(pageIndex, Arrays.copyOf(indices, n), style);
+    }
+
+    /** {@link #restyle} by position in {@link #getStrokesForPage}; used by journal replay. */
+    void restyleAt(int pageIndex, int[] indices, InkStyle style) {
+        if (eraser != null) endErase();
+        PageStrokes p = existing(pageIndex);
+        if (p == null || indices.length == 0) return;
+        indices = indices.clone();
+        Arrays.sort(indices);
+        List<InkStroke> before = new ArrayList<>(indices.length);
+        List<InkStroke> after = new ArrayList<>(indices.length);
+        long[] seqs = new long[indices.length];
+        for (int k = 0; k < indices.length; k++) {
+            InkStroke s = p.list.get(indices[k]);
+            before.add(s);
+            after.add(s.withStyle(style));
+            seqs[k] = p.index.seqOf(s);
+        }
+        RestyleEdit e = new RestyleEdit(pageIndex, style, indices, before, seqs, after);
+        e.apply(this);
+        push(e);
+        if (listener != null) listener.onRestyled(pageIndex, indices, style);
+    }
+
+    /** Records an applied edit: drops the redo stack and trims to the memory budget. */
+    private void push(Edit e) {
+        dropRedo();
+        done.addLast(e);
+        historyBytes += e.bytes();
+        trimHistory();
+    }
+
+    private void dropRedo() {
+        for (Edit e : undone) historyBytes -= e.bytes();
+        undone.clear();
+    }
+
+    private void trimHistory() {
+        while (historyBytes > historyBudget && !done.isEmpty()) {
+            historyBytes -= done.removeFirst().bytes();
+        }
+    }
+
+    // ---- Eraser ----
+
+    /**
+     * Starts an erase gesture with a disc of {@code radius} page-local units. Follow with
+     * {@link #eraseTo} for each eraser position and finish with {@link #endErase}, which
+     * records the whole gesture as one undoable edit.
+     */
+    public void beginErase(int pageIndex, float radius) {
+        eraser = new Eraser(pageIndex, radius);
+    }
+
+    /**
+     * Moves the eraser to (x, y), removing or splitting the strokes under the swept segment.
+     * Only strokes whose bounds meet the segment are tested, via the page's spatial index.
+     *
+     * @param damage if not null and something changed, receives the bounds (l, t, r, b,
+     *               including stroke widths) of the strokes that were changed
+     * @return true if any stroke was removed or split
+     */
+    public boolean eraseTo(float x, float y, float[] damage) {
+        Eraser g = eraser;
+        if (g == null) return false;
+        float px = g.pathSize > 0 ? g.path[g.pathSize - 2] : x;
+        float py = g.pathSize > 0 ? g.path[g.pathSize - 1] : y;
+        g.addPoint(x, y);
+
+        PageStrokes p = existing(g.page);
+        if (p == null || p.list.isEmpty()) return false;
+        List<InkStroke> candidates = p.scratch;
+        candidates.clear();
+        float r = g.radius;
+        p.index.query(Math.min(px, x) - r, Math.min(py, y) - r, Math.max(px, x) + r, Math.max(py, y) + r,
+                candidates);
+
+        boolean changed = false;
+        List<InkStroke> pieces = g.pieces;
+        for (int i = 0, n = candidates.size(); i < n; i++) {
+            InkStroke s = candidates.get(i);
+            pieces.clear();
+            if (!StrokeEraser.split(s, px, py, x, y, r, pieces)) continue;
+
+            long seq = p.remove(s);
+            if (g.added.remove(s) == null) g.removed.put(s, seq);
+            for (int k = 0; k < pieces.size(); k++) {
+                InkStroke piece = pieces.get(k);
+                p.insert(piece, seq);
+                g.added.put(piece, seq);
+            }
+            if (damage != null) {
+                float pad = s.inkPadding();
+                if (!changed) {
+                    damage[0] = s.left() - pad; damage[1] = s.top() - pad;
+                    damage[2] = s.right() + pad; damage[3] = s.bottom() + pad;
+                } else {
+                    damage[0] = Math.min(damage[0], s.left() - pad);
+                    damage[1] = Math.min(damage[1], s.top() - pad);
+                    damage[2] = Math.max(damage[2], s.right() + pad);
+                    damage[3] = Math.max(damage[3], s.bottom() + pad);
+                }
+            }
+            changed = true;
+        }
+        candidates.clear();
+        pieces.clear();
+        return changed;
+    }
+
+    /** Ends the erase gesture; records it in the history if it changed anything. */
+    public void endErase() {
+        Eraser g = eraser;
+        eraser = null;
+        if (g == null || (g.removed.isEmpty() && g.added.isEmpty())) return;
+        EraseEdit e = g.toEdit();
+        push(e);
+        if (listener != null) listener.onErased(e.page, e.radius, e.path);
+    }
+
+    public boolean isErasing() { return eraser != null; }
+
+    /** State of a gesture in progress; insertion-ordered so the edit is deterministic. */
+    private static final class Eraser {
+        final int page;
+        final float radius;
+        float[] path = new float[32];
+        int pathSize;
+        final LinkedHashMap<InkStroke, Long> removed = new LinkedHashMap<>();
+        final LinkedHashMap<InkStroke, Long> added = new LinkedHashMap<>();
+        final ArrayList<InkStroke> pieces = new ArrayList<>();
+
+        Eraser(int page, float radius) {
+            this.page = page;
+            this.radius = radius;
+        }
+
+        void addPoint(float x, float y) {
+            if (pathSize + 2 > path.length) path = Arrays.copyOf(path, path.length * 2);
+            path[pathSize++] = x;
+            path[pathSize++] = y;
+        }
+
+        EraseEdit toEdit() {
+            List<InkStroke> rem = new ArrayList<>(removed.keySet());
+            List<InkStroke> add = new ArrayList<>(added.keySet());
+            long[] remSeq = new long[rem.size()];
+            long[] addSeq = new long[add.size()];
+            int i = 0;
+            for (long seq : removed.values()) remSeq[i++] = seq;
+            i = 0;
+            for (long seq : added.values()) addSeq[i++] = seq;
+            return new EraseEdit(page, radius, Arrays.copyOf(path, pathSize), rem, remSeq, add, addSeq);
+        }
+    }
+
+    /**
+     * Read-only live view of the committed strokes on a page, in drawing order.
+     * O(1) and allocation-free after the page's first stroke; do not hold it across edits.
+     */
+    public List<InkStroke> getStrokesForPage(int pageIndex) {
+        PageStrokes p = existing(pageIndex);
+        return p != null ? p.view : Collections.emptyList();
+    }
+
+    /**
+     * Changes whenever strokes are removed from the page or inserted below others (undo,
+     * clear, erase); appends leave it as is.
+     * Renderers that cached the first k strokes of a page under the same epoch only need to
+     * draw strokes k..size-1.
+     */
+    public long getPageEpoch(int pageIndex) {
+        PageStrokes p = existing(pageIndex);
+        return p != null ? p.epoch : 0;
+    }
+
+    /**
+     * Appends to {@code out}, in drawing order, the strokes of a page whose bounds (including
+     * the stroke width) intersect the rectangle, in page-local units. Backed by a per-page
+     * {@link StrokeIndex}, so the cost scales with the ink in the rectangle, not on the page.
+     *
+     * @return the number of strokes appended
+     */
+    public int queryPage(int pageIndex, float left, float top, float right, float bottom, List<InkStroke> out) {
+        PageStrokes p = existing(pageIndex);
+        return p != null ? p.index.query(left, top, right, bottom, out) : 0;
+    }
+
+    /**
+     * The topmost stroke on a page whose rendered outline passes within {@code radius} of
+     * the point, or null.
+     */
+    public InkStroke hitTest(int pageIndex, float x, float y, float radius) {
+        PageStrokes p = existing(pageIndex);
+        if (p == null) return null;
+        List<InkStroke> candidates = p.scratch;
+        candidates.clear();
+        p.index.query(x - radius, y - radius, x + radius, y + radius, candidates);
+        InkStroke hit = null;
+        for (int i = candidates.size() - 1; i >= 0 && hit == null; i--) {
+            InkStroke s = candidates.get(i);
+            if (distanceSq(s, x, y) <= sq(radius + s.style.width / 2f)) hit = s;
+        }
+        candidates.clear();
+        return hit;
+    }
+
+    /** Squared distance from a point to a stroke's polyline. */
+    static float distanceSq(InkStroke s, float x, float y) {
+        int n = s.pointCount();
+        if (n == 0) return Float.POSITIVE_INFINITY;
+        float best = sq(s.x(0) - x) + sq(s.y(0) - y);
+        for (int i = 1; i < n; i++) {
+            best = Math.min(best, StrokeSimplifier.segmentDistSq(x, y, s.x(i - 1), s.y(i - 1), s.x(i), s.y(i)));
+        }
+        return best;
+    }
+
+    private static float sq(float v) { return v * v; }
+
+    /** Live strokes of all pages in drawing order; pieces of an erased stroke take its place. */
+    public List<InkStroke> getAll() {
+        ArrayList<InkStroke> all = new ArrayList<>(strokeCount);
+        for (PageStrokes p : byPage) {
+            if (p != null) all.addAll(p.list);
+        }
+        // Concatenated sorted runs, so this is close to a linear merge
+        all.sort((a, b) -> Long.compare(byPage[a.pageIndex].index.seqOf(a), byPage[b.pageIndex].index.seqOf(b)));
+        return all;
+    }
+
+    /** Undone edits, oldest undo first; redo takes them from the end. */
+    List<Edit> getRedoEdits() {
+        return new ArrayList<>(undone);
+    }
+
+    public int strokeCount() { return strokeCount; }
+    public int redoCount() { return undone.size(); }
+
+    /** Pages at or past this index have never held ink. */
+    public int pageLimit() { return byPage.length; }
+
+    private PageStrokes existing(int pageIndex) {
+        return pageIndex >= 0 && pageIndex < byPage.length ? byPage[pageIndex] : null;
+    }
+
+    private PageStrokes page(int pageIndex) {
+        if (pageIndex >= byPage.length) {
+            byPage = Arrays.copyOf(byPage, Math.max(pageIndex + 1, byPage.length * 2));
+        }
+        PageStrokes p = byPage[pageIndex];
+        if (p == null) {
+            p = new PageStrokes();
+            p.epoch = ++epochs;
+            byPage[pageIndex] = p;
+        }
+        return p;
+    }
+
+    /**
+     * Strokes of one page in drawing order plus their spatial index. Appends keep the epoch;
+     * any removal or insertion before the end bumps it.
+     */
+    private final class PageStrokes {
+        final ArrayList<InkStroke> list = new ArrayList<>();
+        final List<InkStroke> view = Collections.unmodifiableList(list);
+        final StrokeIndex index = new StrokeIndex();
+        final ArrayList<InkStroke> scratch = new ArrayList<>();
+        long epoch;
+
+        long append(InkStroke s) {
+            long seq = nextSeq++;
+            list.add(s);
+            index.add(s, seq);
+            strokeCount++;
+            return seq;
+        }
+
+        /** Inserts at a drawing position, after strokes with the same sequence number. */
+        void insert(InkStroke s, long seq) {
+            int at = upperBound(seq);
+            list.add(at, s);
+            index.add(s, seq);
+            strokeCount++;
+            if (at < list.size() - 1) epoch = ++epochs;
+        }
+
+        /** @return the stroke's sequence number */
+        long remove(InkStroke s) {
+            int i = indexOf(s);
+            if (i < 0) throw new IllegalStateException("stroke not on page");
+            list.remove(i);
+            long seq = index.remove(s);
+            strokeCount--;
+            epoch = ++epochs;
+            return seq;
+        }
+
+        /** Position of a stroke in {@link #list}, or -1. */
+        int indexOf(InkStroke s) {
+            long seq = index.seqOf(s);
+            if (seq < 0) return -1;
+            for (int i = lowerBound(seq), n = list.size(); i < n; i++) {
+                if (list.get(i) == s) return i;
+            }
+            return -1;
+        }
+
+        // Binary searches over the sequence numbers of `list`, which ascend
+        private int lowerBound(long seq) {
+            int lo = 0, hi = list.size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (index.seqOf(list.get(mid)) < seq) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        private int upperBound(long seq) {
+            int lo = 0, hi = list.size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (index.seqOf(list.get(mid)) <= seq) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+    }
+}
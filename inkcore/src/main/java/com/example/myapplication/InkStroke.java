@@ -0,0 +1,225 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+
+/**
+ * A committed stroke: packed page-local points plus an interned style.
+ * Pure data so it can be inspected and tested on the JVM; render objects
+ * (android.graphics.Path) are built lazily by InkPaths in the app.
+ *
+ * <p>A stroke may carry a width per point, as a fraction of {@code style.width} (which is
+ * then the maximum width). Such a stroke is tessellated into a filled outline once, when it
+ * is constructed; renderers and the flattener fill that outline instead of stroking.
+ */
+public final class InkStroke {
+    public final InkStyle style;
+    public final int pageIndex;
+
+    private final float[] xy;         // x0,y0,x1,y1,... in page-local coordinates
+    private final float[] pressure;   // one per point, or null
+    private final int[] timeMs;       // ms since first point, one per point, or null
+    private final float[] widthScale; // one per point in (0, 1], or null for constant width
+    private final float[] curves;     // x0,y0 then c1x,c1y,c2x,c2y,x,y per cubic segment, or null
+    private final float[] outline;    // closed polygon x0,y0,x1,y1,... when widthScale != null
+    private final float left, top, right, bottom; // bounds of points and curve control points
+    private final float inkPadding;
+
+    // Render-side cache slot owned by InkPaths; never read by the model itself.
+    Object renderCache;
+
+    public InkStroke(float[] xy, float[] pressure, int[] timeMs, InkStyle style, int pageIndex) {
+        this(xy, pressure, timeMs, null, style, pageIndex);
+    }
+
+    /**
+     * @param curves optional cubic Bézier fit of the points, used for rendering and flattening
+     *               in place of the polyline; the points are kept for hit testing.
+     */
+    public InkStroke(float[] xy, float[] pressure, int[] timeMs, float[] curves,
+                     InkStyle style, int pageIndex) {
+        this(xy, pressure, timeMs, null, curves, style, pageIndex);
+    }
+
+    /**
+     * @param widthScale optional width per point as a fraction of {@code style.width}, in (0, 1]
+     */
+    public InkStroke(float[] xy, float[] pressure, int[] timeMs, float[] widthScale, float[] curves,
+                     InkStyle style, int pageIndex) {
+        if ((xy.length & 1) != 0) throw new IllegalArgumentException("xy must hold x,y pairs");
+        if (curves != null && (curves.length < 2 || (curves.length - 2) % 6 != 0)) {
+            throw new IllegalArgumentException("curves must hold a start point and 6 floats per segment");
+        }
+        int n = xy.length / 2;
+        if (pressure != null && pressure.length != n) throw new IllegalArgumentException("pressure length");
+        if (timeMs != null && timeMs.length != n) throw new IllegalArgumentException("time length");
+        if (widthScale != null && widthScale.length != n) throw new IllegalArgumentException("width length");
+        this.xy = xy;
+        this.pressure = pressure;
+        this.timeMs = timeMs;
+        this.widthScale = widthScale;
+        this.curves = curves;
+        this.style = style;
+        this.pageIndex = pageIndex;
+        this.outline = widthScale != null ? StrokeOutline.tessellate(this) : null;
+
+        // Control points bound each Bézier segment, so this covers the rendered curve too
+        float[] bounds = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+                Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        grow(bounds, xy);
+        if (curves != null) grow(bounds, curves);
+        boolean empty = bounds[0] > bounds[2];
+        this.left = empty ? 0f : bounds[0];
+        this.top = empty ? 0f : bounds[1];
+        this.right = empty ? 0f : bounds[2];
+        this.bottom = empty ? 0f : bounds[3];
+
+        // Outline vertices at sharp turns reach past half the width (miter), so measure them
+        float pad = style.width / 2f;
+        if (outline != null && !empty) {
+            for (int i = 0; i < outline.length; i += 2) {
+                pad = Math.max(pad, Math.max(Math.max(left - outline[i], outline[i] - right),
+                        Math.max(top - outline[i + 1], outline[i + 1] - bottom)));
+            }
+        }
+        this.inkPadding = pad;
+    }
+
+    private static void grow(float[] bounds, float[] pts) {
+        for (int i = 0; i < pts.length; i += 2) {
+            bounds[0] = Math.min(bounds[0], pts[i]);
+            bounds[1] = Math.min(bounds[1], pts[i + 1]);
+            bounds[2] = Math.max(bounds[2], pts[i]);
+            bounds[3] = Math.max(bounds[3], pts[i + 1]);
+        }
+    }
+
+    public int pointCount() { return xy.length / 2; }
+    public float x(int i) { return xy[2 * i]; }
+    public float y(int i) { return xy[2 * i + 1]; }
+
+    public boolean hasPressure() { return pressure != null; }
+    public float pressure(int i) { return pressure != null ? pressure[i] : 1f; }
+
+    public boolean hasTime() { return timeMs != null; }
+    public int timeMs(int i) { return timeMs != null ? timeMs[i] : 0; }
+
+    public boolean hasVariableWidth() { return widthScale != null; }
+    /** Fraction of {@code style.width} at point i; 1 for constant-width strokes. */
+    public float widthScale(int i) { return widthScale != null ? widthScale[i] : 1f; }
+    public float width(int i) { return style.width * widthScale(i); }
+
+    /** Filled outline of a variable-width stroke, shared (do not modify); null otherwise. */
+    public float[] outline() { return outline; }
+
+    public boolean hasCurves() { return curves != null; }
+    public int curveSegmentCount() { return curves != null ? (curves.length - 2) / 6 : 0; }
+    /** Flat index into the curve data: [0,1] start point, then 6 floats per segment. */
+    public float curveCoord(int i) { return curves[i]; }
+
+    /** Bounds of the stroke's centerline in page-local units; excludes the stroke width. */
+    public float left() { return left; }
+    public float top() { return top; }
+    public float right() { return right; }
+    public float bottom() { return bottom; }
+
+    /** How far drawn ink can reach beyond the centerline bounds; at least half the width. */
+    public float inkPadding() { return inkPadding; }
+
+    /** The same stroke in another style; the point data is shared. */
+    public InkStroke withStyle(InkStyle style) {
+        return style == this.style ? this : new InkStroke(xy, pressure, timeMs, widthScale, curves, style, pageIndex);
+    }
+
+    /** Copy of the packed x,y array. */
+    public float[] copyPoints() { return xy.clone(); }
+
+    /** Approximate retained size in bytes of the point data (arrays only). */
+    public int sizeInBytes() {
+        int b = 16 + xy.length * 4;
+        if (pressure != null) b += 16 + pressure.length * 4;
+        if (timeMs != null) b += 16 + timeMs.length * 4;
+        if (widthScale != null) b += 16 + widthScale.length * 4;
+        if (outline != null) b += 16 + outline.length * 4;
+        if (curves != null) b += 16 + curves.length * 4;
+        return b;
+    }
+
+    /** Accumulates samples for a stroke in progress; reused across gestures. */
+    public static final class Builder {
+        private float[] xy = new float[256];
+        private float[] pressure = new float[128];
+        private int[] timeMs = new int[128];
+        private float[] widthScale = new float[128];
+        private int n;
+        private long t0;
+        private boolean withPressure;
+        private boolean withTime;
+        private boolean withWidth;
+
+        public Builder reset() { n = 0; withPressure = false; withTime = false; withWidth = false; return this; }
+
+        public int size() { return n; }
+        public boolean isEmpty() { return n == 0; }
+        public float lastX() { return xy[2 * n - 2]; }
+        public float lastY() { return xy[2 * n - 1]; }
+
+        public boolean hasWidths() { return withWidth; }
+        public float widthScale(int i) { return widthScale[i]; }
+        public float x(int i) { return xy[2 * i]; }
+        public float y(int i) { return xy[2 * i + 1]; }
+
+        /** Copy of the points so far, {x0, y0, x1, y1, ...}. */
+        public float[] copyPoints() { return Arrays.copyOf(xy, 2 * n); }
+
+        /** Copy of the width scales so far, or null if none were given. */
+        public float[] copyWidths() { return withWidth ? Arrays.copyOf(widthScale, n) : null; }
+
+        public Builder add(float x, float y) {
+            ensure(n + 1);
+            xy[2 * n] = x;
+            xy[2 * n + 1] = y;
+            pressure[n] = 1f;
+            timeMs[n] = 0;
+            widthScale[n] = 1f;
+            n++;
+            return this;
+        }
+
+        public Builder add(float x, float y, float p, long eventTimeMs) {
+            if (n == 0) t0 = eventTimeMs;
+            add(x, y);
+            pressure[n - 1] = p;
+            timeMs[n - 1] = (int) (eventTimeMs - t0);
+            withPressure = true;
+            withTime = true;
+            return this;
+        }
+
+        /** A sample with its width as a fraction of the style's width, see {@link StrokeWidthModel}. */
+        public Builder add(float x, float y, float p, long eventTimeMs, float widthScale) {
+            add(x, y, p, eventTimeMs);
+            this.widthScale[n - 1] = widthScale;
+            withWidth = true;
+            return this;
+        }
+
+        public InkStroke build(InkStyle style, int pageIndex) {
+            return new InkStroke(
+                    Arrays.copyOf(xy, 2 * n),
+                    withPressure ? Arrays.copyOf(pressure, n) : null,
+                    withTime ? Arrays.copyOf(timeMs, n) : null,
+                    copyWidths(), null,
+                    style, pageIndex);
+        }
+
+        private void ensure(int points) {
+            if (points * 2 > xy.length) xy = Arrays.copyOf(xy, Math.max(points * 2, xy.length * 2));
+            if (points > pressure.length) {
+                int cap = Math.max(points, pressure.length * 2);
+                pressure = Arrays.copyOf(pressure, cap);
+                timeMs = Arrays.copyOf(timeMs, cap);
+                widthScale = Arrays.copyOf(widthScale, cap);
+            }
+        }
+    }
+}
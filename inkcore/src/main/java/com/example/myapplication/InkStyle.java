@@ -0,0 +1,58 @@
+package com.example.myapplication;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable stroke attributes, interned so that every stroke drawn with the same
+ * pen shares one instance (and one render Paint, see InkPaths in the app).
+ */
+public final class InkStyle {
+    public static final int CAP_BUTT = 0;
+    public static final int CAP_ROUND = 1;
+    public static final int CAP_SQUARE = 2;
+
+    private static final Map<InkStyle, InkStyle> INTERNED = new HashMap<>();
+
+    public final int color;     // ARGB
+    public final float width;   // page-local units
+    public final int cap;       // CAP_*
+
+    private InkStyle(int color, float width, int cap) {
+        this.color = color;
+        this.width = width;
+        this.cap = cap;
+    }
+
+    public static InkStyle of(int color, float width, int cap) {
+        InkStyle key = new InkStyle(color, width, cap);
+        synchronized (INTERNED) {
+            InkStyle s = INTERNED.get(key);
+            if (s == null) {
+                INTERNED.put(key, key);
+                s = key;
+            }
+            return s;
+        }
+    }
+
+    public InkStyle withColor(int c) { return of(c, width, cap); }
+    public InkStyle withWidth(float w) { return of(color, w, cap); }
+
+    public int red()   { return (color >> 16) & 0xFF; }
+    public int green() { return (color >> 8) & 0xFF; }
+    public int blue()  { return color & 0xFF; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof InkStyle)) return false;
+        InkStyle s = (InkStyle) o;
+        return color == s.color && Float.compare(width, s.width) == 0 && cap == s.cap;
+    }
+
+    @Override
+    public int hashCode() {
+        return (color * 31 + Float.floatToIntBits(width)) * 31 + cap;
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.myapplication;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Named counters and fixed-bucket histograms, reported on demand to pluggable {@link Sink}s.
+ * A metric is looked up once by name and kept in a field; recording is then a field update
+ * with no map lookup and no allocation, so it can sit on the draw path.
+ *
+ * <p>{@link #report()} snapshots every metric in registration order, resets the histograms
+ * (each report covers the interval since the previous one; counters keep running) and hands
+ * the {@link Report} to each sink. Call it off the UI thread when a sink does I/O.
+ */
+public final class Metrics {
+
+    private static final Metrics GLOBAL = new Metrics();
+
+    /** Process-wide instance that the app's hot paths record into. */
+    public static Metrics global() { return GLOBAL; }
+
+    /** Receives every report; called on the thread that calls {@link #report()}. */
+    public interface Sink {
+        void publish(Report report) throws IOException;
+    }
+
+    /** Monotonic count, e.g. bytes written. Thread-safe. */
+    public static final class Counter {
+        public final String name;
+        private final AtomicLong value = new AtomicLong();
+
+        Counter(String name) { this.name = name; }
+
+        public void add(long n) { value.addAndGet(n); }
+        public void increment() { value.incrementAndGet(); }
+        public long get() { return value.get(); }
+    }
+
+    /**
+     * Linear histogram of {@code buckets} buckets of {@code bucketWidth}, the last one open
+     * ended; count, sum and max are exact. Thread-safe; uncontended on the UI thread.
+     */
+    public static final class Histogram {
+        public final String name;
+        private final long bucketWidth;
+        private final int[] histogram;
+        private long count, sum, max;
+
+        Histogram(String name, long bucketWidth, int buckets) {
+            if (bucketWidth <= 0 || buckets < 1) throw new IllegalArgumentException(name + ": bucket layout");
+            this.name = name;
+            this.bucketWidth = bucketWidth;
+            this.histogram = new int[buckets];
+        }
+
+        public synchronized void record(long value) {
+            if (value < 0) value = 0;
+            histogram[(int) Math.min(histogram.length - 1, value / bucketWidth)]++;
+            count++;
+            sum += value;
+            if (value > max) max = value;
+        }
+
+        synchronized Sample snapshotAndReset() {
+            Sample s = new Sample(name, true, count, sum, max, percentile(0.5), percentile(0.95));
+            Arrays.fill(histogram, 0);
+            count = sum = max = 0;
+            return s;
+        }
+
+        /** Upper bound of the bucket holding the q-quantile, at most the exact max. */
+        private long percentile(double q) {
+            if (count == 0) return 0;
+            long rank = (long) Math.ceil(q * count), seen = 0;
+            for (int b = 0; b < histogram.length - 1; b++) {
+                seen += histogram[b];
+                if (seen >= rank) return Math.min(max, (b + 1) * bucketWidth);
+            }
+            return max;
+        }
+    }
+
+    /** One metric in a report. For a counter only {@link #count} (its value) is set. */
+    public static final class Sample {
+        public final String name;
+        public final boolean histogram;
+        public final long count, sum, max, p50, p95;
+
+        Sample(String name, boolean histogram, long count, long sum, long max, long p50, long p95) {
+            this.name = name;
+            this.histogram = histogram;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+            this.p50 = p50;
+            this.p95 = p95;
+        }
+
+        public double mean() { return count == 0 ? 0 : (double) sum / count; }
+
+        @Override
+        public String toString() {
+            if (!histogram) return name + "=" + count;
+            return String.format(Locale.US, "%s n=%d mean=%.1f p50=%d p95=%d max=%d",
+                    name, count, mean(), p50, p95, max);
+        }
+    }
+
+    /** Every metric at one point in time. */
+    public static final class Report {
+        public final long timeMillis;
+        public final List<Sample> samples;
+
+        Report(long timeMillis, List<Sample> samples) {
+            this.timeMillis = timeMillis;
+            this.samples = Collections.unmodifiableList(samples);
+        }
+
+        /** The sample named {@code name}, or null. */
+        public Sample get(String name) {
+            for (Sample s : samples) if (s.name.equals(name)) return s;
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder b = new StringBuilder("metrics t=").append(timeMillis);
+            for (Sample s : samples) b.append('\n').append(s);
+            return b.toString();
+        }
+    }
+
+    /** Keeps the last {@code capacity} reports in memory, e.g. for tests or a debug screen. */
+    public static final class RingBufferSink implements Sink {
+        private final ArrayDeque<Report> reports;
+        private final int capacity;
+
+        public RingBufferSink(int capacity) {
+            if (capacity < 1) throw new IllegalArgumentException("capacity " + capacity);
+            this.capacity = capacity;
+            this.reports = new ArrayDeque<>(capacity);
+        }
+
+        @Override
+        public synchronized void publish(Report report) {
+            if (reports.size() == capacity) reports.removeFirst();
+            reports.addLast(report);
+        }
+
+        /** Oldest first. */
+        public synchronized List<Report> reports() { return new ArrayList<>(reports); }
+    }
+
+    /**
+     * Appends each report as text to a file. Once the file has grown past {@code maxBytes} it
+     * is moved to {@code <name>.old}, replacing the previous one, and a new file is started.
+     */
+    public static final class FileSink implements Sink {
+        private final File file;
+        private final long maxBytes;
+
+        public FileSink(File file, long maxBytes) {
+            this.file = file;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public synchronized void publish(Report report) throws IOException {
+            if (file.length() > maxBytes) {
+                File old = new File(file.getPath() + ".old");
+                if ((old.exists() && !old.delete()) || !file.renameTo(old)) {
+                    throw new IOException("Cannot roll over " + file);
+                }
+            }
+            try (BufferedWriter w = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                w.write(report.toString());
+                w.write('\n');
+            }
+        }
+    }
+
+    private final Map<String, Object> metrics = new LinkedHashMap<>(); // Counter or Histogram
+    private volatile List<Sink> sinks = Collections.emptyList();
+
+    /** The counter named {@code name}, created on first use. */
+    public synchronized Counter counter(String name) {
+        Object m = metrics.get(name);
+        if (m == null) metrics.put(name, m = new Counter(name));
+        if (!(m instanceof Counter)) throw new IllegalArgumentException(name + " is not a counter");
+        return (Counter) m;
+    }
+
+    /** The histogram named {@code name}, created on first use with this bucket layout. */
+    public synchronized Histogram histogram(String name, long bucketWidth, int buckets) {
+        Object m = metrics.get(name);
+        if (m == null) metrics.put(name, m = new Histogram(name, bucketWidth, buckets));
+        if (!(m instanceof Histogram) || ((Histogram) m).bucketWidth != bucketWidth
+                || ((Histogram) m).histogram.length != buckets) {
+            throw new IllegalArgumentException(name + " is registered with another layout");
+        }
+        return (Histogram) m;
+    }
+
+    /** Replaces the sinks that receive reports. */
+    public void setSinks(Sink... sinks) {
+        this.sinks = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(sinks)));
+    }
+
+    /**
+     * Snapshots all metrics, resets the histograms and publishes to every sink. A failing sink
+     * does not keep the others from receiving the report; its exception is rethrown after.
+     */
+    public Report report() throws IOException {
+        List<Sample> samples;
+        synchronized (this) {
+            samples = new ArrayList<>(metrics.size());
+            for (Object m : metrics.values()) {
+                samples.add(m instanceof Counter
+                        ? new Sample(((Counter) m).name, false, ((Counter) m).get(), 0, 0, 0, 0)
+                        : ((Histogram) m).snapshotAndReset());
+            }
+        }
+        Report r = new Report(System.currentTimeMillis(), samples);
+        IOException failure = null;
+        for (Sink s : sinks) {
+            try {
+                s.publish(r);
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        if (failure != null) throw failure;
+        return r;
+    }
+}
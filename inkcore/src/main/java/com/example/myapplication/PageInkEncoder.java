@@ -0,0 +1,175 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Serializes one page's ink into PDF content-stream operators, including the page-local →
+ * PDF user space transform. Pure and stateless, so pages can be encoded on worker threads;
+ * the output depends only on the input, which keeps parallel and serial flattening
+ * byte-for-byte identical.
+ */
+final class PageInkEncoder {
+
+    /** Fixed-point precision of emitted coordinates (1/10000 pt). */
+    private static final int FRACTION_DIGITS = 4;
+    private static final long SCALE = 10_000L;
+
+    private PageInkEncoder() {}
+
+    /**
+     * @param runs         strokes of one page as runs of one style each, painted in order
+     * @param sx           page-local → PDF x scale
+     * @param sy           page-local → PDF y scale
+     * @param pdfH         page height in PDF units (Y is flipped)
+     * @param restoreFirst start with Q, balancing the q the attach step wraps around
+     *                     existing page content
+     */
+    static byte[] encode(List<List<InkStroke>> runs, float sx, float sy, float pdfH,
+                         boolean restoreFirst) {
+        Sink out = new Sink(4096);
+        if (restoreFirst) out.ascii("Q\n");
+        out.ascii("1 J\n1 j\n");   // round cap, round join
+
+        for (List<InkStroke> strokes : runs) {
+            if (strokes.isEmpty()) continue;
+            InkStyle st = strokes.get(0).style;
+            // Strokes are emitted in drawing order. Constant-width ones share a stroked path
+            // until a variable-width one comes along; its tessellated outline is then filled
+            // on its own, so that overlapping outlines never cancel under the non-zero rule.
+            boolean strokeSet = false, fillSet = false, pathOpen = false;
+            for (InkStroke s : strokes) {
+                if (s.hasVariableWidth()) {
+                    if (pathOpen) {
+                        out.ascii("S\n");
+                        pathOpen = false;
+                    }
+                    if (!fillSet) {
+                        color(out, st).ascii(" rg\n");
+                        fillSet = true;
+                    }
+                    outline(out, s.outline(), sx, sy, pdfH);
+                } else {
+                    if (!strokeSet) {
+                        color(out, st).ascii(" RG\n");
+                        out.num(st.width * sx).ascii(" w\n");
+                        strokeSet = true;
+                    }
+                    path(out, s, sx, sy, pdfH);
+                    pathOpen = true;
+                }
+            }
+            if (pathOpen) out.ascii("S\n");
+        }
+        return out.toArray();
+    }
+
+    private static Sink color(Sink out, InkStyle st) {
+        return out.num(st.red() / 255f).sp().num(st.green() / 255f).sp().num(st.blue() / 255f);
+    }
+
+    private static void outline(Sink out, float[] o, float sx, float sy, float pdfH) {
+        if (o.length < 6) return;
+        out.num(o[0] * sx).sp().num(pdfH - o[1] * sy).ascii(" m\n");
+        for (int k = 2; k < o.length; k += 2) {
+            out.num(o[k] * sx).sp().num(pdfH - o[k + 1] * sy).ascii(" l\n");
+        }
+        out.ascii("h f\n");
+    }
+
+    /** zlib (FlateDecode) compression of encoded operators. */
+    static byte[] deflate(byte[] ops) {
+        Deflater d = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            d.setInput(ops);
+            d.finish();
+            byte[] buf = new byte[Math.max(64, ops.length / 2)];
+            int n = 0;
+            while (!d.finished()) {
+                if (n == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+                n += d.deflate(buf, n, buf.length - n);
+            }
+            return Arrays.copyOf(buf, n);
+        } finally {
+            d.end();
+        }
+    }
+
+    private static void path(Sink out, InkStroke s, float sx, float sy, float pdfH) {
+        if (s.hasCurves()) {
+            out.num(s.curveCoord(0) * sx).sp().num(pdfH - s.curveCoord(1) * sy).ascii(" m\n");
+            for (int k = 0, segs = s.curveSegmentCount(); k < segs; k++) {
+                int o = 2 + 6 * k;
+                out.num(s.curveCoord(o) * sx).sp().num(pdfH - s.curveCoord(o + 1) * sy).sp()
+                        .num(s.curveCoord(o + 2) * sx).sp().num(pdfH - s.curveCoord(o + 3) * sy).sp()
+                        .num(s.curveCoord(o + 4) * sx).sp().num(pdfH - s.curveCoord(o + 5) * sy)
+                        .ascii(" c\n");
+            }
+        } else {
+            out.num(s.x(0) * sx).sp().num(pdfH - s.y(0) * sy).ascii(" m\n");
+            for (int k = 1, n = s.pointCount(); k < n; k++) {
+                out.num(s.x(k) * sx).sp().num(pdfH - s.y(k) * sy).ascii(" l\n");
+            }
+        }
+    }
+
+    /** Growable byte buffer with allocation-free PDF number formatting. */
+    static final class Sink {
+        private byte[] buf;
+        private int size;
+        private final byte[] digits = new byte[20];
+
+        Sink(int capacity) { buf = new byte[capacity]; }
+
+        Sink ascii(String s) {
+            ensure(s.length());
+            for (int i = 0; i < s.length(); i++) buf[size++] = (byte) s.charAt(i);
+            return this;
+        }
+
+        Sink sp() {
+            ensure(1);
+            buf[size++] = ' ';
+            return this;
+        }
+
+        /** Fixed-point decimal, at most {@value #FRACTION_DIGITS} fraction digits, no trailing zeros. */
+        Sink num(float f) {
+            if (Float.isNaN(f) || Float.isInfinite(f)) f = 0f;
+            long v = Math.round((double) f * SCALE);
+            ensure(24);
+            if (v < 0) {
+                buf[size++] = '-';
+                v = -v;
+            }
+            long whole = v / SCALE;
+            long frac = v % SCALE;
+            int n = 0;
+            do {
+                digits[n++] = (byte) ('0' + whole % 10);
+                whole /= 10;
+            } while (whole > 0);
+            while (n > 0) buf[size++] = digits[--n];
+            if (frac != 0) {
+                buf[size++] = '.';
+                int fd = FRACTION_DIGITS;
+                while (frac % 10 == 0) { frac /= 10; fd--; }
+                for (int i = fd - 1; i >= 0; i--) {
+                    digits[i] = (byte) ('0' + frac % 10);
+                    frac /= 10;
+                }
+                System.arraycopy(digits, 0, buf, size, fd);
+                size += fd;
+            }
+            return this;
+        }
+
+        int size() { return size; }
+        byte[] toArray() { return Arrays.copyOf(buf, size); }
+
+        private void ensure(int extra) {
+            if (size + extra > buf.length) buf = Arrays.copyOf(buf, Math.max(size + extra, buf.length * 2));
+        }
+    }
+}
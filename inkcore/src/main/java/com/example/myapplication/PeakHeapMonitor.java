@@ -0,0 +1,50 @@
+package com.example.myapplication;
+
+/**
+ * Samples used Java heap on a daemon thread while open and keeps the high-water mark.
+ * Cheap enough to wrap every commit: one sample every {@code periodMs}.
+ */
+public final class PeakHeapMonitor implements AutoCloseable {
+    private final Runtime rt = Runtime.getRuntime();
+    private final long baseline;
+    private final Thread sampler;
+    private volatile long peak;
+    private volatile boolean running = true;
+
+    public PeakHeapMonitor(long periodMs) {
+        baseline = used();
+        peak = baseline;
+        sampler = new Thread(() -> {
+            while (running) {
+                sample();
+                try {
+                    Thread.sleep(periodMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "PeakHeapMonitor");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    /** Also callable from the monitored thread at phase boundaries. */
+    public void sample() {
+        long u = used();
+        if (u > peak) peak = u;
+    }
+
+    public long baselineBytes() { return baseline; }
+    public long peakBytes() { return peak; }
+
+    @Override
+    public void close() {
+        sample();
+        running = false;
+        sampler.interrupt();
+    }
+
+    private long used() {
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,305 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Geometry of the eraser: a disc swept along a segment (a capsule). Finds where a stroke's
+ * centerline enters the capsule, segment by segment, and splits the stroke into the pieces
+ * that remain. A stroke's fitted curves are cut at the points nearest the cuts and each
+ * piece keeps its part of them (de Casteljau), so what is left looks as before. Pure and
+ * deterministic, so replaying the same eraser path over the same strokes (undo/redo, journal
+ * restore) yields identical pieces.
+ */
+final class StrokeEraser {
+
+    /** Pieces shorter than this (page-local units of centerline) are dropped. */
+    static final float MIN_PIECE_LENGTH = 0.5f;
+    /** Spacing (page-local units) of the samples that locate a cut on a stroke's curves. */
+    private static final float CURVE_STEP = 1f;
+    /** A nearer point on a later pass of the curve is ignored unless it is this much nearer. */
+    private static final float CURVE_SLACK = 2f;
+
+    private StrokeEraser() {}
+
+    /**
+     * Splits {@code s} by the capsule from (cx, cy) to (dx, dy) with radius {@code radius};
+     * the stroke's half width is added, so touching its visible edge is enough.
+     *
+     * @param pieces receives the remaining pieces, in stroke order, when the stroke is hit
+     * @return false when the capsule misses the stroke (nothing is added to {@code pieces})
+     */
+    static boolean split(InkStroke s, float cx, float cy, float dx, float dy, float radius,
+                         List<InkStroke> pieces) {
+        final int n = s.pointCount();
+        final float r = radius + s.style.width / 2f;
+        final float[] t = new float[2];
+        if (n == 0) return false;
+        if (n == 1) return hit(s.x(0), s.y(0), s.x(0), s.y(0), cx, cy, dx, dy, r, t); // kept or gone
+
+        // Erased parameter ranges along the polyline, u in [0, n-1], merged as we go
+        float[] erased = null;
+        int m = 0;
+        for (int i = 0; i < n - 1; i++) {
+            if (!hit(s.x(i), s.y(i), s.x(i + 1), s.y(i + 1), cx, cy, dx, dy, r, t)) continue;
+            float a = i + t[0], b = i + t[1];
+            if (erased == null) erased = new float[8];
+            if (m > 0 && a <= erased[m - 1]) {
+                erased[m - 1] = Math.max(erased[m - 1], b);
+            } else {
+                if (m == erased.length) erased = Arrays.copyOf(erased, 2 * m);
+                erased[m++] = a;
+                erased[m++] = b;
+            }
+        }
+        if (erased == null) return false;
+
+        // Kept ranges are the gaps between erased ones
+        float from = 0f;
+        double[] curveFrom = {0.0}; // curve parameter the next piece's cut is searched from
+        for (int k = 0; k <= m; k += 2) {
+            float to = k < m ? erased[k] : n - 1;
+            if (to > from) addPiece(s, from, to, curveFrom, pieces);
+            if (k < m) from = erased[k + 1];
+        }
+        return true;
+    }
+
+    /** The stroke between polyline parameters u0 < u1, with interpolated end samples. */
+    private static void addPiece(InkStroke s, float u0, float u1, double[] curveFrom,
+                                 List<InkStroke> pieces) {
+        int first = (int) Math.ceil(u0), last = (int) Math.floor(u1);
+        boolean startsOnVertex = first == u0, endsOnVertex = last == u1;
+        int count = (last - first + 1) + (startsOnVertex ? 0 : 1) + (endsOnVertex ? 0 : 1);
+        if (count < 2) return;
+
+        float[] xy = new float[2 * count];
+        float[] p = s.hasPressure() ? new float[count] : null;
+        int[] tm = s.hasTime() ? new int[count] : null;
+        float[] w = s.hasVariableWidth() ? new float[count] : null;
+        int j = 0;
+        if (!startsOnVertex) j = sample(s, u0, xy, p, tm, w, j);
+        for (int i = first; i <= last; i++) j = sample(s, i, xy, p, tm, w, j);
+        if (!endsOnVertex) sample(s, u1, xy, p, tm, w, j);
+
+        float len = 0f;
+        for (int i = 1; i < count; i++) {
+            len += (float) Math.hypot(xy[2 * i] - xy[2 * i - 2], xy[2 * i + 1] - xy[2 * i - 1]);
+        }
+        if (len < MIN_PIECE_LENGTH) return;
+
+        float[] curves = null;
+        if (s.hasCurves()) {
+            int segments = s.curveSegmentCount();
+            double c0 = u0 == 0f ? 0.0 : nearestCurveParam(s, xy[0], xy[1], curveFrom[0]);
+            double c1 = u1 == s.pointCount() - 1 ? segments
+                    : nearestCurveParam(s, xy[2 * count - 2], xy[2 * count - 1], c0);
+            curveFrom[0] = c1;
+            if (c1 > c0) curves = subCurves(s, c0, c1);
+        }
+        pieces.add(new InkStroke(xy, p, tm, w, curves, s.style, s.pageIndex));
+    }
+
+    // ---- Cutting the fitted curves ----
+
+    /**
+     * Parameter (segment index + t) of the point on {@code s}'s curves nearest to (x, y), at
+     * or after {@code from}. Of the near passes, the earliest wins, so a stroke that loops back
+     * over the cut is not cut on its later pass.
+     */
+    private static double nearestCurveParam(InkStroke s, float x, float y, double from) {
+        int segments = s.curveSegmentCount();
+        double[] q = new double[2];
+        // Samples at most CURVE_STEP apart: a segment is no longer than its control polygon
+        int first = Math.min((int) from, segments - 1);
+        double[] us = new double[64], ds = new double[64];
+        int count = 0;
+        double bestD = Double.MAX_VALUE;
+        for (int k = first; k < segments; k++) {
+            int base = 6 * k;
+            double poly = 0;
+            for (int i = 0; i < 6; i += 2) {
+                poly += Math.hypot(s.curveCoord(base + i + 2) - s.curveCoord(base + i),
+                        s.curveCoord(base + i + 3) - s.curveCoord(base + i + 1));
+            }
+            int steps = Math.max(4, (int) Math.ceil(poly / CURVE_STEP));
+            for (int i = k == first ? 0 : 1; i <= steps; i++) {
+                double u = k + (double) i / steps;
+                if (u < from) continue;
+                eval(s, u, q);
+                double d = Math.hypot(q[0] - x, q[1] - y);
+                if (count == us.length) {
+                    us = Arrays.copyOf(us, 2 * count);
+                    ds = Arrays.copyOf(ds, 2 * count);
+                }
+                us[count] = u;
+                ds[count++] = d;
+                bestD = Math.min(bestD, d);
+            }
+        }
+        if (count == 0) return Math.max(from, 0.0);
+        int pick = 0;
+        while (ds[pick] > bestD + CURVE_SLACK) pick++;
+        // Then down the slope of that pass to its minimum
+        while (pick + 1 < count && ds[pick + 1] <= ds[pick]) pick++;
+
+        // Refine between the neighbouring samples (ternary search on the distance)
+        double lo = pick > 0 ? us[pick - 1] : us[pick], hi = pick + 1 < count ? us[pick + 1] : us[pick];
+        for (int i = 0; i < 30 && hi - lo > 1e-7; i++) {
+            double m1 = lo + (hi - lo) / 3, m2 = hi - (hi - lo) / 3;
+            eval(s, m1, q);
+            double d1 = (q[0] - x) * (q[0] - x) + (q[1] - y) * (q[1] - y);
+            eval(s, m2, q);
+            double d2 = (q[0] - x) * (q[0] - x) + (q[1] - y) * (q[1] - y);
+            if (d1 <= d2) hi = m2; else lo = m1;
+        }
+        return Math.max(from, (lo + hi) / 2);
+    }
+
+    /** The curves of {@code s} between parameters c0 < c1, each cubic cut by de Casteljau. */
+    private static float[] subCurves(InkStroke s, double c0, double c1) {
+        int segments = s.curveSegmentCount();
+        int k0 = Math.min((int) c0, segments - 1);
+        int k1 = Math.min((int) Math.ceil(c1) - 1, segments - 1);
+        float[] out = new float[2 + 6 * (k1 - k0 + 1)];
+        double[] b = new double[8];
+        for (int k = k0; k <= k1; k++) {
+            for (int i = 0; i < 8; i++) b[i] = s.curveCoord(6 * k + i);
+            double t0 = Math.max(0.0, c0 - k), t1 = Math.min(1.0, c1 - k);
+            if (t1 < 1.0) splitLeft(b, t1);
+            if (t0 > 0.0) splitRight(b, t1 > 0.0 ? t0 / t1 : 0.0);
+            if (k == k0) {
+                out[0] = (float) b[0];
+                out[1] = (float) b[1];
+            }
+            for (int i = 0; i < 6; i++) out[2 + 6 * (k - k0) + i] = (float) b[2 + i];
+        }
+        return out;
+    }
+
+    /** Replaces cubic {@code b} by its part on [0, t]. */
+    private static void splitLeft(double[] b, double t) {
+        for (int i = 0; i < 2; i++) {
+            double p0 = b[i], p1 = b[2 + i], p2 = b[4 + i], p3 = b[6 + i];
+            double p01 = p0 + t * (p1 - p0), p12 = p1 + t * (p2 - p1), p23 = p2 + t * (p3 - p2);
+            double p012 = p01 + t * (p12 - p01), p123 = p12 + t * (p23 - p12);
+            b[2 + i] = p01;
+            b[4 + i] = p012;
+            b[6 + i] = p012 + t * (p123 - p012);
+        }
+    }
+
+    /** Replaces cubic {@code b} by its part on [t, 1]. */
+    private static void splitRight(double[] b, double t) {
+        for (int i = 0; i < 2; i++) {
+            double p0 = b[i], p1 = b[2 + i], p2 = b[4 + i], p3 = b[6 + i];
+            double p01 = p0 + t * (p1 - p0), p12 = p1 + t * (p2 - p1), p23 = p2 + t * (p3 - p2);
+            double p012 = p01 + t * (p12 - p01), p123 = p12 + t * (p23 - p12);
+            b[i] = p012 + t * (p123 - p012);
+            b[2 + i] = p123;
+            b[4 + i] = p23;
+        }
+    }
+
+    /** Point at curve parameter u (segment index + t) of {@code s}. */
+    private static void eval(InkStroke s, double u, double[] out) {
+        int k = Math.min((int) u, s.curveSegmentCount() - 1);
+        double t = u - k, mt = 1 - t;
+        double b0 = mt * mt * mt, b1 = 3 * t * mt * mt, b2 = 3 * t * t * mt, b3 = t * t * t;
+        int base = 6 * k;
+        out[0] = b0 * s.curveCoord(base) + b1 * s.curveCoord(base + 2)
+                + b2 * s.curveCoord(base + 4) + b3 * s.curveCoord(base + 6);
+        out[1] = b0 * s.curveCoord(base + 1) + b1 * s.curveCoord(base + 3)
+                + b2 * s.curveCoord(base + 5) + b3 * s.curveCoord(base + 7);
+    }
+
+    private static int sample(InkStroke s, float u, float[] xy, float[] p, int[] tm, float[] w, int j) {
+        int i = Math.min((int) u, s.pointCount() - 2);
+        float f = u - i;
+        xy[2 * j] = s.x(i) + f * (s.x(i + 1) - s.x(i));
+        xy[2 * j + 1] = s.y(i) + f * (s.y(i + 1) - s.y(i));
+        if (p != null) p[j] = s.pressure(i) + f * (s.pressure(i + 1) - s.pressure(i));
+        if (tm != null) tm[j] = Math.round(s.timeMs(i) + f * (s.timeMs(i + 1) - s.timeMs(i)));
+        if (w != null) w[j] = s.widthScale(i) + f * (s.widthScale(i + 1) - s.widthScale(i));
+        return j + 1;
+    }
+
+    /**
+     * Parameter range t ⊂ [0,1] of segment AB inside the capsule CD of radius r. The capsule
+     * is the union of the discs at C and D and the rectangle between them; it is convex, so
+     * the union of the three ranges is a single range.
+     *
+     * @param out receives {t0, t1} when hit
+     */
+    static boolean hit(float ax, float ay, float bx, float by,
+                       float cx, float cy, float dx, float dy, float r, float[] out) {
+        float lo = Float.POSITIVE_INFINITY, hi = Float.NEGATIVE_INFINITY;
+        float vx = bx - ax, vy = by - ay;
+
+        for (int k = 0; k < 2; k++) {
+            float ox = k == 0 ? cx : dx, oy = k == 0 ? cy : dy;
+            if (k == 1 && ox == cx && oy == cy) break;
+            if (disc(ax - ox, ay - oy, vx, vy, r, out)) {
+                lo = Math.min(lo, out[0]);
+                hi = Math.max(hi, out[1]);
+            }
+        }
+
+        float ux = dx - cx, uy = dy - cy;
+        float len = (float) Math.hypot(ux, uy);
+        if (len > 0f) {
+            ux /= len;
+            uy /= len;
+            // Along-axis s(t) in [0, len] and across-axis h(t) in [-r, r], both linear in t
+            float s0 = (ax - cx) * ux + (ay - cy) * uy, sv = vx * ux + vy * uy;
+            float h0 = -(ax - cx) * uy + (ay - cy) * ux, hv = -vx * uy + vy * ux;
+            out[0] = 0f;
+            out[1] = 1f;
+            if (clip(s0, sv, 0f, len, out) && clip(h0, hv, -r, r, out)) {
+                lo = Math.min(lo, out[0]);
+                hi = Math.max(hi, out[1]);
+            }
+        }
+
+        if (lo > hi) return false;
+        out[0] = lo;
+        out[1] = hi;
+        return true;
+    }
+
+    /** |P + tV| <= r for t in [0,1], with P relative to the disc center. */
+    private static boolean disc(float px, float py, float vx, float vy, float r, float[] out) {
+        float a = vx * vx + vy * vy;
+        float c = px * px + py * py - r * r;
+        if (a == 0f) {
+            if (c > 0f) return false;
+            out[0] = 0f;
+            out[1] = 1f;
+            return true;
+        }
+        float b = 2f * (px * vx + py * vy);
+        float disc = b * b - 4f * a * c;
+        if (disc < 0f) return false;
+        float sq = (float) Math.sqrt(disc);
+        float t0 = Math.max(0f, (-b - sq) / (2f * a));
+        float t1 = Math.min(1f, (-b + sq) / (2f * a));
+        if (t0 > t1) return false;
+        out[0] = t0;
+        out[1] = t1;
+        return true;
+    }
+
+    /** Narrows out[0..1] to the t where min <= p0 + t * pv <= max. */
+    private static boolean clip(float p0, float pv, float min, float max, float[] out) {
+        if (pv == 0f) return p0 >= min && p0 <= max;
+        float t0 = (min - p0) / pv, t1 = (max - p0) / pv;
+        if (t0 > t1) {
+            float tmp = t0;
+            t0 = t1;
+            t1 = tmp;
+        }
+        out[0] = Math.max(out[0], t0);
+        out[1] = Math.min(out[1], t1);
+        return out[0] <= out[1];
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.myapplication;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Uniform-grid spatial index over the strokes of one page. Each stroke is registered in every
+ * cell its bounds (padded by {@link InkStroke#inkPadding()}) overlap; a query visits only the
+ * cells under the query rectangle and returns the matching strokes in drawing order.
+ *
+ * <p>The grid grows with the extent of the ink, up to {@link #MAX_CELLS} per axis; strokes
+ * beyond that, or at negative coordinates, share the edge cells. Each stroke carries a
+ * sequence number that defines drawing order; {@link #add(InkStroke, long)} lets a stroke
+ * take the place of another (e.g. pieces of a split stroke). Not thread-safe.
+ */
+final class StrokeIndex {
+
+    /** Cell edge in page-local units (≈ 1/8 of a 1080-wide page). */
+    static final float CELL = 128f;
+    static final int MAX_CELLS = 64;
+
+    private static final class Entry {
+        final InkStroke stroke;
+        final long seq;
+        final float left, top, right, bottom;   // padded by the stroke's ink padding
+        final int cx0, cy0, cx1, cy1;
+
+        Entry(InkStroke s, long seq) {
+            this.stroke = s;
+            this.seq = seq;
+            float pad = s.inkPadding();
+            left = s.left() - pad;
+            top = s.top() - pad;
+            right = s.right() + pad;
+            bottom = s.bottom() + pad;
+            cx0 = cell(left);
+            cy0 = cell(top);
+            cx1 = cell(right);
+            cy1 = cell(bottom);
+        }
+    }
+
+    private final IdentityHashMap<InkStroke, Entry> entries = new IdentityHashMap<>();
+    private ArrayList<Entry>[] cells = newCells(0);
+    private int cols, rows;
+    private long nextSeq;
+
+    // Query scratch, reused so queries on the draw path do not allocate
+    private final ArrayList<Entry> hits = new ArrayList<>();
+    private static final Comparator<Entry> BY_SEQ = (a, b) -> Long.compare(a.seq, b.seq);
+
+    int size() { return entries.size(); }
+
+    /** Adds a stroke on top of all others. */
+    long add(InkStroke s) {
+        long seq = nextSeq++;
+        add(s, seq);
+        return seq;
+    }
+
+    /** Adds a stroke at a given drawing position; strokes sharing a sequence number have no defined order. */
+    void add(InkStroke s, long seq) {
+        Entry e = new Entry(s, seq);
+        if (entries.put(s, e) != null) throw new IllegalArgumentException("stroke already indexed");
+        nextSeq = Math.max(nextSeq, seq + 1);
+        if (e.cx1 >= cols || e.cy1 >= rows) grow(Math.max(cols, e.cx1 + 1), Math.max(rows, e.cy1 + 1));
+        for (int cy = e.cy0; cy <= e.cy1; cy++) {
+            for (int cx = e.cx0; cx <= e.cx1; cx++) {
+                int k = cy * cols + cx;
+                ArrayList<Entry> list = cells[k];
+                if (list == null) cells[k] = list = new ArrayList<>(4);
+                list.add(e);
+            }
+        }
+    }
+
+    /** @return the stroke's sequence number, or -1 if it was not indexed */
+    long remove(InkStroke s) {
+        Entry e = entries.remove(s);
+        if (e == null) return -1;
+        for (int cy = e.cy0; cy <= e.cy1; cy++) {
+            for (int cx = e.cx0; cx <= e.cx1; cx++) {
+                ArrayList<Entry> list = cells[cy * cols + cx];
+                for (int i = list.size() - 1; i >= 0; i--) {
+                    if (list.get(i) == e) {
+                        list.remove(i);
+                        break;
+                    }
+                }
+            }
+        }
+        return e.seq;
+    }
+
+    /** Sequence number of an indexed stroke, or -1. */
+    long seqOf(InkStroke s) {
+        Entry e = entries.get(s);
+        return e != null ? e.seq : -1;
+    }
+
+    void clear() {
+        entries.clear();
+        cells = newCells(0);
+        cols = rows = 0;
+    }
+
+    /**
+     * Appends to {@code out}, in drawing order, every stroke whose padded bounds intersect the
+     * rectangle. Allocation-free apart from growing {@code out} and sorting large results.
+     *
+     * @return the number of strokes appended
+     */
+    int query(float left, float top, float right, float bottom, List<InkStroke> out) {
+        if (entries.isEmpty() || left > right || top > bottom) return 0;
+        int qx0 = cell(left), qy0 = cell(top);
+        int qx1 = Math.min(cell(right), cols - 1), qy1 = Math.min(cell(bottom), rows - 1);
+        hits.clear();
+        for (int cy = qy0; cy <= qy1; cy++) {
+            for (int cx = qx0; cx <= qx1; cx++) {
+                ArrayList<Entry> list = cells[cy * cols + cx];
+                if (list == null) continue;
+                for (int i = 0, n = list.size(); i < n; i++) {
+                    Entry e = list.get(i);
+                    // Report each stroke once: from the first visited cell it shares with the query
+                    if (cx != Math.max(e.cx0, qx0) || cy != Math.max(e.cy0, qy0)) continue;
+                    if (e.right < left || e.left > right || e.bottom < top || e.top > bottom) continue;
+                    hits.add(e);
+                }
+            }
+        }
+        int n = hits.size();
+        if (n > 1) hits.sort(BY_SEQ);
+        for (int i = 0; i < n; i++) out.add(hits.get(i).stroke);
+        hits.clear();
+        return n;
+    }
+
+    private void grow(int newCols, int newRows) {
+        ArrayList<Entry>[] old = cells;
+        int oldCols = cols;
+        cells = newCells(newCols * newRows);
+        for (int cy = 0; cy < rows; cy++) {
+            System.arraycopy(old, cy * oldCols, cells, cy * newCols, oldCols);
+        }
+        cols = newCols;
+        rows = newRows;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArrayList<Entry>[] newCells(int n) {
+        return (ArrayList<Entry>[]) new ArrayList[n];
+    }
+
+    private static int cell(float v) {
+        if (!(v > 0f)) return 0; // negative or NaN
+        return Math.min((int) (v / CELL), MAX_CELLS - 1);
+    }
+}
@@ -0,0 +1,651 @@
+package com.example.myapplication;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal of {@link InkManager} edits, so strokes that were not committed
+ * to the PDF survive an app kill. Attached as the manager's listener, it mirrors every edit
+ * (add, undo, redo, clear, clear page, erase, restyle) as one length-prefixed, CRC-checked record. Replaying
+ * the records in order rebuilds the manager, including its redo stack.
+ *
+ * <p>Listener calls only enqueue; encoding, writes and fsync run on a background I/O thread.
+ * Every record is written to the file channel right away (so a killed process loses nothing)
+ * while fsync is batched to at most one per {@code syncDelayMs}. When the file holds much
+ * more than the live state, it is compacted by rewriting the current state to a temp file
+ * and renaming it over the journal. An erase is recorded as its eraser path and replayed by
+ * erasing again, which is deterministic; compaction keeps the resulting pieces as strokes, so
+ * erases that are still undoable at that point become individually undoable pieces.
+ *
+ * <p>File layout (big endian): magic "INKJ", int version, then records of
+ * {@code int length, byte op, payload, int crc32(op + payload)}. A torn or corrupt tail is
+ * dropped on restore.
+ */
+public final class StrokeJournal implements InkManager.Listener, Closeable {
+
+    static final int MAGIC = 0x494E4B4A; // "INKJ"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+
+    static final byte OP_ADD = 1;
+    static final byte OP_UNDO = 2;
+    static final byte OP_REDO = 3;
+    static final byte OP_CLEAR = 4;
+    static final byte OP_CLEAR_PAGE = 5;
+    static final byte OP_ERASE = 6;
+    static final byte OP_RESTYLE = 7;
+
+    private static final int FLAG_PRESSURE = 1;
+    private static final int FLAG_TIME = 2;
+    private static final int FLAG_CURVES = 4;
+    private static final int FLAG_JOIN = 8;     // coalesced into the previous add's undo step
+    private static final int FLAG_WIDTH = 16;
+
+    // Records a sane journal never exceeds; larger lengths are treated as corruption
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+    // Compact once the file holds this many more records than the live state needs
+    private static final int COMPACT_SLACK = 512;
+
+    // Shared by all journals, so a journal reopened for the same file (e.g. after an activity
+    // restart) always reads after the previous instance finished writing.
+    private static final ScheduledExecutorService IO = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "ink-journal");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final File file;
+    private final long syncDelayMs;
+
+    // UI-thread state
+    private InkManager ink;
+    private boolean closed;
+    private long records;      // records in the file, as of the last enqueued operation
+
+    // I/O-thread state
+    private FileChannel ch;
+    private ByteBuffer buf = ByteBuffer.allocate(16 * 1024);
+    private final CRC32 crc = new CRC32();
+    private boolean syncScheduled;
+    private volatile IOException failure;
+    private volatile long droppedBytes;
+
+    public StrokeJournal(File file, long syncDelayMs) {
+        this.file = file;
+        this.syncDelayMs = syncDelayMs;
+    }
+
+    /** Journal file for a document, named by a hash of its identity (e.g. its Uri). */
+    public static File fileFor(File dir, String documentKey) {
+        try {
+            byte[] h = MessageDigest.getInstance("SHA-1").digest(documentKey.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(2 * h.length + 5);
+            for (byte b : h) sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return new File(dir, sb.append(".inkj").toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the journal on the I/O thread, then on {@code mainExecutor} replays it into
+     * {@code manager} (which should be empty) and starts journaling its edits.
+     *
+     * @param done receives the number of records replayed, on {@code mainExecutor}
+     */
+    public void restore(InkManager manager, Executor mainExecutor, IntConsumer done) {
+        IO.execute(() -> {
+            List<Object> ops;
+            try {
+                ops = openAndRead();
+            } catch (IOException e) {
+                // Unreadable journal: start empty rather than block drawing
+                ops = new ArrayList<>();
+                try {
+                    if (ch == null) throw e;
+                    resetFile();
+                } catch (IOException e2) {
+                    fail(e2);
+                }
+            }
+            final List<Object> replay = ops;
+            mainExecutor.execute(() -> {
+                if (closed) return;
+                apply(replay, manager);
+                records = replay.size();
+                ink = manager;
+                manager.setListener(this);
+                done.accept(replay.size());
+            });
+        });
+    }
+
+    /** Replays decoded records; each is an {@link InkStroke}, an op code, a page index or an erase. */
+    static void apply(List<Object> ops, InkManager manager) {
+        for (int i = 0; i < ops.size(); i++) {
+            Object op = ops.get(i);
+            if (op instanceof InkStroke) {
+                manager.add((InkStroke) op, false);
+            } else if (op instanceof Joined) {
+                manager.add(((Joined) op).stroke, true);
+            } else if (op instanceof Restyle) {
+                Restyle rs = (Restyle) op;
+                manager.restyleAt(rs.page, rs.indices, rs.style);
+            } else if (op instanceof ClearPage) {
+                manager.clearPage(((ClearPage) op).page);
+            } else if (op instanceof Erase) {
+                Erase e = (Erase) op;
+                manager.beginErase(e.page, e.radius);
+                for (int k = 0; k < e.path.length; k += 2) manager.eraseTo(e.path[k], e.path[k + 1], null);
+                manager.endErase();
+            } else {
+                switch ((Byte) op) {
+                    case OP_UNDO: manager.undo(); break;
+                    case OP_REDO: manager.redo(); break;
+                    case OP_CLEAR: manager.clear(); break;
+                    default: break;
+                }
+            }
+        }
+    }
+
+    public File getFile() { return file; }
+
+    /** The I/O error that stopped journaling, or null while healthy. */
+    public IOException getFailure() { return failure; }
+
+    /** Bytes of torn or corrupt tail discarded by the last restore. */
+    public long getDroppedBytes() { return droppedBytes; }
+
+    /** Forces pending records to storage; call when the app goes to the background. */
+    public void sync() {
+        IO.execute(this::syncNow);
+    }
+
+    /** Detaches from the manager, syncs and closes the file. Pending records are written first. */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        if (ink != null) {
+            ink.setListener(null);
+            ink = null;
+        }
+        IO.execute(() -> {
+            syncNow();
+            closeChannel();
+        });
+    }
+
+    /**
+     * Closes the journal and deletes its file, once the document's ink no longer needs to
+     * survive (the document was closed). Pending records are dropped.
+     */
+    public void delete() {
+        close();
+        IO.execute(() -> {
+            if (file.exists() && !file.delete()) fail(new IOException("Cannot delete " + file));
+        });
+    }
+
+    /**
+     * Deletes the journals in {@code dir} that hold no records, except {@code keep}, on the
+     * journal I/O thread so it cannot race a journal opened afterwards. Journals of documents
+     * left with unsaved ink are kept for when they are reopened.
+     */
+    public static void deleteEmpty(File dir, File keep) {
+        IO.execute(() -> {
+            File[] files = dir.listFiles((d, name) -> name.endsWith(".inkj") || name.endsWith(".inkj.tmp"));
+            if (files == null) return;
+            for (File f : files) {
+                if (!f.equals(keep) && (f.getName().endsWith(".tmp") || f.length() <= HEADER_BYTES)) {
+                    //noinspection ResultOfMethodCallIgnored
+                    f.delete();
+                }
+            }
+        });
+    }
+
+    /** Waits for everything enqueued so far, including {@link #close()}; for tests. */
+    boolean awaitClosed(long timeoutMs) throws InterruptedException {
+        try {
+            IO.submit(() -> { }).get(timeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    // ---- InkManager.Listener (UI thread) ----
+
+    @Override
+    public void onAdded(InkStroke s, boolean coalesced) {
+        Object arg = coalesced ? new Joined(s) : s;
+        IO.execute(() -> append(OP_ADD, arg));
+        recorded();
+    }
+
+    @Override
+    public void onUndo() {
+        IO.execute(() -> append(OP_UNDO, null));
+        recorded();
+    }
+
+    @Override
+    public void onRedo() {
+        IO.execute(() -> append(OP_REDO, null));
+        recorded();
+    }
+
+    @Override
+    public void onCleared() {
+        // Nothing live remains, so the whole journal can go
+        IO.execute(() -> {
+            try {
+                resetFile();
+            } catch (IOException e) {
+                fail(e);
+            }
+        });
+        records = 0;
+    }
+
+    @Override
+    public void onPageCleared(int pageIndex) {
+        IO.execute(() -> append(OP_CLEAR_PAGE, pageIndex));
+        recorded();
+    }
+
+    @Override
+    public void onErased(int pageIndex, float radius, float[] path) {
+        Erase e = new Erase(pageIndex, radius, path);
+        IO.execute(() -> append(OP_ERASE, e));
+        recorded();
+    }
+
+    @Override
+    public void onRestyled(int pageIndex, int[] indices, InkStyle style) {
+        Restyle rs = new Restyle(pageIndex, indices, style);
+        IO.execute(() -> append(OP_RESTYLE, rs));
+        recorded();
+    }
+
+    private void recorded() {
+        records++;
+        long live = (long) ink.strokeCount() + 2L * ink.redoCount();
+        if (records > 2 * live + COMPACT_SLACK) compact();
+    }
+
+    /** Snapshots the manager (cheap, references only) and rewrites the journal from it. */
+    private void compact() {
+        final List<InkStroke> live = ink.getAll();
+        final List<InkManager.Edit> redo = ink.getRedoEdits();
+        records = live.size() + 2L * redo.size();
+        IO.execute(() -> {
+            try {
+                rewrite(live, redo);
+            } catch (IOException e) {
+                fail(e);
+            }
+        });
+    }
+
+    // ---- I/O thread ----
+
+    private List<Object> openAndRead() throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        ch = new RandomAccessFile(file, "rw").getChannel();
+        long size = ch.size();
+        List<Object> ops = new ArrayList<>();
+        if (size < HEADER_BYTES) {
+            resetFile();
+            return ops;
+        }
+        if (size > Integer.MAX_VALUE) throw new IOException("Journal too large: " + size);
+        ByteBuffer in = ByteBuffer.allocate((int) size);
+        while (in.hasRemaining() && ch.read(in, in.position()) >= 0) { /* read fully */ }
+        in.flip();
+        if (in.getInt() != MAGIC || in.getInt() != VERSION) throw new IOException("Not a journal: " + file);
+
+        long good = HEADER_BYTES;
+        while (in.remaining() >= 4) {
+            int len = in.getInt();
+            if (len < 1 || len > MAX_RECORD_BYTES || in.remaining() < len + 4) break;
+            crc.reset();
+            crc.update(in.array(), in.position(), len);
+            int end = in.position() + len;
+            if ((int) crc.getValue() != in.getInt(end)) break;
+            Object op = decode(in, len);
+            if (op == null || in.position() != end) break;
+            ops.add(op);
+            in.position(end + 4);
+            good = in.position();
+        }
+        if (good < size) {
+            droppedBytes = size - good;
+            ch.truncate(good);
+            ch.force(false);
+        }
+        ch.position(good);
+        return ops;
+    }
+
+    /** Decodes one record at the buffer position; null when malformed. */
+    private static Object decode(ByteBuffer in, int len) {
+        byte op = in.get();
+        switch (op) {
+            case OP_UNDO:
+            case OP_REDO:
+            case OP_CLEAR:
+                return op;
+            case OP_CLEAR_PAGE:
+                return len == 5 ? new ClearPage(in.getInt()) : null;
+            case OP_ADD:
+                return readStroke(in, len - 1);
+            case OP_ERASE:
+                return readErase(in, len - 1);
+            case OP_RESTYLE:
+                return readRestyle(in, len - 1);
+            default:
+                return null;
+        }
+    }
+
+    /** @return an {@link InkStroke}, or a {@link Joined} one */
+    private static Object readStroke(ByteBuffer in, int len) {
+        if (len < 20) return null;
+        int page = in.getInt();
+        InkStyle style = InkStyle.of(in.getInt(), in.getFloat(), in.get());
+        int flags = in.get();
+        int n = in.getInt();
+        int curveLen = (flags & FLAG_CURVES) != 0 ? in.getInt() : 0;
+        long expected = 4 + 4 + 4 + 1 + 1 + 4 + ((flags & FLAG_CURVES) != 0 ? 4 : 0)
+                + 8L * n
+                + ((flags & FLAG_PRESSURE) != 0 ? 4L * n : 0)
+                + ((flags & FLAG_TIME) != 0 ? 4L * n : 0)
+                + ((flags & FLAG_WIDTH) != 0 ? 4L * n : 0)
+                + 4L * curveLen;
+        if (page < 0 || n < 1 || curveLen < 0 || expected != len) return null;
+
+        float[] xy = new float[2 * n];
+        in.asFloatBuffer().get(xy);
+        in.position(in.position() + 8 * n);
+        float[] pressure = null;
+        if ((flags & FLAG_PRESSURE) != 0) {
+            pressure = new float[n];
+            in.asFloatBuffer().get(pressure);
+            in.position(in.position() + 4 * n);
+        }
+        int[] time = null;
+        if ((flags & FLAG_TIME) != 0) {
+            time = new int[n];
+            in.asIntBuffer().get(time);
+            in.position(in.position() + 4 * n);
+        }
+        float[] widths = null;
+        if ((flags & FLAG_WIDTH) != 0) {
+            widths = new float[n];
+            in.asFloatBuffer().get(widths);
+            in.position(in.position() + 4 * n);
+        }
+        float[] curves = null;
+        if (curveLen > 0) {
+            curves = new float[curveLen];
+            in.asFloatBuffer().get(curves);
+            in.position(in.position() + 4 * curveLen);
+        }
+        try {
+            InkStroke s = new InkStroke(xy, pressure, time, widths, curves, style, page);
+            return (flags & FLAG_JOIN) != 0 ? new Joined(s) : s;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Restyle readRestyle(ByteBuffer in, int len) {
+        if (len < 17) return null;
+        int page = in.getInt();
+        InkStyle style = InkStyle.of(in.getInt(), in.getFloat(), in.get());
+        int n = in.getInt();
+        if (page < 0 || n < 0 || 17 + 4L * n != len) return null;
+        int[] indices = new int[n];
+        in.asIntBuffer().get(indices);
+        in.position(in.position() + 4 * n);
+        return new Restyle(page, indices, style);
+    }
+
+    private static Erase readErase(ByteBuffer in, int len) {
+        if (len < 12) return null;
+        int page = in.getInt();
+        float radius = in.getFloat();
+        int n = in.getInt();
+        if (page < 0 || !(radius >= 0f) || n < 0 || 12 + 4L * n != len || (n & 1) != 0) return null;
+        float[] path = new float[n];
+        in.asFloatBuffer().get(path);
+        in.position(in.position() + 4 * n);
+        return new Erase(page, radius, path);
+    }
+
+    /** @param arg what the op carries, if any: stroke or {@link Joined}, page index (Integer), {@link Erase} or {@link Restyle} */
+    private void append(byte op, Object arg) {
+        if (ch == null || failure != null) return;
+        try {
+            buf.clear();
+            encode(op, arg);
+            buf.flip();
+            while (buf.hasRemaining()) ch.write(buf);
+            scheduleSync();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /** Encodes one complete record (length, op + payload, crc) into {@link #buf}. */
+    private void encode(byte op, Object arg) {
+        int payload = 1;
+        if (op == OP_ADD) payload += strokeBytes(strokeOf(arg));
+        else if (op == OP_CLEAR_PAGE) payload += 4;
+        else if (op == OP_ERASE) payload += 12 + 4 * ((Erase) arg).path.length;
+        else if (op == OP_RESTYLE) payload += 17 + 4 * ((Restyle) arg).indices.length;
+        if (buf.remaining() < payload + 8) {
+            buf = ByteBuffer.allocate(Math.max(payload + 8, buf.capacity() * 2));
+        }
+        int start = buf.position();
+        buf.putInt(payload);
+        buf.put(op);
+        if (op == OP_ADD) {
+            writeStroke(strokeOf(arg), arg instanceof Joined);
+        } else if (op == OP_CLEAR_PAGE) {
+            buf.putInt((Integer) arg);
+        } else if (op == OP_ERASE) {
+            Erase e = (Erase) arg;
+            buf.putInt(e.page).putFloat(e.radius).putInt(e.path.length);
+            for (float v : e.path) buf.putFloat(v);
+        } else if (op == OP_RESTYLE) {
+            Restyle rs = (Restyle) arg;
+            buf.putInt(rs.page).putInt(rs.style.color).putFloat(rs.style.width).put((byte) rs.style.cap);
+            buf.putInt(rs.indices.length);
+            for (int i : rs.indices) buf.putInt(i);
+        }
+        crc.reset();
+        crc.update(buf.array(), start + 4, payload);
+        buf.putInt((int) crc.getValue());
+    }
+
+    private static InkStroke strokeOf(Object arg) {
+        return arg instanceof Joined ? ((Joined) arg).stroke : (InkStroke) arg;
+    }
+
+    private static int strokeBytes(InkStroke s) {
+        int n = s.pointCount();
+        return 4 + 4 + 4 + 1 + 1 + 4 + (s.hasCurves() ? 4 + 4 * curveLength(s) : 0)
+                + 8 * n + (s.hasPressure() ? 4 * n : 0) + (s.hasTime() ? 4 * n : 0)
+                + (s.hasVariableWidth() ? 4 * n : 0);
+    }
+
+    private static int curveLength(InkStroke s) {
+        return 2 + 6 * s.curveSegmentCount();
+    }
+
+    private void writeStroke(InkStroke s, boolean join) {
+        int n = s.pointCount();
+        buf.putInt(s.pageIndex);
+        buf.putInt(s.style.color);
+        buf.putFloat(s.style.width);
+        buf.put((byte) s.style.cap);
+        buf.put((byte) ((s.hasPressure() ? FLAG_PRESSURE : 0)
+                | (s.hasTime() ? FLAG_TIME : 0)
+                | (s.hasCurves() ? FLAG_CURVES : 0)
+                | (join ? FLAG_JOIN : 0)
+                | (s.hasVariableWidth() ? FLAG_WIDTH : 0)));
+        buf.putInt(n);
+        if (s.hasCurves()) buf.putInt(curveLength(s));
+        for (int i = 0; i < n; i++) buf.putFloat(s.x(i)).putFloat(s.y(i));
+        if (s.hasPressure()) for (int i = 0; i < n; i++) buf.putFloat(s.pressure(i));
+        if (s.hasTime()) for (int i = 0; i < n; i++) buf.putInt(s.timeMs(i));
+        if (s.hasVariableWidth()) for (int i = 0; i < n; i++) buf.putFloat(s.widthScale(i));
+        if (s.hasCurves()) for (int i = 0, c = curveLength(s); i < c; i++) buf.putFloat(s.curveCoord(i));
+    }
+
+    /** Writes the state as adds (live, then redo stack newest first) plus undos, then swaps files. */
+    private void rewrite(List<InkStroke> live, List<InkManager.Edit> redo) throws IOException {
+        if (ch == null || failure != null) return;
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileChannel out = new RandomAccessFile(tmp, "rw").getChannel()) {
+            out.truncate(0);
+            writeHeader(out);
+            for (InkStroke s : live) writeRecord(out, OP_ADD, s);
+            for (int i = redo.size() - 1; i >= 0; i--) writeEdit(out, redo.get(i));
+            for (int i = 0; i < redo.size(); i++) writeRecord(out, OP_UNDO, null);
+            out.force(false);
+        }
+        closeChannel();
+        if (!tmp.renameTo(file)) throw new IOException("Cannot replace " + file);
+        ch = new RandomAccessFile(file, "rw").getChannel();
+        ch.position(ch.size());
+    }
+
+    /** Writes the records that replay one history edit. */
+    private void writeEdit(FileChannel out, InkManager.Edit e) throws IOException {
+        if (e instanceof InkManager.AddEdit) {
+            List<InkStroke> run = ((InkManager.AddEdit) e).strokes;
+            writeRecord(out, OP_ADD, run.get(0));
+            for (int k = 1; k < run.size(); k++) writeRecord(out, OP_ADD, new Joined(run.get(k)));
+        } else if (e instanceof InkManager.EraseEdit) {
+            InkManager.EraseEdit erase = (InkManager.EraseEdit) e;
+            writeRecord(out, OP_ERASE, new Erase(erase.page, erase.radius, erase.path));
+        } else if (e instanceof InkManager.RestyleEdit) {
+            InkManager.RestyleEdit rs = (InkManager.RestyleEdit) e;
+            writeRecord(out, OP_RESTYLE, new Restyle(rs.page, rs.indices, rs.style));
+        } else if (e instanceof InkManager.ClearPageEdit) {
+            writeRecord(out, OP_CLEAR_PAGE, ((InkManager.ClearPageEdit) e).page);
+        }
+    }
+
+    private void writeRecord(FileChannel out, byte op, Object arg) throws IOException {
+        buf.clear();
+        encode(op, arg);
+        buf.flip();
+        while (buf.hasRemaining()) out.write(buf);
+    }
+
+    private void resetFile() throws IOException {
+        if (ch == null) return;
+        ch.truncate(0);
+        writeHeader(ch);
+        ch.force(false);
+        failure = null;
+    }
+
+    private static void writeHeader(FileChannel out) throws IOException {
+        ByteBuffer h = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.BIG_ENDIAN);
+        h.putInt(MAGIC).putInt(VERSION).flip();
+        out.position(0);
+        while (h.hasRemaining()) out.write(h);
+    }
+
+    private void scheduleSync() {
+        if (syncScheduled) return;
+        syncScheduled = true;
+        IO.schedule(this::syncNow, syncDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void syncNow() {
+        syncScheduled = false;
+        if (ch == null || failure != null) return;
+        try {
+            ch.force(false);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void closeChannel() {
+        if (ch == null) return;
+        try {
+            ch.close();
+        } catch (IOException ignored) {
+        }
+        ch = null;
+    }
+
+    /** Stops journaling after an I/O error; drawing continues, only crash safety is lost. */
+    private void fail(IOException e) {
+        failure = e;
+    }
+
+    private static final class ClearPage {
+        final int page;
+
+        ClearPage(int page) { this.page = page; }
+    }
+
+    private static final class Joined {
+        final InkStroke stroke;
+
+        Joined(InkStroke stroke) { this.stroke = stroke; }
+    }
+
+    private static final class Restyle {
+        final int page;
+        final int[] indices;
+        final InkStyle style;
+
+        Restyle(int page, int[] indices, InkStyle style) {
+            this.page = page;
+            this.indices = indices;
+            this.style = style;
+        }
+    }
+
+    private static final class Erase {
+        final int page;
+        final float radius;
+        final float[] path;
+
+        Erase(int page, float radius, float[] path) {
+            this.page = page;
+            this.radius = radius;
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.myapplication;
+
+/**
+ * Tessellates a variable-width stroke into one closed polygon: the left edge forward, the end
+ * cap, the right edge backward, then the start cap. Every outline winds the same way relative
+ * to its stroke, so it fills correctly with the non-zero rule (Android's default fill type and
+ * PDF's {@code f}), including where a sharp turn folds the outline over itself.
+ */
+final class StrokeOutline {
+
+    /** Vertices per round cap, endpoints excluded. */
+    static final int CAP_SEGMENTS = 8;
+    /** Vertices of the disc drawn for a stroke without length. */
+    static final int DOT_SEGMENTS = 16;
+    /** Offsets at sharp turns are limited to this multiple of the half width. */
+    static final float MITER_LIMIT = 2f;
+
+    private StrokeOutline() {}
+
+    static float[] tessellate(InkStroke s) {
+        int n = s.pointCount();
+        if (n == 0) return new float[0];
+
+        // Unit direction of each segment; zero-length segments take the previous direction
+        float[] dir = new float[2 * Math.max(0, n - 1)];
+        boolean any = false;
+        float px = 0f, py = 0f;
+        for (int i = 0; i < n - 1; i++) {
+            float dx = s.x(i + 1) - s.x(i), dy = s.y(i + 1) - s.y(i);
+            float len = (float) Math.hypot(dx, dy);
+            if (len > 0f) {
+                px = dx / len;
+                py = dy / len;
+                if (!any) {
+                    for (int k = 0; k < i; k++) { dir[2 * k] = px; dir[2 * k + 1] = py; }
+                    any = true;
+                }
+            }
+            dir[2 * i] = px;
+            dir[2 * i + 1] = py;
+        }
+        if (!any) return dot(s.x(0), s.y(0), s.width(0) / 2f);
+
+        int cap = s.style.cap == InkStyle.CAP_ROUND ? CAP_SEGMENTS : s.style.cap == InkStyle.CAP_SQUARE ? 2 : 0;
+        float[] out = new float[4 * n + 4 * cap];
+        int left = 0, right = out.length - 2 * cap; // right edge is written backwards from here
+        for (int i = 0; i < n; i++) {
+            float ix = dir[2 * Math.max(0, i - 1)], iy = dir[2 * Math.max(0, i - 1) + 1];
+            float ox = dir[2 * Math.min(n - 2, i)], oy = dir[2 * Math.min(n - 2, i) + 1];
+            // Normal of the bisector, lengthened so both edges keep their width (miter)
+            float tx = ix + ox, ty = iy + oy;
+            float tl = (float) Math.hypot(tx, ty);
+            if (tl < 1e-4f) {
+                tx = ox;
+                ty = oy;
+                tl = 1f;
+            }
+            float nx = -ty / tl, ny = tx / tl;
+            float cos = nx * -oy + ny * ox;
+            float off = s.width(i) / 2f / Math.max(cos, 1f / MITER_LIMIT);
+            out[left++] = s.x(i) + nx * off;
+            out[left++] = s.y(i) + ny * off;
+            right -= 2;
+            out[right] = s.x(i) - nx * off;
+            out[right + 1] = s.y(i) - ny * off;
+        }
+        int last = 2 * (n - 2);
+        cap(s, n - 1, dir[last], dir[last + 1], out, 2 * n, cap);
+        cap(s, 0, -dir[0], -dir[1], out, 4 * n + 2 * cap, cap);
+        return out;
+    }
+
+    /**
+     * Writes {@code count} cap vertices at point i, going from the left edge around the
+     * direction (tx, ty) to the right edge.
+     */
+    private static void cap(InkStroke s, int i, float tx, float ty, float[] out, int at, int count) {
+        if (count == 0) return;
+        float hw = s.width(i) / 2f, cx = s.x(i), cy = s.y(i);
+        float nx = -ty, ny = tx;
+        if (count == 2) { // square: the edge points pushed out by half the width
+            out[at] = cx + (nx + tx) * hw;
+            out[at + 1] = cy + (ny + ty) * hw;
+            out[at + 2] = cx + (-nx + tx) * hw;
+            out[at + 3] = cy + (-ny + ty) * hw;
+            return;
+        }
+        for (int k = 1; k <= count; k++) {
+            double a = Math.PI * k / (count + 1);
+            float c = (float) Math.cos(a), sn = (float) Math.sin(a);
+            out[at++] = cx + (nx * c + tx * sn) * hw;
+            out[at++] = cy + (ny * c + ty * sn) * hw;
+        }
+    }
+
+    private static float[] dot(float cx, float cy, float r) {
+        float[] out = new float[2 * DOT_SEGMENTS];
+        for (int k = 0; k < DOT_SEGMENTS; k++) {
+            double a = 2 * Math.PI * k / DOT_SEGMENTS;
+            out[2 * k] = cx + r * (float) Math.cos(a);
+            out[2 * k + 1] = cy + r * (float) Math.sin(a);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,340 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Post-processing applied to a stroke when it is committed:
+ * Ramer–Douglas–Peucker reduction of the polyline, then (optionally) a least-squares fit of
+ * cubic Béziers to the raw samples (Schneider, "An Algorithm for Automatically Fitting
+ * Digitized Curves", Graphics Gems 1990). Both stages are bounded by the same tolerance,
+ * in page-local units.
+ */
+public final class StrokeSimplifier {
+
+    private static final int MAX_REPARAMETERIZE = 4;
+
+    private final float tolerance;
+    private final boolean fitCurves;
+    private final Stats stats = new Stats();
+
+    /** Point-count reduction across all strokes processed by one simplifier. */
+    public static final class Stats {
+        public long strokes;
+        public long inputPoints;
+        public long outputPoints;
+        public long curveSegments;
+
+        /** Fraction of input points removed (0..1). */
+        public double reduction() {
+            return inputPoints == 0 ? 0 : 1.0 - (double) outputPoints / inputPoints;
+        }
+
+        public String summary() {
+            return String.format(Locale.US, "strokes=%d points %d -> %d (-%.1f%%) curves=%d",
+                    strokes, inputPoints, outputPoints, reduction() * 100, curveSegments);
+        }
+
+        public void reset() {
+            strokes = inputPoints = outputPoints = curveSegments = 0;
+        }
+    }
+
+    /**
+     * @param tolerance maximum distance, in page-local units, between a raw sample and the
+     *                  simplified polyline / fitted curve; 0 disables simplification
+     * @param fitCurves also fit cubic Béziers for rendering and flattening
+     */
+    public StrokeSimplifier(float tolerance, boolean fitCurves) {
+        this.tolerance = tolerance;
+        this.fitCurves = fitCurves;
+    }
+
+    public float tolerance() { return tolerance; }
+    public Stats stats() { return stats; }
+
+    public InkStroke process(InkStroke s) {
+        int n = s.pointCount();
+        stats.strokes++;
+        stats.inputPoints += n;
+        if (tolerance <= 0f || n < 3) {
+            stats.outputPoints += n;
+            return s;
+        }
+
+        float[] xy = s.copyPoints();
+        boolean[] keep = douglasPeucker(xy, n, tolerance * tolerance);
+        int kept = 0;
+        for (boolean k : keep) if (k) kept++;
+
+        float[] outXy = new float[2 * kept];
+        float[] outP = s.hasPressure() ? new float[kept] : null;
+        int[] outT = s.hasTime() ? new int[kept] : null;
+        float[] outW = s.hasVariableWidth() ? new float[kept] : null;
+        for (int i = 0, j = 0; i < n; i++) {
+            if (!keep[i]) continue;
+            outXy[2 * j] = xy[2 * i];
+            outXy[2 * j + 1] = xy[2 * i + 1];
+            if (outP != null) outP[j] = s.pressure(i);
+            if (outT != null) outT[j] = s.timeMs(i);
+            if (outW != null) outW[j] = s.widthScale(i);
+            j++;
+        }
+
+        // Variable-width strokes are filled as a tessellated outline of the points; curves would go unused
+        float[] curves = fitCurves && kept > 2 && outW == null ? fitCurves(xy, n, tolerance) : null;
+
+        stats.outputPoints += kept;
+        if (curves != null) stats.curveSegments += (curves.length - 2) / 6;
+        return new InkStroke(outXy, outP, outT, outW, curves, s.style, s.pageIndex);
+    }
+
+    // ---- Ramer–Douglas–Peucker ----
+
+    /** Iterative RDP (explicit stack, so very long strokes cannot overflow the call stack). */
+    static boolean[] douglasPeucker(float[] xy, int n, float tolSq) {
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        int[] stack = new int[64];
+        int sp = 0;
+        stack[sp++] = 0;
+        stack[sp++] = n - 1;
+        while (sp > 0) {
+            int last = stack[--sp];
+            int first = stack[--sp];
+            float maxD = -1f;
+            int idx = -1;
+            for (int i = first + 1; i < last; i++) {
+                float d = segmentDistSq(xy[2 * i], xy[2 * i + 1],
+                        xy[2 * first], xy[2 * first + 1], xy[2 * last], xy[2 * last + 1]);
+                if (d > maxD) { maxD = d; idx = i; }
+            }
+            if (idx >= 0 && maxD > tolSq) {
+                keep[idx] = true;
+                if (sp + 4 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+                stack[sp++] = first;
+                stack[sp++] = idx;
+                stack[sp++] = idx;
+                stack[sp++] = last;
+            }
+        }
+        return keep;
+    }
+
+    static float segmentDistSq(float px, float py, float ax, float ay, float bx, float by) {
+        float dx = bx - ax, dy = by - ay;
+        float len = dx * dx + dy * dy;
+        float t = len == 0f ? 0f : ((px - ax) * dx + (py - ay) * dy) / len;
+        if (t < 0f) t = 0f; else if (t > 1f) t = 1f;
+        float ex = ax + t * dx - px, ey = ay + t * dy - py;
+        return ex * ex + ey * ey;
+    }
+
+    // ---- Cubic Bézier fitting ----
+
+    /** Fits cubics to the raw samples; returns null if there is nothing to fit. */
+    static float[] fitCurves(float[] xy, int n, float tolerance) {
+        double[] p = dedupe(xy, n);
+        int m = p.length / 2;
+        if (m < 2) return null;
+
+        CurveSink out = new CurveSink(m);
+        out.add(p[0], p[1]);
+        double[] t1 = tangent(p, 0, 1);
+        double[] t2 = tangent(p, m - 1, m - 2);
+        fitCubic(p, 0, m - 1, t1, t2, (double) tolerance * tolerance, out);
+        return out.toArray();
+    }
+
+    private static void fitCubic(double[] p, int first, int last, double[] t1, double[] t2,
+                                 double errSq, CurveSink out) {
+        int nPts = last - first + 1;
+        if (nPts == 2) {
+            double dist = Math.hypot(p[2 * last] - p[2 * first], p[2 * last + 1] - p[2 * first + 1]) / 3.0;
+            out.add(p[2 * first] + t1[0] * dist, p[2 * first + 1] + t1[1] * dist,
+                    p[2 * last] + t2[0] * dist, p[2 * last + 1] + t2[1] * dist,
+                    p[2 * last], p[2 * last + 1]);
+            return;
+        }
+
+        double[] u = chordLengthParameterize(p, first, last);
+        double[] bez = generateBezier(p, first, last, u, t1, t2);
+        int[] split = new int[1];
+        double maxErr = maxError(p, first, last, bez, u, split);
+        if (maxErr < errSq) {
+            out.segment(bez);
+            return;
+        }
+
+        // Close enough that Newton reparameterization is worth a few tries
+        if (maxErr < errSq * 4) {
+            for (int i = 0; i < MAX_REPARAMETERIZE; i++) {
+                u = reparameterize(p, first, last, u, bez);
+                bez = generateBezier(p, first, last, u, t1, t2);
+                maxErr = maxError(p, first, last, bez, u, split);
+                if (maxErr < errSq) {
+                    out.segment(bez);
+                    return;
+                }
+            }
+        }
+
+        int s = split[0];
+        double[] tc = centerTangent(p, s);
+        fitCubic(p, first, s, t1, tc, errSq, out);
+        tc[0] = -tc[0];
+        tc[1] = -tc[1];
+        fitCubic(p, s, last, tc, t2, errSq, out);
+    }
+
+    /** Control points [x0,y0,x1,y1,x2,y2,x3,y3] by least squares with fixed end tangents. */
+    private static double[] generateBezier(double[] p, int first, int last, double[] u,
+                                           double[] t1, double[] t2) {
+        double x0 = p[2 * first], y0 = p[2 * first + 1];
+        double x3 = p[2 * last], y3 = p[2 * last + 1];
+        double c00 = 0, c01 = 0, c11 = 0, xr0 = 0, xr1 = 0;
+        for (int i = 0; i < u.length; i++) {
+            double t = u[i], mt = 1 - t;
+            double b0 = mt * mt * mt, b1 = 3 * t * mt * mt, b2 = 3 * t * t * mt, b3 = t * t * t;
+            double a0x = t1[0] * b1, a0y = t1[1] * b1;
+            double a1x = t2[0] * b2, a1y = t2[1] * b2;
+            c00 += a0x * a0x + a0y * a0y;
+            c01 += a0x * a1x + a0y * a1y;
+            c11 += a1x * a1x + a1y * a1y;
+            double tx = p[2 * (first + i)] - (x0 * (b0 + b1) + x3 * (b2 + b3));
+            double ty = p[2 * (first + i) + 1] - (y0 * (b0 + b1) + y3 * (b2 + b3));
+            xr0 += a0x * tx + a0y * ty;
+            xr1 += a1x * tx + a1y * ty;
+        }
+        double det = c00 * c11 - c01 * c01;
+        double alphaL = det == 0 ? 0 : (xr0 * c11 - xr1 * c01) / det;
+        double alphaR = det == 0 ? 0 : (c00 * xr1 - c01 * xr0) / det;
+
+        double segLen = Math.hypot(x3 - x0, y3 - y0);
+        double eps = 1e-6 * segLen;
+        if (alphaL < eps || alphaR < eps) {
+            // Degenerate system: fall back to the Wu/Barsky heuristic
+            alphaL = alphaR = segLen / 3.0;
+        }
+        return new double[]{
+                x0, y0,
+                x0 + t1[0] * alphaL, y0 + t1[1] * alphaL,
+                x3 + t2[0] * alphaR, y3 + t2[1] * alphaR,
+                x3, y3};
+    }
+
+    private static double maxError(double[] p, int first, int last, double[] bez, double[] u, int[] split) {
+        double max = 0;
+        split[0] = (first + last) / 2;
+        double[] q = new double[2];
+        for (int i = first + 1; i < last; i++) {
+            eval(bez, u[i - first], q);
+            double dx = q[0] - p[2 * i], dy = q[1] - p[2 * i + 1];
+            double d = dx * dx + dy * dy;
+            if (d >= max) {
+                max = d;
+                split[0] = i;
+            }
+        }
+        return max;
+    }
+
+    private static double[] reparameterize(double[] p, int first, int last, double[] u, double[] bez) {
+        double[] out = new double[u.length];
+        double[] q = new double[2], q1 = new double[2], q2 = new double[2];
+        for (int i = 0; i < u.length; i++) {
+            double t = u[i];
+            eval(bez, t, q);
+            derivative1(bez, t, q1);
+            derivative2(bez, t, q2);
+            double dx = q[0] - p[2 * (first + i)], dy = q[1] - p[2 * (first + i) + 1];
+            double num = dx * q1[0] + dy * q1[1];
+            double den = q1[0] * q1[0] + q1[1] * q1[1] + dx * q2[0] + dy * q2[1];
+            double nt = den == 0 ? t : t - num / den;
+            out[i] = nt < 0 ? 0 : nt > 1 ? 1 : nt;
+        }
+        return out;
+    }
+
+    private static double[] chordLengthParameterize(double[] p, int first, int last) {
+        double[] u = new double[last - first + 1];
+        for (int i = first + 1; i <= last; i++) {
+            u[i - first] = u[i - first - 1]
+                    + Math.hypot(p[2 * i] - p[2 * i - 2], p[2 * i + 1] - p[2 * i - 1]);
+        }
+        double total = u[u.length - 1];
+        for (int i = 1; i < u.length; i++) u[i] /= total;
+        return u;
+    }
+
+    static void eval(double[] b, double t, double[] out) {
+        double mt = 1 - t;
+        double b0 = mt * mt * mt, b1 = 3 * t * mt * mt, b2 = 3 * t * t * mt, b3 = t * t * t;
+        out[0] = b[0] * b0 + b[2] * b1 + b[4] * b2 + b[6] * b3;
+        out[1] = b[1] * b0 + b[3] * b1 + b[5] * b2 + b[7] * b3;
+    }
+
+    private static void derivative1(double[] b, double t, double[] out) {
+        double mt = 1 - t;
+        for (int k = 0; k < 2; k++) {
+            out[k] = 3 * mt * mt * (b[2 + k] - b[k])
+                    + 6 * mt * t * (b[4 + k] - b[2 + k])
+                    + 3 * t * t * (b[6 + k] - b[4 + k]);
+        }
+    }
+
+    private static void derivative2(double[] b, double t, double[] out) {
+        double mt = 1 - t;
+        for (int k = 0; k < 2; k++) {
+            out[k] = 6 * mt * (b[4 + k] - 2 * b[2 + k] + b[k])
+                    + 6 * t * (b[6 + k] - 2 * b[4 + k] + b[2 + k]);
+        }
+    }
+
+    private static double[] tangent(double[] p, int from, int to) {
+        double dx = p[2 * to] - p[2 * from], dy = p[2 * to + 1] - p[2 * from + 1];
+        double len = Math.hypot(dx, dy);
+        return len == 0 ? new double[]{1, 0} : new double[]{dx / len, dy / len};
+    }
+
+    private static double[] centerTangent(double[] p, int i) {
+        double dx = p[2 * (i - 1)] - p[2 * (i + 1)], dy = p[2 * (i - 1) + 1] - p[2 * (i + 1) + 1];
+        double len = Math.hypot(dx, dy);
+        if (len == 0) return tangent(p, i, i - 1);
+        return new double[]{dx / len, dy / len};
+    }
+
+    /** Drops consecutive coincident samples, which have no tangent and break the fit. */
+    private static double[] dedupe(float[] xy, int n) {
+        double[] out = new double[2 * n];
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            double x = xy[2 * i], y = xy[2 * i + 1];
+            if (m > 0 && out[2 * m - 2] == x && out[2 * m - 1] == y) continue;
+            out[2 * m] = x;
+            out[2 * m + 1] = y;
+            m++;
+        }
+        return Arrays.copyOf(out, 2 * m);
+    }
+
+    private static final class CurveSink {
+        private float[] buf;
+        private int size;
+
+        CurveSink(int points) { buf = new float[Math.max(8, points)]; }
+
+        void add(double... v) {
+            if (size + v.length > buf.length) buf = Arrays.copyOf(buf, Math.max(size + v.length, buf.length * 2));
+            for (double d : v) buf[size++] = (float) d;
+        }
+
+        /** Appends a full segment, skipping its start point (already emitted). */
+        void segment(double[] bez) {
+            add(bez[2], bez[3], bez[4], bez[5], bez[6], bez[7]);
+        }
+
+        float[] toArray() { return Arrays.copyOf(buf, size); }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.myapplication;
+
+/**
+ * Maps pen samples to a width per sample, as a fraction of the style's width: harder pressure
+ * draws wider, faster movement draws thinner, like a nib. The result is smoothed so that
+ * sample jitter does not show as ragged edges. Causal (each width depends only on the samples
+ * so far), so the live stroke and the committed one get identical widths.
+ *
+ * <p>Stateful per gesture; call {@link #reset} at each pen down. Not thread-safe.
+ */
+public final class StrokeWidthModel {
+
+    /** Narrowest width, as a fraction of the style's width. */
+    private final float minScale;
+    /** Fraction of the width lost at {@link #fastSpeed} and above. */
+    private final float speedThinning;
+    /** Speed, in page-local units per ms, at which thinning is at its maximum. */
+    private final float fastSpeed;
+    /** Weight of each new sample in the exponential smoothing (0..1]. */
+    private final float smoothing;
+
+    private boolean started;
+    private float lastX, lastY, speed, scale;
+    private long lastTime;
+
+    public StrokeWidthModel() {
+        this(0.2f, 0.4f, 3f, 0.3f);
+    }
+
+    public StrokeWidthModel(float minScale, float speedThinning, float fastSpeed, float smoothing) {
+        this.minScale = minScale;
+        this.speedThinning = speedThinning;
+        this.fastSpeed = fastSpeed;
+        this.smoothing = smoothing;
+    }
+
+    public void reset() { started = false; }
+
+    /**
+     * @param pressure 0..1; pass 1 for input without meaningful pressure (e.g. a finger)
+     * @return the width of this sample as a fraction of the style's width, in (0, 1]
+     */
+    public float next(float x, float y, float pressure, long timeMs) {
+        if (!started) {
+            started = true;
+            speed = 0f;
+            scale = target(pressure);
+        } else {
+            long dt = timeMs - lastTime;
+            if (dt > 0) {
+                float v = (float) Math.hypot(x - lastX, y - lastY) / dt;
+                speed += smoothing * (v - speed);
+            }
+            scale += smoothing * (target(pressure) - scale);
+        }
+        lastX = x;
+        lastY = y;
+        lastTime = timeMs;
+        return scale;
+    }
+
+    private float target(float pressure) {
+        float p = Math.max(0f, Math.min(1f, pressure));
+        float thin = speedThinning * Math.min(1f, speed / fastSpeed);
+        return Math.max(minScale, Math.min(1f, (minScale + (1f - minScale) * p) * (1f - thin)));
+    }
+}
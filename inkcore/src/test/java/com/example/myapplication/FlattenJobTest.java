@@ -0,0 +1,39 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.*;
+
+public class FlattenJobTest {
+
+    @Test
+    public void cancelBeforeTheOutputIsFinalWins() {
+        FlattenJob job = new FlattenJob(null);
+        job.cancel();
+        assertThrows(CancellationException.class, job::throwIfCancelled);
+        assertFalse(job.complete());
+        assertFalse(job.isComplete());
+        assertTrue(job.isCancelled());
+    }
+
+    @Test
+    public void finalOutputCannotBeCancelledOrSuperseded() {
+        FlattenJob job = new FlattenJob(null);
+        assertTrue(job.complete());
+        job.cancel();
+        assertFalse(job.supersede());
+        assertFalse(job.isCancelled());
+        assertFalse(job.isSuperseded());
+        assertTrue(job.complete());
+    }
+
+    @Test
+    public void supersededJobCannotComplete() {
+        FlattenJob job = new FlattenJob(null);
+        assertTrue(job.supersede());
+        assertTrue(job.isCancelled());
+        assertFalse(job.complete());
+    }
+}
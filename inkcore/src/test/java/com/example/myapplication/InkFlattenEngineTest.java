@@ -0,0 +1,63 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Inflater;
+
+import static org.junit.Assert.*;
+
+public class InkFlattenEngineTest {
+
+    /** Two A4 pages in points, the first with content. */
+    private static final InkFlattenEngine.PageBoxes A4 = new InkFlattenEngine.PageBoxes() {
+        @Override public int pageCount() { return 2; }
+        @Override public float width(int page) { return 595f; }
+        @Override public float height(int page) { return 842f; }
+        @Override public boolean hasContent(int page) { return page == 0; }
+    };
+
+    private static InkStroke line(InkStyle style, int page, float y) {
+        return new InkStroke(new float[]{10, y, 100, y}, null, null, style, page);
+    }
+
+    private static String inflate(byte[] z) throws Exception {
+        Inflater inf = new Inflater();
+        inf.setInput(z);
+        byte[] buf = new byte[64 * 1024];
+        int n = inf.inflate(buf);
+        inf.end();
+        return new String(buf, 0, n, StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void interleavedStylesKeepTheirDrawingOrder() throws Exception {
+        InkStyle red = InkStyle.of(0xFFFF0000, 2f, InkStyle.CAP_ROUND);
+        InkStyle green = InkStyle.of(0x8000FF00, 12f, InkStyle.CAP_SQUARE);
+        List<InkStroke> strokes = Arrays.asList(
+                line(red, 0, 100), line(red, 0, 110),
+                line(green, 0, 105),            // highlighter over the red lines
+                line(red, 0, 120),              // red again, over the highlighter
+                line(green, 1, 50), line(red, 7, 0)); // page 7 does not exist
+
+        List<InkFlattenEngine.PageInk> pages = InkFlattenEngine.plan(A4, null, null, strokes);
+        assertEquals(2, pages.size());
+        List<List<InkStroke>> runs = pages.get(0).runs;
+        assertEquals(3, runs.size());
+        assertEquals(Arrays.asList(strokes.get(0), strokes.get(1)), runs.get(0));
+        assertEquals(Arrays.asList(strokes.get(2)), runs.get(1));
+        assertEquals(Arrays.asList(strokes.get(3)), runs.get(2));
+
+        String ops = inflate(InkFlattenEngine.encode(pages, null, null).get(0));
+        int a1 = ops.indexOf("1 0 0 RG\n");
+        int b = ops.indexOf("0 1 0 RG\n");
+        int a2 = ops.indexOf("1 0 0 RG\n", a1 + 1);
+        assertTrue(ops, ops.startsWith("Q\n"));
+        assertTrue(ops, 0 < a1 && a1 < b && b < a2);
+        // Each run is its own stroked path, and the last red line is in the last one
+        assertEquals(3, ops.split("\nS\n", -1).length - 1);
+        assertTrue(ops, ops.indexOf("10 722 m\n", a2) > a2);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class InkJsonTest {
+
+    private static InkDocument roundTrip(InkDocument doc) throws IOException {
+        StringWriter w = new StringWriter();
+        InkJson.write(doc, w);
+        return InkJson.read(new StringReader(w.toString()));
+    }
+
+    @Test
+    public void roundTripKeepsEveryField() throws IOException {
+        InkStyle red = InkStyle.of(0x80FF0000, 6f, InkStyle.CAP_SQUARE);
+        InkStroke plain = new InkStroke(new float[]{1, 2, 3.5f, 4}, null, null, red, 0);
+        InkStroke rich = new InkStroke(new float[]{10, 10, 20, 15, 30, 10},
+                new float[]{0.2f, 0.5f, 0.9f}, null, new float[]{0.4f, 1f, 0.6f},
+                new float[]{10, 10, 13, 12, 17, 14, 20, 15},
+                InkStyle.of(0xFF1976D2, 8f, InkStyle.CAP_BUTT), 1);
+        InkDocument back = roundTrip(new InkDocument(new float[]{1080, 1527}, new float[]{1527, 1080},
+                Arrays.asList(plain, rich)));
+
+        assertArrayEquals(new float[]{1080, 1527}, back.pageWidth, 0f);
+        assertArrayEquals(new float[]{1527, 1080}, back.pageHeight, 0f);
+        assertEquals(2, back.strokes.size());
+        InkStroke p = back.strokes.get(0), r = back.strokes.get(1);
+        assertSame(red, p.style);
+        assertArrayEquals(plain.copyPoints(), p.copyPoints(), 0f);
+        assertFalse(p.hasPressure() || p.hasVariableWidth() || p.hasCurves());
+        assertEquals(1, r.pageIndex);
+        assertSame(rich.style, r.style);
+        assertEquals(0.5f, r.pressure(1), 0f);
+        assertEquals(0.6f, r.widthScale(2), 0f);
+        assertEquals(1, r.curveSegmentCount());
+        assertEquals(17f, r.curveCoord(4), 0f);
+    }
+
+    @Test
+    public void pageSizesAreOptional() throws IOException {
+        InkDocument doc = InkJson.read(new StringReader(
+                "{\"strokes\":[{\"page\":3,\"color\":\"#00FF00\",\"width\":2,\"points\":[0,0,5,5]}]}"));
+        assertFalse(doc.hasPageSizes());
+        InkStroke s = doc.strokes.get(0);
+        assertEquals(0xFF00FF00, s.style.color);
+        assertEquals(InkStyle.CAP_ROUND, s.style.cap);
+        assertEquals(3, s.pageIndex);
+    }
+
+    @Test
+    public void syntheticDocumentsRoundTrip() throws IOException {
+        InkDocument doc = new InkDocument(null, null, SyntheticInk.strokes(40, 3, 32, 5, true));
+        InkDocument back = roundTrip(doc);
+        for (int i = 0; i < doc.strokes.size(); i++) {
+            assertArrayEquals(doc.strokes.get(i).copyPoints(), back.strokes.get(i).copyPoints(), 0f);
+            assertEquals(doc.strokes.get(i).widthScale(7), back.strokes.get(i).widthScale(7), 0f);
+        }
+    }
+
+    @Test
+    public void invalidInputNamesTheProblem() {
+        assertMessage("{\"strokes\":[{\"page\":0,\"points\":[1,2,3]}]}", "Stroke 0");
+        assertMessage("{\"strokes\":[{\"page\":0,\"color\":\"red\",\"points\":[1,2]}]}", "color");
+        assertMessage("{\"pages\":[{\"width\":10,\"height\":10}],"
+                + "\"strokes\":[{\"page\":1,\"points\":[1,2]}]}", "page 1");
+        assertMessage("{\"version\":2}", "version");
+        assertMessage("{\"strokes\":{}}", "Malformed");
+    }
+
+    private static void assertMessage(String json, String expected) {
+        try {
+            InkJson.read(new StringReader(json));
+            fail("accepted " + json);
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(expected));
+        }
+    }
+}
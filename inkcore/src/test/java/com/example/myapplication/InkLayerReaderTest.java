@@ -0,0 +1,292 @@
+package com.example.myapplication;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+public class InkLayerReaderTest {
+
+    private static final float TOLERANCE = 0.5f / InkLayerFormat.DEFAULT_SCALE;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static byte[] encode(InkDocument doc) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InkLayerWriter.write(doc, out);
+        return out.toByteArray();
+    }
+
+    private static InkDocument synthetic(int strokes, int pages, long seed) {
+        float[][] sizes = SyntheticInk.pageSizes(pages, seed);
+        return new InkDocument(sizes[0], sizes[1], SyntheticInk.strokes(strokes, pages, 24, seed, true));
+    }
+
+    /** Strokes of {@code doc} regrouped page by page, the order a layer file holds them in. */
+    private static List<InkStroke> byPage(InkDocument doc) {
+        List<InkStroke> sorted = new ArrayList<>(doc.strokes);
+        sorted.sort((a, b) -> Integer.compare(a.pageIndex, b.pageIndex)); // stable
+        return sorted;
+    }
+
+    private static void assertStroke(InkStroke expected, InkStroke actual) {
+        assertSame(expected.style, actual.style);
+        assertEquals(expected.pageIndex, actual.pageIndex);
+        assertArrayEquals(expected.copyPoints(), actual.copyPoints(), TOLERANCE);
+        assertEquals(expected.hasPressure(), actual.hasPressure());
+        assertEquals(expected.hasTime(), actual.hasTime());
+        assertEquals(expected.hasVariableWidth(), actual.hasVariableWidth());
+        assertEquals(expected.curveSegmentCount(), actual.curveSegmentCount());
+        for (int i = 0; i < expected.pointCount(); i++) {
+            assertEquals(expected.pressure(i), actual.pressure(i), 0.5f / InkLayerFormat.UNIT_SCALE);
+            assertEquals(expected.timeMs(i), actual.timeMs(i));
+            assertEquals(expected.widthScale(i), actual.widthScale(i), 0.5f / InkLayerFormat.UNIT_SCALE);
+        }
+        for (int i = 0, n = expected.hasCurves() ? 2 + 6 * expected.curveSegmentCount() : 0; i < n; i++) {
+            assertEquals(expected.curveCoord(i), actual.curveCoord(i), TOLERANCE);
+        }
+    }
+
+    @Test
+    public void roundTripKeepsEveryFieldWithinQuantization() throws IOException {
+        InkStyle red = InkStyle.of(0x80FF0000, 6f, InkStyle.CAP_SQUARE);
+        InkStroke plain = new InkStroke(new float[]{1, 2, 3.5f, 4}, null, null, red, 0);
+        InkStroke rich = new InkStroke(new float[]{10.01f, 10, 20, 15.7f, -30, 1e5f},
+                new float[]{0.2f, 0.5f, 1.3f}, new int[]{0, 8, 17}, new float[]{0.4f, 1f, 0.001f},
+                new float[]{10, 10, 13, 12, 17, 14, 20, 15},
+                InkStyle.of(0xFF1976D2, 8f, InkStyle.CAP_BUTT), 2);
+        InkStroke empty = new InkStroke(new float[0], null, null, red, 2);
+        InkDocument back = InkLayerReader.open(encode(new InkDocument(
+                new float[]{1080, 1527, 1080}, new float[]{1527, 1080, 1527},
+                Arrays.asList(plain, rich, empty)))).readDocument();
+
+        assertArrayEquals(new float[]{1080, 1527, 1080}, back.pageWidth, 0f);
+        assertArrayEquals(new float[]{1527, 1080, 1527}, back.pageHeight, 0f);
+        assertEquals(3, back.strokes.size());
+        assertStroke(plain, back.strokes.get(0));
+        assertStroke(rich, back.strokes.get(1));
+        assertEquals(0, back.strokes.get(2).pointCount());
+        assertEquals(1f / InkLayerFormat.UNIT_SCALE, back.strokes.get(1).widthScale(2), 0f);
+    }
+
+    @Test
+    public void syntheticLayersRoundTripAndReencodeIdentically() throws IOException {
+        for (long seed = 1; seed <= 5; seed++) {
+            InkDocument doc = synthetic(300, 12, seed);
+            byte[] bytes = encode(doc);
+            InkDocument back = InkLayerReader.open(bytes).readDocument();
+            List<InkStroke> expected = byPage(doc);
+            assertEquals(expected.size(), back.strokes.size());
+            for (int i = 0; i < expected.size(); i++) assertStroke(expected.get(i), back.strokes.get(i));
+            // Quantized values are fixed points of the encoding
+            assertArrayEquals(bytes, encode(back));
+        }
+    }
+
+    @Test
+    public void readsOnePageWithoutTheOthers() throws IOException {
+        InkDocument doc = synthetic(400, 20, 11);
+        byte[] bytes = encode(doc);
+        try (InkLayerReader r = InkLayerReader.open(bytes)) {
+            int page = r.pages()[r.pages().length / 2];
+            List<InkStroke> expected = new ArrayList<>();
+            for (InkStroke s : doc.strokes) if (s.pageIndex == page) expected.add(s);
+            List<InkStroke> got = r.readPage(page);
+            assertEquals(expected.size(), r.strokeCount(page));
+            assertEquals(expected.size(), got.size());
+            for (int i = 0; i < got.size(); i++) assertStroke(expected.get(i), got.get(i));
+            assertTrue(r.readPage(400).isEmpty());
+        }
+
+        // Damage every other section: the page's own ink still reads
+        try (InkLayerReader r = InkLayerReader.open(bytes)) {
+            int[] pages = r.pages();
+            byte[] damaged = bytes.clone();
+            Arrays.fill(damaged, InkLayerFormat.HEADER_BYTES, sectionStart(bytes, pages[1]), (byte) 0x55);
+            try (InkLayerReader d = InkLayerReader.open(damaged)) {
+                assertEquals(r.readPage(pages[1]).size(), d.readPage(pages[1]).size());
+                try {
+                    d.readPage(pages[0]);
+                    fail("read a damaged section");
+                } catch (IOException expected) {
+                    assertTrue(expected.getMessage().contains("checksum"));
+                }
+            }
+        }
+    }
+
+    /** Offset of {@code page}'s section, found by re-encoding the pages before it. */
+    private static int sectionStart(byte[] bytes, int page) throws IOException {
+        InkLayerReader r = InkLayerReader.open(bytes);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InkLayerWriter w = new InkLayerWriter(out);
+        for (int p : r.pages()) {
+            if (p >= page) break;
+            w.writePage(p, r.readPage(p));
+        }
+        return out.size();
+    }
+
+    @Test
+    public void importsALargeLayerFromAFileAsOneUndoStep() throws IOException {
+        InkManager source = SyntheticInk.document(100, 500, 16, 3);
+        File f = tmp.newFile("layer.ink");
+        try (FileOutputStream out = new FileOutputStream(f)) {
+            InkLayerWriter.write(source, out);
+        }
+        // Under half the 8 bytes per point of packed floats, even for these 6-unit random steps
+        assertTrue(f.length() < 50_000L * 16 * 8 / 2);
+
+        InkManager ink = new InkManager();
+        try (InkLayerReader r = InkLayerReader.open(FileChannel.open(f.toPath(), StandardOpenOption.READ))) {
+            assertEquals(50_000, r.totalStrokes());
+            assertFalse(r.hasPageSizes());
+            assertEquals(50_000, r.readInto(ink));
+        }
+        assertEquals(50_000, ink.strokeCount());
+        for (int p = 0; p < 100; p += 33) {
+            List<InkStroke> a = source.getStrokesForPage(p), b = ink.getStrokesForPage(p);
+            assertEquals(a.size(), b.size());
+            assertArrayEquals(a.get(7).copyPoints(), b.get(7).copyPoints(), TOLERANCE);
+        }
+        ink.undo();
+        assertEquals(0, ink.strokeCount());
+    }
+
+    @Test
+    public void writerRejectsWhatItCannotStore() throws IOException {
+        InkLayerWriter w = new InkLayerWriter(new ByteArrayOutputStream());
+        InkStyle s = InkStyle.of(0xFF000000, 2f, InkStyle.CAP_ROUND);
+        w.writePage(3, Collections.singletonList(new InkStroke(new float[]{0, 0}, null, null, s, 3)));
+        assertThrows(IllegalArgumentException.class, () -> w.writePage(2, Collections.emptyList()));
+        assertThrows(IllegalArgumentException.class, () -> w.writePage(4,
+                Collections.singletonList(new InkStroke(new float[]{0, 0}, null, null, s, 5))));
+        assertThrows(IllegalArgumentException.class, () -> w.writePage(6,
+                Collections.singletonList(new InkStroke(new float[]{Float.NaN, 0}, null, null, s, 6))));
+        assertThrows(IllegalArgumentException.class, () -> w.writePage(7,
+                Collections.singletonList(new InkStroke(new float[]{0, 1e9f}, null, null, s, 7))));
+    }
+
+    @Test
+    public void aFailedPageLeavesNoReadableLayer() throws IOException {
+        InkStyle s = InkStyle.of(0xFF000000, 2f, InkStyle.CAP_ROUND);
+        InkDocument doc = new InkDocument(null, null, Arrays.asList(
+                new InkStroke(new float[]{0, 0, 10, 10}, null, null, s, 0),
+                new InkStroke(new float[]{Float.NaN, 0}, null, null, s, 1)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThrows(IllegalArgumentException.class, () -> InkLayerWriter.write(doc, out));
+        assertTrue(out.size() > InkLayerFormat.HEADER_BYTES); // page 0 went out
+        assertThrows(IOException.class, () -> InkLayerReader.open(out.toByteArray()));
+    }
+
+    @Test
+    public void styleDictionaryIsCapped() throws IOException {
+        List<InkStroke> strokes = new ArrayList<>();
+        for (int i = 0; i <= InkLayerFormat.MAX_STYLES; i++) {
+            InkStyle style = InkStyle.of(0xFF000000, i, InkStyle.CAP_ROUND);
+            strokes.add(new InkStroke(new float[]{0, 0}, null, null, style, 0));
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> new InkLayerWriter(new ByteArrayOutputStream()).writePage(0, strokes));
+
+        // A well-formed layer whose footer lists one style too many
+        InkLayerFormat.Sink footer = new InkLayerFormat.Sink(64);
+        footer.varint(strokes.size());
+        for (InkStroke s : strokes) {
+            footer.int4(s.style.color);
+            footer.int4(Float.floatToIntBits(s.style.width));
+            footer.byte1(s.style.cap);
+        }
+        footer.varint(0); // page sizes
+        footer.varint(0); // sections
+        CRC32 crc = new CRC32();
+        crc.update(footer.buf, 0, footer.size);
+        InkLayerFormat.Sink b = new InkLayerFormat.Sink(64);
+        b.int4(InkLayerFormat.MAGIC);
+        b.byte1(InkLayerFormat.VERSION);
+        b.int4(InkLayerFormat.DEFAULT_SCALE);
+        for (int i = 0; i < footer.size; i++) b.byte1(footer.buf[i]);
+        b.int4(0);
+        b.int4(InkLayerFormat.HEADER_BYTES);
+        b.int4((int) crc.getValue());
+        b.int4(InkLayerFormat.MAGIC);
+        IOException e = assertThrows(IOException.class, () -> InkLayerReader.open(Arrays.copyOf(b.buf, b.size)));
+        assertTrue(e.getMessage(), e.getMessage().contains("styles"));
+    }
+
+    @Test
+    public void corruptInputOnlyEverThrowsIOException() throws IOException {
+        byte[] valid = encode(synthetic(60, 4, 21));
+        Random r = new Random(42);
+        for (int round = 0; round < 3000; round++) {
+            byte[] b;
+            switch (round % 3) {
+                case 0:
+                    b = valid.clone();
+                    for (int k = 1 + r.nextInt(4); k > 0; k--) b[r.nextInt(b.length)] ^= (byte) (1 + r.nextInt(255));
+                    break;
+                case 1:
+                    b = Arrays.copyOf(valid, r.nextInt(valid.length));
+                    break;
+                default:
+                    b = new byte[r.nextInt(64)];
+                    r.nextBytes(b);
+            }
+            readEverything(b);
+        }
+    }
+
+    @Test
+    public void sectionDecoderSurvivesArbitraryBytes() throws IOException {
+        byte[] valid = encode(synthetic(60, 1, 8));
+        Random r = new Random(7);
+        try (InkLayerReader reader = InkLayerReader.open(valid)) {
+            byte[] section = Arrays.copyOfRange(valid, InkLayerFormat.HEADER_BYTES, sectionStart(valid, 1));
+            List<InkStroke> out = new ArrayList<>();
+            reader.decodeSection(0, section, section.length, out);
+            assertEquals(60, out.size());
+
+            // Past the checksums: mutated and random sections must still fail cleanly
+            for (int round = 0; round < 5000; round++) {
+                byte[] b;
+                if (round % 2 == 0) {
+                    b = section.clone();
+                    for (int k = 1 + r.nextInt(3); k > 0; k--) b[r.nextInt(b.length)] = (byte) r.nextInt();
+                } else {
+                    b = new byte[1 + r.nextInt(256)];
+                    r.nextBytes(b);
+                }
+                out.clear();
+                try {
+                    reader.decodeSection(0, b, b.length, out);
+                } catch (IOException expected) {
+                    // fine
+                }
+            }
+        }
+    }
+
+    private static void readEverything(byte[] b) {
+        try (InkLayerReader r = InkLayerReader.open(b)) {
+            for (int p : r.pages()) r.readPage(p);
+            r.readDocument();
+        } catch (IOException expected) {
+            // fine: anything else fails the test
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InkManagerTest {
+
+    private static InkStroke stroke(int page) {
+        return new InkStroke(new float[]{0f, 0f}, null, null, InkStyle.of(0xFF000000, 1f, InkStyle.CAP_ROUND), page);
+    }
+
+    @Test
+    public void pageViewFollowsUndoRedoOrder() {
+        InkManager m = new InkManager();
+        InkStroke a = stroke(0), b = stroke(3), c = stroke(0), d = stroke(3);
+        m.add(a); m.add(b); m.add(c); m.add(d);
+
+        List<InkStroke> p0 = m.getStrokesForPage(0);
+        List<InkStroke> p3 = m.getStrokesForPage(3);
+        assertEquals(List.of(a, c), p0);
+        assertEquals(List.of(b, d), p3);
+
+        m.undo(); // d
+        m.undo(); // c
+        assertEquals(List.of(a), p0);
+        assertEquals(List.of(b), p3);
+
+        m.redo(); // c
+        assertEquals(List.of(a, c), p0);
+        assertEquals(List.of(b), p3);
+        assertEquals(List.of(a, b, c), m.getAll());
+        assertTrue(m.canRedo());
+
+        m.add(stroke(1));
+        assertFalse(m.canRedo());
+    }
+
+    @Test
+    public void clearPageDropsOnlyThatPageAndIsUndoable() {
+        InkManager m = new InkManager();
+        InkStroke a = stroke(0), b = stroke(1), c = stroke(0);
+        m.add(a); m.add(b); m.add(c);
+
+        m.clearPage(0);
+        assertTrue(m.getStrokesForPage(0).isEmpty());
+        assertEquals(List.of(b), m.getAll());
+
+        m.undo();
+        assertEquals(List.of(a, b, c), m.getAll());
+        m.redo();
+        assertEquals(List.of(b), m.getAll());
+        m.undo();
+        m.undo(); // c
+        m.undo(); // b
+        assertEquals(List.of(a), m.getAll());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void pageViewIsReadOnly() {
+        InkManager m = new InkManager();
+        m.add(stroke(0));
+        m.getStrokesForPage(0).clear();
+    }
+
+    @Test
+    public void epochChangesOnRemovalOnly() {
+        InkManager m = new InkManager();
+        m.add(stroke(0));
+        long e0 = m.getPageEpoch(0);
+        m.add(stroke(0));
+        assertEquals(e0, m.getPageEpoch(0));
+
+        m.undo();
+        long e1 = m.getPageEpoch(0);
+        assertNotEquals(e0, e1);
+        m.redo();
+        assertEquals(e1, m.getPageEpoch(0));
+
+        m.clear();
+        m.add(stroke(0));
+        assertNotEquals(e1, m.getPageEpoch(0));
+    }
+
+    @Test
+    public void unknownPageIsEmpty() {
+        InkManager m = new InkManager();
+        assertTrue(m.getStrokesForPage(42).isEmpty());
+        assertTrue(m.getStrokesForPage(-1).isEmpty());
+    }
+
+    @Test
+    public void hitTestFindsTopmostStrokeNearPoint() {
+        InkManager m = new InkManager();
+        InkStyle thin = InkStyle.of(0xFF000000, 2f, InkStyle.CAP_ROUND);
+        InkStroke below = new InkStroke(new float[]{0f, 0f, 100f, 0f}, null, null, thin, 0);
+        InkStroke above = new InkStroke(new float[]{50f, -50f, 50f, 50f}, null, null, thin, 0);
+        m.add(below);
+        m.add(above);
+
+        assertSame(above, m.hitTest(0, 50f, 0f, 1f));
+        assertSame(below, m.hitTest(0, 20f, 2f, 1.5f));   // within radius + half width
+        assertNull(m.hitTest(0, 20f, 5f, 1f));
+        assertNull(m.hitTest(1, 50f, 0f, 1f));
+
+        m.undo();
+        assertSame(below, m.hitTest(0, 50f, 0f, 1f));
+        List<InkStroke> out = new ArrayList<>();
+        assertEquals(1, m.queryPage(0, 40f, -10f, 60f, 10f, out));
+        m.redo();
+        out.clear();
+        assertEquals(2, m.queryPage(0, 40f, -10f, 60f, 10f, out));
+        assertEquals(List.of(below, above), out);
+    }
+
+    @Test
+    public void eraseSplitsStrokeAndUndoRestoresIt() {
+        InkManager m = new InkManager();
+        InkStyle style = InkStyle.of(0xFF000000, 2f, InkStyle.CAP_ROUND);
+        InkStroke below = new InkStroke(new float[]{0f, 50f, 100f, 50f}, null, null, style, 0);
+        InkStroke above = new InkStroke(new float[]{0f, 80f, 100f, 80f}, null, null, style, 0);
+        InkStroke other = stroke(1);
+        m.add(below); m.add(other); m.add(above);
+
+        float[] damage = new float[4];
+        m.beginErase(0, 5f);
+        assertFalse(m.eraseTo(50f, 0f, damage));
+        assertTrue(m.eraseTo(50f, 60f, damage));
+        m.endErase();
+
+        // The pieces of `below` stay under `above`
+        List<InkStroke> p0 = m.getStrokesForPage(0);
+        assertEquals(3, p0.size());
+        assertEquals(44f, p0.get(0).x(1), 1e-4f);
+        assertEquals(56f, p0.get(1).x(0), 1e-4f);
+        assertSame(above, p0.get(2));
+        assertEquals(4, m.getAll().size());
+        assertEquals(0f, damage[0], 1f);
+        assertEquals(100f, damage[2], 1f);
+
+        m.undo();
+        assertEquals(List.of(below, above), new ArrayList<>(p0));
+        assertEquals(List.of(below, other, above), m.getAll());
+        m.redo();
+        assertEquals(3, p0.size());
+        assertSame(above, p0.get(2));
+
+        m.undo();
+        m.undo(); // above
+        m.undo(); // other
+        m.redo();
+        m.redo();
+        assertEquals(List.of(below, other, above), m.getAll());
+    }
+
+    @Test
+    public void eraseThatMissesRecordsNothing() {
+        InkManager m = new InkManager();
+        m.add(stroke(0));
+        m.beginErase(0, 5f);
+        assertFalse(m.eraseTo(500f, 500f, null));
+        m.endErase();
+        m.undo();
+        assertFalse(m.canUndo());
+    }
+
+    private static InkStroke dot(float x, float y) {
+        return new InkStroke(new float[]{x, y, x + 1f, y + 1f}, null, null, InkStyle.of(0xFF000000, 1f, InkStyle.CAP_ROUND), 0);
+    }
+
+    @Test
+    public void nearbySmallStrokesCoalesceIntoOneUndo() {
+        InkManager m = new InkManager();
+        InkStroke big = new InkStroke(new float[]{0f, 0f, 100f, 100f}, null, null,
+                InkStyle.of(0xFF000000, 1f, InkStyle.CAP_ROUND), 0);
+        m.add(big);
+        m.add(dot(200f, 200f));
+        m.add(dot(205f, 200f));
+        m.add(dot(210f, 202f));
+        m.add(dot(500f, 500f)); // too far: a new step
+        assertEquals(5, m.strokeCount());
+
+        m.undo();
+        assertEquals(4, m.strokeCount());
+        m.undo();
+        assertEquals(List.of(big), m.getAll());
+        m.redo();
+        assertEquals(4, m.strokeCount());
+
+        m.setCoalesceExtent(0f);
+        m.add(dot(212f, 202f));
+        m.undo();
+        assertEquals(4, m.strokeCount());
+    }
+
+    @Test
+    public void historyBudgetDropsOldestEdits() {
+        InkManager m = new InkManager();
+        m.setCoalesceExtent(0f);
+        for (int i = 0; i < 10; i++) m.add(stroke(0));
+        m.clearPage(0);
+        long cleared = m.historyBytes();
+
+        long add = InkManager.EDIT_BYTES + InkManager.REF_BYTES;
+        m.setHistoryBudget(cleared - 5 * add);
+        assertEquals(cleared - 5 * add, m.historyBytes());
+        // The five oldest adds can no longer be undone, but their strokes stay
+        for (int i = 0; i < 6; i++) m.undo();
+        assertFalse(m.canUndo());
+        assertEquals(5, m.strokeCount());
+
+        m.clear();
+        m.setHistoryBudget(InkManager.DEFAULT_HISTORY_BYTES);
+        for (int i = 0; i < 10; i++) m.add(stroke(1));
+        m.undo();
+        assertTrue(m.canRedo());
+        m.add(stroke(1));
+        assertFalse(m.canRedo());
+        assertEquals(10 * add, m.historyBytes());
+    }
+
+    @Test
+    public void restyleKeepsDrawingOrderAndUndoes() {
+        InkManager m = new InkManager();
+        m.setCoalesceExtent(0f);
+        InkStroke a = stroke(0), b = stroke(0), c = stroke(0);
+        m.add(a); m.add(b); m.add(c);
+        InkStyle blue = InkStyle.of(0xFF1976D2, 4f, InkStyle.CAP_ROUND);
+
+        m.restyle(0, List.of(c, a), blue);
+        List<InkStroke> p0 = m.getStrokesForPage(0);
+        assertSame(blue, p0.get(0).style);
+        assertSame(b, p0.get(1));
+        assertSame(blue, p0.get(2).style);
+        assertArrayEquals(a.copyPoints(), p0.get(0).copyPoints(), 0f);
+
+        m.undo();
+        assertEquals(List.of(a, b, c), new ArrayList<>(p0));
+    }
+
+    @Test
+    public void strokeSplitAcrossPagesUndoesAsOneStep() {
+        InkManager m = new InkManager();
+        InkStroke before = stroke(1);
+        InkStroke top = new InkStroke(new float[]{10f, 700f, 20f, 792f}, null, null, before.style, 0);
+        InkStroke bottom = new InkStroke(new float[]{21f, 0f, 30f, 50f}, null, null, before.style, 1);
+        m.add(before);
+        m.add(top);
+        m.add(bottom, true);
+        assertEquals(List.of(before, bottom), m.getStrokesForPage(1));
+
+        m.undo();
+        assertEquals(List.of(before), m.getAll());
+        m.redo();
+        assertEquals(List.of(before, top, bottom), m.getAll());
+    }
+
+    @Test
+    public void joinOnlyContinuesThePreviousAdd() {
+        InkManager m = new InkManager();
+        m.setCoalesceExtent(0f);
+        InkStroke a = stroke(0), b = stroke(1), c = stroke(2);
+        m.add(a);
+        m.add(b);
+        m.undo();
+        // b's edit is gone: a continuation of it must not fold into a's
+        m.add(c, true);
+        m.undo();
+        assertEquals(List.of(a), m.getAll());
+
+        m.clearPage(0);
+        m.add(c, true);
+        m.undo();
+        assertTrue(m.getAll().isEmpty());
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class InkStrokeTest {
+
+    @Test
+    public void stylesAreInterned() {
+        InkStyle a = InkStyle.of(0xFFFF0000, 8f, InkStyle.CAP_ROUND);
+        InkStyle b = InkStyle.of(0xFFFF0000, 8f, InkStyle.CAP_ROUND);
+        assertSame(a, b);
+        assertSame(a, b.withWidth(4f).withWidth(8f));
+        assertNotSame(a, a.withColor(0xFF1976D2));
+        assertEquals(255, a.red());
+        assertEquals(0, a.green());
+    }
+
+    @Test
+    public void builderPacksPointsAndTrims() {
+        InkStroke.Builder b = new InkStroke.Builder();
+        for (int i = 0; i < 1000; i++) b.add(i, 2 * i, 0.5f, 100 + i);
+        InkStroke s = b.build(InkStyle.of(0xFF000000, 2f, InkStyle.CAP_ROUND), 7);
+
+        assertEquals(1000, s.pointCount());
+        assertEquals(999f, s.x(999), 0f);
+        assertEquals(1998f, s.y(999), 0f);
+        assertEquals(0.5f, s.pressure(10), 0f);
+        assertEquals(999, s.timeMs(999));
+        assertEquals(7, s.pageIndex);
+        assertEquals(2000, s.copyPoints().length);
+    }
+
+    @Test
+    public void builderIsReusable() {
+        InkStroke.Builder b = new InkStroke.Builder();
+        b.add(1, 1, 1f, 0).add(2, 2, 1f, 5);
+        b.reset().add(3, 4);
+        InkStroke s = b.build(InkStyle.of(0xFF000000, 2f, InkStyle.CAP_ROUND), 0);
+
+        assertEquals(1, s.pointCount());
+        assertEquals(3f, s.x(0), 0f);
+        assertFalse(s.hasPressure());
+        assertFalse(s.hasTime());
+        assertEquals(1f, s.pressure(0), 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOddCoordinateArray() {
+        new InkStroke(new float[3], null, null, InkStyle.of(0, 1f, InkStyle.CAP_ROUND), 0);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.myapplication;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void histogramsSummarizeTheIntervalAndReset() throws IOException {
+        Metrics m = new Metrics();
+        Metrics.Histogram h = m.histogram("draw.frame_us", 100, 20);
+        for (int v = 1; v <= 100; v++) h.record(v * 10); // 10 .. 1000
+        h.record(5000); // overflow bucket
+        m.counter("bytes").add(4096);
+
+        Metrics.Report r = m.report();
+        Metrics.Sample s = r.get("draw.frame_us");
+        assertEquals(101, s.count);
+        assertEquals(5000, s.max);
+        assertEquals((50500 + 5000) / 101.0, s.mean(), 1e-9);
+        assertEquals(600, s.p50);   // bucket 500..599 holds the 51st value
+        assertEquals(1000, s.p95);  // bucket 900..999 holds the 96th
+        assertEquals("bytes=4096", r.get("bytes").toString());
+        assertEquals("draw.frame_us", r.samples.get(0).name); // registration order
+
+        m.counter("bytes").increment();
+        Metrics.Report next = m.report();
+        assertEquals(0, next.get("draw.frame_us").count);
+        assertEquals(4097, next.get("bytes").count);
+    }
+
+    @Test
+    public void lookupsReturnTheRegisteredMetric() {
+        Metrics m = new Metrics();
+        assertSame(m.histogram("h", 10, 4), m.histogram("h", 10, 4));
+        assertSame(m.counter("c"), m.counter("c"));
+        assertThrows(IllegalArgumentException.class, () -> m.histogram("h", 20, 4));
+        assertThrows(IllegalArgumentException.class, () -> m.counter("h"));
+        assertThrows(IllegalArgumentException.class, () -> m.histogram("c", 10, 4));
+    }
+
+    @Test
+    public void ringBufferKeepsTheLatestReports() throws IOException {
+        Metrics m = new Metrics();
+        Metrics.Counter c = m.counter("commits");
+        Metrics.RingBufferSink ring = new Metrics.RingBufferSink(3);
+        m.setSinks(ring);
+        for (int i = 0; i < 5; i++) {
+            c.increment();
+            m.report();
+        }
+        List<Metrics.Report> reports = ring.reports();
+        assertEquals(3, reports.size());
+        assertEquals(3, reports.get(0).get("commits").count);
+        assertEquals(5, reports.get(2).get("commits").count);
+    }
+
+    @Test
+    public void fileSinkAppendsAndRollsOver() throws IOException {
+        File f = new File(tmp.getRoot(), "metrics.txt");
+        Metrics m = new Metrics();
+        m.histogram("flatten.save_ms", 20, 10).record(42);
+        m.setSinks(new Metrics.FileSink(f, 200));
+
+        m.report();
+        String first = new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8);
+        assertTrue(first, first.startsWith("metrics t="));
+        assertTrue(first, first.contains("flatten.save_ms n=1 mean=42.0 p50=42 p95=42 max=42\n"));
+
+        for (int i = 0; i < 5; i++) m.report();
+        assertTrue(new File(tmp.getRoot(), "metrics.txt.old").isFile());
+        assertTrue(f.length() <= 200 + first.length());
+    }
+
+    @Test
+    public void aFailingSinkDoesNotStarveTheOthers() {
+        Metrics m = new Metrics();
+        Metrics.RingBufferSink ring = new Metrics.RingBufferSink(1);
+        m.setSinks(r -> { throw new IOException("disk full"); }, ring);
+        try {
+            m.report();
+            fail("sink failure swallowed");
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+        assertEquals(1, ring.reports().size());
+    }
+
+    @Test
+    public void recordingDoesNotAllocate() {
+        Metrics m = new Metrics();
+        Metrics.Histogram h = m.histogram("h", 10, 100);
+        Metrics.Counter c = m.counter("c");
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (!(mx instanceof com.sun.management.ThreadMXBean)) return; // no allocation counter on this JVM
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) mx;
+        long id = Thread.currentThread().getId();
+        for (int i = 0; i < 20_000; i++) { // warm up
+            h.record(i);
+            c.add(i);
+        }
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 100_000; i++) {
+            h.record(i);
+            c.add(i);
+        }
+        long allocated = threads.getThreadAllocatedBytes(id) - before;
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+}
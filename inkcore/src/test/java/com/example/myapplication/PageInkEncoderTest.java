@@ -0,0 +1,109 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Inflater;
+
+import static org.junit.Assert.*;
+
+public class PageInkEncoderTest {
+
+    private static String num(float f) {
+        PageInkEncoder.Sink s = new PageInkEncoder.Sink(4);
+        s.num(f);
+        return new String(s.toArray(), StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void formatsNumbersLikePdfReals() {
+        assertEquals("0", num(0f));
+        assertEquals("0", num(-0.00001f));
+        assertEquals("12", num(12f));
+        assertEquals("-3.5", num(-3.5f));
+        assertEquals("0.0001", num(0.0001f));
+        assertEquals("841.8898", num(841.88976f));
+        assertEquals("1000000", num(1e6f));
+        assertEquals("0", num(Float.NaN));
+    }
+
+    @Test
+    public void encodesOnePathPerStyle() {
+        InkStyle red = InkStyle.of(0xFFFF0000, 2f, InkStyle.CAP_ROUND);
+        List<InkStroke> run = List.of(
+                new InkStroke(new float[]{0, 0, 10, 0}, null, null, red, 0),
+                new InkStroke(new float[]{0, 10, 10, 10}, null, null, red, 0));
+
+        String ops = new String(PageInkEncoder.encode(List.of(run), 0.5f, 0.5f, 100f, false),
+                StandardCharsets.US_ASCII);
+        assertEquals("1 J\n1 j\n1 0 0 RG\n1 w\n"
+                + "0 100 m\n5 100 l\n"
+                + "0 95 m\n5 95 l\n"
+                + "S\n", ops);
+    }
+
+    @Test
+    public void fillsVariableWidthOutlinesAfterTheStrokedPath() {
+        InkStyle red = InkStyle.of(0xFFFF0000, 2f, InkStyle.CAP_BUTT);
+        InkStroke constant = new InkStroke(new float[]{0, 0, 10, 0}, null, null, red, 0);
+        InkStroke variable = new InkStroke(new float[]{0, 10, 10, 10}, null, null,
+                new float[]{0.5f, 1f}, null, red, 0);
+        String ops = new String(PageInkEncoder.encode(
+                Collections.singletonList(List.of(constant, variable)), 1f, 1f, 100f, false),
+                StandardCharsets.US_ASCII);
+        assertEquals("1 J\n1 j\n1 0 0 RG\n2 w\n"
+                + "0 100 m\n10 100 l\n"
+                + "S\n"
+                + "1 0 0 rg\n"
+                + "0 89.5 m\n10 89 l\n10 91 l\n0 90.5 l\nh f\n", ops);
+    }
+
+    @Test
+    public void keepsDrawingOrderBetweenStrokedAndFilledInk() {
+        InkStyle red = InkStyle.of(0xFFFF0000, 2f, InkStyle.CAP_BUTT);
+        InkStroke under = new InkStroke(new float[]{0, 0, 10, 0}, null, null,
+                new float[]{1f, 1f}, null, red, 0);
+        InkStroke middle = new InkStroke(new float[]{0, 5, 10, 5}, null, null, red, 0);
+        InkStroke middle2 = new InkStroke(new float[]{0, 6, 10, 6}, null, null, red, 0);
+        InkStroke over = new InkStroke(new float[]{0, 10, 10, 10}, null, null,
+                new float[]{0.5f, 1f}, null, red, 0);
+        String ops = new String(PageInkEncoder.encode(
+                Collections.singletonList(List.of(under, middle, middle2, over)), 1f, 1f, 100f, false),
+                StandardCharsets.US_ASCII);
+        assertEquals("1 J\n1 j\n1 0 0 rg\n"
+                + "0 99 m\n10 99 l\n10 101 l\n0 101 l\nh f\n"
+                + "1 0 0 RG\n2 w\n"
+                + "0 95 m\n10 95 l\n"
+                + "0 94 m\n10 94 l\n"
+                + "S\n"
+                + "0 89.5 m\n10 89 l\n10 91 l\n0 90.5 l\nh f\n", ops);
+    }
+
+    @Test
+    public void restoresStateFirstWhenAskedAndEmitsCurves() {
+        InkStyle blue = InkStyle.of(0xFF0000FF, 1f, InkStyle.CAP_ROUND);
+        InkStroke curve = new InkStroke(new float[]{0, 0, 3, 0}, null, null,
+                new float[]{0, 0, 1, 0, 2, 0, 3, 0}, blue, 0);
+        String ops = new String(PageInkEncoder.encode(
+                Collections.singletonList(List.of(curve)), 1f, 1f, 10f, true),
+                StandardCharsets.US_ASCII);
+        assertTrue(ops.startsWith("Q\n"));
+        assertTrue(ops.contains("0 10 m\n1 10 2 10 3 10 c\n"));
+    }
+
+    @Test
+    public void deflateRoundTrips() throws Exception {
+        byte[] raw = new byte[50_000];
+        for (int i = 0; i < raw.length; i++) raw[i] = (byte) ("0123 l\n".charAt(i % 7));
+        byte[] z = PageInkEncoder.deflate(raw);
+        assertTrue(z.length < raw.length / 10);
+
+        Inflater inf = new Inflater();
+        inf.setInput(z);
+        byte[] back = new byte[raw.length];
+        assertEquals(raw.length, inf.inflate(back));
+        assertArrayEquals(raw, back);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StrokeEraserTest {
+
+    private static final InkStyle THIN = InkStyle.of(0xFF000000, 2f, InkStyle.CAP_ROUND);
+
+    private static InkStroke line(float x0, float x1, int n) {
+        float[] xy = new float[2 * n];
+        float[] p = new float[n];
+        int[] t = new int[n];
+        for (int i = 0; i < n; i++) {
+            xy[2 * i] = x0 + (x1 - x0) * i / (n - 1);
+            xy[2 * i + 1] = 50f;
+            p[i] = i / (float) (n - 1);
+            t[i] = 10 * i;
+        }
+        return new InkStroke(xy, p, t, THIN, 0);
+    }
+
+    /** Point at curve parameter u of a stroke's cubic chain. */
+    private static float[] curvePoint(InkStroke s, float u) {
+        int k = Math.min((int) u, s.curveSegmentCount() - 1);
+        float t = u - k, mt = 1 - t;
+        float b0 = mt * mt * mt, b1 = 3 * t * mt * mt, b2 = 3 * t * t * mt, b3 = t * t * t;
+        int i = 6 * k;
+        return new float[]{
+                b0 * s.curveCoord(i) + b1 * s.curveCoord(i + 2) + b2 * s.curveCoord(i + 4) + b3 * s.curveCoord(i + 6),
+                b0 * s.curveCoord(i + 1) + b1 * s.curveCoord(i + 3) + b2 * s.curveCoord(i + 5) + b3 * s.curveCoord(i + 7)};
+    }
+
+    @Test
+    public void piecesKeepTheirPartOfTheFittedCurves() {
+        // Half circle of radius 100 around (200, 200), fitted to cubics
+        int n = 200;
+        float[] raw = new float[2 * n];
+        for (int i = 0; i < n; i++) {
+            double a = Math.PI * i / (n - 1);
+            raw[2 * i] = (float) (200 + 100 * Math.cos(a));
+            raw[2 * i + 1] = (float) (200 - 100 * Math.sin(a));
+        }
+        InkStroke s = new StrokeSimplifier(0.5f, true).process(new InkStroke(raw, null, null, THIN, 0));
+        assertTrue(s.hasCurves());
+
+        List<InkStroke> pieces = new ArrayList<>();
+        // Vertical swipe through the top of the arc
+        assertTrue(StrokeEraser.split(s, 200f, 0f, 200f, 300f, 5f, pieces));
+        assertEquals(2, pieces.size());
+        for (InkStroke piece : pieces) {
+            assertTrue(piece.hasCurves());
+            // The piece's curves run from its first to its last point ...
+            float[] start = curvePoint(piece, 0f), end = curvePoint(piece, piece.curveSegmentCount());
+            int last = piece.pointCount() - 1;
+            assertEquals(piece.x(0), start[0], 0.75f);
+            assertEquals(piece.y(0), start[1], 0.75f);
+            assertEquals(piece.x(last), end[0], 0.75f);
+            assertEquals(piece.y(last), end[1], 0.75f);
+            // ... along the original arc
+            for (float u = 0f; u <= piece.curveSegmentCount(); u += 0.125f) {
+                float[] q = curvePoint(piece, u);
+                assertEquals(100f, (float) Math.hypot(q[0] - 200f, q[1] - 200f), 0.75f);
+                assertTrue(Math.abs(q[0] - 200f) >= 5f);
+            }
+        }
+        // The first piece starts exactly where the stroke's curves did
+        assertEquals(s.curveCoord(0), pieces.get(0).curveCoord(0), 0f);
+    }
+
+    @Test
+    public void cutThroughMiddleLeavesTwoPieces() {
+        InkStroke s = line(0f, 100f, 11);
+        List<InkStroke> pieces = new ArrayList<>();
+        // Vertical swipe at x = 50, radius 5 plus half width 1 erases x in [44, 56]
+        assertTrue(StrokeEraser.split(s, 50f, 0f, 50f, 100f, 5f, pieces));
+        assertEquals(2, pieces.size());
+
+        InkStroke left = pieces.get(0), right = pieces.get(1);
+        assertEquals(0f, left.x(0), 1e-4f);
+        assertEquals(44f, left.x(left.pointCount() - 1), 1e-4f);
+        assertEquals(56f, right.x(0), 1e-4f);
+        assertEquals(100f, right.x(right.pointCount() - 1), 1e-4f);
+        // Samples at the cut are interpolated
+        assertEquals(0.44f, left.pressure(left.pointCount() - 1), 1e-4f);
+        assertEquals(56, right.timeMs(0));
+        assertSame(THIN, right.style);
+    }
+
+    @Test
+    public void missLeavesStrokeAlone() {
+        List<InkStroke> pieces = new ArrayList<>();
+        assertFalse(StrokeEraser.split(line(0f, 100f, 5), 0f, 70f, 100f, 70f, 5f, pieces));
+        assertTrue(pieces.isEmpty());
+    }
+
+    @Test
+    public void coveringEraserRemovesWholeStroke() {
+        List<InkStroke> pieces = new ArrayList<>();
+        assertTrue(StrokeEraser.split(line(10f, 20f, 3), 0f, 50f, 30f, 50f, 5f, pieces));
+        assertTrue(pieces.isEmpty());
+    }
+
+    @Test
+    public void capsuleCoversRoundEnds() {
+        float[] t = new float[2];
+        // Segment passing just beyond the end disc of the capsule (0,0)-(10,0), r = 2
+        assertFalse(StrokeEraser.hit(13f, -5f, 13f, 5f, 0f, 0f, 10f, 0f, 2f, t));
+        assertTrue(StrokeEraser.hit(11.5f, -5f, 11.5f, 5f, 0f, 0f, 10f, 0f, 2f, t));
+        assertTrue(t[0] > 0.3f && t[1] < 0.7f);
+        // Parallel, off axis: enters and leaves through the end discs at x = ±sqrt(3) + {0, 10}
+        assertTrue(StrokeEraser.hit(-5f, 1f, 15f, 1f, 0f, 0f, 10f, 0f, 2f, t));
+        assertEquals((5f - (float) Math.sqrt(3)) / 20f, t[0], 1e-4f);
+        assertEquals((15f + (float) Math.sqrt(3)) / 20f, t[1], 1e-4f);
+    }
+}
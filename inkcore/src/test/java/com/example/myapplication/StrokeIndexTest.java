@@ -0,0 +1,79 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StrokeIndexTest {
+
+    private static InkStroke randomStroke(Random r, float extent) {
+        int n = 1 + r.nextInt(20);
+        float[] xy = new float[2 * n];
+        float x = r.nextFloat() * extent - 50f, y = r.nextFloat() * extent - 50f;
+        float step = r.nextBoolean() ? 4f : 80f; // short scribbles and long sweeps
+        for (int i = 0; i < n; i++) {
+            x += (r.nextFloat() - 0.5f) * step;
+            y += (r.nextFloat() - 0.5f) * step;
+            xy[2 * i] = x;
+            xy[2 * i + 1] = y;
+        }
+        return new InkStroke(xy, null, null, InkStyle.of(0xFF000000, 1f + r.nextInt(30), InkStyle.CAP_ROUND), 0);
+    }
+
+    private static List<InkStroke> bruteForce(List<InkStroke> all, float l, float t, float r, float b) {
+        List<InkStroke> out = new ArrayList<>();
+        for (InkStroke s : all) {
+            float pad = s.style.width / 2f;
+            if (s.right() + pad < l || s.left() - pad > r || s.bottom() + pad < t || s.top() - pad > b) continue;
+            out.add(s);
+        }
+        return out;
+    }
+
+    @Test
+    public void queryMatchesBruteForceInDrawingOrder() {
+        Random r = new Random(7);
+        StrokeIndex index = new StrokeIndex();
+        List<InkStroke> all = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            InkStroke s = randomStroke(r, 12_000f); // beyond MAX_CELLS * CELL on purpose
+            all.add(s);
+            index.add(s);
+        }
+        // Remove a third, like undo/erase would
+        for (int i = all.size() - 1; i >= 0; i -= 3) index.remove(all.remove(i));
+
+        List<InkStroke> got = new ArrayList<>();
+        for (int q = 0; q < 500; q++) {
+            float l = r.nextFloat() * 12_000f - 500f, t = r.nextFloat() * 12_000f - 500f;
+            float w = r.nextFloat() * (q % 10 == 0 ? 12_000f : 600f), h = r.nextFloat() * 600f;
+            got.clear();
+            int n = index.query(l, t, l + w, t + h, got);
+            assertEquals(n, got.size());
+            assertEquals(bruteForce(all, l, t, l + w, t + h), got);
+        }
+        assertEquals(all.size(), index.size());
+    }
+
+    @Test
+    public void explicitSequenceTakesThePlaceOfAnotherStroke() {
+        Random r = new Random(1);
+        StrokeIndex index = new StrokeIndex();
+        InkStroke a = randomStroke(r, 100f), b = randomStroke(r, 100f), c = randomStroke(r, 100f);
+        index.add(a);
+        long seqB = index.add(b);
+        index.add(c);
+        InkStroke piece = randomStroke(r, 100f);
+        assertEquals(seqB, index.remove(b));
+        index.add(piece, seqB);
+
+        List<InkStroke> got = new ArrayList<>();
+        index.query(-1e6f, -1e6f, 1e6f, 1e6f, got);
+        assertEquals(List.of(a, piece, c), got);
+        assertEquals(-1, index.remove(b));
+    }
+}
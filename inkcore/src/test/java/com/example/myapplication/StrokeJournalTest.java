@@ -0,0 +1,223 @@
+package com.example.myapplication;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StrokeJournalTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static InkStroke stroke(Random r, int page) {
+        InkStroke.Builder b = new InkStroke.Builder();
+        boolean variable = r.nextBoolean();
+        for (int i = 0, n = 2 + r.nextInt(30); i < n; i++) {
+            if (variable) {
+                b.add(r.nextFloat() * 1000f, r.nextFloat() * 1000f, r.nextFloat(), 1000L + i * 8, 0.1f + r.nextFloat() * 0.9f);
+            } else {
+                b.add(r.nextFloat() * 1000f, r.nextFloat() * 1000f, r.nextFloat(), 1000L + i * 8);
+            }
+        }
+        return b.build(InkStyle.of(0xFF000000 | r.nextInt(), 1f + r.nextInt(20), InkStyle.CAP_ROUND), page);
+    }
+
+    /** Attaches a journal to a fresh manager, replaying whatever the file holds. */
+    private static StrokeJournal open(File f, InkManager m) {
+        StrokeJournal j = new StrokeJournal(f, 10);
+        int[] replayed = {-1};
+        j.restore(m, Runnable::run, n -> replayed[0] = n);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (replayed[0] < 0 && System.currentTimeMillis() < deadline) Thread.yield();
+        assertTrue("restore timed out", replayed[0] >= 0);
+        return j;
+    }
+
+    private static InkManager reopen(File f) throws InterruptedException {
+        InkManager m = new InkManager();
+        StrokeJournal j = open(f, m);
+        j.close();
+        assertTrue(j.awaitClosed(5000));
+        return m;
+    }
+
+    private static void assertSameStrokes(List<InkStroke> expected, List<InkStroke> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            InkStroke e = expected.get(i), a = actual.get(i);
+            assertEquals(e.pageIndex, a.pageIndex);
+            assertSame(e.style, a.style);
+            assertArrayEquals(e.copyPoints(), a.copyPoints(), 0f);
+            assertEquals(e.hasVariableWidth(), a.hasVariableWidth());
+            for (int k = 0; k < e.pointCount(); k++) {
+                assertEquals(e.pressure(k), a.pressure(k), 0f);
+                assertEquals(e.timeMs(k), a.timeMs(k));
+                assertEquals(e.widthScale(k), a.widthScale(k), 0f);
+            }
+        }
+    }
+
+    /** Same live strokes, and the same strokes after redoing everything. */
+    private static void assertSameHistory(InkManager expected, InkManager actual) {
+        assertSameStrokes(expected.getAll(), actual.getAll());
+        assertEquals(expected.redoCount(), actual.redoCount());
+        while (expected.canRedo()) {
+            expected.redo();
+            actual.redo();
+        }
+        assertSameStrokes(expected.getAll(), actual.getAll());
+    }
+
+    @Test
+    public void replaysEditsIncludingRedoStack() throws Exception {
+        File f = new File(tmp.getRoot(), "doc.inkj");
+        Random r = new Random(1);
+        InkManager m = new InkManager();
+        StrokeJournal j = open(f, m);
+        for (int i = 0; i < 40; i++) m.add(stroke(r, i % 4));
+        m.add(new StrokeSimplifier(0.5f, true).process(stroke(r, 2)));
+        m.undo(); m.undo(); m.undo();
+        m.redo();
+        m.clearPage(1);
+        m.add(stroke(r, 3));
+        m.undo();
+        m.restyle(2, List.of(m.getStrokesForPage(2).get(0)), InkStyle.of(0xFF00FF00, 3f, InkStyle.CAP_ROUND));
+        // A coalesced run of dots, then undone: one record per dot, one undo for the run
+        for (int i = 0; i < 3; i++) {
+            m.add(new InkStroke(new float[]{50f + 3f * i, 50f, 51f + 3f * i, 51f}, null, null,
+                    InkStyle.of(0xFF000000, 2f, InkStyle.CAP_ROUND), 0));
+        }
+        m.undo();
+        m.clearPage(0);
+        m.undo();
+        m.undo();
+        j.close();
+        assertTrue(j.awaitClosed(5000));
+
+        InkManager back = reopen(f);
+        assertSameStrokes(m.getStrokesForPage(2), back.getStrokesForPage(2));
+        assertSameHistory(m, back);
+    }
+
+    @Test
+    public void replaysErases() throws Exception {
+        File f = new File(tmp.getRoot(), "doc.inkj");
+        Random r = new Random(4);
+        InkManager m = new InkManager();
+        StrokeJournal j = open(f, m);
+        for (int i = 0; i < 30; i++) m.add(stroke(r, 0));
+        for (int g = 0; g < 3; g++) {
+            m.beginErase(0, 20f);
+            for (int k = 0; k < 10; k++) m.eraseTo(100f + 80f * k, 150f + 250f * g + 10f * k, null);
+            m.endErase();
+        }
+        m.undo();
+        j.close();
+        assertTrue(j.awaitClosed(5000));
+
+        InkManager back = reopen(f);
+        assertTrue(back.getAll().size() > 30);
+        assertSameHistory(m, back);
+    }
+
+    @Test
+    public void dropsTornTail() throws Exception {
+        File f = new File(tmp.getRoot(), "doc.inkj");
+        Random r = new Random(2);
+        InkManager m = new InkManager();
+        StrokeJournal j = open(f, m);
+        for (int i = 0; i < 10; i++) m.add(stroke(r, 0));
+        j.close();
+        assertTrue(j.awaitClosed(5000));
+
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+        InkManager back = reopen(f);
+        assertSameStrokes(m.getAll().subList(0, 9), back.getAll());
+
+        // The truncated file stays appendable
+        InkManager again = new InkManager();
+        StrokeJournal j2 = open(f, again);
+        again.add(stroke(r, 1));
+        j2.close();
+        assertTrue(j2.awaitClosed(5000));
+        assertEquals(10, reopen(f).getAll().size());
+    }
+
+    @Test
+    public void deletesClosedAndEmptyJournals() throws Exception {
+        File dir = tmp.getRoot();
+        Random r = new Random(4);
+        File kept = StrokeJournal.fileFor(dir, "content://doc/kept");
+        File empty = StrokeJournal.fileFor(dir, "content://doc/empty");
+        File unsaved = StrokeJournal.fileFor(dir, "content://doc/unsaved");
+        File closed = StrokeJournal.fileFor(dir, "content://doc/closed");
+        for (File f : new File[]{kept, empty}) {
+            StrokeJournal j = open(f, new InkManager());
+            j.close();
+            assertTrue(j.awaitClosed(5000));
+        }
+        for (File f : new File[]{unsaved, closed}) {
+            InkManager m = new InkManager();
+            StrokeJournal j = open(f, m);
+            m.add(stroke(r, 0));
+            if (f == closed) j.delete(); else j.close();
+            assertTrue(j.awaitClosed(5000));
+        }
+        assertFalse(closed.exists());
+
+        StrokeJournal.deleteEmpty(dir, kept);
+        StrokeJournal probe = new StrokeJournal(kept, 10);
+        assertTrue(probe.awaitClosed(5000));
+        assertTrue(kept.exists());
+        assertFalse(empty.exists());
+        assertEquals(1, reopen(unsaved).strokeCount());
+    }
+
+    @Test
+    public void compactsAndClears() throws Exception {
+        File f = new File(tmp.getRoot(), "doc.inkj");
+        Random r = new Random(3);
+        InkManager m = new InkManager();
+        StrokeJournal j = open(f, m);
+        InkStroke keep = stroke(r, 0);
+        m.add(keep);
+        for (int i = 0; i < 2000; i++) {
+            m.add(stroke(r, 0));
+            m.undo();
+        }
+        j.close();
+        assertTrue(j.awaitClosed(5000));
+        long compacted = f.length();
+
+        InkManager back = reopen(f);
+        assertSameStrokes(m.getAll(), back.getAll());
+        assertEquals(m.redoCount(), back.redoCount());
+        assertTrue("journal was not compacted: " + compacted, compacted < 200_000);
+
+        StrokeJournal j2 = open(f, back);
+        back.clear();
+        j2.close();
+        assertTrue(j2.awaitClosed(5000));
+        assertEquals(StrokeJournal.HEADER_BYTES, f.length());
+    }
+
+    @Test
+    public void rejectsForeignFile() throws IOException, InterruptedException {
+        File f = new File(tmp.getRoot(), "doc.inkj");
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.writeBytes("%PDF-1.7 not a journal");
+        }
+        assertTrue(reopen(f).getAll().isEmpty());
+        assertEquals(StrokeJournal.HEADER_BYTES, f.length());
+    }
+}
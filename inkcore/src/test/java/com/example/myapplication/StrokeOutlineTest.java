@@ -0,0 +1,116 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StrokeOutlineTest {
+
+    private static final InkStyle ROUND = InkStyle.of(0xFF000000, 10f, InkStyle.CAP_ROUND);
+    private static final InkStyle BUTT = InkStyle.of(0xFF000000, 10f, InkStyle.CAP_BUTT);
+
+    private static InkStroke stroke(InkStyle style, float[] xy, float... widths) {
+        return new InkStroke(xy, null, null, widths, null, style, 0);
+    }
+
+    /** Point-in-polygon by winding number, matching the non-zero fill rule. */
+    private static boolean inside(float[] poly, float x, float y) {
+        int winding = 0;
+        for (int i = 0, n = poly.length / 2; i < n; i++) {
+            float ax = poly[2 * i], ay = poly[2 * i + 1];
+            float bx = poly[2 * ((i + 1) % n)], by = poly[2 * ((i + 1) % n) + 1];
+            float cross = (bx - ax) * (y - ay) - (x - ax) * (by - ay);
+            if (ay <= y && by > y && cross > 0) winding++;
+            else if (ay > y && by <= y && cross < 0) winding--;
+        }
+        return winding != 0;
+    }
+
+    @Test
+    public void buttOutlineFollowsPerPointWidths() {
+        InkStroke s = stroke(BUTT, new float[]{0, 0, 10, 0, 20, 0}, 0.2f, 1f, 0.6f);
+        assertArrayEquals(new float[]{
+                0, 1, 10, 5, 20, 3,        // left edge, forward
+                20, -3, 10, -5, 0, -1      // right edge, backward
+        }, s.outline(), 1e-5f);
+        assertTrue(inside(s.outline(), 10f, 4.9f));
+        assertFalse(inside(s.outline(), 2f, 4.9f));
+    }
+
+    @Test
+    public void roundCapsExtendPastTheEnds() {
+        InkStroke s = stroke(ROUND, new float[]{0, 0, 10, 0}, 1f, 1f);
+        float[] o = s.outline();
+        assertEquals(4 * 2 + 4 * StrokeOutline.CAP_SEGMENTS, o.length);
+        assertTrue(inside(o, 14.5f, 0f));
+        assertTrue(inside(o, -4.5f, 0f));
+        assertFalse(inside(o, 14.5f, 4f));
+        assertEquals(5f, s.inkPadding(), 1e-4f);
+    }
+
+    @Test
+    public void sharpTurnIsCoveredAndPaddingCoversTheMiter() {
+        // Out and almost straight back: the outline folds over itself at the turn
+        InkStroke s = stroke(ROUND, new float[]{0, 0, 50, 0, 0, 4}, 1f, 1f, 1f);
+        float[] o = s.outline();
+        for (float x = 0f; x <= 50f; x += 5f) assertTrue("x=" + x, inside(o, x, 0f));
+        for (int i = 0; i < o.length; i += 2) {
+            assertTrue(o[i] >= s.left() - s.inkPadding() - 1e-4f);
+            assertTrue(o[i] <= s.right() + s.inkPadding() + 1e-4f);
+            assertTrue(o[i + 1] >= s.top() - s.inkPadding() - 1e-4f);
+            assertTrue(o[i + 1] <= s.bottom() + s.inkPadding() + 1e-4f);
+        }
+        // The miter is limited, so ink never reaches further than the full width
+        assertTrue(s.inkPadding() <= ROUND.width * StrokeOutline.MITER_LIMIT / 2f + 1e-4f);
+    }
+
+    @Test
+    public void strokeWithoutLengthIsADisc() {
+        InkStroke s = stroke(ROUND, new float[]{5, 5, 5, 5}, 0.5f, 0.5f);
+        assertEquals(2 * StrokeOutline.DOT_SEGMENTS, s.outline().length);
+        assertTrue(inside(s.outline(), 5f, 7f));
+        assertFalse(inside(s.outline(), 5f, 8f));
+    }
+
+    @Test
+    public void constantWidthStrokesHaveNoOutline() {
+        InkStroke s = new InkStroke(new float[]{0, 0, 10, 0}, null, null, ROUND, 0);
+        assertNull(s.outline());
+        assertFalse(s.hasVariableWidth());
+        assertEquals(1f, s.widthScale(0), 0f);
+    }
+
+    @Test
+    public void erasedPiecesKeepInterpolatedWidths() {
+        InkStroke s = stroke(BUTT, new float[]{0, 0, 100, 0}, 0.2f, 1f);
+        List<InkStroke> pieces = new ArrayList<>();
+        assertTrue(StrokeEraser.split(s, 50f, -20f, 50f, 20f, 5f, pieces));
+        assertEquals(2, pieces.size());
+        InkStroke left = pieces.get(0);
+        // cut at x = 40: 0.2 + 0.8 * 0.4
+        assertEquals(0.52f, left.widthScale(left.pointCount() - 1), 1e-5f);
+        assertNotNull(left.outline());
+    }
+
+    @Test
+    public void widthModelThinsWithSpeedAndFollowsPressure() {
+        StrokeWidthModel m = new StrokeWidthModel(0.2f, 0.5f, 1f, 1f); // no smoothing
+        assertEquals(1f, m.next(0, 0, 1f, 0), 1e-6f);
+        // 10 units in 10 ms is the fast speed: half the width is lost
+        assertEquals(0.5f, m.next(10, 0, 1f, 10), 1e-6f);
+        m.reset();
+        assertEquals(0.2f + 0.8f * 0.5f, m.next(0, 0, 0.5f, 0), 1e-6f);
+        assertEquals(0.2f, m.next(100, 0, 0f, 1), 1e-6f); // never below the minimum
+
+        StrokeWidthModel smooth = new StrokeWidthModel();
+        float prev = smooth.next(0, 0, 1f, 0);
+        for (int i = 1; i < 20; i++) {
+            float w = smooth.next(0, 0, 0f, i);
+            assertTrue(w < prev && w > 0f);
+            prev = w;
+        }
+    }
+}
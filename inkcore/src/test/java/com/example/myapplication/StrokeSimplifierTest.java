@@ -0,0 +1,166 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StrokeSimplifierTest {
+
+    private static final InkStyle STYLE = InkStyle.of(0xFF000000, 2f, InkStyle.CAP_ROUND);
+    private static final float TOL = 0.5f;
+
+    private static InkStroke stroke(float[] xy) {
+        return new InkStroke(xy, null, null, STYLE, 0);
+    }
+
+    private static float[] sine(int n, float amplitude, float noise, long seed) {
+        Random r = new Random(seed);
+        float[] xy = new float[2 * n];
+        for (int i = 0; i < n; i++) {
+            float x = i * 0.7f;
+            xy[2 * i] = x + (float) r.nextGaussian() * noise;
+            xy[2 * i + 1] = (float) (amplitude * Math.sin(x / 15.0)) + (float) r.nextGaussian() * noise;
+        }
+        return xy;
+    }
+
+    private static float[] circle(int n, float radius) {
+        float[] xy = new float[2 * n];
+        for (int i = 0; i < n; i++) {
+            double a = 2 * Math.PI * i / (n - 1);
+            xy[2 * i] = (float) (100 + radius * Math.cos(a));
+            xy[2 * i + 1] = (float) (100 + radius * Math.sin(a));
+        }
+        return xy;
+    }
+
+    /** Distance from (px,py) to the closest point of polyline xy. */
+    private static double distToPolyline(float[] xy, float px, float py) {
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i + 3 < xy.length; i += 2) {
+            best = Math.min(best, StrokeSimplifier.segmentDistSq(px, py,
+                    xy[i], xy[i + 1], xy[i + 2], xy[i + 3]));
+        }
+        return Math.sqrt(best);
+    }
+
+    /** Dense polyline sampling of the stroke's Bézier curves. */
+    private static float[] sampleCurves(InkStroke s, int perSegment) {
+        int segs = s.curveSegmentCount();
+        float[] out = new float[2 * (segs * perSegment + 1)];
+        out[0] = s.curveCoord(0);
+        out[1] = s.curveCoord(1);
+        double[] b = new double[8];
+        double[] q = new double[2];
+        int o = 2;
+        for (int k = 0; k < segs; k++) {
+            b[0] = s.curveCoord(6 * k);       // start = end of the previous segment
+            b[1] = s.curveCoord(6 * k + 1);
+            for (int j = 0; j < 6; j++) b[2 + j] = s.curveCoord(2 + 6 * k + j);
+            for (int i = 1; i <= perSegment; i++) {
+                StrokeSimplifier.eval(b, (double) i / perSegment, q);
+                out[o++] = (float) q[0];
+                out[o++] = (float) q[1];
+            }
+        }
+        return out;
+    }
+
+    @Test
+    public void straightLineCollapsesToEndpoints() {
+        float[] xy = new float[200];
+        for (int i = 0; i < 100; i++) { xy[2 * i] = i; xy[2 * i + 1] = 2 * i; }
+        InkStroke out = new StrokeSimplifier(TOL, false).process(stroke(xy));
+        assertEquals(2, out.pointCount());
+        assertEquals(99f, out.x(1), 0f);
+        assertEquals(198f, out.y(1), 0f);
+    }
+
+    @Test
+    public void polylineStaysWithinTolerance() {
+        float[] raw = sine(2000, 40f, 0.2f, 1);
+        InkStroke out = new StrokeSimplifier(TOL, false).process(stroke(raw));
+        float[] kept = out.copyPoints();
+
+        assertTrue("expected a large reduction, got " + out.pointCount(), out.pointCount() < 400);
+        for (int i = 0; i < raw.length; i += 2) {
+            assertTrue(distToPolyline(kept, raw[i], raw[i + 1]) <= TOL + 1e-4);
+        }
+    }
+
+    @Test
+    public void curvesStayWithinToleranceOfSamples() {
+        for (float[] raw : new float[][]{sine(1500, 30f, 0.15f, 7), circle(720, 80f)}) {
+            InkStroke out = new StrokeSimplifier(TOL, true).process(stroke(raw));
+            assertTrue(out.hasCurves());
+            float[] curve = sampleCurves(out, 64);
+
+            // every raw sample is close to the fitted curve ...
+            for (int i = 0; i < raw.length; i += 2) {
+                assertTrue(distToPolyline(curve, raw[i], raw[i + 1]) <= TOL + 0.05);
+            }
+            // ... and the curve does not wander away from the raw stroke between samples
+            for (int i = 0; i < curve.length; i += 2) {
+                assertTrue(distToPolyline(raw, curve[i], curve[i + 1]) <= 2 * TOL);
+            }
+            assertTrue(out.curveSegmentCount() * 3 < raw.length / 2);
+        }
+    }
+
+    @Test
+    public void curvesEndAtStrokeEndpoints() {
+        float[] raw = circle(360, 50f);
+        InkStroke out = new StrokeSimplifier(TOL, true).process(stroke(raw));
+        int last = 2 + 6 * out.curveSegmentCount() - 2;
+        assertEquals(raw[0], out.curveCoord(0), 1e-4);
+        assertEquals(raw[1], out.curveCoord(1), 1e-4);
+        assertEquals(raw[raw.length - 2], out.curveCoord(last), 1e-4);
+        assertEquals(raw[raw.length - 1], out.curveCoord(last + 1), 1e-4);
+    }
+
+    @Test
+    public void keepsPressureAndTimeAlignedWithPoints() {
+        InkStroke.Builder b = new InkStroke.Builder();
+        for (int i = 0; i < 50; i++) b.add(i, 0, i / 50f, 1000 + i);
+        b.add(50, 10, 0.99f, 2000);
+        InkStroke out = new StrokeSimplifier(TOL, false).process(b.build(STYLE, 3));
+
+        assertEquals(3, out.pointCount());
+        assertEquals(49f, out.x(1), 0f);
+        assertEquals(49 / 50f, out.pressure(1), 0f);
+        assertEquals(1000, out.timeMs(2));
+        assertEquals(3, out.pageIndex);
+        assertSame(STYLE, out.style);
+    }
+
+    @Test
+    public void zeroToleranceIsPassThrough() {
+        InkStroke in = stroke(sine(100, 10f, 0f, 3));
+        StrokeSimplifier s = new StrokeSimplifier(0f, true);
+        assertSame(in, s.process(in));
+        assertEquals(0.0, s.stats().reduction(), 0.0);
+    }
+
+    @Test
+    public void handlesDegenerateInput() {
+        StrokeSimplifier s = new StrokeSimplifier(TOL, true);
+        assertEquals(1, s.process(stroke(new float[]{5, 5})).pointCount());
+        InkStroke dots = s.process(stroke(new float[]{5, 5, 5, 5, 5, 5, 5, 5}));
+        assertEquals(2, dots.pointCount());
+        assertFalse(dots.hasCurves());
+    }
+
+    @Test
+    public void statsAccumulate() {
+        StrokeSimplifier s = new StrokeSimplifier(TOL, true);
+        s.process(stroke(sine(1000, 20f, 0f, 5)));
+        s.process(stroke(sine(1000, 20f, 0f, 6)));
+        StrokeSimplifier.Stats st = s.stats();
+        assertEquals(2, st.strokes);
+        assertEquals(2000, st.inputPoints);
+        assertTrue(st.reduction() > 0.8);
+        assertTrue(st.curveSegments > 0);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SyntheticInkTest {
+
+    @Test
+    public void sameSeedGivesSameStrokes() {
+        List<InkStroke> a = SyntheticInk.strokes(50, 3, 16, 9, true);
+        List<InkStroke> b = SyntheticInk.strokes(50, 3, 16, 9, true);
+        for (int i = 0; i < a.size(); i++) {
+            assertArrayEquals(a.get(i).copyPoints(), b.get(i).copyPoints(), 0f);
+            assertEquals(a.get(i).pageIndex, b.get(i).pageIndex);
+            assertSame(a.get(i).style, b.get(i).style);
+            assertEquals(a.get(i).widthScale(5), b.get(i).widthScale(5), 0f);
+        }
+    }
+
+    @Test
+    public void documentHasRequestedShape() {
+        InkManager ink = SyntheticInk.document(4, 25, 10, 1);
+        assertEquals(100, ink.strokeCount());
+        for (int p = 0; p < 4; p++) {
+            assertEquals(25, ink.getStrokesForPage(p).size());
+            for (InkStroke s : ink.getStrokesForPage(p)) {
+                assertEquals(10, s.pointCount());
+                assertTrue(s.left() >= 0 && s.right() <= SyntheticInk.PAGE_W);
+                assertTrue(s.top() >= 0 && s.bottom() <= SyntheticInk.PAGE_H);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.myapplication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reproducible synthetic ink for tests and benchmarks: random-walk strokes sized as
+ * pages × strokes × points, from a seed. Shared by the JVM benchmarks (:benchmark), unit tests
+ * and the on-device benchmarks, so all of them measure the same documents.
+ */
+public final class SyntheticInk {
+
+    /** Page size in page-local units (≈ A4 at 1080px). */
+    public static final float PAGE_W = 1080f, PAGE_H = 1527f;
+
+    /** Step of the random walk between samples, in page-local units. */
+    private static final float STEP = 12f;
+
+    private static final InkStyle[] STYLES = {
+            InkStyle.of(0xFFFF0000, 8f, InkStyle.CAP_ROUND),
+            InkStyle.of(0xFF1976D2, 8f, InkStyle.CAP_ROUND),
+            InkStyle.of(0xFFFF0000, 3f, InkStyle.CAP_ROUND)};
+
+    private SyntheticInk() {}
+
+    /** Random-walk strokes spread over the first {@code pages} pages, in three styles. */
+    public static List<InkStroke> strokes(int count, int pages, int pointsPerStroke, long seed) {
+        return strokes(count, pages, pointsPerStroke, seed, false);
+    }
+
+    /**
+     * @param variableWidth also give each point a width from a random pressure and a
+     *                      steady 8 ms sample clock, as {@link StrokeWidthModel} would
+     */
+    public static List<InkStroke> strokes(int count, int pages, int pointsPerStroke, long seed,
+                                          boolean variableWidth) {
+        Random r = new Random(seed);
+        StrokeWidthModel widths = variableWidth ? new StrokeWidthModel() : null;
+        List<InkStroke> out = new ArrayList<>(count);
+        for (int s = 0; s < count; s++) {
+            float[] xy = new float[2 * pointsPerStroke];
+            float[] w = variableWidth ? new float[pointsPerStroke] : null;
+            float x = r.nextFloat() * PAGE_W, y = r.nextFloat() * PAGE_H;
+            if (widths != null) widths.reset();
+            for (int i = 0; i < pointsPerStroke; i++) {
+                x = Math.max(0, Math.min(PAGE_W, x + (r.nextFloat() - 0.5f) * STEP));
+                y = Math.max(0, Math.min(PAGE_H, y + (r.nextFloat() - 0.5f) * STEP));
+                xy[2 * i] = x;
+                xy[2 * i + 1] = y;
+                if (w != null) w[i] = widths.next(x, y, r.nextFloat(), 8L * i);
+            }
+            out.add(new InkStroke(xy, null, null, w, null, STYLES[r.nextInt(STYLES.length)], r.nextInt(pages)));
+        }
+        return out;
+    }
+
+    /** A document with {@code strokesPerPage} strokes on each of {@code pages} pages. */
+    public static InkManager document(int pages, int strokesPerPage, int pointsPerStroke, long seed) {
+        InkManager ink = new InkManager();
+        Random r = new Random(seed);
+        for (int p = 0; p < pages; p++) {
+            for (InkStroke s : strokes(strokesPerPage, 1, pointsPerStroke, r.nextLong())) {
+                ink.add(new InkStroke(s.copyPoints(), null, null, s.style, p));
+            }
+        }
+        return ink;
+    }
+
+    /**
+     * Raw pen samples of one gesture as a builder would receive them: a smooth random walk
+     * with jitter, pressure and 8 ms timestamps. Input for simplification and width models.
+     */
+    public static InkStroke rawGesture(int points, long seed) {
+        Random r = new Random(seed);
+        InkStroke.Builder b = new InkStroke.Builder();
+        float x = PAGE_W / 2, y = PAGE_H / 2, heading = 0f;
+        for (int i = 0; i < points; i++) {
+            heading += (r.nextFloat() - 0.5f) * 0.4f;
+            x += (float) Math.cos(heading) * 4f + (r.nextFloat() - 0.5f) * 0.6f;
+            y += (float) Math.sin(heading) * 4f + (r.nextFloat() - 0.5f) * 0.6f;
+            b.add(x, y, 0.3f + 0.7f * r.nextFloat(), 8L * i);
+        }
+        return b.build(STYLES[0], 0);
+    }
+
+    /** Page sizes of a document that mixes portrait A4 with occasional landscape pages. */
+    public static float[][] pageSizes(int pages, long seed) {
+        Random r = new Random(seed);
+        float[] w = new float[pages], h = new float[pages];
+        for (int i = 0; i < pages; i++) {
+            boolean landscape = r.nextInt(10) == 0;
+            w[i] = landscape ? PAGE_H : PAGE_W;
+            h[i] = landscape ? PAGE_W : PAGE_H;
+        }
+        return new float[][]{w, h};
+    }
+}